@@ -0,0 +1,79 @@
+package com.analyticalplatform.alert;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * State shared by every alert on one symbol with the same type and parameters, apart from the
+ * threshold. Each tick updates the state in O(1) amortized time, and the alerts it satisfies
+ * are taken from threshold-sorted maps. A tick therefore costs O(distinct conditions) plus the
+ * alerts that fire, however many alerts are waiting. Callers synchronize per symbol.
+ */
+public abstract class AlertCondition {
+
+    /**
+     * Alerts with equal keys on the same symbol share one condition.
+     */
+    public static String key(AlertEntry entry) {
+        return switch (entry.type()) {
+            case ABOVE, BELOW -> "PRICE";
+            case PERCENT_FROM_CLOSE -> entry.type().name();
+            case PERCENT_IN_WINDOW, VOLUME_SPIKE, MA_CROSS -> entry.type() + ":" + entry.window();
+            case TRAILING_STOP -> entry.type() + ":" + entry.threshold();
+        };
+    }
+
+    public static AlertCondition create(AlertEntry entry) {
+        return switch (entry.type()) {
+            case ABOVE, BELOW -> new PriceLevel();
+            case PERCENT_FROM_CLOSE -> new PercentFromClose();
+            case PERCENT_IN_WINDOW -> new PercentInWindow(entry.window());
+            case VOLUME_SPIKE -> new VolumeSpike(entry.window());
+            case MA_CROSS -> new MovingAverageCross(entry.window());
+            case TRAILING_STOP -> new TrailingStop(entry.threshold());
+        };
+    }
+
+    public abstract void add(AlertEntry entry);
+
+    /**
+     * Add an entry that has just re-armed.
+     */
+    public void rearm(AlertEntry entry) {
+        add(entry);
+    }
+
+    /**
+     * Returns false if the alert was not held here.
+     */
+    public abstract boolean remove(AlertEntry entry);
+
+    public abstract boolean isEmpty();
+
+    /**
+     * Add the ids of the alerts held here to the set.
+     */
+    public abstract void collectAlertIds(Set<Long> into);
+
+    public abstract void update(Tick tick);
+
+    /**
+     * Move the alerts satisfied as of the last update into the list.
+     */
+    public abstract void takeSatisfied(List<AlertEntry> into);
+
+    /**
+     * Put the alerts whose reference price moved since the last call into the map, as alert
+     * id -> reference in Money units. Only trailing stops keep one.
+     */
+    public void takeMovedReferences(Map<Long, Long> into) {
+    }
+
+    /**
+     * (part / whole) as a percentage in 1/10,000ths.
+     */
+    static long percentUnits(long part, long whole) {
+        return Math.multiplyExact(part, 1_000_000L) / whole;
+    }
+}
@@ -0,0 +1,70 @@
+package com.analyticalplatform.alert;
+
+import com.analyticalplatform.model.Money;
+import com.analyticalplatform.model.PriceAlert;
+
+/**
+ * What the alert index keeps for one untriggered alert. threshold is in 1/10,000ths: a price
+ * in Money units for ABOVE and BELOW, otherwise a percentage or multiple at the same scale.
+ * reference is the price a trailing stop starts from, 0 if none was known when it was created.
+ * firesLeft counts down to the fire that triggers the alert for good; recurring alerts wait
+ * cooldownMillis and a price move of hysteresis (a percentage in 1/10,000ths) before re-arming.
+ */
+public record AlertEntry(long alertId, long userId, String symbol, AlertType type, boolean up,
+                         long threshold, int window, long reference,
+                         int firesLeft, long cooldownMillis, long hysteresis) {
+
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    public static AlertEntry of(PriceAlert alert) {
+        AlertType type = AlertType.parse(alert.getAlertType());
+        long threshold = type.isPriceLevel() ? alert.getTargetPrice().units()
+                : alert.getThreshold() != null ? Money.of(alert.getThreshold()).units() : 0L;
+        return new AlertEntry(alert.getId(), alert.getUser().getId(), alert.getSymbol(), type,
+                isUp(type, alert.getDirection()),
+                threshold,
+                alert.getWindowSize() != null ? alert.getWindowSize() : 0,
+                alert.getReferencePrice() != null ? alert.getReferencePrice().units() : 0L,
+                alert.firesLeft(),
+                alert.getCooldownMinutes() != null ? alert.getCooldownMinutes() * 60_000L : 0L,
+                alert.getHysteresis() != null ? Money.of(alert.getHysteresis()).units() : 0L);
+    }
+
+    /**
+     * Whether the alert waits for its value to rise. Only BELOW and DOWN alerts wait for a fall.
+     */
+    public static boolean isUp(AlertType type, String direction) {
+        return type.isDirectional() ? "UP".equals(direction) : type != AlertType.BELOW;
+    }
+
+    /**
+     * Whether this fire triggers the alert for good.
+     */
+    public boolean isFinalFire() {
+        return firesLeft <= 1;
+    }
+
+    /**
+     * The entry to re-arm after this fire.
+     */
+    public AlertEntry fired() {
+        return new AlertEntry(alertId, userId, symbol, type, up, threshold, window, reference,
+                firesLeft == UNLIMITED ? UNLIMITED : firesLeft - 1, cooldownMillis, hysteresis);
+    }
+
+    /**
+     * Whether the alert fires on a price rise, a fall, or (VOLUME_SPIKE) neither: 1, -1 or 0.
+     */
+    int priceDirection() {
+        return switch (type) {
+            case VOLUME_SPIKE -> 0;
+            case TRAILING_STOP -> -1;
+            default -> up ? 1 : -1;
+        };
+    }
+
+    AlertEntry withReference(long price) {
+        return new AlertEntry(alertId, userId, symbol, type, up, threshold, window, price,
+                firesLeft, cooldownMillis, hysteresis);
+    }
+}
@@ -0,0 +1,63 @@
+package com.analyticalplatform.alert;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Conditions a PriceAlert can watch. The alert's threshold is a price for ABOVE and BELOW, a
+ * percentage for the PERCENT_* types and TRAILING_STOP, and a multiple of average volume for
+ * VOLUME_SPIKE. The window is minutes for PERCENT_IN_WINDOW and a number of price updates for
+ * VOLUME_SPIKE and MA_CROSS.
+ */
+public enum AlertType {
+    ABOVE(false, false),
+    BELOW(false, false),
+    PERCENT_FROM_CLOSE(true, false),
+    PERCENT_IN_WINDOW(true, true),
+    VOLUME_SPIKE(false, true),
+    MA_CROSS(true, true),
+    TRAILING_STOP(false, false);
+
+    private final boolean directional;
+    private final boolean windowed;
+
+    AlertType(boolean directional, boolean windowed) {
+        this.directional = directional;
+        this.windowed = windowed;
+    }
+
+    public static AlertType parse(String value) {
+        for (AlertType type : values()) {
+            if (type.name().equals(value)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Alert type must be one of " +
+                Arrays.stream(values()).map(Enum::name).collect(Collectors.joining(", ")));
+    }
+
+    public boolean isPriceLevel() {
+        return this == ABOVE || this == BELOW;
+    }
+
+    /**
+     * Whether the alert needs a direction, UP or DOWN.
+     */
+    public boolean isDirectional() {
+        return directional;
+    }
+
+    /**
+     * Whether the alert needs a window size.
+     */
+    public boolean isWindowed() {
+        return windowed;
+    }
+
+    /**
+     * Whether the alert needs a threshold other than a target price.
+     */
+    public boolean hasThreshold() {
+        return this != MA_CROSS && !isPriceLevel();
+    }
+}
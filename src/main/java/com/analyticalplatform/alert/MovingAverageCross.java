@@ -0,0 +1,58 @@
+package com.analyticalplatform.alert;
+
+import java.util.List;
+
+/**
+ * The price crossing its simple moving average over the last window updates. Only the update
+ * on which the cross happens satisfies alerts: UP alerts on a cross from below, DOWN alerts on
+ * a cross from above.
+ */
+final class MovingAverageCross extends ThresholdCondition {
+    private final long[] prices;
+    private int head;
+    private int count;
+    private long sum;
+    private int side;
+
+    MovingAverageCross(int period) {
+        this.prices = new long[period];
+    }
+
+    @Override
+    long threshold(AlertEntry entry) {
+        return entry.up() ? 1L : -1L;
+    }
+
+    @Override
+    public void update(Tick tick) {
+        if (count == prices.length) {
+            sum -= prices[head];
+        } else {
+            count++;
+        }
+        prices[head] = tick.price();
+        sum += tick.price();
+        head = (head + 1) % prices.length;
+        if (count < prices.length) {
+            return;
+        }
+
+        // Compare price with sum / count without dividing
+        int current = Long.compare(Math.multiplyExact(tick.price(), (long) count), sum);
+        if (current != 0) {
+            if (side != 0 && current != side) {
+                risingValue = current > 0 ? 1L : Long.MIN_VALUE;
+                fallingValue = current < 0 ? -1L : Long.MAX_VALUE;
+            }
+            side = current;
+        }
+    }
+
+    @Override
+    public void takeSatisfied(List<AlertEntry> into) {
+        super.takeSatisfied(into);
+        // A cross is an event, not a level; later alerts wait for the next one
+        risingValue = Long.MIN_VALUE;
+        fallingValue = Long.MAX_VALUE;
+    }
+}
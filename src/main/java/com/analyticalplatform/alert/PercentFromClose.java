@@ -0,0 +1,22 @@
+package com.analyticalplatform.alert;
+
+/**
+ * Percentage change from the previous close.
+ */
+final class PercentFromClose extends ThresholdCondition {
+
+    @Override
+    long threshold(AlertEntry entry) {
+        return entry.up() ? entry.threshold() : -entry.threshold();
+    }
+
+    @Override
+    public void update(Tick tick) {
+        if (tick.previousClose() <= 0L) {
+            return;
+        }
+        long change = percentUnits(tick.price() - tick.previousClose(), tick.previousClose());
+        risingValue = change;
+        fallingValue = change;
+    }
+}
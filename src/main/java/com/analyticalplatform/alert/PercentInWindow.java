@@ -0,0 +1,102 @@
+package com.analyticalplatform.alert;
+
+/**
+ * Rise from the lowest price, or fall from the highest, over the last window minutes. The
+ * minimum and maximum come from monotonic deques, so each tick is O(1) amortized.
+ */
+final class PercentInWindow extends ThresholdCondition {
+    private final long windowMillis;
+    private final PriceDeque lows = new PriceDeque();
+    private final PriceDeque highs = new PriceDeque();
+
+    PercentInWindow(int minutes) {
+        this.windowMillis = minutes * 60_000L;
+    }
+
+    @Override
+    long threshold(AlertEntry entry) {
+        return entry.up() ? entry.threshold() : -entry.threshold();
+    }
+
+    @Override
+    public void update(Tick tick) {
+        while (!lows.isEmpty() && lows.lastPrice() >= tick.price()) {
+            lows.removeLast();
+        }
+        lows.addLast(tick.time(), tick.price());
+        while (!highs.isEmpty() && highs.lastPrice() <= tick.price()) {
+            highs.removeLast();
+        }
+        highs.addLast(tick.time(), tick.price());
+
+        long cutoff = tick.time() - windowMillis;
+        while (lows.firstTime() < cutoff) {
+            lows.removeFirst();
+        }
+        while (highs.firstTime() < cutoff) {
+            highs.removeFirst();
+        }
+
+        risingValue = lows.firstPrice() > 0L ? percentUnits(tick.price() - lows.firstPrice(), lows.firstPrice())
+                : Long.MIN_VALUE;
+        fallingValue = highs.firstPrice() > 0L ? percentUnits(tick.price() - highs.firstPrice(), highs.firstPrice())
+                : Long.MAX_VALUE;
+    }
+
+    /**
+     * Ring of (time, price) pairs that grows as needed.
+     */
+    private static final class PriceDeque {
+        private long[] times = new long[16];
+        private long[] prices = new long[16];
+        private int head;
+        private int size;
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private void addLast(long time, long price) {
+            if (size == times.length) {
+                grow();
+            }
+            int index = (head + size) % times.length;
+            times[index] = time;
+            prices[index] = price;
+            size++;
+        }
+
+        private void removeLast() {
+            size--;
+        }
+
+        private void removeFirst() {
+            head = (head + 1) % times.length;
+            size--;
+        }
+
+        private long firstTime() {
+            return times[head];
+        }
+
+        private long firstPrice() {
+            return prices[head];
+        }
+
+        private long lastPrice() {
+            return prices[(head + size - 1) % prices.length];
+        }
+
+        private void grow() {
+            long[] newTimes = new long[times.length * 2];
+            long[] newPrices = new long[prices.length * 2];
+            for (int i = 0; i < size; i++) {
+                newTimes[i] = times[(head + i) % times.length];
+                newPrices[i] = prices[(head + i) % prices.length];
+            }
+            times = newTimes;
+            prices = newPrices;
+            head = 0;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.analyticalplatform.alert;
+
+/**
+ * ABOVE and BELOW: the price itself against target prices.
+ */
+final class PriceLevel extends ThresholdCondition {
+
+    @Override
+    long threshold(AlertEntry entry) {
+        return entry.threshold();
+    }
+
+    @Override
+    public void update(Tick tick) {
+        risingValue = tick.price();
+        fallingValue = tick.price();
+    }
+}
@@ -0,0 +1,94 @@
+package com.analyticalplatform.alert;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Recurring alerts of one symbol that have fired and are waiting to re-arm. An alert with a
+ * hysteresis band first waits for the price to move back through it: alerts that fired on a
+ * rise wait in a map keyed by the price they must fall to, and those that fired on a fall by
+ * the price they must rise to, so each tick releases a prefix of each map. The alert then
+ * waits out the rest of its cooldown in a queue ordered by the time it may fire again.
+ * Nothing here touches the database. Callers synchronize per symbol.
+ */
+public final class Rearming {
+    private record Held(AlertEntry entry, long readyAt) {
+    }
+
+    private final NavigableMap<Long, List<Held>> fallTo = new TreeMap<>(Comparator.reverseOrder());
+    private final NavigableMap<Long, List<Held>> riseTo = new TreeMap<>();
+    private final PriorityQueue<Held> cooling = new PriorityQueue<>(Comparator.comparingLong(Held::readyAt));
+
+    /**
+     * Hold an entry that fired at the given price and time (epoch ms).
+     */
+    public void hold(AlertEntry entry, long firePrice, long fireTime) {
+        Held held = new Held(entry, fireTime + entry.cooldownMillis());
+        int direction = entry.priceDirection();
+        if (entry.hysteresis() <= 0L || direction == 0 || firePrice <= 0L) {
+            cooling.add(held);
+        } else if (direction > 0) {
+            long level = Math.multiplyExact(firePrice, 1_000_000L - entry.hysteresis()) / 1_000_000L;
+            fallTo.computeIfAbsent(level, key -> new ArrayList<>(1)).add(held);
+        } else {
+            long level = Math.ceilDiv(Math.multiplyExact(firePrice, 1_000_000L + entry.hysteresis()), 1_000_000L);
+            riseTo.computeIfAbsent(level, key -> new ArrayList<>(1)).add(held);
+        }
+    }
+
+    /**
+     * Move the entries that may fire again at this price and time (epoch ms) into the list.
+     * Trailing stops restart from the current price.
+     */
+    public void release(long price, long time, List<AlertEntry> into) {
+        moveToCooling(fallTo.headMap(price, true));
+        moveToCooling(riseTo.headMap(price, true));
+        while (!cooling.isEmpty() && cooling.peek().readyAt() <= time) {
+            into.add(cooling.poll().entry().withReference(price));
+        }
+    }
+
+    public boolean remove(long alertId) {
+        return removeFrom(fallTo, alertId) || removeFrom(riseTo, alertId)
+                || cooling.removeIf(held -> held.entry().alertId() == alertId);
+    }
+
+    public void collectAlertIds(Set<Long> into) {
+        for (List<Held> held : fallTo.values()) {
+            held.forEach(each -> into.add(each.entry().alertId()));
+        }
+        for (List<Held> held : riseTo.values()) {
+            held.forEach(each -> into.add(each.entry().alertId()));
+        }
+        cooling.forEach(each -> into.add(each.entry().alertId()));
+    }
+
+    public boolean isEmpty() {
+        return fallTo.isEmpty() && riseTo.isEmpty() && cooling.isEmpty();
+    }
+
+    private void moveToCooling(Map<Long, List<Held>> reached) {
+        for (List<Held> held : reached.values()) {
+            cooling.addAll(held);
+        }
+        reached.clear();
+    }
+
+    private static boolean removeFrom(Map<Long, List<Held>> levels, long alertId) {
+        for (Map.Entry<Long, List<Held>> level : levels.entrySet()) {
+            if (level.getValue().removeIf(held -> held.entry().alertId() == alertId)) {
+                if (level.getValue().isEmpty()) {
+                    levels.remove(level.getKey());
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,80 @@
+package com.analyticalplatform.alert;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A condition whose alerts fire when a value computed from the ticks reaches their threshold:
+ * rising thresholds at or below risingValue, falling thresholds at or above fallingValue.
+ * Rising thresholds are kept ascending and falling ones descending, so the satisfied alerts
+ * are a prefix of each map. The initial values satisfy nothing.
+ */
+abstract class ThresholdCondition extends AlertCondition {
+    private final NavigableMap<Long, List<AlertEntry>> rising = new TreeMap<>();
+    private final NavigableMap<Long, List<AlertEntry>> falling = new TreeMap<>(Comparator.reverseOrder());
+
+    protected long risingValue = Long.MIN_VALUE;
+    protected long fallingValue = Long.MAX_VALUE;
+
+    /**
+     * The entry's threshold on the value's scale; falling thresholds are usually negative.
+     */
+    abstract long threshold(AlertEntry entry);
+
+    @Override
+    public void add(AlertEntry entry) {
+        side(entry).computeIfAbsent(threshold(entry), threshold -> new ArrayList<>(1)).add(entry);
+    }
+
+    @Override
+    public boolean remove(AlertEntry entry) {
+        NavigableMap<Long, List<AlertEntry>> side = side(entry);
+        List<AlertEntry> atThreshold = side.get(threshold(entry));
+        if (atThreshold == null || !atThreshold.removeIf(held -> held.alertId() == entry.alertId())) {
+            return false;
+        }
+        if (atThreshold.isEmpty()) {
+            side.remove(threshold(entry));
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return rising.isEmpty() && falling.isEmpty();
+    }
+
+    @Override
+    public void collectAlertIds(Set<Long> into) {
+        collect(rising, into);
+        collect(falling, into);
+    }
+
+    @Override
+    public void takeSatisfied(List<AlertEntry> into) {
+        take(rising.headMap(risingValue, true), into);
+        take(falling.headMap(fallingValue, true), into);
+    }
+
+    private NavigableMap<Long, List<AlertEntry>> side(AlertEntry entry) {
+        return entry.up() ? rising : falling;
+    }
+
+    private static void collect(Map<Long, List<AlertEntry>> side, Set<Long> into) {
+        for (List<AlertEntry> entries : side.values()) {
+            entries.forEach(entry -> into.add(entry.alertId()));
+        }
+    }
+
+    private static void take(Map<Long, List<AlertEntry>> reached, List<AlertEntry> into) {
+        for (List<AlertEntry> entries : reached.values()) {
+            into.addAll(entries);
+        }
+        reached.clear();
+    }
+}
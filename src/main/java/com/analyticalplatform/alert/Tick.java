@@ -0,0 +1,8 @@
+package com.analyticalplatform.alert;
+
+/**
+ * One price update for a symbol: epoch milliseconds, price and previous close in Money units
+ * (previous close 0 when unknown), and volume.
+ */
+public record Tick(long time, long price, long previousClose, long volume) {
+}
@@ -0,0 +1,145 @@
+package com.analyticalplatform.alert;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Fall of at least threshold percent from the highest price seen since each alert was created.
+ * Alerts are grouped by that high: a tick above some highs merges those groups into one at the
+ * new price, and the alerts that fire are the groups whose high is far enough above the price.
+ * Cost follows the number of distinct highs, not the number of alerts. Highs that differ from
+ * some alert's stored reference are remembered until takeMovedReferences, to be persisted.
+ */
+final class TrailingStop extends AlertCondition {
+    private final long percentUnits;
+    private final NavigableMap<Long, List<AlertEntry>> byHigh = new TreeMap<>();
+    // Created before any price was known; they start from the next tick
+    private final List<AlertEntry> unanchored = new ArrayList<>();
+    // Highs raised, or restarted by a re-arm, since the last takeMovedReferences
+    private final Set<Long> moved = new HashSet<>();
+    private long lastPrice;
+
+    TrailingStop(long percentUnits) {
+        this.percentUnits = percentUnits;
+    }
+
+    @Override
+    public void add(AlertEntry entry) {
+        long high = place(entry);
+        if (high > entry.reference()) {
+            moved.add(high);
+        }
+    }
+
+    @Override
+    public void rearm(AlertEntry entry) {
+        long high = place(entry);
+        if (high > 0L) {
+            moved.add(high);
+        }
+    }
+
+    /**
+     * Returns the high the entry trails from, 0 if it is unanchored.
+     */
+    private long place(AlertEntry entry) {
+        long high = Math.max(entry.reference(), lastPrice);
+        if (high <= 0L) {
+            unanchored.add(entry);
+        } else {
+            byHigh.computeIfAbsent(high, key -> new ArrayList<>(1)).add(entry);
+        }
+        return high;
+    }
+
+    @Override
+    public boolean remove(AlertEntry entry) {
+        if (unanchored.removeIf(held -> held.alertId() == entry.alertId())) {
+            return true;
+        }
+        for (Map.Entry<Long, List<AlertEntry>> group : byHigh.entrySet()) {
+            if (group.getValue().removeIf(held -> held.alertId() == entry.alertId())) {
+                if (group.getValue().isEmpty()) {
+                    byHigh.remove(group.getKey());
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return byHigh.isEmpty() && unanchored.isEmpty();
+    }
+
+    @Override
+    public void collectAlertIds(Set<Long> into) {
+        unanchored.forEach(entry -> into.add(entry.alertId()));
+        for (List<AlertEntry> group : byHigh.values()) {
+            group.forEach(entry -> into.add(entry.alertId()));
+        }
+    }
+
+    @Override
+    public void update(Tick tick) {
+        lastPrice = tick.price();
+
+        NavigableMap<Long, List<AlertEntry>> exceeded = byHigh.headMap(tick.price(), false);
+        if (!exceeded.isEmpty() || !unanchored.isEmpty()) {
+            List<AlertEntry> merged = byHigh.get(tick.price());
+            for (List<AlertEntry> group : exceeded.values()) {
+                // Keep the larger list and copy the smaller one into it
+                if (merged == null || group.size() > merged.size()) {
+                    if (merged != null) {
+                        group.addAll(merged);
+                    }
+                    merged = group;
+                } else {
+                    merged.addAll(group);
+                }
+            }
+            exceeded.clear();
+            if (merged == null) {
+                merged = new ArrayList<>(unanchored.size());
+            }
+            merged.addAll(unanchored);
+            unanchored.clear();
+            byHigh.put(tick.price(), merged);
+            moved.add(tick.price());
+        }
+    }
+
+    @Override
+    public void takeSatisfied(List<AlertEntry> into) {
+        if (lastPrice <= 0L) {
+            return;
+        }
+        // price <= high * (1 - percent / 100)  <=>  high >= price * 1,000,000 / (1,000,000 - percent units)
+        long lowestFiringHigh = Math.ceilDiv(Math.multiplyExact(lastPrice, 1_000_000L), 1_000_000L - percentUnits);
+        NavigableMap<Long, List<AlertEntry>> fired = byHigh.tailMap(lowestFiringHigh, true);
+        for (List<AlertEntry> group : fired.values()) {
+            into.addAll(group);
+        }
+        fired.clear();
+    }
+
+    @Override
+    public void takeMovedReferences(Map<Long, Long> into) {
+        // A high since merged into a later one, or fired, holds no alerts
+        for (long high : moved) {
+            List<AlertEntry> group = byHigh.get(high);
+            if (group != null) {
+                for (AlertEntry entry : group) {
+                    into.put(entry.alertId(), high);
+                }
+            }
+        }
+        moved.clear();
+    }
+}
@@ -0,0 +1,59 @@
+package com.analyticalplatform.alert;
+
+/**
+ * Volume traded since the previous update, as a multiple, in 1/10,000ths, of the average over
+ * the previous window updates. Ticks carry the session's cumulative volume, so each update's
+ * volume is the difference from the last reading; the first reading of a new UTC day, or one
+ * below the last, counts from zero. Ticks without a volume leave the averages alone.
+ */
+final class VolumeSpike extends ThresholdCondition {
+    private static final long DAY_MILLIS = 86_400_000L;
+
+    private final long[] volumes;
+    private int head;
+    private int count;
+    private long sum;
+    private long lastCumulative = -1L;
+    private long lastDay;
+
+    VolumeSpike(int window) {
+        this.volumes = new long[window];
+    }
+
+    @Override
+    long threshold(AlertEntry entry) {
+        return entry.threshold();
+    }
+
+    @Override
+    public void update(Tick tick) {
+        risingValue = Long.MIN_VALUE;
+        if (tick.volume() <= 0L) {
+            return;
+        }
+        long day = Math.floorDiv(tick.time(), DAY_MILLIS);
+        if (lastCumulative < 0L) {
+            // Nothing to measure the first reading against
+            lastCumulative = tick.volume();
+            lastDay = day;
+            return;
+        }
+        long volume = day != lastDay || tick.volume() < lastCumulative
+                ? tick.volume() : tick.volume() - lastCumulative;
+        lastCumulative = tick.volume();
+        lastDay = day;
+
+        if (count == volumes.length && sum > 0L) {
+            risingValue = Math.multiplyExact(volume, 10_000L * count) / sum;
+        }
+
+        if (count == volumes.length) {
+            sum -= volumes[head];
+        } else {
+            count++;
+        }
+        volumes[head] = volume;
+        sum += volume;
+        head = (head + 1) % volumes.length;
+    }
+}
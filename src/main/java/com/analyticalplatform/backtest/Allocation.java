@@ -0,0 +1,22 @@
+package com.analyticalplatform.backtest;
+
+/**
+ * Position sizing shared by the signal strategies.
+ */
+final class Allocation {
+    private Allocation() {
+    }
+
+    /**
+     * Cash divided evenly over the symbols not currently held.
+     */
+    static long equalShare(Ledger ledger, int symbols) {
+        int open = 0;
+        for (int s = 0; s < symbols; s++) {
+            if (ledger.quantity(s) == 0L) {
+                open++;
+            }
+        }
+        return open > 0 ? ledger.cash() / open : 0L;
+    }
+}
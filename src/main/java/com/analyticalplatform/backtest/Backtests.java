@@ -0,0 +1,94 @@
+package com.analyticalplatform.backtest;
+
+import com.analyticalplatform.dto.BacktestResultDTO;
+import com.analyticalplatform.model.Money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds strategies by name and replays a market through them.
+ *
+ * Strategies and their parameters (defaults in brackets):
+ * ma-crossover: fast [20], slow [50]; rsi: period [14], lower [30], upper [70]; rebalance: every [21] bars.
+ */
+public final class Backtests {
+    public static final List<String> STRATEGIES = List.of("ma-crossover", "rsi", "rebalance");
+
+    private Backtests() {
+    }
+
+    public static Strategy create(String name, Map<String, Double> parameters, MarketData market) {
+        return switch (name) {
+            case "ma-crossover" -> new MovingAverageCrossover(market, intParameter(parameters, "fast", 20),
+                    intParameter(parameters, "slow", 50));
+            case "rsi" -> new RsiThreshold(market, intParameter(parameters, "period", 14),
+                    parameter(parameters, "lower", 30.0), parameter(parameters, "upper", 70.0));
+            case "rebalance" -> new PeriodicRebalance(market, intParameter(parameters, "every", 21));
+            default -> throw new IllegalArgumentException("Unknown strategy: " + name + ". Use one of " + STRATEGIES);
+        };
+    }
+
+    /**
+     * Replay every bar through the strategy and summarize the equity curve. periodsPerYear
+     * annualizes the Sharpe ratio of the per-bar returns.
+     */
+    public static BacktestResultDTO run(MarketData market, Strategy strategy, Map<String, Double> parameters,
+                                        long initialCashUnits, double periodsPerYear) {
+        long startTime = System.nanoTime();
+        Ledger ledger = new Ledger(market.symbols(), initialCashUnits);
+
+        double previousEquity = initialCashUnits;
+        double peak = initialCashUnits;
+        double maxDrawdown = 0.0;
+        double returnSum = 0.0;
+        double returnSquares = 0.0;
+        int bars = market.barCount();
+
+        for (int bar = 0; bar < bars; bar++) {
+            strategy.onBar(market, bar, ledger);
+
+            double equity = ledger.equity(market, bar);
+            double periodReturn = previousEquity > 0.0 ? equity / previousEquity - 1.0 : 0.0;
+            returnSum += periodReturn;
+            returnSquares += periodReturn * periodReturn;
+            peak = Math.max(peak, equity);
+            maxDrawdown = Math.max(maxDrawdown, peak > 0.0 ? (peak - equity) / peak : 0.0);
+            previousEquity = equity;
+        }
+
+        double meanReturn = returnSum / bars;
+        double variance = bars > 1 ? (returnSquares - bars * meanReturn * meanReturn) / (bars - 1) : 0.0;
+        double sharpe = variance > 0.0 ? meanReturn / Math.sqrt(variance) * Math.sqrt(periodsPerYear) : 0.0;
+
+        return BacktestResultDTO.builder()
+                .parameters(parameters)
+                .finalEquity(Money.ofUnits(Math.round(previousEquity)).toBigDecimal())
+                .totalReturnPercent(percent(previousEquity / initialCashUnits - 1.0))
+                .maxDrawdownPercent(percent(maxDrawdown))
+                .sharpeRatio(BigDecimal.valueOf(sharpe).setScale(4, RoundingMode.HALF_UP))
+                .trades(ledger.trades())
+                .realizedProfitLoss(Money.ofUnits(ledger.realizedProfitLoss()).toBigDecimal())
+                .elapsedMicros((System.nanoTime() - startTime) / 1_000L)
+                .build();
+    }
+
+    private static BigDecimal percent(double fraction) {
+        return BigDecimal.valueOf(fraction * 100.0).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static double parameter(Map<String, Double> parameters, String name, double defaultValue) {
+        Double value = parameters.get(name);
+        return value != null ? value : defaultValue;
+    }
+
+    private static int intParameter(Map<String, Double> parameters, String name, int defaultValue) {
+        double value = parameter(parameters, name, defaultValue);
+        if (value != Math.rint(value) || value < 1 || value > 1000) {
+            throw new IllegalArgumentException(name + " must be a whole number between 1 and 1000");
+        }
+        return (int) value;
+    }
+}
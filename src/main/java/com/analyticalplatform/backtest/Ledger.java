@@ -0,0 +1,101 @@
+package com.analyticalplatform.backtest;
+
+import com.analyticalplatform.exception.InsufficientFundsException;
+import com.analyticalplatform.model.Money;
+import com.analyticalplatform.model.UserStock;
+
+import java.util.List;
+
+/**
+ * Simulated cash and positions for one backtest. Positions are detached UserStock objects, so
+ * buys and sells follow the same average-cost rules as real trades; realized P&L is measured
+ * against the average buy price.
+ */
+public final class Ledger {
+    private final UserStock[] positions;
+    private long cash;
+    private long realizedProfitLoss;
+    private int trades;
+
+    Ledger(List<String> symbols, long initialCashUnits) {
+        this.positions = new UserStock[symbols.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = UserStock.builder().symbol(symbols.get(i)).build();
+        }
+        this.cash = initialCashUnits;
+    }
+
+    public long cash() {
+        return cash;
+    }
+
+    public long quantity(int symbol) {
+        return positions[symbol].getQuantity();
+    }
+
+    /**
+     * Whole shares the given amount of cash buys at the price.
+     */
+    public long affordable(long amountUnits, double price) {
+        long priceUnits = toUnits(price);
+        return priceUnits > 0L ? Math.max(0L, Math.min(amountUnits, cash) / priceUnits) : 0L;
+    }
+
+    public void buy(int symbol, long quantity, double price) {
+        if (quantity <= 0L) {
+            return;
+        }
+        Money fillPrice = Money.ofUnits(toUnits(price));
+        long cost = Money.multiplyUnits(fillPrice.units(), quantity);
+        if (cost > cash) {
+            throw new InsufficientFundsException("Insufficient funds for simulated purchase of " + quantity
+                    + " shares of " + positions[symbol].getSymbol());
+        }
+        positions[symbol].applyBuy(quantity, fillPrice);
+        cash -= cost;
+        trades++;
+    }
+
+    public void sell(int symbol, long quantity, double price) {
+        if (quantity <= 0L) {
+            return;
+        }
+        UserStock position = positions[symbol];
+        long fillPrice = toUnits(price);
+        long averageCost = position.getAverageBuyPrice().units();
+        position.applySell(quantity);
+        cash = Math.addExact(cash, Money.multiplyUnits(fillPrice, quantity));
+        realizedProfitLoss = Math.addExact(realizedProfitLoss, Money.multiplyUnits(fillPrice - averageCost, quantity));
+        trades++;
+    }
+
+    public void sellAll(int symbol, double price) {
+        sell(symbol, quantity(symbol), price);
+    }
+
+    /**
+     * Cash plus every position at the given bar's close.
+     */
+    public long equity(MarketData market, int bar) {
+        long equity = cash;
+        for (int s = 0; s < positions.length; s++) {
+            long quantity = positions[s].getQuantity();
+            if (quantity > 0L) {
+                equity = Math.addExact(equity, Money.multiplyUnits(toUnits(market.bars(s).close(bar)), quantity));
+            }
+        }
+        return equity;
+    }
+
+    long realizedProfitLoss() {
+        return realizedProfitLoss;
+    }
+
+    int trades() {
+        return trades;
+    }
+
+    private static long toUnits(double price) {
+        return Math.round(price * Money.ONE);
+    }
+}
@@ -0,0 +1,23 @@
+package com.analyticalplatform.backtest;
+
+import com.analyticalplatform.indicator.BarSeries;
+
+import java.util.List;
+
+/**
+ * Bar series of several symbols aligned on the same bar times: bar i of every series is the
+ * same moment. Read-only once built, so one instance is shared by all runs of a backtest.
+ */
+public record MarketData(List<String> symbols, List<BarSeries> series, boolean intraday) {
+    public int symbolCount() {
+        return symbols.size();
+    }
+
+    public int barCount() {
+        return series.get(0).size();
+    }
+
+    public BarSeries bars(int symbol) {
+        return series.get(symbol);
+    }
+}
@@ -0,0 +1,51 @@
+package com.analyticalplatform.backtest;
+
+import com.analyticalplatform.indicator.Indicator;
+import com.analyticalplatform.indicator.Indicators;
+
+/**
+ * Buys a symbol when its fast SMA crosses above the slow SMA and sells it when it crosses back
+ * below. Each entry gets an equal share of the cash left for the symbols not yet held.
+ */
+final class MovingAverageCrossover implements Strategy {
+    private final Indicator[] fast;
+    private final Indicator[] slow;
+    private final int[] previousSide;
+    private final double[] value = new double[1];
+
+    MovingAverageCrossover(MarketData market, int fastPeriod, int slowPeriod) {
+        if (fastPeriod >= slowPeriod) {
+            throw new IllegalArgumentException("fast must be shorter than slow");
+        }
+        int symbols = market.symbolCount();
+        this.fast = new Indicator[symbols];
+        this.slow = new Indicator[symbols];
+        this.previousSide = new int[symbols];
+        for (int s = 0; s < symbols; s++) {
+            fast[s] = Indicators.parse("sma:" + fastPeriod, market.intraday());
+            slow[s] = Indicators.parse("sma:" + slowPeriod, market.intraday());
+        }
+    }
+
+    @Override
+    public void onBar(MarketData market, int bar, Ledger ledger) {
+        for (int s = 0; s < fast.length; s++) {
+            fast[s].update(market.bars(s), bar, value);
+            double fastValue = value[0];
+            slow[s].update(market.bars(s), bar, value);
+            double slowValue = value[0];
+            if (Double.isNaN(slowValue)) {
+                continue;
+            }
+
+            int side = fastValue > slowValue ? 1 : -1;
+            double close = market.bars(s).close(bar);
+            if (previousSide[s] == -1 && side == 1 && ledger.quantity(s) == 0L) {
+                ledger.buy(s, ledger.affordable(Allocation.equalShare(ledger, market.symbolCount()), close), close);
+            } else if (previousSide[s] == 1 && side == -1) {
+                ledger.sellAll(s, close);
+            }
+            previousSide[s] = side;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.analyticalplatform.backtest;
+
+import com.analyticalplatform.model.Money;
+
+/**
+ * Holds every symbol at an equal weight, trading back to the targets every given number of bars.
+ * Sells run before buys so the freed cash can fund the underweight symbols.
+ */
+final class PeriodicRebalance implements Strategy {
+    private final int everyBars;
+    private final long[] targets;
+
+    PeriodicRebalance(MarketData market, int everyBars) {
+        if (everyBars < 1) {
+            throw new IllegalArgumentException("every must be at least 1 bar");
+        }
+        this.everyBars = everyBars;
+        this.targets = new long[market.symbolCount()];
+    }
+
+    @Override
+    public void onBar(MarketData market, int bar, Ledger ledger) {
+        if (bar % everyBars != 0) {
+            return;
+        }
+
+        int symbols = market.symbolCount();
+        long targetValue = ledger.equity(market, bar) / symbols;
+        for (int s = 0; s < symbols; s++) {
+            long priceUnits = Math.round(market.bars(s).close(bar) * Money.ONE);
+            targets[s] = priceUnits > 0L ? targetValue / priceUnits : 0L;
+        }
+
+        for (int s = 0; s < symbols; s++) {
+            long excess = ledger.quantity(s) - targets[s];
+            if (excess > 0L) {
+                ledger.sell(s, excess, market.bars(s).close(bar));
+            }
+        }
+        for (int s = 0; s < symbols; s++) {
+            double close = market.bars(s).close(bar);
+            long shortfall = targets[s] - ledger.quantity(s);
+            if (shortfall > 0L) {
+                ledger.buy(s, Math.min(shortfall, ledger.affordable(ledger.cash(), close)), close);
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.analyticalplatform.backtest;
+
+import com.analyticalplatform.indicator.Indicator;
+import com.analyticalplatform.indicator.Indicators;
+
+/**
+ * Buys a symbol when its RSI drops below the lower threshold and sells it when the RSI rises
+ * above the upper threshold.
+ */
+final class RsiThreshold implements Strategy {
+    private final Indicator[] rsi;
+    private final double lower;
+    private final double upper;
+    private final double[] value = new double[1];
+
+    RsiThreshold(MarketData market, int period, double lower, double upper) {
+        if (!(lower > 0.0 && lower < upper && upper < 100.0)) {
+            throw new IllegalArgumentException("RSI thresholds must satisfy 0 < lower < upper < 100");
+        }
+        this.lower = lower;
+        this.upper = upper;
+        this.rsi = new Indicator[market.symbolCount()];
+        for (int s = 0; s < rsi.length; s++) {
+            rsi[s] = Indicators.parse("rsi:" + period, market.intraday());
+        }
+    }
+
+    @Override
+    public void onBar(MarketData market, int bar, Ledger ledger) {
+        for (int s = 0; s < rsi.length; s++) {
+            rsi[s].update(market.bars(s), bar, value);
+            if (Double.isNaN(value[0])) {
+                continue;
+            }
+
+            double close = market.bars(s).close(bar);
+            if (value[0] < lower && ledger.quantity(s) == 0L) {
+                ledger.buy(s, ledger.affordable(Allocation.equalShare(ledger, market.symbolCount()), close), close);
+            } else if (value[0] > upper) {
+                ledger.sellAll(s, close);
+            }
+        }
+    }
+}
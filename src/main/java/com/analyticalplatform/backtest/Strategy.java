@@ -0,0 +1,10 @@
+package com.analyticalplatform.backtest;
+
+/**
+ * Trading rule replayed bar by bar. onBar is called once per bar after its close is known, and
+ * orders placed on the ledger fill at that close. Implementations keep their own streaming state
+ * and are used for a single run.
+ */
+public interface Strategy {
+    void onBar(MarketData market, int bar, Ledger ledger);
+}
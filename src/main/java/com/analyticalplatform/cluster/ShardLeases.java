@@ -0,0 +1,204 @@
+package com.analyticalplatform.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * One node's view of the shard leases in cluster_nodes and shard_leases. Work keys (symbols)
+ * hash to a fixed number of shards. Every heartbeat the node records itself as alive, works
+ * out which shards it should hold among the live nodes by rendezvous hashing, gives up the
+ * rest and claims or renews its own. A claim is a conditional UPDATE that only succeeds if
+ * the shard is free, already ours, or its lease has expired, so at most one node holds a
+ * shard at a time. When a node joins, the others release its shards on their next heartbeat
+ * and it claims them on its own. When a node dies, its leases expire and the survivors claim
+ * them. Times are epoch ms from each node's clock; a held lease is trusted only until
+ * clockSkewMillis before it expires.
+ */
+@Slf4j
+public class ShardLeases {
+    private final JdbcTemplate jdbcTemplate;
+    private final String nodeId;
+    private final int shardCount;
+    private final long leaseMillis;
+    private final long clockSkewMillis;
+
+    private volatile BitSet owned = new BitSet();
+    private volatile long ownedUntil = Long.MIN_VALUE;
+    private boolean seeded;
+
+    public ShardLeases(JdbcTemplate jdbcTemplate, String nodeId, int shardCount, long leaseMillis,
+                       long clockSkewMillis) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount must be positive");
+        }
+        if (clockSkewMillis >= leaseMillis) {
+            throw new IllegalArgumentException("clockSkewMillis must be shorter than leaseMillis");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.nodeId = nodeId;
+        this.shardCount = shardCount;
+        this.leaseMillis = leaseMillis;
+        this.clockSkewMillis = clockSkewMillis;
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    public int shardOf(String key) {
+        return Math.floorMod(key.hashCode(), shardCount);
+    }
+
+    /**
+     * Whether this node holds the key's shard at the given time.
+     */
+    public boolean owns(String key, long now) {
+        return ownsShard(shardOf(key), now);
+    }
+
+    public boolean ownsShard(int shard, long now) {
+        return now < ownedUntil && owned.get(shard);
+    }
+
+    /**
+     * Record this node as alive, rebalance against the other live nodes and renew the leases
+     * it keeps. Returns the shards held until now + leaseMillis.
+     */
+    public synchronized BitSet heartbeat(long now) {
+        seedShards();
+        if (jdbcTemplate.update("UPDATE cluster_nodes SET heartbeat_at = ? WHERE node_id = ?", now, nodeId) == 0) {
+            try {
+                jdbcTemplate.update("INSERT INTO cluster_nodes (node_id, started_at, heartbeat_at) VALUES (?, ?, ?)",
+                        nodeId, now, now);
+            } catch (DuplicateKeyException e) {
+                jdbcTemplate.update("UPDATE cluster_nodes SET heartbeat_at = ? WHERE node_id = ?", now, nodeId);
+            }
+        }
+
+        List<String> liveNodes = jdbcTemplate.queryForList(
+                "SELECT node_id FROM cluster_nodes WHERE heartbeat_at >= ?", String.class, now - leaseMillis);
+        if (!liveNodes.contains(nodeId)) {
+            liveNodes.add(nodeId);
+        }
+
+        BitSet wanted = new BitSet(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            if (nodeId.equals(assign(shard, liveNodes))) {
+                wanted.set(shard);
+            }
+        }
+
+        // Give up shards that now belong to another node before claiming any, and stop
+        // trusting them before another node can claim them
+        BitSet kept = (BitSet) owned.clone();
+        kept.and(wanted);
+        List<Object[]> release = new ArrayList<>();
+        for (int shard = owned.nextSetBit(0); shard >= 0; shard = owned.nextSetBit(shard + 1)) {
+            if (!wanted.get(shard)) {
+                release.add(new Object[]{shard, nodeId});
+            }
+        }
+        if (!release.isEmpty()) {
+            owned = kept;
+            jdbcTemplate.batchUpdate(
+                    "UPDATE shard_leases SET owner_node = NULL, lease_until = NULL WHERE shard_id = ? AND owner_node = ?",
+                    release);
+        }
+
+        long leaseUntil = now + leaseMillis;
+        List<Object[]> claims = new ArrayList<>();
+        List<Integer> claimed = new ArrayList<>();
+        for (int shard = wanted.nextSetBit(0); shard >= 0; shard = wanted.nextSetBit(shard + 1)) {
+            claims.add(new Object[]{nodeId, leaseUntil, shard, nodeId, now});
+            claimed.add(shard);
+        }
+        BitSet held = new BitSet(shardCount);
+        if (!claims.isEmpty()) {
+            int[] counts = jdbcTemplate.batchUpdate(
+                    "UPDATE shard_leases SET owner_node = ?, lease_until = ? WHERE shard_id = ? " +
+                            "AND (owner_node IS NULL OR owner_node = ? OR lease_until < ?)",
+                    claims);
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    held.set(claimed.get(i));
+                }
+            }
+        }
+
+        if (!held.equals(owned)) {
+            log.info("Node {} holds {} of {} shards with {} live nodes", nodeId, held.cardinality(),
+                    shardCount, liveNodes.size());
+        }
+        owned = held;
+        ownedUntil = leaseUntil - clockSkewMillis;
+        return (BitSet) held.clone();
+    }
+
+    /**
+     * Give up every lease and leave the cluster, so the other nodes take over at once.
+     */
+    public synchronized void leave() {
+        owned = new BitSet();
+        ownedUntil = Long.MIN_VALUE;
+        jdbcTemplate.update("UPDATE shard_leases SET owner_node = NULL, lease_until = NULL WHERE owner_node = ?", nodeId);
+        jdbcTemplate.update("DELETE FROM cluster_nodes WHERE node_id = ?", nodeId);
+    }
+
+    /**
+     * Forget nodes that stopped heartbeating before the cutoff.
+     */
+    public int pruneNodes(long cutoff) {
+        return jdbcTemplate.update("DELETE FROM cluster_nodes WHERE heartbeat_at < ?", cutoff);
+    }
+
+    /**
+     * The live node with the highest hash for the shard. Only shards of a node that joins or
+     * leaves change hands.
+     */
+    static String assign(int shard, List<String> liveNodes) {
+        String best = null;
+        long bestScore = Long.MIN_VALUE;
+        for (String node : liveNodes) {
+            long score = mix(node.hashCode() * 0x9E3779B97F4A7C15L + shard);
+            if (best == null || score > bestScore || (score == bestScore && node.compareTo(best) < 0)) {
+                best = node;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+
+    private void seedShards() {
+        if (seeded) {
+            return;
+        }
+        Set<Integer> existing = new HashSet<>(jdbcTemplate.queryForList("SELECT shard_id FROM shard_leases", Integer.class));
+        for (int shard = 0; shard < shardCount; shard++) {
+            if (!existing.contains(shard)) {
+                try {
+                    jdbcTemplate.update("INSERT INTO shard_leases (shard_id) VALUES (?)", shard);
+                } catch (DuplicateKeyException e) {
+                    // Another node seeded it first
+                }
+            }
+        }
+        seeded = true;
+    }
+}
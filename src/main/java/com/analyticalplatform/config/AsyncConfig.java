@@ -0,0 +1,31 @@
+package com.analyticalplatform.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Executor for @Async methods such as the PriceUpdatedEvent listeners. The WebSocket broker's
+ * own executors stop Spring Boot from creating its default one, so without this bean @Async
+ * would start a new thread per event. A full queue runs the listener on the publisher's
+ * thread rather than dropping the event; PriceTable publishes after commit, so that thread
+ * is never inside the transaction that learned the price.
+ */
+@Configuration
+public class AsyncConfig {
+
+    @Bean
+    public ThreadPoolTaskExecutor taskExecutor(@Value("${async.threads:8}") int threads,
+                                               @Value("${async.queue-capacity:10000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("async-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+}
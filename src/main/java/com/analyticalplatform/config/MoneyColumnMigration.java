@@ -0,0 +1,67 @@
+package com.analyticalplatform.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.List;
+
+/**
+ * Widens price columns created before Money to NUMERIC(19,4). ddl-auto=update only adds
+ * missing columns, so databases created earlier keep the NUMERIC(38,2) columns Hibernate
+ * made for BigDecimal and would round every stored price to cents. Columns that already
+ * have four decimals are left alone, so this runs once per database, after Hibernate's
+ * schema update.
+ */
+@DependsOn("entityManagerFactory")
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MoneyColumnMigration {
+    private static final int MONEY_SCALE = 4;
+
+    private static final List<String[]> MONEY_COLUMNS = List.of(
+            new String[]{"stocks", "current_price"},
+            new String[]{"stocks", "previous_close"},
+            new String[]{"user_stocks", "average_buy_price"},
+            new String[]{"price_alerts", "target_price"});
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void migrate() {
+        for (String[] column : MONEY_COLUMNS) {
+            Integer scale = scaleOf(column[0], column[1]);
+            if (scale != null && scale < MONEY_SCALE) {
+                jdbcTemplate.execute("ALTER TABLE " + column[0] + " ALTER COLUMN " + column[1] +
+                        " SET DATA TYPE NUMERIC(19, " + MONEY_SCALE + ")");
+                log.info("Widened {}.{} from scale {} to NUMERIC(19,{})", column[0], column[1], scale, MONEY_SCALE);
+            }
+        }
+    }
+
+    /**
+     * The column's scale, or null if the table or column does not exist yet.
+     */
+    private Integer scaleOf(String table, String column) {
+        return jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            // Postgres folds unquoted names to lower case, H2 to upper case
+            for (String[] names : List.of(new String[]{table, column},
+                    new String[]{table.toUpperCase(), column.toUpperCase()})) {
+                try (ResultSet columns = metaData.getColumns(null, null, names[0], names[1])) {
+                    if (columns.next()) {
+                        return columns.getInt("DECIMAL_DIGITS");
+                    }
+                }
+            }
+            return null;
+        });
+    }
+}
@@ -74,7 +74,7 @@ public class SecurityConfig {
                         // Protect all endpoints - require authentication
                         .requestMatchers("/api/market/**", "/api/stocks/**", "/api/transactions/**",
                                 "/api/analytics/**", "/api/wallet/**", "/api/watchlists/**",
-                                "/api/alerts/**").authenticated()
+                                "/api/alerts/**", "/api/portfolio/**").authenticated()
                         // Admin-only endpoints
                         .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
@@ -0,0 +1,36 @@
+package com.analyticalplatform.controller;
+
+import com.analyticalplatform.service.DailyStatsService;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.Authorization;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/analytics")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ROLE_ADMIN')")
+@Tag(name = "Analytics Admin API", description = "API for maintaining analytics rollups (admin only)")
+public class AdminAnalyticsController {
+    private final DailyStatsService dailyStatsService;
+
+    @PostMapping("/daily-stats/rebuild")
+    @ApiOperation(value = "Rebuild daily trading stats for a date range", authorizations = {@Authorization(value = "JWT")})
+    public ResponseEntity<?> rebuildDailyStats(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            int rows = dailyStatsService.rebuild(from, to);
+            return ResponseEntity.ok(Map.of("from", from, "to", to, "rows", rows));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
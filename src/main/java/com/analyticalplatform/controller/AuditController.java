@@ -2,6 +2,7 @@ package com.analyticalplatform.controller;
 
 import com.analyticalplatform.model.AuditLog;
 import com.analyticalplatform.service.AuditService;
+import com.analyticalplatform.service.ExportService;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.Authorization;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -14,6 +15,7 @@ import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 
@@ -24,6 +26,7 @@ import java.time.LocalDateTime;
 @Tag(name = "Audit API", description = "API for audit logs (admin only)")
 public class AuditController {
     private final AuditService auditService;
+    private final ExportService exportService;
 
     @GetMapping("/user/{username}")
     @ApiOperation(value = "Get audit logs by username", authorizations = {@Authorization(value = "JWT")})
@@ -71,6 +74,21 @@ public class AuditController {
         return ResponseEntity.ok(logs);
     }
 
+    @GetMapping("/export")
+    @ApiOperation(value = "Export audit logs as CSV or NDJSON", authorizations = {@Authorization(value = "JWT")})
+    public ResponseEntity<StreamingResponseBody> exportAuditLogs(
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) String action,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+
+        ExportService.Format exportFormat = ExportService.parseFormat(format);
+        return exportService.toResponse("audit-logs", exportFormat, gzip,
+                exportService.exportAuditLogs(username, action, start, end, exportFormat, gzip));
+    }
+
     private Pageable createPageable(int page, int size, String sortBy, String sortDir) {
         Sort.Direction direction = sortDir.equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC;
         Sort sort = Sort.by(direction, sortBy);
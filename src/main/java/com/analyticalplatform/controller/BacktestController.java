@@ -0,0 +1,49 @@
+package com.analyticalplatform.controller;
+
+import com.analyticalplatform.dto.BacktestRequestDTO;
+import com.analyticalplatform.dto.BacktestRunDTO;
+import com.analyticalplatform.model.User;
+import com.analyticalplatform.service.BacktestService;
+import com.analyticalplatform.service.UserService;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.Authorization;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/backtests")
+@RequiredArgsConstructor
+@Tag(name = "Backtest API", description = "API for backtesting trading strategies on watchlists")
+public class BacktestController {
+    private final BacktestService backtestService;
+    private final UserService userService;
+
+    @PostMapping
+    @ApiOperation(value = "Start a backtest (progress on /user/queue/backtests)", authorizations = {@Authorization(value = "JWT")})
+    public ResponseEntity<BacktestRunDTO> startBacktest(@Valid @RequestBody BacktestRequestDTO request) {
+        User user = getCurrentUser();
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(backtestService.startBacktest(user, request));
+    }
+
+    @GetMapping("/{runId}")
+    @ApiOperation(value = "Get backtest progress and results", authorizations = {@Authorization(value = "JWT")})
+    public ResponseEntity<BacktestRunDTO> getBacktest(@PathVariable String runId) {
+        User user = getCurrentUser();
+        return ResponseEntity.ok(backtestService.getRun(user, runId));
+    }
+
+    private User getCurrentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
+
+        return userService.findByUsername(userDetails.getUsername())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+    }
+}
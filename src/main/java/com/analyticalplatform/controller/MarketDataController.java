@@ -2,6 +2,7 @@ package com.analyticalplatform.controller;
 
 import com.analyticalplatform.service.AlphaVantageService;
 import com.analyticalplatform.service.ApiRateLimiterService;
+import com.analyticalplatform.service.IndicatorService;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.Authorization;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -13,6 +14,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/market")
@@ -22,6 +24,7 @@ import java.time.format.DateTimeFormatter;
 public class MarketDataController {
     private final AlphaVantageService alphaVantageService;
     private final ApiRateLimiterService apiRateLimiterService;
+    private final IndicatorService indicatorService;
 
     @GetMapping("/search")
     @ApiOperation(value = "Search for stocks", authorizations = {@Authorization(value = "JWT")})
@@ -88,6 +91,24 @@ public class MarketDataController {
         }
     }
 
+    @GetMapping("/indicators/{symbol}")
+    @ApiOperation(value = "Get technical indicators (sma, ema, rsi, macd, bb, atr, vwap) over stored price history",
+            authorizations = {@Authorization(value = "JWT")})
+    public ResponseEntity<?> getIndicators(
+            @PathVariable String symbol,
+            @RequestParam(defaultValue = "daily") String interval,
+            @RequestParam(defaultValue = "sma:20,ema:50,rsi:14") List<String> indicators,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(indicatorService.getIndicators(symbol, interval, indicators, limit));
+        } catch (InterruptedException e) {
+            log.error("API rate limit error", e);
+            return ResponseEntity.status(429).body("API rate limit exceeded. Please try again later.");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @GetMapping("/quote/{symbol}")
     @ApiOperation(value = "Get global quote", authorizations = {@Authorization(value = "JWT")})
     public ResponseEntity<?> getGlobalQuote(@PathVariable String symbol) {
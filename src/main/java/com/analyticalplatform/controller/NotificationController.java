@@ -1,6 +1,8 @@
 package com.analyticalplatform.controller;
 
 import com.analyticalplatform.dto.NotificationDTO;
+import com.analyticalplatform.dto.NotificationDigestDTO;
+import com.analyticalplatform.dto.NotificationFrameDTO;
 import com.analyticalplatform.model.User;
 import com.analyticalplatform.service.NotificationService;
 import com.analyticalplatform.service.UserService;
@@ -17,6 +19,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -41,6 +44,36 @@ public class NotificationController {
         return ResponseEntity.ok(notifications);
     }
 
+    @GetMapping("/archive")
+    @ApiOperation(value = "Get archived (older read) notifications", authorizations = {@Authorization(value = "JWT")})
+    public ResponseEntity<Page<NotificationDTO>> getArchivedNotifications(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+
+        User user = getCurrentUser();
+        return ResponseEntity.ok(notificationService.getArchivedNotifications(user, PageRequest.of(page, size)));
+    }
+
+    @GetMapping("/digests")
+    @ApiOperation(value = "Get daily digests of compacted notifications", authorizations = {@Authorization(value = "JWT")})
+    public ResponseEntity<Page<NotificationDigestDTO>> getNotificationDigests(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "30") int size) {
+
+        User user = getCurrentUser();
+        return ResponseEntity.ok(notificationService.getNotificationDigests(user, PageRequest.of(page, size)));
+    }
+
+    @GetMapping("/since")
+    @ApiOperation(value = "Get notifications after a resume token", authorizations = {@Authorization(value = "JWT")})
+    public ResponseEntity<NotificationFrameDTO> getNotificationsSince(
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(defaultValue = "200") int limit) {
+
+        User user = getCurrentUser();
+        return ResponseEntity.ok(notificationService.getNotificationsSince(user, after, limit));
+    }
+
     @GetMapping("/unread")
     @ApiOperation(value = "Get unread notifications", authorizations = {@Authorization(value = "JWT")})
     public ResponseEntity<List<NotificationDTO>> getUnreadNotifications() {
@@ -71,12 +104,31 @@ public class NotificationController {
         }
     }
 
+    @PostMapping("/read")
+    @ApiOperation(value = "Mark notifications as read by id", authorizations = {@Authorization(value = "JWT")})
+    public ResponseEntity<Map<String, Integer>> markAsRead(@RequestBody List<Long> ids) {
+        User user = getCurrentUser();
+        int updated = notificationService.markAsRead(ids, user);
+        return ResponseEntity.ok(Map.of("updated", updated));
+    }
+
     @PostMapping("/read-all")
     @ApiOperation(value = "Mark all notifications as read", authorizations = {@Authorization(value = "JWT")})
-    public ResponseEntity<?> markAllAsRead() {
+    public ResponseEntity<Map<String, Integer>> markAllAsRead() {
+        User user = getCurrentUser();
+        int updated = notificationService.markAllAsRead(user);
+        return ResponseEntity.ok(Map.of("updated", updated));
+    }
+
+    @DeleteMapping
+    @ApiOperation(value = "Delete notifications older than a number of days", authorizations = {@Authorization(value = "JWT")})
+    public ResponseEntity<?> deleteOlderThan(@RequestParam int olderThanDays) {
+        if (olderThanDays < 0) {
+            return ResponseEntity.badRequest().body("olderThanDays must not be negative");
+        }
         User user = getCurrentUser();
-        notificationService.markAllAsRead(user);
-        return ResponseEntity.ok().build();
+        int deleted = notificationService.deleteOlderThan(user, LocalDateTime.now().minusDays(olderThanDays));
+        return ResponseEntity.ok(Map.of("deleted", deleted));
     }
 
     private User getCurrentUser() {
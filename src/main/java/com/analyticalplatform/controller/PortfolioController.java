@@ -0,0 +1,96 @@
+package com.analyticalplatform.controller;
+
+import com.analyticalplatform.dto.PortfolioHistoryDTO;
+import com.analyticalplatform.dto.PortfolioValuationDTO;
+import com.analyticalplatform.dto.RealizedProfitLossDTO;
+import com.analyticalplatform.dto.RiskReportDTO;
+import com.analyticalplatform.dto.TaxLotDTO;
+import com.analyticalplatform.model.User;
+import com.analyticalplatform.service.PortfolioHistoryService;
+import com.analyticalplatform.service.PortfolioValuationService;
+import com.analyticalplatform.service.RiskService;
+import com.analyticalplatform.service.TaxLotService;
+import com.analyticalplatform.service.UserService;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.Authorization;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/portfolio")
+@RequiredArgsConstructor
+@Tag(name = "Portfolio API", description = "API for portfolio valuation, cost basis and profit/loss")
+public class PortfolioController {
+    private final TaxLotService taxLotService;
+    private final UserService userService;
+    private final PortfolioValuationService portfolioValuationService;
+    private final PortfolioHistoryService portfolioHistoryService;
+    private final RiskService riskService;
+
+    @GetMapping("/valuation")
+    @ApiOperation(value = "Get live portfolio valuation", authorizations = {@Authorization(value = "JWT")})
+    public ResponseEntity<PortfolioValuationDTO> getValuation() {
+        User user = getCurrentUser();
+        return ResponseEntity.ok(portfolioValuationService.getValuation(user));
+    }
+
+    @GetMapping("/history")
+    @ApiOperation(value = "Get portfolio value history", authorizations = {@Authorization(value = "JWT")})
+    public ResponseEntity<PortfolioHistoryDTO> getHistory(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "500") int maxPoints) {
+        User user = getCurrentUser();
+        return ResponseEntity.ok(portfolioHistoryService.getHistory(user.getId(), from, to, maxPoints));
+    }
+
+    @GetMapping("/risk")
+    @ApiOperation(value = "Get Monte Carlo VaR and CVaR at 95% and 99%", authorizations = {@Authorization(value = "JWT")})
+    public ResponseEntity<RiskReportDTO> getRisk(
+            @RequestParam(defaultValue = "1") int horizonDays,
+            @RequestParam(required = false) Long budgetMs) {
+        User user = getCurrentUser();
+        return ResponseEntity.ok(riskService.assessRisk(user.getId(), horizonDays, budgetMs));
+    }
+
+    @GetMapping("/lots")
+    @ApiOperation(value = "Get open tax lots", authorizations = {@Authorization(value = "JWT")})
+    public ResponseEntity<List<TaxLotDTO>> getOpenLots(@RequestParam(required = false) String symbol) {
+        User user = getCurrentUser();
+        return ResponseEntity.ok(taxLotService.getOpenLots(user.getId(),
+                symbol != null ? symbol.toUpperCase() : null));
+    }
+
+    @GetMapping("/realized-pnl")
+    @ApiOperation(value = "Get realized profit/loss per symbol", authorizations = {@Authorization(value = "JWT")})
+    public ResponseEntity<List<RealizedProfitLossDTO>> getRealizedProfitLoss() {
+        User user = getCurrentUser();
+        return ResponseEntity.ok(taxLotService.getRealizedProfitLoss(user.getId()));
+    }
+
+    @GetMapping("/realized-pnl/{symbol}")
+    @ApiOperation(value = "Get realized profit/loss for a symbol", authorizations = {@Authorization(value = "JWT")})
+    public ResponseEntity<RealizedProfitLossDTO> getRealizedProfitLoss(@PathVariable String symbol) {
+        User user = getCurrentUser();
+        return taxLotService.getRealizedProfitLoss(user.getId(), symbol.toUpperCase())
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    private User getCurrentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
+
+        return userService.findByUsername(userDetails.getUsername())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+    }
+}
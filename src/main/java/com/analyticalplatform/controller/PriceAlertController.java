@@ -1,6 +1,7 @@
 package com.analyticalplatform.controller;
 
 import com.analyticalplatform.dto.PriceAlertDTO;
+import com.analyticalplatform.dto.PriceAlertTriggerDTO;
 import com.analyticalplatform.model.User;
 import com.analyticalplatform.service.PriceAlertService;
 import com.analyticalplatform.service.UserService;
@@ -41,6 +42,14 @@ public class PriceAlertController {
         return ResponseEntity.ok(alerts);
     }
 
+    @GetMapping("/{id}/triggers")
+    @ApiOperation(value = "Get the recent fires of a price alert", authorizations = {@Authorization(value = "JWT")})
+    public ResponseEntity<List<PriceAlertTriggerDTO>> getAlertTriggers(@PathVariable Long id,
+                                                                       @RequestParam(defaultValue = "50") int limit) {
+        User user = getCurrentUser();
+        return ResponseEntity.ok(priceAlertService.getAlertHistory(user, id, limit));
+    }
+
     @PostMapping
     @ApiOperation(value = "Create a new price alert", authorizations = {@Authorization(value = "JWT")})
     public ResponseEntity<?> createAlert(@Valid @RequestBody PriceAlertDTO alertDTO) {
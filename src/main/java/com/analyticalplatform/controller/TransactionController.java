@@ -1,22 +1,27 @@
 package com.analyticalplatform.controller;
 
 import com.analyticalplatform.dto.TransactionDTO;
-import com.analyticalplatform.model.StockTransaction;
+import com.analyticalplatform.dto.TransactionHistoryPageDTO;
 import com.analyticalplatform.model.User;
 import com.analyticalplatform.model.UserStock;
+import com.analyticalplatform.service.ExportService;
+import com.analyticalplatform.service.IdempotencyService;
 import com.analyticalplatform.service.TransactionService;
 import com.analyticalplatform.service.UserService;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.Authorization;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -26,14 +31,18 @@ import java.util.List;
 public class TransactionController {
     private final TransactionService transactionService;
     private final UserService userService;
+    private final IdempotencyService idempotencyService;
+    private final ExportService exportService;
 
     @PostMapping
     @ApiOperation(value = "Execute a stock transaction", authorizations = {@Authorization(value = "JWT")})
-    public ResponseEntity<?> executeTransaction(@Valid @RequestBody TransactionDTO transactionDTO) {
+    public ResponseEntity<?> executeTransaction(
+            @Valid @RequestBody TransactionDTO transactionDTO,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         try {
             User user = getCurrentUser();
-            StockTransaction transaction = transactionService.executeTransaction(user, transactionDTO);
-            return ResponseEntity.ok(transaction);
+            return idempotencyService.execute(user, idempotencyKey, "POST /api/transactions", transactionDTO,
+                    () -> transactionService.mapToDTO(transactionService.executeTransaction(user, transactionDTO)));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -41,9 +50,29 @@ public class TransactionController {
 
     @GetMapping
     @ApiOperation(value = "Get user's transaction history", authorizations = {@Authorization(value = "JWT")})
-    public ResponseEntity<List<StockTransaction>> getUserTransactions() {
+    public ResponseEntity<TransactionHistoryPageDTO> getUserTransactions(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String symbol,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
         User user = getCurrentUser();
-        return ResponseEntity.ok(transactionService.getUserTransactions(user.getId()));
+        return ResponseEntity.ok(transactionService.getUserTransactions(user.getId(), cursor, limit, symbol, type,
+                from, to));
+    }
+
+    @GetMapping("/export")
+    @ApiOperation(value = "Export user's transaction history as CSV or NDJSON", authorizations = {@Authorization(value = "JWT")})
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        User user = getCurrentUser();
+        ExportService.Format exportFormat = ExportService.parseFormat(format);
+        return exportService.toResponse("transactions", exportFormat, gzip,
+                exportService.exportTransactions(user.getId(), from, to, exportFormat, gzip));
     }
 
     @GetMapping("/portfolio")
@@ -4,19 +4,24 @@ import com.analyticalplatform.dto.WalletDTO;
 import com.analyticalplatform.dto.WalletOperationDTO;
 import com.analyticalplatform.exception.InsufficientFundsException;
 import com.analyticalplatform.model.User;
+import com.analyticalplatform.service.ExportService;
+import com.analyticalplatform.service.IdempotencyService;
 import com.analyticalplatform.service.UserService;
 import com.analyticalplatform.service.WalletService;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.Authorization;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
+import java.time.LocalDateTime;
 
 @RestController
 @RequestMapping("/api/wallet")
@@ -25,6 +30,8 @@ import jakarta.validation.Valid;
 public class WalletController {
     private final WalletService walletService;
     private final UserService userService;
+    private final IdempotencyService idempotencyService;
+    private final ExportService exportService;
 
     @GetMapping
     @ApiOperation(value = "Get user wallet", authorizations = {@Authorization(value = "JWT")})
@@ -36,11 +43,13 @@ public class WalletController {
 
     @PostMapping("/deposit")
     @ApiOperation(value = "Deposit funds", authorizations = {@Authorization(value = "JWT")})
-    public ResponseEntity<?> deposit(@Valid @RequestBody WalletOperationDTO depositDTO) {
+    public ResponseEntity<?> deposit(
+            @Valid @RequestBody WalletOperationDTO depositDTO,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         try {
             User user = getCurrentUser();
-            WalletDTO updatedWallet = walletService.deposit(user, depositDTO);
-            return ResponseEntity.ok(updatedWallet);
+            return idempotencyService.execute(user, idempotencyKey, "POST /api/wallet/deposit", depositDTO,
+                    () -> walletService.deposit(user, depositDTO));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -48,11 +57,13 @@ public class WalletController {
 
     @PostMapping("/withdraw")
     @ApiOperation(value = "Withdraw funds", authorizations = {@Authorization(value = "JWT")})
-    public ResponseEntity<?> withdraw(@Valid @RequestBody WalletOperationDTO withdrawDTO) {
+    public ResponseEntity<?> withdraw(
+            @Valid @RequestBody WalletOperationDTO withdrawDTO,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         try {
             User user = getCurrentUser();
-            WalletDTO updatedWallet = walletService.withdraw(user, withdrawDTO);
-            return ResponseEntity.ok(updatedWallet);
+            return idempotencyService.execute(user, idempotencyKey, "POST /api/wallet/withdraw", withdrawDTO,
+                    () -> walletService.withdraw(user, withdrawDTO));
         } catch (InsufficientFundsException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
@@ -60,6 +71,19 @@ public class WalletController {
         }
     }
 
+    @GetMapping("/export")
+    @ApiOperation(value = "Export wallet operations as CSV or NDJSON", authorizations = {@Authorization(value = "JWT")})
+    public ResponseEntity<StreamingResponseBody> exportOperations(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        User user = getCurrentUser();
+        ExportService.Format exportFormat = ExportService.parseFormat(format);
+        return exportService.toResponse("wallet-operations", exportFormat, gzip,
+                exportService.exportWalletOperations(user.getUsername(), from, to, exportFormat, gzip));
+    }
+
     private User getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         UserDetails userDetails = (UserDetails) authentication.getPrincipal();
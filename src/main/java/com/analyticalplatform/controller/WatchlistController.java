@@ -1,13 +1,16 @@
 package com.analyticalplatform.controller;
 
+import com.analyticalplatform.dto.CorrelationMatrixDTO;
 import com.analyticalplatform.dto.WatchlistDTO;
 import com.analyticalplatform.model.User;
+import com.analyticalplatform.service.CorrelationService;
 import com.analyticalplatform.service.UserService;
 import com.analyticalplatform.service.WatchlistService;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.Authorization;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -15,6 +18,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -24,6 +28,7 @@ import java.util.List;
 public class WatchlistController {
     private final WatchlistService watchlistService;
     private final UserService userService;
+    private final CorrelationService correlationService;
 
     @GetMapping
     @ApiOperation(value = "Get all user watchlists", authorizations = {@Authorization(value = "JWT")})
@@ -45,6 +50,18 @@ public class WatchlistController {
         }
     }
 
+    @GetMapping("/{id}/correlation")
+    @ApiOperation(value = "Get correlation matrix of the watchlist's daily returns",
+            authorizations = {@Authorization(value = "JWT")})
+    public ResponseEntity<CorrelationMatrixDTO> getCorrelationMatrix(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "false") boolean includeCovariance) {
+        User user = getCurrentUser();
+        return ResponseEntity.ok(correlationService.getCorrelationMatrix(user, id, from, to, includeCovariance));
+    }
+
     @PostMapping
     @ApiOperation(value = "Create a new watchlist", authorizations = {@Authorization(value = "JWT")})
     public ResponseEntity<?> createWatchlist(@Valid @RequestBody WatchlistDTO watchlistDTO) {
@@ -0,0 +1,46 @@
+package com.analyticalplatform.dto;
+
+import com.analyticalplatform.model.Money;
+import com.analyticalplatform.model.PriceAlert;
+import com.analyticalplatform.model.User;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * An untriggered alert as PriceAlertIndex needs it, selected by PriceAlertRepository's
+ * findActiveTargets queries without loading the alert entity or its user.
+ */
+public record ActiveAlertTarget(Long id, Long userId, String symbol, String alertType, Money targetPrice,
+                                String direction, BigDecimal threshold, Integer windowSize,
+                                Money referencePrice, LocalDateTime referenceMovedAt, Boolean recurring,
+                                Integer maxFires, Integer cooldownMinutes, BigDecimal hysteresis, Integer fireCount,
+                                LocalDateTime lastTriggeredAt, Money lastTriggeredPrice,
+                                LocalDateTime createdAt) {
+
+    /**
+     * A detached PriceAlert carrying these fields, with a user holding only its id.
+     */
+    public PriceAlert toAlert() {
+        return PriceAlert.builder()
+                .id(id)
+                .user(User.builder().id(userId).build())
+                .symbol(symbol)
+                .alertType(alertType)
+                .targetPrice(targetPrice)
+                .direction(direction)
+                .threshold(threshold)
+                .windowSize(windowSize)
+                .referencePrice(referencePrice)
+                .referenceMovedAt(referenceMovedAt)
+                .recurring(recurring)
+                .maxFires(maxFires)
+                .cooldownMinutes(cooldownMinutes)
+                .hysteresis(hysteresis)
+                .fireCount(fireCount)
+                .lastTriggeredAt(lastTriggeredAt)
+                .lastTriggeredPrice(lastTriggeredPrice)
+                .createdAt(createdAt)
+                .build();
+    }
+}
@@ -0,0 +1,17 @@
+package com.analyticalplatform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BacktestProgressDTO {
+    private String runId;
+    private String status;
+    private int completed;
+    private int total;
+}
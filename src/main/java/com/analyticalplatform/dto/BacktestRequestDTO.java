@@ -0,0 +1,35 @@
+package com.analyticalplatform.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Backtest of one strategy over a watchlist. Each entry of parameters lists the values to try;
+ * every combination is run, e.g. {"fast": [10, 20], "slow": [50, 100]} runs four backtests.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BacktestRequestDTO {
+    @NotNull(message = "Watchlist is required")
+    private Long watchlistId;
+
+    @NotBlank(message = "Strategy is required")
+    private String strategy;
+
+    private String interval;
+    private LocalDate from;
+    private LocalDate to;
+    private BigDecimal initialCash;
+    private Map<String, List<Double>> parameters;
+}
@@ -0,0 +1,25 @@
+package com.analyticalplatform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BacktestResultDTO {
+    private Map<String, Double> parameters;
+    private BigDecimal finalEquity;
+    private BigDecimal totalReturnPercent;
+    private BigDecimal maxDrawdownPercent;
+    private BigDecimal sharpeRatio;
+    private int trades;
+    private BigDecimal realizedProfitLoss;
+    private long elapsedMicros;
+    private String error;
+}
@@ -0,0 +1,33 @@
+package com.analyticalplatform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * State of a backtest run. Results are ordered by total return once the run has completed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BacktestRunDTO {
+    private String runId;
+    private String strategy;
+    private String interval;
+    private List<String> symbols;
+    private List<String> symbolsWithoutHistory;
+    private LocalDateTime firstBar;
+    private LocalDateTime lastBar;
+    private int bars;
+    private String status; // RUNNING, COMPLETED
+    private int completed;
+    private int total;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private List<BacktestResultDTO> results;
+}
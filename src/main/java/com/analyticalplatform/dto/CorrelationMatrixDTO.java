@@ -0,0 +1,31 @@
+package com.analyticalplatform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Pairwise correlation (and optionally covariance) of daily log returns, rows and columns in the
+ * order of symbols.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CorrelationMatrixDTO {
+    private Long watchlistId;
+    private LocalDate from;
+    private LocalDate to;
+    private int observations;
+    private List<String> symbols;
+    private List<String> symbolsWithoutHistory;
+    private double[][] correlation;
+    private double[][] covariance;
+    private boolean vectorized;
+    private LocalDateTime calculatedAt;
+}
@@ -0,0 +1,27 @@
+package com.analyticalplatform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indicator values aligned with the bar times. Keys are the indicator name, or "name.output" for
+ * indicators with several outputs, e.g. "macd(12,26,9).signal". Values are null until the
+ * indicator has seen enough bars.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IndicatorSeriesDTO {
+    private String symbol;
+    private String interval;
+    private List<LocalDateTime> times;
+    private double[] close;
+    private Map<String, Double[]> values;
+}
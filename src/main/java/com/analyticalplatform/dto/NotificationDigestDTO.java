@@ -0,0 +1,21 @@
+package com.analyticalplatform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NotificationDigestDTO {
+    private LocalDate day;
+    private String type;
+    private int count;
+    private LocalDateTime firstAt;
+    private LocalDateTime lastAt;
+}
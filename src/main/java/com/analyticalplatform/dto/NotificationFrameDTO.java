@@ -0,0 +1,25 @@
+package com.analyticalplatform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Notifications in id order, pushed on /user/queue/notifications or returned by
+ * /api/notifications/since. Pass the latest non-null resumeToken as ?after= after
+ * reconnecting to fetch what was missed. The token can trail the newest ids in the frame
+ * (and is null on a pushed frame with only very recent notifications), because ids are not
+ * committed in order; a resume may repeat notifications, which clients skip by id.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NotificationFrameDTO {
+    private List<NotificationDTO> notifications;
+    private Long resumeToken;
+    private boolean hasMore;
+}
@@ -0,0 +1,20 @@
+package com.analyticalplatform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PortfolioHistoryDTO {
+    private String resolution;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private List<PortfolioHistoryPointDTO> points;
+}
@@ -0,0 +1,24 @@
+package com.analyticalplatform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PortfolioValuationDTO {
+    private BigDecimal marketValue;
+    private BigDecimal costBasis;
+    private BigDecimal unrealizedProfitLoss;
+    private BigDecimal unrealizedProfitLossPercentage;
+    private BigDecimal dayChange;
+    private LocalDateTime updatedAt;
+    private List<PositionValuationDTO> positions;
+}
@@ -0,0 +1,27 @@
+package com.analyticalplatform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Pushed on /user/queue/portfolio when one position changes. A closed position is sent with
+ * quantity 0. The totals are the portfolio's new values after the change.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PortfolioValuationDeltaDTO {
+    private PositionValuationDTO position;
+    private BigDecimal marketValueChange;
+    private BigDecimal marketValue;
+    private BigDecimal costBasis;
+    private BigDecimal unrealizedProfitLoss;
+    private BigDecimal dayChange;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,22 @@
+package com.analyticalplatform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PositionValuationDTO {
+    private String symbol;
+    private long quantity;
+    private BigDecimal averageBuyPrice;
+    private BigDecimal currentPrice;
+    private BigDecimal marketValue;
+    private BigDecimal unrealizedProfitLoss;
+    private BigDecimal dayChange;
+}
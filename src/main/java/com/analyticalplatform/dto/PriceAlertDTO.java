@@ -6,8 +6,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
-import jakarta.validation.constraints.NotNull;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
@@ -21,12 +21,35 @@ public class PriceAlertDTO {
     @NotBlank(message = "Stock symbol is required")
     private String symbol;
 
-    @NotNull(message = "Target price is required")
+    // Required for ABOVE and BELOW
     @DecimalMin(value = "0.01", message = "Target price must be greater than zero")
     private BigDecimal targetPrice;
 
     @NotBlank(message = "Alert type is required")
-    private String alertType; // "ABOVE" or "BELOW"
+    private String alertType; // see AlertType
+
+    private String direction; // "UP" or "DOWN" for PERCENT_FROM_CLOSE, PERCENT_IN_WINDOW and MA_CROSS
+
+    @DecimalMin(value = "0.0001", message = "Threshold must be greater than zero")
+    private BigDecimal threshold; // percent, or volume multiple for VOLUME_SPIKE
+
+    private Integer windowSize; // minutes for PERCENT_IN_WINDOW, price updates for VOLUME_SPIKE and MA_CROSS
+
+    private BigDecimal referencePrice;
+
+    private boolean recurring;
+
+    @Min(value = 1, message = "Max fires must be at least 1")
+    private Integer maxFires; // recurring alerts only; no limit if absent
+
+    @Min(value = 0, message = "Cooldown must not be negative")
+    private Integer cooldownMinutes; // recurring alerts only
+
+    @DecimalMin(value = "0.0001", message = "Hysteresis must be greater than zero")
+    private BigDecimal hysteresis; // percent; recurring alerts only
+
+    private int fireCount;
+    private LocalDateTime lastTriggeredAt;
 
     private boolean triggered;
     private LocalDateTime createdAt;
@@ -0,0 +1,22 @@
+package com.analyticalplatform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RealizedProfitLossDTO {
+    private String symbol;
+    private long quantitySold;
+    private BigDecimal proceeds;
+    private BigDecimal costBasis;
+    private BigDecimal realizedAmount;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,26 @@
+package com.analyticalplatform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * VaR and CVaR (expected shortfall) at one confidence level, as positive loss amounts, each with
+ * a 95% confidence interval for the simulation estimate.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RiskMeasureDTO {
+    private BigDecimal confidence;
+    private BigDecimal valueAtRisk;
+    private BigDecimal valueAtRiskLower;
+    private BigDecimal valueAtRiskUpper;
+    private BigDecimal expectedShortfall;
+    private BigDecimal expectedShortfallLower;
+    private BigDecimal expectedShortfallUpper;
+}
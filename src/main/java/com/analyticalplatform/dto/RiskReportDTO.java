@@ -0,0 +1,27 @@
+package com.analyticalplatform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RiskReportDTO {
+    private BigDecimal portfolioValue;
+    private BigDecimal modeledValue;
+    private int horizonDays;
+    private int observations;
+    private long paths;
+    private long elapsedMillis;
+    private List<String> symbols;
+    private List<String> symbolsWithoutHistory;
+    private List<RiskMeasureDTO> measures;
+    private LocalDateTime calculatedAt;
+}
@@ -0,0 +1,24 @@
+package com.analyticalplatform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockTransactionDTO {
+    private Long id;
+    private String symbol;
+    private BigDecimal price;
+    private long quantity;
+    private BigDecimal totalAmount;
+    private String transactionType;
+    private LocalDateTime transactionTime;
+    private BigDecimal realizedProfitLoss;
+}
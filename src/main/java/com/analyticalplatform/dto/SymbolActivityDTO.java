@@ -0,0 +1,24 @@
+package com.analyticalplatform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Per-symbol buy/sell counts and amounts for a user over a date range, one row of the
+ * transaction metrics aggregate query.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SymbolActivityDTO {
+    private String symbol;
+    private long buyCount;
+    private long sellCount;
+    private BigDecimal buyAmount;
+    private BigDecimal sellAmount;
+}
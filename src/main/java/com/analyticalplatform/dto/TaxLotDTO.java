@@ -0,0 +1,23 @@
+package com.analyticalplatform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TaxLotDTO {
+    private Long id;
+    private String symbol;
+    private long quantity;
+    private long remainingQuantity;
+    private BigDecimal costPrice;
+    private BigDecimal remainingCostBasis;
+    private LocalDateTime openedAt;
+}
@@ -0,0 +1,17 @@
+package com.analyticalplatform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransactionHistoryPageDTO {
+    private List<StockTransactionDTO> transactions;
+    private String nextCursor; // null when there are no older transactions
+}
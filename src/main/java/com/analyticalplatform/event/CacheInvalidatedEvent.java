@@ -0,0 +1,8 @@
+package com.analyticalplatform.event;
+
+/**
+ * Published by CacheInvalidationRelay when another node reports that its change made the
+ * entry for key in the named node-local cache stale. Caches holding the key drop it.
+ */
+public record CacheInvalidatedEvent(String cache, Long key) {
+}
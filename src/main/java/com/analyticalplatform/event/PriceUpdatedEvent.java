@@ -0,0 +1,23 @@
+package com.analyticalplatform.event;
+
+import com.analyticalplatform.service.PriceTable;
+
+import java.util.Objects;
+
+/**
+ * Published by PriceTable when a symbol's price, previous close or volume changes.
+ * previous is null the first time a symbol is priced. relayed is true for quotes another node
+ * learned and relayed through price_ticks. Subscribers (alert evaluation, portfolio
+ * valuation, stock WebSocket pushes) are @Async, so publishing never waits on them.
+ */
+public record PriceUpdatedEvent(String symbol, PriceTable.Quote previous, PriceTable.Quote current,
+                                boolean relayed) {
+
+    /**
+     * False when only the volume changed.
+     */
+    public boolean priceChanged() {
+        return previous == null || !previous.price().equals(current.price())
+                || !Objects.equals(previous.previousClose(), current.previousClose());
+    }
+}
@@ -0,0 +1,10 @@
+package com.analyticalplatform.event;
+
+import java.util.BitSet;
+
+/**
+ * Published by ClusterCoordinator when a heartbeat gives this node shards it did not hold
+ * before, so per-symbol state can be brought up to date from the database.
+ */
+public record ShardsAcquiredEvent(BitSet shards) {
+}
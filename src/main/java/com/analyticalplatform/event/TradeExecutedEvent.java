@@ -0,0 +1,17 @@
+package com.analyticalplatform.event;
+
+import com.analyticalplatform.model.Money;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Published by TransactionService for every executed trade and delivered once the trade commits.
+ * realizedProfitLoss is set for sells only. positionQuantity and positionAverageCost describe
+ * the user's holding after the trade; positionAverageCost is null once the position is closed.
+ */
+public record TradeExecutedEvent(Long userId, String username, Long transactionId, String symbol,
+                                 String transactionType, long quantity, BigDecimal price, BigDecimal totalAmount,
+                                 BigDecimal realizedProfitLoss, long positionQuantity, Money positionAverageCost,
+                                 LocalDateTime executedAt) {
+}
@@ -0,0 +1,10 @@
+package com.analyticalplatform.exception;
+
+/**
+ * The backtest pool has no room for another run's combinations; the client should retry later.
+ */
+public class BacktestQueueFullException extends RuntimeException {
+    public BacktestQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,44 @@
+package com.analyticalplatform.indicator;
+
+import java.util.List;
+
+/**
+ * Wilder's average true range.
+ */
+final class Atr implements Indicator {
+    private final MovingAverage average;
+
+    Atr(int period) {
+        this.average = MovingAverage.Exponential.wilder(period);
+    }
+
+    private Atr(Atr other) {
+        this.average = other.average.copy();
+    }
+
+    @Override
+    public String name() {
+        return "atr(" + average.period + ")";
+    }
+
+    @Override
+    public List<String> outputs() {
+        return List.of("value");
+    }
+
+    @Override
+    public void update(BarSeries bars, int index, double[] out) {
+        double range = bars.high(index) - bars.low(index);
+        if (index > 0) {
+            double previousClose = bars.close(index - 1);
+            range = Math.max(range, Math.max(Math.abs(bars.high(index) - previousClose),
+                    Math.abs(bars.low(index) - previousClose)));
+        }
+        out[0] = average.next(range);
+    }
+
+    @Override
+    public Indicator copy() {
+        return new Atr(this);
+    }
+}
@@ -0,0 +1,87 @@
+package com.analyticalplatform.indicator;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * OHLCV bars of one symbol and interval in time order, held in parallel primitive arrays.
+ * Bars are only appended, except that the latest bar may be revised while it is still forming
+ * (today's daily bar, the current intraday bar). Callers synchronize on the series.
+ */
+public final class BarSeries {
+    private long[] times = new long[64];
+    private double[] open = new double[64];
+    private double[] high = new double[64];
+    private double[] low = new double[64];
+    private double[] close = new double[64];
+    private long[] volume = new long[64];
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public long time(int index) {
+        return times[index];
+    }
+
+    public LocalDateTime dateTime(int index) {
+        return LocalDateTime.ofEpochSecond(times[index], 0, ZoneOffset.UTC);
+    }
+
+    public double open(int index) {
+        return open[index];
+    }
+
+    public double high(int index) {
+        return high[index];
+    }
+
+    public double low(int index) {
+        return low[index];
+    }
+
+    public double close(int index) {
+        return close[index];
+    }
+
+    public long volume(int index) {
+        return volume[index];
+    }
+
+    public long lastTime() {
+        return size > 0 ? times[size - 1] : Long.MIN_VALUE;
+    }
+
+    public void append(LocalDateTime time, double o, double h, double l, double c, long v) {
+        long epochSecond = time.toEpochSecond(ZoneOffset.UTC);
+        if (epochSecond <= lastTime()) {
+            throw new IllegalArgumentException("Bars must be appended in time order");
+        }
+        if (size == times.length) {
+            int length = size * 2;
+            times = Arrays.copyOf(times, length);
+            open = Arrays.copyOf(open, length);
+            high = Arrays.copyOf(high, length);
+            low = Arrays.copyOf(low, length);
+            close = Arrays.copyOf(close, length);
+            volume = Arrays.copyOf(volume, length);
+        }
+        times[size] = epochSecond;
+        set(size, o, h, l, c, v);
+        size++;
+    }
+
+    public void replaceLast(double o, double h, double l, double c, long v) {
+        set(size - 1, o, h, l, c, v);
+    }
+
+    private void set(int index, double o, double h, double l, double c, long v) {
+        open[index] = o;
+        high[index] = h;
+        low[index] = l;
+        close[index] = c;
+        volume[index] = v;
+    }
+}
@@ -0,0 +1,55 @@
+package com.analyticalplatform.indicator;
+
+import java.util.List;
+
+/**
+ * Simple moving average of closes with bands k population standard deviations either side.
+ */
+final class BollingerBands implements Indicator {
+    private final int period;
+    private final double width;
+    private final RollingWindow window;
+
+    BollingerBands(int period, double width) {
+        this.period = period;
+        this.width = width;
+        this.window = new RollingWindow(period);
+    }
+
+    private BollingerBands(BollingerBands other) {
+        this.period = other.period;
+        this.width = other.width;
+        this.window = new RollingWindow(other.window);
+    }
+
+    @Override
+    public String name() {
+        return "bb(" + period + "," + Indicators.formatParameter(width) + ")";
+    }
+
+    @Override
+    public List<String> outputs() {
+        return List.of("middle", "upper", "lower");
+    }
+
+    @Override
+    public void update(BarSeries bars, int index, double[] out) {
+        window.add(bars.close(index));
+        if (!window.isFull()) {
+            out[0] = Double.NaN;
+            out[1] = Double.NaN;
+            out[2] = Double.NaN;
+            return;
+        }
+        double middle = window.mean();
+        double offset = width * window.standardDeviation();
+        out[0] = middle;
+        out[1] = middle + offset;
+        out[2] = middle - offset;
+    }
+
+    @Override
+    public Indicator copy() {
+        return new BollingerBands(this);
+    }
+}
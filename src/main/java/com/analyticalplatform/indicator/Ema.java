@@ -0,0 +1,38 @@
+package com.analyticalplatform.indicator;
+
+import java.util.List;
+
+/**
+ * Exponential moving average of closes.
+ */
+final class Ema implements Indicator {
+    private final MovingAverage average;
+
+    Ema(int period) {
+        this.average = MovingAverage.Exponential.standard(period);
+    }
+
+    private Ema(Ema other) {
+        this.average = other.average.copy();
+    }
+
+    @Override
+    public String name() {
+        return "ema(" + average.period + ")";
+    }
+
+    @Override
+    public List<String> outputs() {
+        return List.of("value");
+    }
+
+    @Override
+    public void update(BarSeries bars, int index, double[] out) {
+        out[0] = average.next(bars.close(index));
+    }
+
+    @Override
+    public Indicator copy() {
+        return new Ema(this);
+    }
+}
@@ -0,0 +1,21 @@
+package com.analyticalplatform.indicator;
+
+import java.util.List;
+
+/**
+ * Streaming technical indicator. Each update folds in the next bar in O(1) and writes one value
+ * per output; values are NaN until enough bars have been seen. copy() snapshots the state so a
+ * still-forming bar can be evaluated without committing it.
+ */
+public interface Indicator {
+    /**
+     * Normalized name including parameters, e.g. "macd(12,26,9)".
+     */
+    String name();
+
+    List<String> outputs();
+
+    void update(BarSeries bars, int index, double[] out);
+
+    Indicator copy();
+}
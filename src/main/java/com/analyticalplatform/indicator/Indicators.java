@@ -0,0 +1,65 @@
+package com.analyticalplatform.indicator;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Builds indicators from request specs of the form name[:param...], e.g. "sma:50",
+ * "macd:12:26:9", "bb:20:2" or "vwap". Omitted parameters take the usual defaults.
+ */
+public final class Indicators {
+    private static final int MAX_PERIOD = 1000;
+
+    private Indicators() {
+    }
+
+    public static Indicator parse(String spec, boolean intraday) {
+        String[] parts = spec.trim().toLowerCase().split(":");
+        String[] params = Arrays.copyOfRange(parts, 1, parts.length);
+
+        return switch (parts[0]) {
+            case "sma" -> new Sma(period(params, 0, 20));
+            case "ema" -> new Ema(period(params, 0, 20));
+            case "rsi" -> new Rsi(period(params, 0, 14));
+            case "macd" -> new Macd(period(params, 0, 12), period(params, 1, 26), period(params, 2, 9));
+            case "bb", "bollinger" -> new BollingerBands(period(params, 0, 20), width(params, 1, 2.0));
+            case "atr" -> new Atr(period(params, 0, 14));
+            case "vwap" -> new Vwap(params.length > 0 ? period(params, 0, 0) : 0, intraday);
+            default -> throw new IllegalArgumentException("Unknown indicator: " + parts[0]);
+        };
+    }
+
+    static String formatParameter(double value) {
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+
+    private static int period(String[] params, int index, int defaultValue) {
+        if (index >= params.length) {
+            return defaultValue;
+        }
+        try {
+            int value = Integer.parseInt(params[index]);
+            if (value < 1 || value > MAX_PERIOD) {
+                throw new IllegalArgumentException("Indicator period must be between 1 and " + MAX_PERIOD);
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid indicator period: " + params[index]);
+        }
+    }
+
+    private static double width(String[] params, int index, double defaultValue) {
+        if (index >= params.length) {
+            return defaultValue;
+        }
+        try {
+            double value = Double.parseDouble(params[index]);
+            if (!(value > 0.0) || value > 10.0) {
+                throw new IllegalArgumentException("Band width must be between 0 and 10");
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid band width: " + params[index]);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.analyticalplatform.indicator;
+
+import java.util.List;
+
+/**
+ * MACD line (fast EMA - slow EMA), its signal EMA and the histogram between them.
+ */
+final class Macd implements Indicator {
+    private final MovingAverage fast;
+    private final MovingAverage slow;
+    private final MovingAverage signal;
+
+    Macd(int fastPeriod, int slowPeriod, int signalPeriod) {
+        if (fastPeriod >= slowPeriod) {
+            throw new IllegalArgumentException("MACD fast period must be shorter than the slow period");
+        }
+        this.fast = MovingAverage.Exponential.standard(fastPeriod);
+        this.slow = MovingAverage.Exponential.standard(slowPeriod);
+        this.signal = MovingAverage.Exponential.standard(signalPeriod);
+    }
+
+    private Macd(Macd other) {
+        this.fast = other.fast.copy();
+        this.slow = other.slow.copy();
+        this.signal = other.signal.copy();
+    }
+
+    @Override
+    public String name() {
+        return "macd(" + fast.period + "," + slow.period + "," + signal.period + ")";
+    }
+
+    @Override
+    public List<String> outputs() {
+        return List.of("macd", "signal", "histogram");
+    }
+
+    @Override
+    public void update(BarSeries bars, int index, double[] out) {
+        double close = bars.close(index);
+        double fastValue = fast.next(close);
+        double slowValue = slow.next(close);
+
+        if (Double.isNaN(slowValue)) {
+            out[0] = Double.NaN;
+            out[1] = Double.NaN;
+            out[2] = Double.NaN;
+            return;
+        }
+        double macd = fastValue - slowValue;
+        double signalValue = signal.next(macd);
+        out[0] = macd;
+        out[1] = signalValue;
+        out[2] = macd - signalValue;
+    }
+
+    @Override
+    public Indicator copy() {
+        return new Macd(this);
+    }
+}
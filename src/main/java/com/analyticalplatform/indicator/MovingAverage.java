@@ -0,0 +1,92 @@
+package com.analyticalplatform.indicator;
+
+/**
+ * Scalar moving averages shared by the indicators. next() returns NaN until the average is seeded.
+ */
+abstract class MovingAverage {
+    final int period;
+
+    MovingAverage(int period) {
+        this.period = period;
+    }
+
+    abstract double next(double value);
+
+    abstract MovingAverage copy();
+
+    static final class Simple extends MovingAverage {
+        private final RollingWindow window;
+
+        Simple(int period) {
+            super(period);
+            this.window = new RollingWindow(period);
+        }
+
+        private Simple(Simple other) {
+            super(other.period);
+            this.window = new RollingWindow(other.window);
+        }
+
+        @Override
+        double next(double value) {
+            window.add(value);
+            return window.isFull() ? window.mean() : Double.NaN;
+        }
+
+        @Override
+        MovingAverage copy() {
+            return new Simple(this);
+        }
+    }
+
+    /**
+     * Exponential average with smoothing factor alpha, seeded with the simple average of the
+     * first period values. Wilder's smoothing (RSI, ATR) is alpha = 1 / period.
+     */
+    static final class Exponential extends MovingAverage {
+        private final double alpha;
+        private int seen;
+        private double seedSum;
+        private double value = Double.NaN;
+
+        Exponential(int period, double alpha) {
+            super(period);
+            this.alpha = alpha;
+        }
+
+        static Exponential standard(int period) {
+            return new Exponential(period, 2.0 / (period + 1));
+        }
+
+        static Exponential wilder(int period) {
+            return new Exponential(period, 1.0 / period);
+        }
+
+        private Exponential(Exponential other) {
+            super(other.period);
+            this.alpha = other.alpha;
+            this.seen = other.seen;
+            this.seedSum = other.seedSum;
+            this.value = other.value;
+        }
+
+        @Override
+        double next(double input) {
+            if (seen < period) {
+                seen++;
+                seedSum += input;
+                if (seen == period) {
+                    value = seedSum / period;
+                }
+            } else {
+                value += alpha * (input - value);
+            }
+            return value;
+        }
+
+        @Override
+        MovingAverage copy() {
+            return new Exponential(this);
+        }
+    }
+}
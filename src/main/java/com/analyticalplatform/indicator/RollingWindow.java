@@ -0,0 +1,56 @@
+package com.analyticalplatform.indicator;
+
+/**
+ * Last n values with their running sum and sum of squares.
+ */
+final class RollingWindow {
+    private final double[] values;
+    private int head;
+    private int count;
+    private double sum;
+    private double sumOfSquares;
+
+    RollingWindow(int length) {
+        this.values = new double[length];
+    }
+
+    RollingWindow(RollingWindow other) {
+        this.values = other.values.clone();
+        this.head = other.head;
+        this.count = other.count;
+        this.sum = other.sum;
+        this.sumOfSquares = other.sumOfSquares;
+    }
+
+    void add(double value) {
+        if (count == values.length) {
+            double evicted = values[head];
+            sum -= evicted;
+            sumOfSquares -= evicted * evicted;
+        } else {
+            count++;
+        }
+        values[head] = value;
+        head = (head + 1) % values.length;
+        sum += value;
+        sumOfSquares += value * value;
+    }
+
+    boolean isFull() {
+        return count == values.length;
+    }
+
+    double sum() {
+        return sum;
+    }
+
+    double mean() {
+        return sum / count;
+    }
+
+    double standardDeviation() {
+        double mean = mean();
+        // Running sums can drift slightly below zero for flat series
+        return Math.sqrt(Math.max(0.0, sumOfSquares / count - mean * mean));
+    }
+}
@@ -0,0 +1,58 @@
+package com.analyticalplatform.indicator;
+
+import java.util.List;
+
+/**
+ * Wilder's relative strength index of closes.
+ */
+final class Rsi implements Indicator {
+    private final int period;
+    private final MovingAverage gains;
+    private final MovingAverage losses;
+
+    Rsi(int period) {
+        this.period = period;
+        this.gains = MovingAverage.Exponential.wilder(period);
+        this.losses = MovingAverage.Exponential.wilder(period);
+    }
+
+    private Rsi(Rsi other) {
+        this.period = other.period;
+        this.gains = other.gains.copy();
+        this.losses = other.losses.copy();
+    }
+
+    @Override
+    public String name() {
+        return "rsi(" + period + ")";
+    }
+
+    @Override
+    public List<String> outputs() {
+        return List.of("value");
+    }
+
+    @Override
+    public void update(BarSeries bars, int index, double[] out) {
+        if (index == 0) {
+            out[0] = Double.NaN;
+            return;
+        }
+        double change = bars.close(index) - bars.close(index - 1);
+        double averageGain = gains.next(Math.max(change, 0.0));
+        double averageLoss = losses.next(Math.max(-change, 0.0));
+
+        if (Double.isNaN(averageGain)) {
+            out[0] = Double.NaN;
+        } else if (averageLoss == 0.0) {
+            out[0] = averageGain == 0.0 ? 50.0 : 100.0;
+        } else {
+            out[0] = 100.0 - 100.0 / (1.0 + averageGain / averageLoss);
+        }
+    }
+
+    @Override
+    public Indicator copy() {
+        return new Rsi(this);
+    }
+}
@@ -0,0 +1,38 @@
+package com.analyticalplatform.indicator;
+
+import java.util.List;
+
+/**
+ * Simple moving average of closes.
+ */
+final class Sma implements Indicator {
+    private final MovingAverage average;
+
+    Sma(int period) {
+        this.average = new MovingAverage.Simple(period);
+    }
+
+    private Sma(Sma other) {
+        this.average = other.average.copy();
+    }
+
+    @Override
+    public String name() {
+        return "sma(" + average.period + ")";
+    }
+
+    @Override
+    public List<String> outputs() {
+        return List.of("value");
+    }
+
+    @Override
+    public void update(BarSeries bars, int index, double[] out) {
+        out[0] = average.next(bars.close(index));
+    }
+
+    @Override
+    public Indicator copy() {
+        return new Sma(this);
+    }
+}
@@ -0,0 +1,77 @@
+package com.analyticalplatform.indicator;
+
+import java.util.List;
+
+/**
+ * Volume-weighted average of the typical price (high + low + close) / 3. With a period it is a
+ * rolling VWAP over that many bars; without one it restarts each day on intraday bars and is
+ * cumulative on daily and longer bars.
+ */
+final class Vwap implements Indicator {
+    private static final long SECONDS_PER_DAY = 86_400L;
+
+    private final int period;
+    private final boolean sessionReset;
+    private final RollingWindow priceVolume;
+    private final RollingWindow volume;
+    private double cumulativePriceVolume;
+    private double cumulativeVolume;
+    private long session = Long.MIN_VALUE;
+
+    Vwap(int period, boolean intraday) {
+        this.period = period;
+        this.sessionReset = period == 0 && intraday;
+        this.priceVolume = period > 0 ? new RollingWindow(period) : null;
+        this.volume = period > 0 ? new RollingWindow(period) : null;
+    }
+
+    private Vwap(Vwap other) {
+        this.period = other.period;
+        this.sessionReset = other.sessionReset;
+        this.priceVolume = other.priceVolume != null ? new RollingWindow(other.priceVolume) : null;
+        this.volume = other.volume != null ? new RollingWindow(other.volume) : null;
+        this.cumulativePriceVolume = other.cumulativePriceVolume;
+        this.cumulativeVolume = other.cumulativeVolume;
+        this.session = other.session;
+    }
+
+    @Override
+    public String name() {
+        return period > 0 ? "vwap(" + period + ")" : "vwap";
+    }
+
+    @Override
+    public List<String> outputs() {
+        return List.of("value");
+    }
+
+    @Override
+    public void update(BarSeries bars, int index, double[] out) {
+        double typicalPrice = (bars.high(index) + bars.low(index) + bars.close(index)) / 3.0;
+        double barVolume = bars.volume(index);
+
+        if (priceVolume != null) {
+            priceVolume.add(typicalPrice * barVolume);
+            volume.add(barVolume);
+            out[0] = volume.isFull() && volume.sum() > 0.0 ? priceVolume.sum() / volume.sum() : Double.NaN;
+            return;
+        }
+
+        if (sessionReset) {
+            long day = Math.floorDiv(bars.time(index), SECONDS_PER_DAY);
+            if (day != session) {
+                session = day;
+                cumulativePriceVolume = 0.0;
+                cumulativeVolume = 0.0;
+            }
+        }
+        cumulativePriceVolume += typicalPrice * barVolume;
+        cumulativeVolume += barVolume;
+        out[0] = cumulativeVolume > 0.0 ? cumulativePriceVolume / cumulativeVolume : Double.NaN;
+    }
+
+    @Override
+    public Indicator copy() {
+        return new Vwap(this);
+    }
+}
@@ -0,0 +1,37 @@
+package com.analyticalplatform.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A read notification moved out of the notifications table once it is no longer recent. It
+ * keeps the id it had there.
+ */
+@Entity
+@Table(name = "notifications_archive", indexes = {
+        @Index(name = "idx_notifications_archive_user", columnList = "user_id, timestamp"),
+        @Index(name = "idx_notifications_archive_timestamp", columnList = "timestamp")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ArchivedNotification {
+    @Id
+    private Long id;
+
+    private String type;
+
+    @Column(columnDefinition = "TEXT")
+    private String message;
+
+    private LocalDateTime timestamp;
+
+    @Column(name = "user_id")
+    private Long userId;
+}
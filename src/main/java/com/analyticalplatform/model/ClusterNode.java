@@ -0,0 +1,29 @@
+package com.analyticalplatform.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+
+/**
+ * A running application instance, alive while its heartbeat is recent. Times are epoch ms.
+ */
+@Entity
+@Table(name = "cluster_nodes")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ClusterNode {
+    @Id
+    @Column(name = "node_id", length = 128)
+    private String nodeId;
+
+    @Column(name = "started_at")
+    private Long startedAt;
+
+    @Column(name = "heartbeat_at")
+    private Long heartbeatAt;
+}
@@ -0,0 +1,50 @@
+package com.analyticalplatform.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One user's trading in one symbol on one day, rolled up from stock_transactions.
+ */
+@Entity
+@Table(name = "daily_user_symbol_stats",
+        uniqueConstraints = @UniqueConstraint(name = "uk_daily_stats_user_date_symbol",
+                columnNames = {"user_id", "trade_date", "symbol"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DailyUserSymbolStats {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private String symbol;
+
+    @Column(name = "trade_date", nullable = false)
+    private LocalDate tradeDate;
+
+    private long buyCount;
+    private long sellCount;
+    private long buyQuantity;
+    private long sellQuantity;
+
+    @Column(precision = 19, scale = 4)
+    private BigDecimal buyNotional;
+
+    @Column(precision = 19, scale = 4)
+    private BigDecimal sellNotional;
+
+    @Column(precision = 19, scale = 4)
+    private BigDecimal realizedProfitLoss;
+}
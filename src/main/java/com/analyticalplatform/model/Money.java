@@ -0,0 +1,178 @@
+package com.analyticalplatform.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point amount stored as a long count of 1/10,000ths, the precision Alpha Vantage quotes
+ * prices in. Arithmetic is exact and overflow-checked; operations that can lose precision take
+ * an explicit rounding mode. The static *Units helpers work on raw longs so hot loops can
+ * accumulate without allocating.
+ */
+@JsonSerialize(using = Money.Serializer.class)
+@JsonDeserialize(using = Money.Deserializer.class)
+public final class Money implements Comparable<Money>, Serializable {
+    public static final int SCALE = 4;
+    public static final long ONE = 10_000L;
+    public static final Money ZERO = new Money(0L);
+
+    private final long units;
+
+    private Money(long units) {
+        this.units = units;
+    }
+
+    public static Money ofUnits(long units) {
+        return units == 0L ? ZERO : new Money(units);
+    }
+
+    public static Money of(BigDecimal value) {
+        return of(value, RoundingMode.HALF_UP);
+    }
+
+    public static Money of(BigDecimal value, RoundingMode roundingMode) {
+        if (value == null) {
+            return null;
+        }
+        // longValueExact throws ArithmeticException when the amount does not fit
+        return ofUnits(value.setScale(SCALE, roundingMode).unscaledValue().longValueExact());
+    }
+
+    public static Money parse(String value) {
+        return value == null ? null : of(new BigDecimal(value.trim()));
+    }
+
+    public long units() {
+        return units;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(units, SCALE);
+    }
+
+    public Money add(Money other) {
+        return ofUnits(Math.addExact(units, other.units));
+    }
+
+    public Money subtract(Money other) {
+        return ofUnits(Math.subtractExact(units, other.units));
+    }
+
+    public Money multiply(long quantity) {
+        return ofUnits(multiplyUnits(units, quantity));
+    }
+
+    public Money divide(long divisor, RoundingMode roundingMode) {
+        return ofUnits(divideUnits(units, divisor, roundingMode));
+    }
+
+    public Money negate() {
+        return ofUnits(Math.negateExact(units));
+    }
+
+    public int signum() {
+        return Long.signum(units);
+    }
+
+    public boolean isZero() {
+        return units == 0L;
+    }
+
+    // Raw helpers for allocation-free loops
+
+    public static long multiplyUnits(long units, long quantity) {
+        return Math.multiplyExact(units, quantity);
+    }
+
+    public static long divideUnits(long dividend, long divisor, RoundingMode roundingMode) {
+        if (divisor == 0L) {
+            throw new ArithmeticException("Division by zero");
+        }
+
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder == 0L) {
+            return quotient;
+        }
+
+        int sign = Long.signum(dividend) * Long.signum(divisor);
+        boolean roundAway = switch (roundingMode) {
+            case UP -> true;
+            case DOWN -> false;
+            case CEILING -> sign > 0;
+            case FLOOR -> sign < 0;
+            case HALF_UP, HALF_DOWN, HALF_EVEN -> {
+                // Compare 2*|remainder| against |divisor| without overflowing
+                long absRemainder = Math.abs(remainder);
+                long absDivisor = Math.abs(divisor);
+                int half = Long.compare(absRemainder, absDivisor - absRemainder);
+                if (half != 0) {
+                    yield half > 0;
+                }
+                yield roundingMode == RoundingMode.HALF_UP
+                        || (roundingMode == RoundingMode.HALF_EVEN && (quotient & 1L) != 0L);
+            }
+            case UNNECESSARY -> throw new ArithmeticException("Rounding necessary");
+        };
+
+        return roundAway ? quotient + sign : quotient;
+    }
+
+    /**
+     * (numerator / denominator) as a percentage with 4 decimal places, e.g. for profit/loss or
+     * day change. Both arguments are in the same unit, so the scale cancels out.
+     */
+    public static BigDecimal percentage(long numerator, long denominator, RoundingMode roundingMode) {
+        if (denominator == 0L) {
+            return BigDecimal.ZERO;
+        }
+        // Matches the previous divide(…, 4, HALF_UP).multiply(100) result: ratio to 4 places, times 100
+        long ratio = divideUnits(Math.multiplyExact(numerator, ONE), denominator, roundingMode);
+        return BigDecimal.valueOf(Math.multiplyExact(ratio, 100L), SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(units, other.units);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof Money other && units == other.units);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(units);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+
+    public static class Serializer extends JsonSerializer<Money> {
+        @Override
+        public void serialize(Money value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeNumber(value.toBigDecimal());
+        }
+    }
+
+    public static class Deserializer extends JsonDeserializer<Money> {
+        @Override
+        public Money deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            return Money.of(parser.getDecimalValue());
+        }
+    }
+}
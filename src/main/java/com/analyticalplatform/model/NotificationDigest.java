@@ -0,0 +1,47 @@
+package com.analyticalplatform.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * How many old read notifications of one type a user had on one day, kept once the
+ * notifications themselves are compacted away.
+ */
+@Entity
+@Table(name = "notification_digests",
+        uniqueConstraints = @UniqueConstraint(name = "uk_notification_digests_user_day_type",
+                columnNames = {"user_id", "digest_day", "type"}),
+        indexes = @Index(name = "idx_notification_digests_day", columnList = "digest_day"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NotificationDigest {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "digest_day", nullable = false)
+    private LocalDate digestDay;
+
+    @Column(nullable = false)
+    private String type;
+
+    @Column(name = "notification_count", nullable = false)
+    private int notificationCount;
+
+    @Column(name = "first_at")
+    private LocalDateTime firstAt;
+
+    @Column(name = "last_at")
+    private LocalDateTime lastAt;
+}
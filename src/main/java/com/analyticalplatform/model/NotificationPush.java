@@ -0,0 +1,37 @@
+package com.analyticalplatform.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+
+/**
+ * A notification pushed on one node, relayed so that the node holding the user's WebSocket
+ * session pushes it too. recordedAt is epoch ms on the writing node's clock.
+ */
+@Entity
+@Table(name = "notification_pushes",
+        indexes = @Index(name = "idx_notification_pushes_recorded", columnList = "recorded_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NotificationPush {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String username;
+
+    @Column(name = "notification_id", nullable = false)
+    private Long notificationId;
+
+    @Column(name = "node_id", nullable = false, length = 128)
+    private String nodeId;
+
+    @Column(name = "recorded_at", nullable = false)
+    private Long recordedAt;
+}
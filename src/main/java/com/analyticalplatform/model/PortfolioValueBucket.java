@@ -0,0 +1,38 @@
+package com.analyticalplatform.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Closing portfolio value of one user for a closed hourly or daily bucket.
+ */
+@Entity
+@Table(name = "portfolio_value_history",
+        uniqueConstraints = @UniqueConstraint(name = "uk_portfolio_value_bucket",
+                columnNames = {"user_id", "resolution", "bucket_start"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PortfolioValueBucket {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(length = 8, nullable = false)
+    private String resolution; // 1h or 1d
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "bucket_value", precision = 19, scale = 4)
+    private Money value;
+}
@@ -1,5 +1,6 @@
 package com.analyticalplatform.model;
 
+import com.analyticalplatform.alert.AlertEntry;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -21,8 +22,25 @@ public class PriceAlert {
     private Long id;
 
     private String symbol;
-    private BigDecimal targetPrice;
-    private String alertType; // "ABOVE" or "BELOW"
+    @Column(precision = 19, scale = 4)
+    private Money targetPrice; // ABOVE and BELOW only
+    private String alertType; // see AlertType
+    private String direction; // "UP" or "DOWN" for directional types
+    @Column(precision = 19, scale = 4)
+    private BigDecimal threshold; // percent, or volume multiple for VOLUME_SPIKE
+    private Integer windowSize; // minutes for PERCENT_IN_WINDOW, price updates for VOLUME_SPIKE and MA_CROSS
+    @Column(precision = 19, scale = 4)
+    private Money referencePrice; // high a TRAILING_STOP trails from; raised in batches by PriceAlertHistoryService
+    private LocalDateTime referenceMovedAt; // when referencePrice was last raised or restarted by a re-arm
+    private Boolean recurring; // re-arms after firing until maxFires; null on older alerts
+    private Integer maxFires; // null for no limit
+    private Integer cooldownMinutes;
+    @Column(precision = 19, scale = 4)
+    private BigDecimal hysteresis; // percent the price must move back before re-arming
+    private Integer fireCount; // written in batches by PriceAlertHistoryService
+    private LocalDateTime lastTriggeredAt;
+    @Column(precision = 19, scale = 4)
+    private Money lastTriggeredPrice;
     private boolean triggered;
     private LocalDateTime createdAt;
     private LocalDateTime triggeredAt;
@@ -32,20 +50,57 @@ public class PriceAlert {
     private User user;
 
     // Business logic methods
-    public boolean shouldTrigger(BigDecimal currentPrice) {
+    public boolean shouldTrigger(Money currentPrice) {
         if (triggered) {
             return false;
         }
 
         if ("ABOVE".equals(alertType)) {
-            return currentPrice.compareTo(targetPrice) >= 0;
+            return currentPrice.units() >= targetPrice.units();
         } else if ("BELOW".equals(alertType)) {
-            return currentPrice.compareTo(targetPrice) <= 0;
+            return currentPrice.units() <= targetPrice.units();
         }
 
         return false;
     }
 
+    /**
+     * The watched condition in words, e.g. "up 5% within 60 minutes".
+     */
+    public String describeCondition() {
+        String way = "UP".equals(direction) ? "up" : "down";
+        String percent = threshold != null ? threshold.stripTrailingZeros().toPlainString() + "%" : "";
+        return switch (alertType) {
+            case "ABOVE" -> "at or above $" + targetPrice;
+            case "BELOW" -> "at or below $" + targetPrice;
+            case "PERCENT_FROM_CLOSE" -> way + " " + percent + " from the previous close";
+            case "PERCENT_IN_WINDOW" -> way + " " + percent + " within " + windowSize + " minutes";
+            case "VOLUME_SPIKE" -> "volume " + threshold.stripTrailingZeros().toPlainString() +
+                    "x its average over " + windowSize + " updates";
+            case "MA_CROSS" -> "crossed " + ("UP".equals(direction) ? "above" : "below") +
+                    " its " + windowSize + "-update moving average";
+            case "TRAILING_STOP" -> "down " + percent + " from its high";
+            default -> alertType;
+        };
+    }
+
+    public boolean isRecurring() {
+        return Boolean.TRUE.equals(recurring);
+    }
+
+    /**
+     * Fires left before the alert is triggered for good; AlertEntry.UNLIMITED if there is no limit.
+     */
+    public int firesLeft() {
+        if (!isRecurring()) {
+            return 1;
+        }
+        if (maxFires == null) {
+            return AlertEntry.UNLIMITED;
+        }
+        return Math.max(1, maxFires - (fireCount != null ? fireCount : 0));
+    }
+
     public void markAsTriggered() {
         this.triggered = true;
         this.triggeredAt = LocalDateTime.now();
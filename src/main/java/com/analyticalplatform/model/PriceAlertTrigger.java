@@ -0,0 +1,34 @@
+package com.analyticalplatform.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * One firing of a price alert, with the price that fired it.
+ */
+@Entity
+@Table(name = "price_alert_triggers",
+        indexes = @Index(name = "idx_price_alert_triggers_alert", columnList = "alert_id, triggered_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PriceAlertTrigger {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "alert_id", nullable = false)
+    private Long alertId;
+
+    @Column(precision = 19, scale = 4)
+    private Money price;
+
+    @Column(name = "triggered_at", nullable = false)
+    private LocalDateTime triggeredAt;
+}
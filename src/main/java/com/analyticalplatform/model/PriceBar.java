@@ -0,0 +1,49 @@
+package com.analyticalplatform.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * One OHLCV bar of a symbol's price history at a given interval (1min ... monthly).
+ */
+@Entity
+@Table(name = "price_bars",
+        uniqueConstraints = @UniqueConstraint(name = "uk_price_bar",
+                columnNames = {"symbol", "bar_interval", "bar_time"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PriceBar {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 20, nullable = false)
+    private String symbol;
+
+    @Column(name = "bar_interval", length = 10, nullable = false)
+    private String interval;
+
+    @Column(name = "bar_time", nullable = false)
+    private LocalDateTime barTime;
+
+    @Column(name = "open_price", precision = 19, scale = 4)
+    private Money open;
+
+    @Column(name = "high_price", precision = 19, scale = 4)
+    private Money high;
+
+    @Column(name = "low_price", precision = 19, scale = 4)
+    private Money low;
+
+    @Column(name = "close_price", precision = 19, scale = 4)
+    private Money close;
+
+    private Long volume;
+}
@@ -0,0 +1,45 @@
+package com.analyticalplatform.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A quote one node learned, relayed to the others through this table. recordedAt is epoch ms
+ * on the writing node's clock.
+ */
+@Entity
+@Table(name = "price_ticks", indexes = @Index(name = "idx_price_ticks_recorded", columnList = "recorded_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PriceTick {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 20)
+    private String symbol;
+
+    @Column(precision = 19, scale = 4, nullable = false)
+    private Money price;
+
+    @Column(name = "previous_close", precision = 19, scale = 4)
+    private Money previousClose;
+
+    private Long volume;
+
+    @Column(name = "quoted_at", nullable = false)
+    private LocalDateTime quotedAt;
+
+    @Column(name = "node_id", nullable = false, length = 128)
+    private String nodeId;
+
+    @Column(name = "recorded_at", nullable = false)
+    private Long recordedAt;
+}
@@ -0,0 +1,54 @@
+package com.analyticalplatform.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Running realized profit/loss for one user and symbol, maintained as sells execute.
+ */
+@Entity
+@Table(name = "realized_pnl",
+        uniqueConstraints = @UniqueConstraint(name = "uk_realized_pnl_user_symbol", columnNames = {"user_id", "symbol"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RealizedProfitLoss {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    private String symbol;
+    private long quantitySold;
+
+    @Column(precision = 19, scale = 4)
+    private Money proceeds;
+
+    @Column(precision = 19, scale = 4)
+    private Money costBasis;
+
+    @Column(precision = 19, scale = 4)
+    private Money realizedAmount;
+
+    private LocalDateTime updatedAt;
+
+    @Version
+    private Long version;
+
+    // Business logic methods
+    public void record(long quantity, long proceedsUnits, long costBasisUnits) {
+        this.quantitySold = Math.addExact(quantitySold, quantity);
+        this.proceeds = Money.ofUnits(Math.addExact(proceeds.units(), proceedsUnits));
+        this.costBasis = Money.ofUnits(Math.addExact(costBasis.units(), costBasisUnits));
+        this.realizedAmount = Money.ofUnits(Math.subtractExact(proceeds.units(), costBasis.units()));
+        this.updatedAt = LocalDateTime.now();
+    }
+}
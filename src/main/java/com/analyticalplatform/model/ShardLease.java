@@ -0,0 +1,30 @@
+package com.analyticalplatform.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+
+/**
+ * The node holding one shard of the scheduled work, and until when (epoch ms). A null owner
+ * means the shard is free.
+ */
+@Entity
+@Table(name = "shard_leases")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ShardLease {
+    @Id
+    @Column(name = "shard_id")
+    private Integer shardId;
+
+    @Column(name = "owner_node", length = 128)
+    private String ownerNode;
+
+    @Column(name = "lease_until")
+    private Long leaseUntil;
+}
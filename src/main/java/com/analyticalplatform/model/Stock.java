@@ -5,6 +5,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
@@ -21,8 +22,10 @@ public class Stock {
     @Id
     private String symbol;  // This is correct - using String as ID
     private String companyName;
-    private BigDecimal currentPrice;
-    private BigDecimal previousClose;
+    @Column(precision = 19, scale = 4)
+    private Money currentPrice;
+    @Column(precision = 19, scale = 4)
+    private Money previousClose;
     private BigDecimal percentChange;
     private Long volume;
     private LocalDateTime lastUpdated;
@@ -10,7 +10,10 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "stock_transactions")
+@Table(name = "stock_transactions",
+        // Keyset index for history pages; symbol and type ride along so filters are checked in the index
+        indexes = @Index(name = "idx_stock_tx_user_time_id",
+                columnList = "user_id, transaction_time DESC, id DESC, symbol, transaction_type"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -26,6 +29,7 @@ public class StockTransaction {
     private BigDecimal totalAmount;
     private String transactionType; // BUY or SELL
     private LocalDateTime transactionTime;
+    private BigDecimal realizedProfitLoss; // Set on SELL from the matched tax lots
 
     @ManyToOne
     @JoinColumn(name = "user_id")
@@ -0,0 +1,51 @@
+package com.analyticalplatform.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A block of shares bought in one transaction. Sells consume lots in the configured order and
+ * reduce remainingQuantity; fully consumed lots are kept with closedAt set for cost-basis history.
+ */
+@Entity
+@Table(name = "tax_lots",
+        indexes = @Index(name = "idx_tax_lots_user_symbol_open", columnList = "user_id, symbol, opened_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TaxLot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    private String symbol;
+    private Long openTransactionId;
+    private long quantity;
+    private long remainingQuantity;
+
+    @Column(precision = 19, scale = 4)
+    private Money costPrice;
+
+    @Column(name = "opened_at")
+    private LocalDateTime openedAt;
+    private LocalDateTime closedAt;
+
+    // Business logic methods
+    public long consume(long requested) {
+        long taken = Math.min(requested, remainingQuantity);
+        remainingQuantity -= taken;
+        if (remainingQuantity == 0) {
+            closedAt = LocalDateTime.now();
+        }
+        return taken;
+    }
+}
@@ -6,7 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import jakarta.persistence.*;
-import java.math.BigDecimal;
+import java.math.RoundingMode;
 
 @Entity
 @Table(name = "user_stocks")
@@ -21,9 +21,41 @@ public class UserStock {
 
     private String symbol;
     private long quantity; // Change to primitive long
-    private BigDecimal averageBuyPrice;
+    @Column(precision = 19, scale = 4)
+    private Money averageBuyPrice;
 
     @ManyToOne
     @JoinColumn(name = "user_id")
     private User user;
+
+    // Business logic methods
+    /**
+     * Add bought shares, moving the average buy price to the quantity-weighted average.
+     */
+    public void applyBuy(long boughtQuantity, Money price) {
+        if (quantity == 0 || averageBuyPrice == null) {
+            quantity = boughtQuantity;
+            averageBuyPrice = price;
+            return;
+        }
+
+        long oldTotalValue = Money.multiplyUnits(averageBuyPrice.units(), quantity);
+        long newValue = Money.multiplyUnits(price.units(), boughtQuantity);
+        long newQuantity = Math.addExact(quantity, boughtQuantity);
+
+        averageBuyPrice = Money.ofUnits(Money.divideUnits(Math.addExact(oldTotalValue, newValue), newQuantity,
+                RoundingMode.HALF_UP));
+        quantity = newQuantity;
+    }
+
+    /**
+     * Remove sold shares; the average buy price of the rest is unchanged. Returns the remaining quantity.
+     */
+    public long applySell(long soldQuantity) {
+        if (quantity < soldQuantity) {
+            throw new RuntimeException("Not enough stocks to sell: you have " + quantity + " shares of " + symbol);
+        }
+        quantity -= soldQuantity;
+        return quantity;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.analyticalplatform.repository;
+
+import com.analyticalplatform.model.ArchivedNotification;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+
+public interface ArchivedNotificationRepository extends JpaRepository<ArchivedNotification, Long> {
+    Page<ArchivedNotification> findByUserIdOrderByTimestampDesc(Long userId, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM ArchivedNotification n WHERE n.userId = :userId AND n.timestamp < :before")
+    int deleteOlderThan(Long userId, LocalDateTime before);
+}
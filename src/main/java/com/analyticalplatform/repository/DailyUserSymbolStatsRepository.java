@@ -0,0 +1,33 @@
+package com.analyticalplatform.repository;
+
+import com.analyticalplatform.dto.SymbolActivityDTO;
+import com.analyticalplatform.model.DailyUserSymbolStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface DailyUserSymbolStatsRepository extends JpaRepository<DailyUserSymbolStats, Long> {
+
+    @Modifying
+    @Query("UPDATE DailyUserSymbolStats s SET s.buyCount = s.buyCount + :buyCount, " +
+            "s.sellCount = s.sellCount + :sellCount, " +
+            "s.buyQuantity = s.buyQuantity + :buyQuantity, " +
+            "s.sellQuantity = s.sellQuantity + :sellQuantity, " +
+            "s.buyNotional = s.buyNotional + :buyNotional, " +
+            "s.sellNotional = s.sellNotional + :sellNotional, " +
+            "s.realizedProfitLoss = s.realizedProfitLoss + :realizedProfitLoss " +
+            "WHERE s.userId = :userId AND s.tradeDate = :tradeDate AND s.symbol = :symbol")
+    int increment(Long userId, LocalDate tradeDate, String symbol, long buyCount, long sellCount,
+                  long buyQuantity, long sellQuantity, BigDecimal buyNotional, BigDecimal sellNotional,
+                  BigDecimal realizedProfitLoss);
+
+    @Query("SELECT new com.analyticalplatform.dto.SymbolActivityDTO(s.symbol, SUM(s.buyCount), SUM(s.sellCount), " +
+            "SUM(s.buyNotional), SUM(s.sellNotional)) " +
+            "FROM DailyUserSymbolStats s WHERE s.userId = :userId AND s.tradeDate >= :fromDay AND s.tradeDate < :toDay " +
+            "GROUP BY s.symbol")
+    List<SymbolActivityDTO> summarizeDays(Long userId, LocalDate fromDay, LocalDate toDay);
+}
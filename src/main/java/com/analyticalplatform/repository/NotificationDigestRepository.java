@@ -0,0 +1,18 @@
+package com.analyticalplatform.repository;
+
+import com.analyticalplatform.model.NotificationDigest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDate;
+
+public interface NotificationDigestRepository extends JpaRepository<NotificationDigest, Long> {
+    Page<NotificationDigest> findByUserIdOrderByDigestDayDescTypeAsc(Long userId, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM NotificationDigest d WHERE d.userId = :userId AND d.digestDay < :before")
+    int deleteOlderThan(Long userId, LocalDate before);
+}
@@ -4,9 +4,13 @@ import com.analyticalplatform.model.Notification;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
     List<Notification> findByUserIdOrderByTimestampDesc(Long userId);
@@ -17,4 +21,27 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     List<Notification> findUnreadByUserId(Long userId);
 
     long countByUserIdAndReadFalse(Long userId);
+
+    /**
+     * (user id, unread count) for those of the users with unread notifications.
+     */
+    @Query("SELECT n.user.id, COUNT(n) FROM Notification n WHERE n.read = false AND n.user.id IN :userIds " +
+            "GROUP BY n.user.id")
+    List<Object[]> countUnreadByUserIdIn(Collection<Long> userIds);
+
+    List<Notification> findByUserIdAndIdGreaterThanOrderByIdAsc(Long userId, Long id, Pageable pageable);
+
+    Optional<Notification> findByIdAndUserId(Long id, Long userId);
+
+    @Modifying
+    @Query("UPDATE Notification n SET n.read = true WHERE n.user.id = :userId AND n.read = false")
+    int markAllRead(Long userId);
+
+    @Modifying
+    @Query("UPDATE Notification n SET n.read = true WHERE n.user.id = :userId AND n.id IN :ids AND n.read = false")
+    int markRead(Long userId, Collection<Long> ids);
+
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.user.id = :userId AND n.read = :read AND n.timestamp < :before")
+    int deleteOlderThan(Long userId, boolean read, LocalDateTime before);
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.analyticalplatform.repository;
+
+import com.analyticalplatform.model.PortfolioValueBucket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface PortfolioValueBucketRepository extends JpaRepository<PortfolioValueBucket, Long> {
+    List<PortfolioValueBucket> findByUserIdAndResolutionAndBucketStartAfterOrderByBucketStartAsc(
+            Long userId, String resolution, LocalDateTime after);
+
+    @Modifying
+    @Query("DELETE FROM PortfolioValueBucket b WHERE b.resolution = :resolution AND b.bucketStart < :cutoff")
+    int deleteOlderThan(String resolution, LocalDateTime cutoff);
+}
@@ -1,9 +1,13 @@
 package com.analyticalplatform.repository;
 
+import com.analyticalplatform.dto.ActiveAlertTarget;
 import com.analyticalplatform.model.PriceAlert;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface PriceAlertRepository extends JpaRepository<PriceAlert, Long> {
@@ -11,9 +15,38 @@ public interface PriceAlertRepository extends JpaRepository<PriceAlert, Long> {
 
     List<PriceAlert> findByUserIdAndSymbol(Long userId, String symbol);
 
-    @Query("SELECT pa FROM PriceAlert pa WHERE pa.triggered = false")
-    List<PriceAlert> findAllActiveAlerts();
-
     @Query("SELECT pa FROM PriceAlert pa WHERE pa.triggered = false AND pa.symbol = :symbol")
     List<PriceAlert> findActiveAlertsBySymbol(String symbol);
+
+    String ACTIVE_TARGETS = "SELECT new com.analyticalplatform.dto.ActiveAlertTarget(pa.id, pa.user.id, " +
+            "pa.symbol, pa.alertType, pa.targetPrice, pa.direction, pa.threshold, pa.windowSize, " +
+            "pa.referencePrice, pa.referenceMovedAt, pa.recurring, pa.maxFires, pa.cooldownMinutes, " +
+            "pa.hysteresis, pa.fireCount, pa.lastTriggeredAt, pa.lastTriggeredPrice, pa.createdAt) " +
+            "FROM PriceAlert pa WHERE pa.triggered = false";
+
+    /**
+     * Every untriggered alert, for PriceAlertIndex.
+     */
+    @Query(ACTIVE_TARGETS)
+    List<ActiveAlertTarget> findActiveTargets();
+
+    /**
+     * As findActiveTargets, for alerts created since the given time.
+     */
+    @Query(ACTIVE_TARGETS + " AND pa.createdAt >= :since")
+    List<ActiveAlertTarget> findActiveTargetsCreatedSince(LocalDateTime since);
+
+    /**
+     * As findActiveTargets, for alerts on the given symbols.
+     */
+    @Query(ACTIVE_TARGETS + " AND pa.symbol IN :symbols")
+    List<ActiveAlertTarget> findActiveTargetsBySymbolIn(Collection<String> symbols);
+
+    @Query("SELECT pa.id FROM PriceAlert pa WHERE pa.id IN :ids AND pa.triggered = false")
+    List<Long> findUntriggeredIds(Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE PriceAlert pa SET pa.triggered = true, pa.triggeredAt = :triggeredAt " +
+            "WHERE pa.id IN :ids AND pa.triggered = false")
+    int markTriggered(Collection<Long> ids, LocalDateTime triggeredAt);
 }
\ No newline at end of file
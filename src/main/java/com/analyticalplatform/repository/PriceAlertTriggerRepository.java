@@ -0,0 +1,17 @@
+package com.analyticalplatform.repository;
+
+import com.analyticalplatform.model.PriceAlertTrigger;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface PriceAlertTriggerRepository extends JpaRepository<PriceAlertTrigger, Long> {
+    List<PriceAlertTrigger> findByAlertIdOrderByTriggeredAtDesc(Long alertId, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM PriceAlertTrigger t WHERE t.alertId = :alertId")
+    int deleteByAlertId(Long alertId);
+}
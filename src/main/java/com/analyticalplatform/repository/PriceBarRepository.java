@@ -0,0 +1,14 @@
+package com.analyticalplatform.repository;
+
+import com.analyticalplatform.model.PriceBar;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface PriceBarRepository extends JpaRepository<PriceBar, Long> {
+    List<PriceBar> findBySymbolAndIntervalOrderByBarTimeAsc(String symbol, String interval);
+
+    Optional<PriceBar> findBySymbolAndIntervalAndBarTime(String symbol, String interval, LocalDateTime barTime);
+}
@@ -0,0 +1,13 @@
+package com.analyticalplatform.repository;
+
+import com.analyticalplatform.model.RealizedProfitLoss;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface RealizedProfitLossRepository extends JpaRepository<RealizedProfitLoss, Long> {
+    Optional<RealizedProfitLoss> findByUserIdAndSymbol(Long userId, String symbol);
+
+    List<RealizedProfitLoss> findByUserIdOrderBySymbol(Long userId);
+}
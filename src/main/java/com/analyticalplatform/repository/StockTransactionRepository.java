@@ -1,5 +1,6 @@
 package com.analyticalplatform.repository;
 
+import com.analyticalplatform.dto.SymbolActivityDTO;
 import com.analyticalplatform.model.StockTransaction;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
@@ -8,11 +9,28 @@ import org.springframework.data.jpa.repository.Query;
 import java.time.LocalDateTime;
 import java.util.List;
 
-public interface StockTransactionRepository extends JpaRepository<StockTransaction, Long> {
-    List<StockTransaction> findByUserIdOrderByTransactionTimeDesc(Long userId);
-
+public interface StockTransactionRepository extends JpaRepository<StockTransaction, Long>, StockTransactionRepositoryCustom {
     List<StockTransaction> findByUserIdAndSymbol(Long userId, String symbol);
 
     @Query("SELECT t FROM StockTransaction t WHERE t.user.id = :userId AND t.transactionTime BETWEEN :startDate AND :endDate")
     List<StockTransaction> findUserTransactionsInDateRange(Long userId, LocalDateTime startDate, LocalDateTime endDate);
+
+    @Query("SELECT new com.analyticalplatform.dto.SymbolActivityDTO(t.symbol, " +
+            "SUM(CASE WHEN t.transactionType = 'BUY' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN t.transactionType = 'SELL' THEN 1 ELSE 0 END), " +
+            "COALESCE(SUM(CASE WHEN t.transactionType = 'BUY' THEN t.totalAmount END), 0), " +
+            "COALESCE(SUM(CASE WHEN t.transactionType = 'SELL' THEN t.totalAmount END), 0)) " +
+            "FROM StockTransaction t WHERE t.user.id = :userId AND t.transactionTime BETWEEN :startDate AND :endDate " +
+            "GROUP BY t.symbol")
+    List<SymbolActivityDTO> summarizeUserActivity(Long userId, LocalDateTime startDate, LocalDateTime endDate);
+
+    // Same as summarizeUserActivity over the half-open range [startDate, endDate)
+    @Query("SELECT new com.analyticalplatform.dto.SymbolActivityDTO(t.symbol, " +
+            "SUM(CASE WHEN t.transactionType = 'BUY' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN t.transactionType = 'SELL' THEN 1 ELSE 0 END), " +
+            "COALESCE(SUM(CASE WHEN t.transactionType = 'BUY' THEN t.totalAmount END), 0), " +
+            "COALESCE(SUM(CASE WHEN t.transactionType = 'SELL' THEN t.totalAmount END), 0)) " +
+            "FROM StockTransaction t WHERE t.user.id = :userId AND t.transactionTime >= :startDate " +
+            "AND t.transactionTime < :endDate GROUP BY t.symbol")
+    List<SymbolActivityDTO> summarizeUserActivityBefore(Long userId, LocalDateTime startDate, LocalDateTime endDate);
 }
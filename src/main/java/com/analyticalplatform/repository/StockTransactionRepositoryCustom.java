@@ -0,0 +1,16 @@
+package com.analyticalplatform.repository;
+
+import com.analyticalplatform.dto.StockTransactionDTO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface StockTransactionRepositoryCustom {
+    /**
+     * One keyset page of a user's history, newest first. Rows strictly older than
+     * (beforeTime, beforeId) are returned when a cursor is given; null filters are ignored.
+     */
+    List<StockTransactionDTO> findHistoryPage(Long userId, String symbol, String transactionType,
+                                              LocalDateTime from, LocalDateTime to,
+                                              LocalDateTime beforeTime, Long beforeId, int limit);
+}
@@ -0,0 +1,61 @@
+package com.analyticalplatform.repository;
+
+import com.analyticalplatform.dto.StockTransactionDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class StockTransactionRepositoryImpl implements StockTransactionRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<StockTransactionDTO> findHistoryPage(Long userId, String symbol, String transactionType,
+                                                     LocalDateTime from, LocalDateTime to,
+                                                     LocalDateTime beforeTime, Long beforeId, int limit) {
+        // Only the predicates that are actually set are added, so the planner always sees a
+        // plain range scan on idx_stock_tx_user_time_id
+        StringBuilder jpql = new StringBuilder(
+                "SELECT new com.analyticalplatform.dto.StockTransactionDTO(" +
+                        "t.id, t.symbol, t.price, t.quantity, t.totalAmount, t.transactionType, " +
+                        "t.transactionTime, t.realizedProfitLoss) " +
+                        "FROM StockTransaction t WHERE t.user.id = :userId");
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("userId", userId);
+
+        if (symbol != null) {
+            jpql.append(" AND t.symbol = :symbol");
+            parameters.put("symbol", symbol);
+        }
+        if (transactionType != null) {
+            jpql.append(" AND t.transactionType = :transactionType");
+            parameters.put("transactionType", transactionType);
+        }
+        if (from != null) {
+            jpql.append(" AND t.transactionTime >= :from");
+            parameters.put("from", from);
+        }
+        if (to != null) {
+            jpql.append(" AND t.transactionTime < :to");
+            parameters.put("to", to);
+        }
+        if (beforeTime != null && beforeId != null) {
+            jpql.append(" AND (t.transactionTime < :beforeTime OR (t.transactionTime = :beforeTime AND t.id < :beforeId))");
+            parameters.put("beforeTime", beforeTime);
+            parameters.put("beforeId", beforeId);
+        }
+        jpql.append(" ORDER BY t.transactionTime DESC, t.id DESC");
+
+        TypedQuery<StockTransactionDTO> query = entityManager.createQuery(jpql.toString(), StockTransactionDTO.class);
+        parameters.forEach(query::setParameter);
+        query.setMaxResults(limit);
+
+        return query.getResultList();
+    }
+}
@@ -0,0 +1,20 @@
+package com.analyticalplatform.repository;
+
+import com.analyticalplatform.model.TaxLot;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface TaxLotRepository extends JpaRepository<TaxLot, Long> {
+    @Query("SELECT l FROM TaxLot l WHERE l.userId = :userId AND l.symbol = :symbol AND l.remainingQuantity > 0")
+    List<TaxLot> findOpenLots(Long userId, String symbol, Pageable pageable);
+
+    @Query("SELECT COALESCE(SUM(l.remainingQuantity), 0) FROM TaxLot l " +
+            "WHERE l.userId = :userId AND l.symbol = :symbol AND l.remainingQuantity > 0")
+    long sumOpenQuantity(Long userId, String symbol);
+
+    @Query("SELECT l FROM TaxLot l WHERE l.userId = :userId AND l.remainingQuantity > 0 ORDER BY l.symbol, l.openedAt")
+    List<TaxLot> findOpenLotsByUserId(Long userId);
+}
@@ -2,6 +2,7 @@ package com.analyticalplatform.repository;
 
 import com.analyticalplatform.model.UserStock;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 import java.util.Optional;
@@ -10,4 +11,7 @@ public interface UserStockRepository extends JpaRepository<UserStock, Long> {
     List<UserStock> findByUserId(Long userId);
 
     Optional<UserStock> findByUserIdAndSymbol(Long userId, String symbol);
+
+    @Query("SELECT us FROM UserStock us JOIN FETCH us.user")
+    List<UserStock> findAllWithUser();
 }
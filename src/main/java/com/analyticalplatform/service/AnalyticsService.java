@@ -1,18 +1,34 @@
 package com.analyticalplatform.service;
 
-import com.analyticalplatform.model.StockTransaction;
+import com.analyticalplatform.dto.SymbolActivityDTO;
+import com.analyticalplatform.event.TradeExecutedEvent;
+import com.analyticalplatform.model.Money;
 import com.analyticalplatform.model.UserStock;
 import com.analyticalplatform.repository.StockTransactionRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 @RequiredArgsConstructor
@@ -22,50 +38,65 @@ public class AnalyticsService {
     private final TransactionService transactionService;
     private final AlphaVantageService alphaVantageService;
     private final ApiRateLimiterService apiRateLimiterService;
+    private final PriceTable priceTable;
+    private final DailyStatsService dailyStatsService;
 
-    /**
-     * Calculate transaction metrics for a user in a date range
-     */
-    public Map<String, Object> calculateUserMetrics(Long userId, LocalDateTime startDate, LocalDateTime endDate) {
-        List<StockTransaction> transactions = transactionRepository.findUserTransactionsInDateRange(
-                userId, startDate, endDate);
+    @Value("${analytics.cache.max-entries:5000}")
+    private int maxCachedMetrics;
 
-        Map<String, Object> metrics = new HashMap<>();
+    // Bounds staleness from trades on other nodes, which only bump their own versions
+    @Value("${analytics.cache.ttl-seconds:60}")
+    private long metricsTtlSeconds;
 
-        // Total transactions
-        metrics.put("totalTransactions", transactions.size());
+    @Value("${analytics.market-indicators.ttl-seconds:900}")
+    private long marketIndicatorsTtlSeconds;
 
-        // Buy vs Sell transactions
-        long buyTransactions = transactions.stream()
-                .filter(t -> "BUY".equals(t.getTransactionType()))
-                .count();
+    private record MetricsKey(Long userId, long version, LocalDateTime start, LocalDateTime end) {
+    }
 
-        long sellTransactions = transactions.stream()
-                .filter(t -> "SELL".equals(t.getTransactionType()))
-                .count();
+    private record CachedMetrics(Map<String, Object> data, Instant expiresAt) {
+    }
+
+    private record MarketIndicators(Map<String, Object> data, Instant fetchedAt) {
+    }
 
-        metrics.put("buyTransactions", buyTransactions);
-        metrics.put("sellTransactions", sellTransactions);
+    private final ConcurrentHashMap<Long, AtomicLong> userVersions = new ConcurrentHashMap<>();
 
-        // Total amount spent/received
-        BigDecimal totalBuyAmount = transactions.stream()
-                .filter(t -> "BUY".equals(t.getTransactionType()))
-                .map(StockTransaction::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    // Transaction metrics per user, version and range, evicted in LRU order or after the TTL
+    private final Map<MetricsKey, CachedMetrics> cachedMetrics = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<MetricsKey, CachedMetrics> eldest) {
+                    return size() > maxCachedMetrics;
+                }
+            });
 
-        BigDecimal totalSellAmount = transactions.stream()
-                .filter(t -> "SELL".equals(t.getTransactionType()))
-                .map(StockTransaction::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    // Computations currently running, so identical concurrent requests share one
+    private final ConcurrentHashMap<MetricsKey, CompletableFuture<Map<String, Object>>> inFlight =
+            new ConcurrentHashMap<>();
 
-        metrics.put("totalBuyAmount", totalBuyAmount);
-        metrics.put("totalSellAmount", totalSellAmount);
+    private volatile MarketIndicators marketIndicators;
+    private final AtomicReference<CompletableFuture<MarketIndicators>> indicatorsRefresh = new AtomicReference<>();
 
-        // Most traded stocks
-        Map<String, Long> stockCounts = transactions.stream()
-                .collect(Collectors.groupingBy(StockTransaction::getSymbol, Collectors.counting()));
+    /**
+     * Calculate transaction metrics for a user in a date range. Whole days come from the daily
+     * rollup; only the partial days at either end (and today, which is still filling up) are
+     * aggregated from the raw transactions.
+     *
+     * The range is widened to whole minutes and the transaction metrics are cached per user and
+     * range until the user's next trade on this node, or for at most analytics.cache.ttl-seconds
+     * since trades on other nodes do not retire them. Portfolio value is always computed live
+     * and market indicators come from a cache shared by all users.
+     */
+    public Map<String, Object> calculateUserMetrics(Long userId, LocalDateTime startDate, LocalDateTime endDate) {
+        LocalDateTime start = startDate.truncatedTo(ChronoUnit.MINUTES);
+        LocalDateTime end = endDate.truncatedTo(ChronoUnit.MINUTES);
+        if (end.isBefore(endDate)) {
+            end = end.plusMinutes(1);
+        }
 
-        metrics.put("mostTradedStocks", stockCounts);
+        MetricsKey key = new MetricsKey(userId, userVersion(userId).get(), start, end);
+        Map<String, Object> metrics = new HashMap<>(transactionMetrics(key));
 
         // Current portfolio value with updated prices
         List<UserStock> portfolio = transactionService.getUserPortfolio(userId);
@@ -75,7 +106,10 @@ public class AnalyticsService {
 
         // Add market indicators if possible
         try {
-            addMarketIndicators(metrics);
+            Map<String, Object> indicators = getMarketIndicators();
+            if (indicators != null) {
+                metrics.put("marketIndicators", indicators);
+            }
         } catch (Exception e) {
             log.warn("Could not add market indicators to analytics: {}", e.getMessage());
         }
@@ -83,68 +117,141 @@ public class AnalyticsService {
         return metrics;
     }
 
-    private BigDecimal calculatePortfolioValue(List<UserStock> portfolio) {
-        BigDecimal totalValue = BigDecimal.ZERO;
+    /**
+     * Cached results for a user are keyed by this version, so bumping it after each committed
+     * trade retires exactly that user's entries. Runs after the daily rollup has absorbed the
+     * trade, so a result computed under the new version already includes it.
+     */
+    @TransactionalEventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onTradeExecuted(TradeExecutedEvent event) {
+        userVersion(event.userId()).incrementAndGet();
+    }
 
-        for (UserStock holding : portfolio) {
+    private AtomicLong userVersion(Long userId) {
+        return userVersions.computeIfAbsent(userId, id -> new AtomicLong());
+    }
+
+    private Map<String, Object> transactionMetrics(MetricsKey key) {
+        CachedMetrics cached = cachedMetrics.get(key);
+        if (cached != null) {
+            if (Instant.now().isBefore(cached.expiresAt())) {
+                return cached.data();
+            }
+            cachedMetrics.remove(key, cached);
+        }
+
+        CompletableFuture<Map<String, Object>> pending = new CompletableFuture<>();
+        CompletableFuture<Map<String, Object>> running = inFlight.putIfAbsent(key, pending);
+        if (running != null) {
+            // An identical request is already computing these metrics - share its result
             try {
-                // Try to get current price
-                apiRateLimiterService.acquirePermit();
-                Map<String, Object> quoteData = alphaVantageService.getGlobalQuote(holding.getSymbol());
-
-                if (quoteData != null && quoteData.containsKey("Global Quote")) {
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> quote = (Map<String, Object>) quoteData.get("Global Quote");
-                    String priceStr = (String) quote.get("05. price");
-
-                    if (priceStr != null) {
-                        BigDecimal currentPrice = new BigDecimal(priceStr);
-                        BigDecimal holdingValue = currentPrice.multiply(BigDecimal.valueOf(holding.getQuantity()));
-                        totalValue = totalValue.add(holdingValue);
-                    } else {
-                        // Fall back to average buy price
-                        BigDecimal holdingValue = holding.getAverageBuyPrice()
-                                .multiply(BigDecimal.valueOf(holding.getQuantity()));
-                        totalValue = totalValue.add(holdingValue);
-                    }
-                } else {
-                    // Fall back to average buy price
-                    BigDecimal holdingValue = holding.getAverageBuyPrice()
-                            .multiply(BigDecimal.valueOf(holding.getQuantity()));
-                    totalValue = totalValue.add(holdingValue);
-                }
-            } catch (InterruptedException e) {
-                log.warn("API rate limit reached when calculating portfolio value, using average buy price");
-                // Fall back to average buy price
-                BigDecimal holdingValue = holding.getAverageBuyPrice()
-                        .multiply(BigDecimal.valueOf(holding.getQuantity()));
-                totalValue = totalValue.add(holdingValue);
-            } catch (Exception e) {
-                log.error("Error getting current price for {}: {}", holding.getSymbol(), e.getMessage());
-                // Fall back to average buy price
-                BigDecimal holdingValue = holding.getAverageBuyPrice()
-                        .multiply(BigDecimal.valueOf(holding.getQuantity()));
-                totalValue = totalValue.add(holdingValue);
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
             }
         }
 
-        return totalValue;
+        try {
+            Map<String, Object> metrics = new HashMap<>();
+
+            // Totals, buy vs sell counts and amounts, and most traded stocks
+            TransactionMetrics.fromActivity(summarizeActivity(key.userId(), key.start(), key.end())).putInto(metrics);
+
+            Map<String, Object> result = Collections.unmodifiableMap(metrics);
+            cachedMetrics.put(key, new CachedMetrics(result, Instant.now().plusSeconds(metricsTtlSeconds)));
+            pending.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, pending);
+        }
+    }
+
+    private List<SymbolActivityDTO> summarizeActivity(Long userId, LocalDateTime startDate, LocalDateTime endDate) {
+        // Whole days covered by [startDate, endDate]
+        LocalDate firstDay = startDate.equals(startDate.toLocalDate().atStartOfDay())
+                ? startDate.toLocalDate()
+                : startDate.toLocalDate().plusDays(1);
+        LocalDate lastDayExclusive = endDate.toLocalDate();
+        LocalDate today = LocalDate.now();
+        if (lastDayExclusive.isAfter(today)) {
+            lastDayExclusive = today;
+        }
+
+        if (!firstDay.isBefore(lastDayExclusive)) {
+            return transactionRepository.summarizeUserActivity(userId, startDate, endDate);
+        }
+
+        List<SymbolActivityDTO> activity = new ArrayList<>(
+                dailyStatsService.summarizeDays(userId, firstDay, lastDayExclusive));
+        if (startDate.isBefore(firstDay.atStartOfDay())) {
+            activity.addAll(transactionRepository.summarizeUserActivityBefore(userId, startDate, firstDay.atStartOfDay()));
+        }
+        activity.addAll(transactionRepository.summarizeUserActivity(userId, lastDayExclusive.atStartOfDay(), endDate));
+        return activity;
+    }
+
+    private BigDecimal calculatePortfolioValue(List<UserStock> portfolio) {
+        long totalValue = 0L;
+
+        for (UserStock holding : portfolio) {
+            // Fall back to average buy price unless a current quote is known
+            Money price = priceTable.priceOr(holding.getSymbol(), holding.getAverageBuyPrice());
+            totalValue = Math.addExact(totalValue, Money.multiplyUnits(price.units(), holding.getQuantity()));
+        }
+
+        return Money.ofUnits(totalValue).toBigDecimal();
     }
 
-    private void addMarketIndicators(Map<String, Object> metrics) {
+    /**
+     * Top gainers and losers, fetched at most once per TTL for all users. While a refresh is
+     * running other callers get the previous value, or wait for the refresh if there is none.
+     */
+    private Map<String, Object> getMarketIndicators() {
+        MarketIndicators current = marketIndicators;
+        if (current != null && current.fetchedAt().isAfter(Instant.now().minusSeconds(marketIndicatorsTtlSeconds))) {
+            return current.data();
+        }
+
+        CompletableFuture<MarketIndicators> pending = new CompletableFuture<>();
+        CompletableFuture<MarketIndicators> running = indicatorsRefresh.compareAndExchange(null, pending);
+        if (running != null) {
+            return current != null ? current.data() : running.join().data();
+        }
+
+        try {
+            MarketIndicators fetched = new MarketIndicators(fetchMarketIndicators(current), Instant.now());
+            marketIndicators = fetched;
+            pending.complete(fetched);
+            return fetched.data();
+        } catch (RuntimeException e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            indicatorsRefresh.set(null);
+        }
+    }
+
+    private Map<String, Object> fetchMarketIndicators(MarketIndicators previous) {
         try {
             // Get market status
             apiRateLimiterService.acquirePermit();
             Map<String, Object> topStocks = alphaVantageService.getTopGainersLosers();
 
             if (topStocks != null) {
-                // Add top gainers and losers
-                metrics.put("marketIndicators", topStocks);
+                // Top gainers and losers
+                return topStocks;
             }
         } catch (InterruptedException e) {
             log.warn("API rate limit reached when getting market indicators");
         } catch (Exception e) {
             log.error("Error getting market indicators: {}", e.getMessage());
         }
+
+        // Keep serving the last good value; the next attempt waits for the TTL
+        return previous != null ? previous.data() : null;
     }
-}
\ No newline at end of file
+}
@@ -6,20 +6,28 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 import jakarta.servlet.http.HttpServletRequest;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AuditService {
+    private static final String INSERT_AUDIT_SQL =
+            "INSERT INTO audit_logs (action, entity_type, entity_id, username, ip_address, timestamp, details) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
     private final AuditLogRepository auditLogRepository;
+    private final JdbcTemplate jdbcTemplate;
 
     @Transactional
     public void logAction(String username, String action, String entityType, String entityId, String details) {
@@ -43,6 +51,34 @@ public class AuditService {
         }
     }
 
+    /**
+     * Write many audit entries as one JDBC batch. The client IP and timestamp are filled in
+     * where the entry has none.
+     */
+    @Transactional
+    public void logActions(List<AuditLog> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            String ipAddress = getClientIp();
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+            jdbcTemplate.batchUpdate(INSERT_AUDIT_SQL, entries, entries.size(), (ps, entry) -> {
+                ps.setString(1, entry.getAction());
+                ps.setString(2, entry.getEntityType());
+                ps.setString(3, entry.getEntityId());
+                ps.setString(4, entry.getUsername());
+                ps.setString(5, entry.getIpAddress() != null ? entry.getIpAddress() : ipAddress);
+                ps.setTimestamp(6, entry.getTimestamp() != null ? Timestamp.valueOf(entry.getTimestamp()) : now);
+                ps.setString(7, entry.getDetails());
+            });
+        } catch (Exception e) {
+            // Log but don't fail the operation if audit logging fails
+            log.error("Error saving {} audit logs: {}", entries.size(), e.getMessage());
+        }
+    }
+
     @Transactional(readOnly = true)
     public Page<AuditLog> getUserAuditLogs(String username, Pageable pageable) {
         return auditLogRepository.findByUsername(username, pageable);
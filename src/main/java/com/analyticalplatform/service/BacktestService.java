@@ -0,0 +1,378 @@
+package com.analyticalplatform.service;
+
+import com.analyticalplatform.backtest.Backtests;
+import com.analyticalplatform.backtest.MarketData;
+import com.analyticalplatform.backtest.Strategy;
+import com.analyticalplatform.dto.BacktestProgressDTO;
+import com.analyticalplatform.dto.BacktestRequestDTO;
+import com.analyticalplatform.dto.BacktestResultDTO;
+import com.analyticalplatform.dto.BacktestRunDTO;
+import com.analyticalplatform.dto.WatchlistDTO;
+import com.analyticalplatform.exception.BacktestQueueFullException;
+import com.analyticalplatform.exception.ResourceNotFoundException;
+import com.analyticalplatform.indicator.BarSeries;
+import com.analyticalplatform.model.Money;
+import com.analyticalplatform.model.User;
+import com.analyticalplatform.statistics.ReturnMatrix;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs strategy backtests over watchlists. The stored bars of the watchlist's symbols are aligned
+ * once per run and shared read-only by every parameter combination; each combination is a task
+ * on a bounded pool. Progress is pushed to the user over WebSocket and finished runs are kept in
+ * memory by run id.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BacktestService {
+    private final WatchlistService watchlistService;
+    private final PriceHistoryService priceHistoryService;
+    private final WebSocketService webSocketService;
+
+    @Value("${backtest.threads:0}")
+    private int threads;
+
+    @Value("${backtest.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${backtest.max-combinations:500}")
+    private int maxCombinations;
+
+    @Value("${backtest.max-stored-runs:100}")
+    private int maxStoredRuns;
+
+    private ThreadPoolExecutor executor;
+
+    private final Map<String, BacktestRun> runs = Collections.synchronizedMap(
+            new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, BacktestRun> eldest) {
+                    return size() > maxStoredRuns;
+                }
+            });
+
+    @PostConstruct
+    public void start() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "backtest-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Load and align the bars, then queue one task per parameter combination. Returns at once;
+     * poll getRun or listen on /user/queue/backtests for progress.
+     */
+    public BacktestRunDTO startBacktest(User user, BacktestRequestDTO request) {
+        String strategy = request.getStrategy().trim().toLowerCase();
+        if (!Backtests.STRATEGIES.contains(strategy)) {
+            throw new IllegalArgumentException("Unknown strategy: " + request.getStrategy() + ". Use one of "
+                    + Backtests.STRATEGIES);
+        }
+        String interval = PriceHistoryService.normalizeInterval(request.getInterval());
+        BigDecimal initialCash = request.getInitialCash() != null ? request.getInitialCash() : BigDecimal.valueOf(10_000);
+        if (initialCash.signum() <= 0) {
+            throw new IllegalArgumentException("initialCash must be positive");
+        }
+        List<Map<String, Double>> combinations = combinations(request.getParameters());
+        // Checked again on submit, since other runs may fill the queue in between
+        if (executor.getQueue().remainingCapacity() < combinations.size()) {
+            throw new BacktestQueueFullException("Too many backtests queued, please try again later");
+        }
+
+        WatchlistDTO watchlist = watchlistService.getWatchlistById(user, request.getWatchlistId());
+        List<String> symbols = new ArrayList<>(new TreeSet<>(watchlist.getSymbols().stream()
+                .map(symbol -> symbol.trim().toUpperCase())
+                .toList()));
+        if (symbols.isEmpty()) {
+            throw new IllegalArgumentException("Watchlist has no symbols");
+        }
+
+        List<String> withoutHistory = new ArrayList<>();
+        MarketData market = loadMarket(symbols, interval, request.getFrom(), request.getTo(), withoutHistory);
+        if (market.barCount() < 2) {
+            throw new IllegalArgumentException("Not enough common bars for the watchlist's symbols in the window");
+        }
+
+        BacktestRun run = new BacktestRun(UUID.randomUUID().toString(), user, strategy, interval, market,
+                withoutHistory, combinations.size());
+        runs.put(run.id, run);
+
+        long initialCashUnits = Money.of(initialCash).units();
+        double periodsPerYear = periodsPerYear(interval);
+        List<Future<?>> submitted = new ArrayList<>(combinations.size());
+        try {
+            for (int i = 0; i < combinations.size(); i++) {
+                int index = i;
+                Map<String, Double> parameters = combinations.get(i);
+                submitted.add(executor.submit(() -> run.complete(index, runCombination(strategy, parameters, market,
+                        initialCashUnits, periodsPerYear))));
+            }
+        } catch (RejectedExecutionException e) {
+            // Free the queue slots of the combinations already submitted
+            run.cancelled = true;
+            submitted.forEach(future -> future.cancel(false));
+            executor.purge();
+            runs.remove(run.id);
+            throw new BacktestQueueFullException("Too many backtests queued, please try again later");
+        }
+
+        log.info("Started backtest {} for {}: {} on {} symbols, {} bars, {} combinations", run.id,
+                user.getUsername(), strategy, market.symbolCount(), market.barCount(), combinations.size());
+        return run.toDTO();
+    }
+
+    public BacktestRunDTO getRun(User user, String runId) {
+        BacktestRun run = runs.get(runId);
+        if (run == null || !run.userId.equals(user.getId())) {
+            throw new ResourceNotFoundException("Backtest not found with id: " + runId);
+        }
+        return run.toDTO();
+    }
+
+    private BacktestResultDTO runCombination(String strategyName, Map<String, Double> parameters, MarketData market,
+                                             long initialCashUnits, double periodsPerYear) {
+        try {
+            Strategy strategy = Backtests.create(strategyName, parameters, market);
+            return Backtests.run(market, strategy, parameters, initialCashUnits, periodsPerYear);
+        } catch (RuntimeException e) {
+            return BacktestResultDTO.builder()
+                    .parameters(parameters)
+                    .error(e.getMessage())
+                    .build();
+        }
+    }
+
+    /**
+     * Every combination of the listed parameter values; a request without parameters runs the defaults.
+     */
+    private List<Map<String, Double>> combinations(Map<String, List<Double>> grid) {
+        List<Map<String, Double>> result = new ArrayList<>();
+        result.add(new LinkedHashMap<>());
+        if (grid == null) {
+            return result;
+        }
+
+        for (Map.Entry<String, List<Double>> entry : grid.entrySet()) {
+            List<Double> values = entry.getValue() != null ? entry.getValue().stream().filter(Objects::nonNull).toList()
+                    : List.of();
+            if (values.isEmpty()) {
+                throw new IllegalArgumentException("Parameter " + entry.getKey() + " has no values");
+            }
+            if ((long) result.size() * values.size() > maxCombinations) {
+                throw new IllegalArgumentException("At most " + maxCombinations + " parameter combinations per backtest");
+            }
+
+            List<Map<String, Double>> expanded = new ArrayList<>(result.size() * values.size());
+            for (Map<String, Double> partial : result) {
+                for (Double value : values) {
+                    Map<String, Double> combination = new LinkedHashMap<>(partial);
+                    combination.put(entry.getKey(), value);
+                    expanded.add(combination);
+                }
+            }
+            result = expanded;
+        }
+        return result;
+    }
+
+    /**
+     * Copies of the symbols' bars restricted to [from, to] and to the bar times all of them share.
+     */
+    private MarketData loadMarket(List<String> symbols, String interval, LocalDate from, LocalDate to,
+                                  List<String> withoutHistory) {
+        long start = from != null ? from.atStartOfDay().toEpochSecond(ZoneOffset.UTC) : Long.MIN_VALUE;
+        long end = to != null ? to.plusDays(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC) : Long.MAX_VALUE;
+
+        List<String> modeled = new ArrayList<>();
+        List<BarSeries> sources = new ArrayList<>();
+        List<long[]> times = new ArrayList<>();
+        for (String symbol : symbols) {
+            BarSeries bars;
+            try {
+                bars = priceHistoryService.getSeries(symbol, interval);
+            } catch (InterruptedException e) {
+                log.warn("No {} history for {}: {}", interval, symbol, e.getMessage());
+                withoutHistory.add(symbol);
+                continue;
+            }
+
+            long[] symbolTimes;
+            synchronized (bars) {
+                symbolTimes = new long[bars.size()];
+                int count = 0;
+                for (int i = 0; i < bars.size(); i++) {
+                    if (bars.time(i) >= start && bars.time(i) < end) {
+                        symbolTimes[count++] = bars.time(i);
+                    }
+                }
+                symbolTimes = Arrays.copyOf(symbolTimes, count);
+            }
+            if (symbolTimes.length == 0) {
+                withoutHistory.add(symbol);
+                continue;
+            }
+            modeled.add(symbol);
+            sources.add(bars);
+            times.add(symbolTimes);
+        }
+
+        if (modeled.isEmpty()) {
+            throw new IllegalArgumentException("None of the watchlist's symbols has " + interval + " history in the window");
+        }
+
+        long[] common = ReturnMatrix.commonTimes(times);
+        List<BarSeries> aligned = new ArrayList<>(modeled.size());
+        for (BarSeries source : sources) {
+            BarSeries copy = new BarSeries();
+            synchronized (source) {
+                int index = 0;
+                for (long time : common) {
+                    while (source.time(index) != time) {
+                        index++;
+                    }
+                    copy.append(source.dateTime(index), source.open(index), source.high(index), source.low(index),
+                            source.close(index), source.volume(index));
+                }
+            }
+            aligned.add(copy);
+        }
+        return new MarketData(List.copyOf(modeled), List.copyOf(aligned), PriceHistoryService.isIntraday(interval));
+    }
+
+    private static double periodsPerYear(String interval) {
+        return switch (interval) {
+            case "daily" -> 252.0;
+            case "weekly" -> 52.0;
+            case "monthly" -> 12.0;
+            // 6.5 trading hours a day
+            default -> 252.0 * 390.0 / Integer.parseInt(interval.replace("min", ""));
+        };
+    }
+
+    private final class BacktestRun {
+        private final String id;
+        private final Long userId;
+        private final String username;
+        private final String strategy;
+        private final String interval;
+        private final MarketData market;
+        private final List<String> symbolsWithoutHistory;
+        private final BacktestResultDTO[] results;
+        private final AtomicInteger completed = new AtomicInteger();
+        private final int progressStep;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private volatile LocalDateTime finishedAt;
+        private volatile boolean cancelled;
+
+        private BacktestRun(String id, User user, String strategy, String interval, MarketData market,
+                            List<String> symbolsWithoutHistory, int total) {
+            this.id = id;
+            this.userId = user.getId();
+            this.username = user.getUsername();
+            this.strategy = strategy;
+            this.interval = interval;
+            this.market = market;
+            this.symbolsWithoutHistory = List.copyOf(symbolsWithoutHistory);
+            this.results = new BacktestResultDTO[total];
+            // About twenty progress messages per run, however many combinations it has
+            this.progressStep = Math.max(1, total / 20);
+        }
+
+        private void complete(int index, BacktestResultDTO result) {
+            if (cancelled) {
+                return;
+            }
+            synchronized (results) {
+                results[index] = result;
+            }
+            int done = completed.incrementAndGet();
+            if (done == results.length) {
+                finishedAt = LocalDateTime.now();
+            }
+            if (done == results.length || done % progressStep == 0) {
+                try {
+                    webSocketService.sendBacktestProgress(username, BacktestProgressDTO.builder()
+                            .runId(id)
+                            .status(status())
+                            .completed(done)
+                            .total(results.length)
+                            .build());
+                } catch (Exception e) {
+                    log.warn("Could not push backtest progress to {}: {}", username, e.getMessage());
+                }
+            }
+        }
+
+        private String status() {
+            return completed.get() == results.length ? "COMPLETED" : "RUNNING";
+        }
+
+        private BacktestRunDTO toDTO() {
+            List<BacktestResultDTO> finished = new ArrayList<>();
+            synchronized (results) {
+                for (BacktestResultDTO result : results) {
+                    if (result != null) {
+                        finished.add(result);
+                    }
+                }
+            }
+            finished.sort(Comparator.comparing(BacktestResultDTO::getTotalReturnPercent,
+                    Comparator.nullsLast(Comparator.reverseOrder())));
+
+            BarSeries first = market.bars(0);
+            return BacktestRunDTO.builder()
+                    .runId(id)
+                    .strategy(strategy)
+                    .interval(interval)
+                    .symbols(market.symbols())
+                    .symbolsWithoutHistory(symbolsWithoutHistory)
+                    .firstBar(first.dateTime(0))
+                    .lastBar(first.dateTime(first.size() - 1))
+                    .bars(market.barCount())
+                    .status(status())
+                    .completed(completed.get())
+                    .total(results.length)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .results(finished)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.analyticalplatform.service;
+
+import com.analyticalplatform.event.CacheInvalidatedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tells the other cluster nodes that entries of node-local caches are stale, through
+ * cache_invalidations. Keys invalidated here are collected and written in one batch per flush,
+ * each once however often it changed. Each poll reads the other nodes' rows like PriceTickRelay
+ * and publishes a CacheInvalidatedEvent for each key. One node purges rows older than
+ * retention-minutes. Callers invalidate after their change commits, so a node that drops the
+ * entry reloads the committed state.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CacheInvalidationRelay {
+    private static final String INSERT_SQL =
+            "INSERT INTO cache_invalidations (cache_name, entry_key, node_id, recorded_at) VALUES (?, ?, ?, ?)";
+    private static final String SELECT_SQL =
+            "SELECT id, cache_name, entry_key, recorded_at FROM cache_invalidations " +
+                    "WHERE recorded_at >= ? AND node_id <> ? ORDER BY id";
+    private static final String JOB = "cache-invalidation-purge";
+
+    private record Entry(String cache, Long key) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ClusterCoordinator clusterCoordinator;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${cluster.relay.overlap-ms:30000}")
+    private long overlapMillis;
+
+    @Value("${cluster.relay.retention-minutes:60}")
+    private long retentionMinutes;
+
+    private final Set<Entry> pending = ConcurrentHashMap.newKeySet();
+    // Row id -> recorded_at, for rows a later poll may read again
+    private final ConcurrentHashMap<Long, Long> applied = new ConcurrentHashMap<>();
+    private volatile long lastPoll = System.currentTimeMillis();
+
+    /**
+     * Have the other nodes drop key from the named cache with the next flush.
+     */
+    public void invalidate(String cache, Long key) {
+        if (clusterCoordinator.isClustered()) {
+            pending.add(new Entry(cache, key));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cluster.relay.poll-ms:1000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Entry> batch = new ArrayList<>(pending);
+        batch.forEach(pending::remove);
+        long now = System.currentTimeMillis();
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, entry) -> {
+                ps.setString(1, entry.cache());
+                ps.setLong(2, entry.key());
+                ps.setString(3, clusterCoordinator.nodeId());
+                ps.setLong(4, now);
+            });
+        } catch (Exception e) {
+            log.warn("Could not relay {} cache invalidations, will retry: {}", batch.size(), e.getMessage());
+            pending.addAll(batch);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cluster.relay.poll-ms:1000}")
+    public void poll() {
+        if (!clusterCoordinator.isClustered()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Set<Entry> received = new LinkedHashSet<>();
+        jdbcTemplate.query(SELECT_SQL, rs -> {
+            if (applied.putIfAbsent(rs.getLong("id"), rs.getLong("recorded_at")) == null) {
+                received.add(new Entry(rs.getString("cache_name"), rs.getLong("entry_key")));
+            }
+        }, lastPoll - overlapMillis, clusterCoordinator.nodeId());
+        lastPoll = now;
+        applied.values().removeIf(recordedAt -> recordedAt < now - overlapMillis);
+        for (Entry entry : received) {
+            eventPublisher.publishEvent(new CacheInvalidatedEvent(entry.cache(), entry.key()));
+        }
+        if (!received.isEmpty()) {
+            log.debug("Applied {} cache invalidations relayed from other nodes", received.size());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cluster.relay.purge-ms:600000}")
+    public void purge() {
+        if (!clusterCoordinator.isClustered() || !clusterCoordinator.ownsJob(JOB)) {
+            return;
+        }
+        int purged = jdbcTemplate.update("DELETE FROM cache_invalidations WHERE recorded_at < ?",
+                System.currentTimeMillis() - retentionMinutes * 60_000L);
+        if (purged > 0) {
+            log.info("Purged {} relayed cache invalidations", purged);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.analyticalplatform.service;
+
+import com.analyticalplatform.cluster.ShardLeases;
+import com.analyticalplatform.event.ShardsAcquiredEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.util.BitSet;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Decides which instance runs the scheduled work for each symbol. Symbols hash to
+ * cluster.shards fixed shards, and this node heartbeats its lease on the shards it holds
+ * (see ShardLeases). Jobs skip symbols in shards held elsewhere, so each symbol is worked by
+ * one live node at a time. A heartbeat that gains shards publishes a ShardsAcquiredEvent.
+ * Heartbeats run on their own thread, so a long scheduled job cannot hold them back past the
+ * lease. With cluster.enabled=false this node owns every symbol.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ClusterCoordinator {
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${cluster.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cluster.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${cluster.shards:64}")
+    private int shards;
+
+    @Value("${cluster.heartbeat-ms:10000}")
+    private long heartbeatMillis;
+
+    @Value("${cluster.lease-ms:30000}")
+    private long leaseMillis;
+
+    @Value("${cluster.clock-skew-ms:2000}")
+    private long clockSkewMillis;
+
+    @Value("${cluster.node-retention-hours:24}")
+    private long nodeRetentionHours;
+
+    private ShardLeases leases;
+    private BitSet held = new BitSet();
+
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cluster-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("Clustering disabled; this node runs all scheduled work");
+            return;
+        }
+        String nodeId = configuredNodeId.isBlank() ? defaultNodeId() : configuredNodeId;
+        leases = new ShardLeases(jdbcTemplate, nodeId, shards, leaseMillis, clockSkewMillis);
+        log.info("Cluster node {} sharing {} shards", nodeId, shards);
+    }
+
+    /**
+     * Whether scheduled work for the symbol runs on this node.
+     */
+    public boolean ownsSymbol(String symbol) {
+        return !enabled || leases.owns(symbol, System.currentTimeMillis());
+    }
+
+    public boolean isClustered() {
+        return enabled;
+    }
+
+    /**
+     * This node's id, or null with clustering disabled.
+     */
+    public String nodeId() {
+        return enabled ? leases.nodeId() : null;
+    }
+
+    public int shardOf(String symbol) {
+        return enabled ? leases.shardOf(symbol) : 0;
+    }
+
+    /**
+     * Whether per-user work that must happen once, such as persisting history, runs here.
+     */
+    public boolean ownsUser(Long userId) {
+        return ownsSymbol("user:" + userId);
+    }
+
+    /**
+     * Whether a job that must run on a single node, such as a table-wide purge, runs here.
+     */
+    public boolean ownsJob(String job) {
+        return ownsSymbol("job:" + job);
+    }
+
+    /**
+     * Start heartbeating once every listener for ShardsAcquiredEvent is registered.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void start() {
+        if (enabled && started.compareAndSet(false, true)) {
+            heartbeats.scheduleWithFixedDelay(this::heartbeat, 0L, heartbeatMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void heartbeat() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            BitSet nowHeld = leases.heartbeat(now);
+            BitSet acquired = (BitSet) nowHeld.clone();
+            acquired.andNot(held);
+            held = nowHeld;
+            if (!acquired.isEmpty()) {
+                eventPublisher.publishEvent(new ShardsAcquiredEvent(acquired));
+            }
+            leases.pruneNodes(now - nodeRetentionHours * 3_600_000L);
+        } catch (Exception e) {
+            // Leases not renewed here lapse on their own, and the shards move to live nodes;
+            // whatever the next heartbeat holds counts as newly acquired
+            held = new BitSet();
+            log.warn("Cluster heartbeat failed for node {}: {}", leases.nodeId(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeats.shutdownNow();
+        if (!enabled) {
+            return;
+        }
+        try {
+            leases.leave();
+        } catch (Exception e) {
+            log.warn("Could not release shard leases of node {}: {}", leases.nodeId(), e.getMessage());
+        }
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + ProcessHandle.current().pid() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
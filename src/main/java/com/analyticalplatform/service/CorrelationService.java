@@ -0,0 +1,191 @@
+package com.analyticalplatform.service;
+
+import com.analyticalplatform.dto.CorrelationMatrixDTO;
+import com.analyticalplatform.dto.WatchlistDTO;
+import com.analyticalplatform.indicator.BarSeries;
+import com.analyticalplatform.model.User;
+import com.analyticalplatform.statistics.Correlations;
+import com.analyticalplatform.statistics.ReturnMatrix;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Correlation and covariance matrices of a watchlist's daily returns. Results are cached per
+ * symbol set and date window, so watchlists with the same contents share an entry and editing a
+ * watchlist simply moves it to a new key. A matrix missing symbols whose history has not
+ * loaded yet is kept only for partial-ttl-minutes, so the symbols join it soon after.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CorrelationService {
+    private static final int MAX_SYMBOLS = 1000;
+
+    private final WatchlistService watchlistService;
+    private final PriceHistoryService priceHistoryService;
+
+    @Value("${correlation.min-observations:20}")
+    private int minObservations;
+
+    @Value("${correlation.cache.max-entries:200}")
+    private int maxCachedMatrices;
+
+    @Value("${correlation.cache.ttl-minutes:60}")
+    private long cacheTtlMinutes;
+
+    @Value("${correlation.cache.partial-ttl-minutes:1}")
+    private long partialCacheTtlMinutes;
+
+    @Value("${correlation.vector.enabled:true}")
+    private boolean vectorEnabled;
+
+    private record MatrixKey(List<String> symbols, LocalDate from, LocalDate to) {
+    }
+
+    private record CachedMatrix(Result result, LocalDateTime computedAt) {
+    }
+
+    private record Result(List<String> symbols, List<String> symbolsWithoutHistory, int observations,
+                          double[] correlation, double[] covariance, boolean vectorized) {
+    }
+
+    private final Map<MatrixKey, CachedMatrix> cache = Collections.synchronizedMap(
+            new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<MatrixKey, CachedMatrix> eldest) {
+                    return size() > maxCachedMatrices;
+                }
+            });
+
+    /**
+     * Matrices for the watchlist over [from, to]; defaults to the year up to today.
+     */
+    public CorrelationMatrixDTO getCorrelationMatrix(User user, Long watchlistId, LocalDate from, LocalDate to,
+                                                     boolean includeCovariance) {
+        WatchlistDTO watchlist = watchlistService.getWatchlistById(user, watchlistId);
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusYears(1);
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+
+        List<String> symbols = new ArrayList<>(new TreeSet<>(watchlist.getSymbols().stream()
+                .map(symbol -> symbol.trim().toUpperCase())
+                .toList()));
+        if (symbols.size() < 2 || symbols.size() > MAX_SYMBOLS) {
+            throw new IllegalArgumentException("A correlation matrix needs between 2 and " + MAX_SYMBOLS + " symbols");
+        }
+
+        MatrixKey key = new MatrixKey(List.copyOf(symbols), start, end);
+        CachedMatrix cached = cache.get(key);
+        if (cached == null || cached.computedAt().isBefore(LocalDateTime.now().minusMinutes(ttlMinutes(cached.result())))) {
+            cached = new CachedMatrix(compute(symbols, start, end), LocalDateTime.now());
+            cache.put(key, cached);
+        }
+
+        Result result = cached.result();
+        int n = result.symbols().size();
+        return CorrelationMatrixDTO.builder()
+                .watchlistId(watchlistId)
+                .from(start)
+                .to(end)
+                .observations(result.observations())
+                .symbols(result.symbols())
+                .symbolsWithoutHistory(result.symbolsWithoutHistory())
+                .correlation(toRows(result.correlation(), n))
+                .covariance(includeCovariance ? toRows(result.covariance(), n) : null)
+                .vectorized(result.vectorized())
+                .calculatedAt(cached.computedAt())
+                .build();
+    }
+
+    private long ttlMinutes(Result result) {
+        return result.symbolsWithoutHistory().isEmpty() ? cacheTtlMinutes : partialCacheTtlMinutes;
+    }
+
+    private Result compute(List<String> symbols, LocalDate start, LocalDate end) {
+        long from = start.atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+        long to = end.atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+
+        List<String> modeled = new ArrayList<>();
+        List<String> withoutHistory = new ArrayList<>();
+        List<long[]> times = new ArrayList<>();
+        List<double[]> closes = new ArrayList<>();
+
+        for (String symbol : symbols) {
+            BarSeries bars;
+            try {
+                bars = priceHistoryService.getSeries(symbol, "daily");
+            } catch (InterruptedException e) {
+                log.warn("No daily history for {}: {}", symbol, e.getMessage());
+                withoutHistory.add(symbol);
+                continue;
+            }
+
+            synchronized (bars) {
+                int first = 0;
+                while (first < bars.size() && bars.time(first) < from) {
+                    first++;
+                }
+                int last = first;
+                while (last < bars.size() && bars.time(last) <= to) {
+                    last++;
+                }
+                if (last - first <= minObservations) {
+                    withoutHistory.add(symbol);
+                    continue;
+                }
+                long[] symbolTimes = new long[last - first];
+                double[] symbolCloses = new double[last - first];
+                for (int i = first; i < last; i++) {
+                    symbolTimes[i - first] = bars.time(i);
+                    symbolCloses[i - first] = bars.close(i);
+                }
+                times.add(symbolTimes);
+                closes.add(symbolCloses);
+            }
+            modeled.add(symbol);
+        }
+
+        if (modeled.size() < 2) {
+            throw new IllegalArgumentException("Fewer than two symbols have daily history in the window");
+        }
+
+        double[][] returns = ReturnMatrix.alignedLogReturns(times, closes, from, to, Integer.MAX_VALUE - 1);
+        int observations = returns[0].length;
+        if (observations < minObservations) {
+            throw new IllegalArgumentException("Only " + observations + " common trading days in the window; at least "
+                    + minObservations + " are needed");
+        }
+
+        boolean vectorized = vectorEnabled && Correlations.isVectorSupported();
+        long startTime = System.nanoTime();
+        double[] covariance = Correlations.covariance(returns, vectorized);
+        double[] correlation = Correlations.correlation(covariance, modeled.size());
+        log.debug("Correlation of {} symbols x {} days ({}) in {} us", modeled.size(), observations,
+                vectorized ? "vector" : "scalar", (System.nanoTime() - startTime) / 1_000L);
+
+        return new Result(List.copyOf(modeled), List.copyOf(withoutHistory), observations, correlation, covariance,
+                vectorized);
+    }
+
+    private static double[][] toRows(double[] matrix, int n) {
+        double[][] rows = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(matrix, i * n, rows[i], 0, n);
+        }
+        return rows;
+    }
+}
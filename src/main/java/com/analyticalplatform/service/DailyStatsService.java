@@ -0,0 +1,333 @@
+package com.analyticalplatform.service;
+
+import com.analyticalplatform.dto.SymbolActivityDTO;
+import com.analyticalplatform.event.ShardsAcquiredEvent;
+import com.analyticalplatform.event.TradeExecutedEvent;
+import com.analyticalplatform.model.DailyUserSymbolStats;
+import com.analyticalplatform.repository.DailyUserSymbolStatsRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Maintains daily_user_symbol_stats: counts, quantities, notional and realized P&L per user,
+ * symbol and day. Each committed trade is added to its day's row; rebuild() recomputes a
+ * date range from stock_transactions, one day per task on a small pool. Days whose increment
+ * failed are rebuilt once they are over, and yesterday is rebuilt every night. An empty
+ * rollup is backfilled once, by the node that holds the backfill job.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DailyStatsService {
+    private static final String REBUILD_DAY_SQL =
+            "INSERT INTO daily_user_symbol_stats (user_id, symbol, trade_date, buy_count, sell_count, " +
+                    "buy_quantity, sell_quantity, buy_notional, sell_notional, realized_profit_loss) " +
+                    "SELECT user_id, symbol, CAST(? AS DATE), " +
+                    "SUM(CASE WHEN transaction_type = 'BUY' THEN 1 ELSE 0 END), " +
+                    "SUM(CASE WHEN transaction_type = 'SELL' THEN 1 ELSE 0 END), " +
+                    "SUM(CASE WHEN transaction_type = 'BUY' THEN quantity ELSE 0 END), " +
+                    "SUM(CASE WHEN transaction_type = 'SELL' THEN quantity ELSE 0 END), " +
+                    "SUM(CASE WHEN transaction_type = 'BUY' THEN total_amount ELSE 0 END), " +
+                    "SUM(CASE WHEN transaction_type = 'SELL' THEN total_amount ELSE 0 END), " +
+                    "SUM(COALESCE(realized_profit_loss, 0)) " +
+                    "FROM stock_transactions WHERE transaction_time >= ? AND transaction_time < ? " +
+                    "GROUP BY user_id, symbol";
+    private static final String TOTALS_SQL =
+            "SELECT user_id, symbol, " +
+                    "SUM(CASE WHEN transaction_type = 'BUY' THEN 1 ELSE 0 END) AS buy_count, " +
+                    "SUM(CASE WHEN transaction_type = 'SELL' THEN 1 ELSE 0 END) AS sell_count, " +
+                    "SUM(CASE WHEN transaction_type = 'BUY' THEN quantity ELSE 0 END) AS buy_quantity, " +
+                    "SUM(CASE WHEN transaction_type = 'SELL' THEN quantity ELSE 0 END) AS sell_quantity, " +
+                    "SUM(CASE WHEN transaction_type = 'BUY' THEN total_amount ELSE 0 END) AS buy_notional, " +
+                    "SUM(CASE WHEN transaction_type = 'SELL' THEN total_amount ELSE 0 END) AS sell_notional, " +
+                    "SUM(COALESCE(realized_profit_loss, 0)) AS realized " +
+                    "FROM stock_transactions WHERE transaction_time >= ? AND transaction_time < ? " +
+                    "GROUP BY user_id, symbol";
+
+    private static final String BACKFILL_JOB = "daily-stats-backfill";
+
+    private record Totals(Long userId, String symbol, LocalDate day, long buyCount, long sellCount,
+                          long buyQuantity, long sellQuantity, BigDecimal buyNotional, BigDecimal sellNotional,
+                          BigDecimal realizedProfitLoss) {
+    }
+
+    private final DailyUserSymbolStatsRepository statsRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ClusterCoordinator clusterCoordinator;
+
+    @Value("${analytics.rollup.backfill-threads:4}")
+    private int backfillThreads;
+
+    @Value("${analytics.rollup.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final AtomicBoolean backfillChecked = new AtomicBoolean();
+
+    // Days with a trade whose increment failed on this node
+    private final Set<LocalDate> dirtyDays = ConcurrentHashMap.newKeySet();
+
+    // Trades before this are not seen by this node's listener
+    private volatile LocalDateTime listeningSince;
+
+    @PostConstruct
+    public void init() {
+        listeningSince = LocalDateTime.now();
+    }
+
+    /**
+     * Per-symbol activity for the full days in [fromDay, toDay).
+     */
+    public List<SymbolActivityDTO> summarizeDays(Long userId, LocalDate fromDay, LocalDate toDay) {
+        return statsRepository.summarizeDays(userId, fromDay, toDay);
+    }
+
+    /**
+     * Runs after the trade commits, in its own transaction, and before the analytics cache
+     * retires the user's entries. A concurrent first trade of the day for the same user and
+     * symbol can win the insert; the retry then takes the update path.
+     */
+    @TransactionalEventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onTradeExecuted(TradeExecutedEvent event) {
+        boolean buy = "BUY".equals(event.transactionType());
+        LocalDate tradeDate = event.executedAt().toLocalDate();
+        Totals totals = new Totals(event.userId(), event.symbol(), tradeDate,
+                buy ? 1L : 0L, buy ? 0L : 1L,
+                buy ? event.quantity() : 0L, buy ? 0L : event.quantity(),
+                buy ? event.totalAmount() : BigDecimal.ZERO, buy ? BigDecimal.ZERO : event.totalAmount(),
+                event.realizedProfitLoss() != null ? event.realizedProfitLoss() : BigDecimal.ZERO);
+        try {
+            add(totals);
+        } catch (Exception e) {
+            dirtyDays.add(tradeDate);
+            log.error("Could not add trade {} to daily stats, {} will be rebuilt: {}", event.transactionId(),
+                    tradeDate, e.getMessage());
+        }
+    }
+
+    private void add(Totals totals) {
+        try {
+            addOnce(totals);
+        } catch (DataIntegrityViolationException e) {
+            addOnce(totals);
+        }
+    }
+
+    private void addOnce(Totals totals) {
+        newTransaction().executeWithoutResult(status -> {
+            int updated = statsRepository.increment(totals.userId(), totals.day(), totals.symbol(),
+                    totals.buyCount(), totals.sellCount(), totals.buyQuantity(), totals.sellQuantity(),
+                    totals.buyNotional(), totals.sellNotional(), totals.realizedProfitLoss());
+
+            if (updated == 0) {
+                statsRepository.saveAndFlush(DailyUserSymbolStats.builder()
+                        .userId(totals.userId())
+                        .symbol(totals.symbol())
+                        .tradeDate(totals.day())
+                        .buyCount(totals.buyCount())
+                        .sellCount(totals.sellCount())
+                        .buyQuantity(totals.buyQuantity())
+                        .sellQuantity(totals.sellQuantity())
+                        .buyNotional(totals.buyNotional())
+                        .sellNotional(totals.sellNotional())
+                        .realizedProfitLoss(totals.realizedProfitLoss())
+                        .build());
+            }
+        });
+    }
+
+    /**
+     * Recompute the rollup for the days in [fromDay, toDay) from stock_transactions. Each day is
+     * replaced in its own transaction, several days at a time. Returns the number of rows written.
+     */
+    public int rebuild(LocalDate fromDay, LocalDate toDay) {
+        if (!fromDay.isBefore(toDay)) {
+            throw new IllegalArgumentException("fromDay must be before toDay");
+        }
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new IllegalStateException("A daily stats rebuild is already running");
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, backfillThreads));
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (LocalDate day = fromDay; day.isBefore(toDay); day = day.plusDays(1)) {
+                LocalDate target = day;
+                results.add(executor.submit(() -> rebuildDay(target)));
+            }
+
+            int rows = 0;
+            for (Future<Integer> result : results) {
+                rows += result.get();
+            }
+            log.info("Rebuilt daily stats for {} to {}: {} rows", fromDay, toDay, rows);
+            return rows;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Daily stats rebuild interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Daily stats rebuild failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+            rebuilding.set(false);
+        }
+    }
+
+    private int rebuildDay(LocalDate day) {
+        return newTransaction().execute(status -> {
+            jdbcTemplate.update("DELETE FROM daily_user_symbol_stats WHERE trade_date = ?", Date.valueOf(day));
+            return jdbcTemplate.update(REBUILD_DAY_SQL, Date.valueOf(day),
+                    Timestamp.valueOf(day.atStartOfDay()), Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+        });
+    }
+
+    /**
+     * Add the trades of day in [from, to) to its rows, keeping what the listener added.
+     */
+    private int addRange(LocalDate day, LocalDateTime from, LocalDateTime to) {
+        List<Totals> rows = jdbcTemplate.query(TOTALS_SQL, (rs, rowNum) -> new Totals(
+                        rs.getLong("user_id"), rs.getString("symbol"), day,
+                        rs.getLong("buy_count"), rs.getLong("sell_count"),
+                        rs.getLong("buy_quantity"), rs.getLong("sell_quantity"),
+                        rs.getBigDecimal("buy_notional"), rs.getBigDecimal("sell_notional"),
+                        rs.getBigDecimal("realized")),
+                Timestamp.valueOf(from), Timestamp.valueOf(to));
+        rows.forEach(this::add);
+        return rows.size();
+    }
+
+    /**
+     * Backfill once the application is up, if this node holds the backfill job by then.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        backfillIfOwned();
+    }
+
+    /**
+     * Backfill when a heartbeat gives this node the backfill job, after startup or a takeover.
+     */
+    @EventListener
+    public void onShardsAcquired(ShardsAcquiredEvent event) {
+        backfillIfOwned();
+    }
+
+    private void backfillIfOwned() {
+        if (backfillOnStartup && clusterCoordinator.ownsJob(BACKFILL_JOB) && backfillChecked.compareAndSet(false, true)) {
+            backfillIfEmpty();
+        }
+    }
+
+    /**
+     * Populate an empty rollup from existing history. Past days are rebuilt. On a single node,
+     * today's trades from before it started listening are added to the rows the listener has
+     * been filling since. In a cluster other nodes may have counted some of them, so today is
+     * left to the nightly reconcile.
+     */
+    private void backfillIfEmpty() {
+        if (statsRepository.count() > 0) {
+            return;
+        }
+
+        LocalDateTime cutoff = listeningSince;
+        Timestamp first = jdbcTemplate.queryForObject(
+                "SELECT MIN(transaction_time) FROM stock_transactions WHERE transaction_time < ?",
+                Timestamp.class, Timestamp.valueOf(cutoff));
+        if (first == null) {
+            return;
+        }
+        LocalDate firstDay = first.toLocalDateTime().toLocalDate();
+        LocalDate today = cutoff.toLocalDate();
+        boolean addToday = !clusterCoordinator.isClustered();
+
+        Thread backfill = new Thread(() -> {
+            try {
+                if (firstDay.isBefore(today)) {
+                    rebuild(firstDay, today);
+                }
+                if (addToday) {
+                    int rows = addRange(today, today.atStartOfDay(), cutoff);
+                    log.info("Added today's trades before {} to daily stats: {} rows", cutoff, rows);
+                } else {
+                    log.info("Daily stats for {} are completed by the nightly reconcile", today);
+                }
+            } catch (Exception e) {
+                log.error("Daily stats backfill failed: {}", e.getMessage());
+            }
+        }, "daily-stats-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    /**
+     * Rebuild past days this node failed to add a trade to. Today waits until it is over.
+     */
+    @Scheduled(fixedDelayString = "${analytics.rollup.repair-interval-ms:600000}")
+    public void repairDirtyDays() {
+        LocalDate today = LocalDate.now();
+        for (LocalDate day : List.copyOf(dirtyDays)) {
+            if (day.isBefore(today)) {
+                try {
+                    rebuild(day, day.plusDays(1));
+                    dirtyDays.remove(day);
+                } catch (Exception e) {
+                    log.warn("Could not rebuild daily stats for {}, will retry: {}", day, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Recompute yesterday once it is over, on one node, in case an increment was lost.
+     */
+    @Scheduled(cron = "${analytics.rollup.reconcile-cron:0 15 0 * * *}")
+    public void reconcileYesterday() {
+        if (!clusterCoordinator.ownsJob("daily-stats-reconcile")) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        try {
+            rebuild(today.minusDays(1), today);
+        } catch (Exception e) {
+            log.error("Could not reconcile daily stats for {}: {}", today.minusDays(1), e.getMessage());
+        }
+    }
+
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        // Trade listeners run after the trade's transaction has completed
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+}
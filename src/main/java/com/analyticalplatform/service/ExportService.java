@@ -0,0 +1,302 @@
+package com.analyticalplatform.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams history exports straight from a forward-only JDBC cursor to the response. Rows are
+ * written as they are fetched, so memory use does not depend on the size of the export.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExportService {
+    public enum Format { CSV, NDJSON }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+
+    @Value("${export.fetch-size:500}")
+    private int fetchSize;
+
+    public StreamingResponseBody exportTransactions(Long userId, LocalDateTime from, LocalDateTime to,
+                                                    Format format, boolean gzip) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT id, transaction_time, symbol, transaction_type, quantity, price, total_amount, realized_profit_loss " +
+                        "FROM stock_transactions WHERE user_id = ?");
+        List<Object> args = new ArrayList<>(List.of(userId));
+        appendRange(sql, args, "transaction_time", from, to);
+        sql.append(" ORDER BY transaction_time, id");
+
+        return stream(sql.toString(), args, format, gzip);
+    }
+
+    /**
+     * Wallet operations are only recorded in the audit log, so they are exported from there.
+     */
+    public StreamingResponseBody exportWalletOperations(String username, LocalDateTime from, LocalDateTime to,
+                                                        Format format, boolean gzip) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT id, timestamp, action, entity_id AS wallet_id, details " +
+                        "FROM audit_logs WHERE username = ? AND entity_type = 'Wallet'");
+        List<Object> args = new ArrayList<>(List.of(username));
+        appendRange(sql, args, "timestamp", from, to);
+        sql.append(" ORDER BY timestamp, id");
+
+        return stream(sql.toString(), args, format, gzip);
+    }
+
+    public StreamingResponseBody exportAuditLogs(String username, String action, LocalDateTime from, LocalDateTime to,
+                                                 Format format, boolean gzip) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT id, timestamp, username, action, entity_type, entity_id, ip_address, details " +
+                        "FROM audit_logs WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (username != null) {
+            sql.append(" AND username = ?");
+            args.add(username);
+        }
+        if (action != null) {
+            sql.append(" AND action = ?");
+            args.add(action);
+        }
+        appendRange(sql, args, "timestamp", from, to);
+        sql.append(" ORDER BY timestamp, id");
+
+        return stream(sql.toString(), args, format, gzip);
+    }
+
+    public ResponseEntity<StreamingResponseBody> toResponse(String fileName, Format format, boolean gzip,
+                                                            StreamingResponseBody body) {
+        String extension = format == Format.CSV ? "csv" : "ndjson";
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(format == Format.CSV
+                        ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : new MediaType("application", "x-ndjson", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "." + extension + "\"");
+
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        return response.body(body);
+    }
+
+    public static Format parseFormat(String format) {
+        try {
+            return Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported export format: " + format + " (use csv or ndjson)");
+        }
+    }
+
+    private void appendRange(StringBuilder sql, List<Object> args, String column, LocalDateTime from, LocalDateTime to) {
+        if (from != null) {
+            sql.append(" AND ").append(column).append(" >= ?");
+            args.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND ").append(column).append(" < ?");
+            args.add(Timestamp.valueOf(to));
+        }
+    }
+
+    private StreamingResponseBody stream(String sql, List<Object> args, Format format, boolean gzip) {
+        return outputStream -> {
+            // syncFlush lets periodic flushes reach the client even when compressing
+            OutputStream target = gzip ? new GZIPOutputStream(outputStream, 8192, true) : outputStream;
+            Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 16384);
+            RowWriter rowWriter = format == Format.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+
+            // Postgres only uses a server-side cursor (honouring the fetch size) inside a transaction
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(true);
+
+            long rows = transactionTemplate.execute(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                for (int i = 0; i < args.size(); i++) {
+                    statement.setObject(i + 1, args.get(i));
+                }
+                return statement;
+            }, resultSet -> {
+                long count = 0;
+                try {
+                    ResultSetMetaData metaData = resultSet.getMetaData();
+                    rowWriter.writeHeader(metaData);
+                    // Get the header to the client before the first row is fetched
+                    writer.flush();
+
+                    while (resultSet.next()) {
+                        rowWriter.writeRow(resultSet, metaData);
+                        if (++count % fetchSize == 0) {
+                            writer.flush();
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return count;
+            }));
+
+            writer.flush();
+            if (target instanceof GZIPOutputStream gzipStream) {
+                gzipStream.finish();
+            }
+            log.debug("Exported {} rows", rows);
+        };
+    }
+
+    private interface RowWriter {
+        void writeHeader(ResultSetMetaData metaData) throws SQLException, IOException;
+
+        void writeRow(ResultSet resultSet, ResultSetMetaData metaData) throws SQLException, IOException;
+    }
+
+    private static class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void writeHeader(ResultSetMetaData metaData) throws SQLException, IOException {
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                writer.write(metaData.getColumnLabel(i).toLowerCase());
+            }
+            writer.write('\n');
+        }
+
+        @Override
+        public void writeRow(ResultSet resultSet, ResultSetMetaData metaData) throws SQLException, IOException {
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                String value = columnAsString(resultSet, metaData, i);
+                if (value != null) {
+                    writeEscaped(value);
+                }
+            }
+            writer.write('\n');
+        }
+
+        private void writeEscaped(String value) throws IOException {
+            boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    private class NdjsonRowWriter implements RowWriter {
+        private final Writer writer;
+        private JsonGenerator generator;
+
+        NdjsonRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void writeHeader(ResultSetMetaData metaData) throws IOException {
+            generator = objectMapper.getFactory().createGenerator(writer);
+            // The generator must not close the response stream between rows
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Records are newline-terminated below instead of space-separated
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void writeRow(ResultSet resultSet, ResultSetMetaData metaData) throws SQLException, IOException {
+            generator.writeStartObject();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                generator.writeFieldName(metaData.getColumnLabel(i).toLowerCase());
+                switch (metaData.getColumnType(i)) {
+                    case Types.NUMERIC, Types.DECIMAL -> {
+                        BigDecimal value = resultSet.getBigDecimal(i);
+                        if (value == null) {
+                            generator.writeNull();
+                        } else {
+                            generator.writeNumber(value);
+                        }
+                    }
+                    case Types.BIGINT, Types.INTEGER, Types.SMALLINT -> {
+                        long value = resultSet.getLong(i);
+                        if (resultSet.wasNull()) {
+                            generator.writeNull();
+                        } else {
+                            generator.writeNumber(value);
+                        }
+                    }
+                    default -> {
+                        String value = columnAsString(resultSet, metaData, i);
+                        if (value == null) {
+                            generator.writeNull();
+                        } else {
+                            generator.writeString(value);
+                        }
+                    }
+                }
+            }
+            generator.writeEndObject();
+            // Flush the generator's buffer into the writer before the record separator
+            generator.flush();
+            writer.write('\n');
+        }
+    }
+
+    private static String columnAsString(ResultSet resultSet, ResultSetMetaData metaData, int column) throws SQLException {
+        return switch (metaData.getColumnType(column)) {
+            case Types.TIMESTAMP, Types.TIMESTAMP_WITH_TIMEZONE -> {
+                Timestamp timestamp = resultSet.getTimestamp(column);
+                yield timestamp == null ? null : timestamp.toLocalDateTime().toString();
+            }
+            case Types.NUMERIC, Types.DECIMAL -> {
+                BigDecimal value = resultSet.getBigDecimal(column);
+                yield value == null ? null : value.toPlainString();
+            }
+            default -> resultSet.getString(column);
+        };
+    }
+}
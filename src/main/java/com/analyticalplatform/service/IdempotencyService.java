@@ -0,0 +1,245 @@
+package com.analyticalplatform.service;
+
+import com.analyticalplatform.model.IdempotencyRecord;
+import com.analyticalplatform.model.User;
+import com.analyticalplatform.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Makes mutating endpoints safe to retry. The first request carrying an Idempotency-Key runs the
+ * action and stores its response in the same transaction; later requests with the same key replay
+ * the stored response. Duplicates that arrive while the first one is still running wait for it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyService {
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+
+    @Value("${idempotency.cache.max-entries:10000}")
+    private int maxCachedEntries;
+
+    @Value("${idempotency.wait-timeout-seconds:30}")
+    private long waitTimeoutSeconds;
+
+    @Value("${idempotency.retention-hours:24}")
+    private long retentionHours;
+
+    // Recently completed responses, evicted in LRU order
+    private final Map<String, StoredResponse> recentResponses = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                    return size() > maxCachedEntries;
+                }
+            });
+
+    // Executions currently running on this node, so concurrent duplicates can wait on them
+    private final ConcurrentHashMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Run the action at most once per user and key. Without a key the action simply runs.
+     */
+    public ResponseEntity<?> execute(User user, String idempotencyKey, String endpoint, Object request,
+                                     Supplier<?> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return ResponseEntity.ok(action.get());
+        }
+        if (idempotencyKey.length() > 128) {
+            throw new IllegalArgumentException(HEADER + " must be at most 128 characters");
+        }
+
+        String cacheKey = user.getId() + ":" + idempotencyKey;
+        String requestHash = hashRequest(endpoint, request);
+
+        while (true) {
+            StoredResponse cached = recentResponses.get(cacheKey);
+            if (cached != null && isExpired(cached)) {
+                // Past retention the database no longer has it either, so neither may the cache
+                recentResponses.remove(cacheKey, cached);
+                cached = null;
+            }
+            if (cached != null) {
+                return replay(cached, requestHash);
+            }
+
+            CompletableFuture<StoredResponse> pending = new CompletableFuture<>();
+            CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(cacheKey, pending);
+
+            if (running != null) {
+                // Another request with this key is executing - wait for its outcome
+                Optional<StoredResponse> outcome = await(running);
+                if (outcome.isPresent()) {
+                    return replay(outcome.get(), requestHash);
+                }
+                // The first execution failed and stored nothing, so this request may try again
+                continue;
+            }
+
+            try {
+                Optional<StoredResponse> existing = idempotencyRecordRepository
+                        .findByUserIdAndIdempotencyKey(user.getId(), idempotencyKey)
+                        .map(this::toStoredResponse);
+                if (existing.isPresent()) {
+                    recentResponses.put(cacheKey, existing.get());
+                    pending.complete(existing.get());
+                    return replay(existing.get(), requestHash);
+                }
+
+                ExecutionResult result = executeAndStore(user, idempotencyKey, endpoint, requestHash, action);
+                recentResponses.put(cacheKey, result.stored());
+                pending.complete(result.stored());
+
+                if (result.body() == null) {
+                    // Lost a race with another node; answer with what the winner stored
+                    return replay(result.stored(), requestHash);
+                }
+                return ResponseEntity.ok(result.body());
+            } catch (RuntimeException e) {
+                pending.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(cacheKey, pending);
+            }
+        }
+    }
+
+    @Scheduled(fixedRate = 3600000) // Hourly
+    @Transactional
+    public void purgeExpiredKeys() {
+        int removed = idempotencyRecordRepository.deleteCreatedBefore(LocalDateTime.now().minusHours(retentionHours));
+        synchronized (recentResponses) {
+            recentResponses.values().removeIf(this::isExpired);
+        }
+        if (removed > 0) {
+            log.info("Purged {} expired idempotency keys", removed);
+        }
+    }
+
+    private ExecutionResult executeAndStore(User user, String idempotencyKey, String endpoint, String requestHash,
+                                            Supplier<?> action) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        try {
+            return transactionTemplate.execute(status -> {
+                Object body = action.get();
+
+                IdempotencyRecord record = IdempotencyRecord.builder()
+                        .userId(user.getId())
+                        .idempotencyKey(idempotencyKey)
+                        .endpoint(endpoint)
+                        .requestHash(requestHash)
+                        .responseStatus(HttpStatus.OK.value())
+                        .responseBody(writeJson(body))
+                        .createdAt(LocalDateTime.now())
+                        .build();
+
+                // Inserted in the same transaction as the action, so a concurrent node holding the
+                // same key fails on the unique constraint and its action is rolled back
+                idempotencyRecordRepository.saveAndFlush(record);
+
+                return new ExecutionResult(body, toStoredResponse(record));
+            });
+        } catch (DataIntegrityViolationException e) {
+            log.info("Idempotency key {} for user {} was completed concurrently", idempotencyKey, user.getUsername());
+            StoredResponse winner = idempotencyRecordRepository
+                    .findByUserIdAndIdempotencyKey(user.getId(), idempotencyKey)
+                    .map(this::toStoredResponse)
+                    .orElseThrow(() -> e);
+            return new ExecutionResult(null, winner);
+        }
+    }
+
+    private Optional<StoredResponse> await(CompletableFuture<StoredResponse> running) {
+        try {
+            return Optional.of(running.get(waitTimeoutSeconds, TimeUnit.SECONDS));
+        } catch (ExecutionException e) {
+            return Optional.empty();
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("A request with the same " + HEADER + " is still being processed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a duplicate request to complete", e);
+        }
+    }
+
+    private ResponseEntity<String> replay(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new IllegalArgumentException(HEADER + " was already used for a different request");
+        }
+
+        return ResponseEntity.status(stored.status())
+                .header(REPLAYED_HEADER, "true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(stored.body());
+    }
+
+    private StoredResponse toStoredResponse(IdempotencyRecord record) {
+        return new StoredResponse(record.getResponseStatus(), record.getResponseBody(), record.getRequestHash(),
+                record.getCreatedAt());
+    }
+
+    private boolean isExpired(StoredResponse stored) {
+        return stored.createdAt() != null
+                && stored.createdAt().isBefore(LocalDateTime.now().minusHours(retentionHours));
+    }
+
+    private String hashRequest(String endpoint, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(endpoint.getBytes(StandardCharsets.UTF_8));
+            digest.update(writeJson(request).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private String writeJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize idempotent response: " + e.getMessage(), e);
+        }
+    }
+
+    private record StoredResponse(int status, String body, String requestHash, LocalDateTime createdAt) {
+    }
+
+    private record ExecutionResult(Object body, StoredResponse stored) {
+    }
+}
@@ -0,0 +1,162 @@
+package com.analyticalplatform.service;
+
+import com.analyticalplatform.dto.IndicatorSeriesDTO;
+import com.analyticalplatform.exception.ResourceNotFoundException;
+import com.analyticalplatform.indicator.BarSeries;
+import com.analyticalplatform.indicator.Indicator;
+import com.analyticalplatform.indicator.Indicators;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Technical indicators over the stored price history. The streaming state and computed values of
+ * each indicator are cached per symbol, interval and parameters, so a request only folds in the
+ * bars that arrived since the last one; the still-forming latest bar is evaluated on a copy of
+ * the state and never committed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IndicatorService {
+    private static final int DEFAULT_LIMIT = 300;
+    private static final int MAX_INDICATORS = 20;
+
+    private final PriceHistoryService priceHistoryService;
+
+    @Value("${indicators.cache.max-entries:2000}")
+    private int maxCachedIndicators;
+
+    private record IndicatorKey(String symbol, String interval, String name) {
+    }
+
+    private final Map<IndicatorKey, CachedIndicator> cache = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<IndicatorKey, CachedIndicator> eldest) {
+                    return size() > maxCachedIndicators;
+                }
+            });
+
+    /**
+     * Values of the requested indicators for the last limit bars of the symbol's series.
+     */
+    public IndicatorSeriesDTO getIndicators(String symbol, String interval, List<String> specs, Integer limit)
+            throws InterruptedException {
+        String normalizedInterval = PriceHistoryService.normalizeInterval(interval);
+        boolean intraday = PriceHistoryService.isIntraday(normalizedInterval);
+        if (specs == null || specs.isEmpty() || specs.size() > MAX_INDICATORS) {
+            throw new IllegalArgumentException("Request between 1 and " + MAX_INDICATORS + " indicators");
+        }
+
+        // Validate every spec before spending an API call on the series
+        List<Indicator> requested = new ArrayList<>();
+        for (String spec : specs) {
+            requested.add(Indicators.parse(spec, intraday));
+        }
+
+        String normalizedSymbol = symbol.trim().toUpperCase();
+        BarSeries bars = priceHistoryService.getSeries(normalizedSymbol, normalizedInterval);
+        int count = limit != null && limit > 0 ? limit : DEFAULT_LIMIT;
+
+        synchronized (bars) {
+            int size = bars.size();
+            if (size == 0) {
+                throw new ResourceNotFoundException("No price history for " + normalizedSymbol);
+            }
+            int from = Math.max(0, size - count);
+
+            List<LocalDateTime> times = new ArrayList<>(size - from);
+            double[] close = new double[size - from];
+            for (int i = from; i < size; i++) {
+                times.add(bars.dateTime(i));
+                close[i - from] = bars.close(i);
+            }
+
+            Map<String, Double[]> values = new LinkedHashMap<>();
+            for (Indicator indicator : requested) {
+                CachedIndicator cached = cache.computeIfAbsent(
+                        new IndicatorKey(normalizedSymbol, normalizedInterval, indicator.name()),
+                        key -> new CachedIndicator(indicator));
+                synchronized (cached) {
+                    cached.advance(bars);
+                    cached.writeInto(values, from, size);
+                }
+            }
+
+            return IndicatorSeriesDTO.builder()
+                    .symbol(normalizedSymbol)
+                    .interval(normalizedInterval)
+                    .times(times)
+                    .close(close)
+                    .values(values)
+                    .build();
+        }
+    }
+
+    /**
+     * Indicator state after every bar but the latest, plus the values computed so far.
+     */
+    private static final class CachedIndicator {
+        private final Indicator state;
+        private final List<String> outputs;
+        private final double[] scratch;
+        private double[][] values;
+        private int committed;
+
+        private CachedIndicator(Indicator indicator) {
+            this.state = indicator;
+            this.outputs = indicator.outputs();
+            this.scratch = new double[outputs.size()];
+            this.values = new double[outputs.size()][256];
+        }
+
+        private void advance(BarSeries bars) {
+            int size = bars.size();
+            if (values[0].length < size) {
+                for (int output = 0; output < values.length; output++) {
+                    values[output] = Arrays.copyOf(values[output], Math.max(size, values[output].length * 2));
+                }
+            }
+
+            // Every bar before the latest is final
+            for (; committed < size - 1; committed++) {
+                state.update(bars, committed, scratch);
+                store(committed);
+            }
+
+            // The latest bar may still be revised, so evaluate it without touching the state
+            if (size > committed) {
+                state.copy().update(bars, size - 1, scratch);
+                store(size - 1);
+            }
+        }
+
+        private void store(int index) {
+            for (int output = 0; output < scratch.length; output++) {
+                values[output][index] = scratch[output];
+            }
+        }
+
+        private void writeInto(Map<String, Double[]> result, int from, int to) {
+            for (int output = 0; output < outputs.size(); output++) {
+                Double[] series = new Double[to - from];
+                for (int i = from; i < to; i++) {
+                    double value = values[output][i];
+                    series[i - from] = Double.isNaN(value) ? null : value;
+                }
+                String name = outputs.size() == 1 ? state.name() : state.name() + "." + outputs.get(output);
+                result.put(name, series);
+            }
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.analyticalplatform.service;
+
+import com.analyticalplatform.dto.NotificationDTO;
+import com.analyticalplatform.dto.NotificationFrameDTO;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.analyticalplatform.util.PersistenceUtils.afterCommit;
+import static com.analyticalplatform.util.PersistenceUtils.chunks;
+
+/**
+ * Pushes new notifications to /user/queue/notifications once the transaction that created
+ * them commits. A user's notifications arriving within notifications.push.coalesce-ms of the
+ * first are sent together as one NotificationFrameDTO, so a burst of alerts is one frame.
+ * WebSocket sessions live on one node, so in a cluster each pushed notification is also
+ * written to notification_pushes; every node polls the other nodes' rows and pushes them to
+ * the sessions it holds, re-reading an overlap and skipping rows already pushed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationPushService {
+    private static final String INSERT_PUSH_SQL =
+            "INSERT INTO notification_pushes (username, notification_id, node_id, recorded_at) VALUES (?, ?, ?, ?)";
+    private static final String SELECT_PUSHES_SQL =
+            "SELECT id, username, notification_id, recorded_at FROM notification_pushes " +
+                    "WHERE recorded_at >= ? AND node_id <> ? ORDER BY id";
+    private static final String SELECT_NOTIFICATIONS_SQL =
+            "SELECT id, type, message, read, timestamp FROM notifications WHERE id IN (%s)";
+    private static final String SELECT_SETTLED_ID_SQL =
+            "SELECT n.id FROM notifications n JOIN users u ON u.id = n.user_id " +
+                    "WHERE u.username = ? AND n.timestamp < ? ORDER BY n.id DESC LIMIT 1";
+    private static final String JOB = "notification-push-purge";
+
+    private final WebSocketService webSocketService;
+    private final SimpUserRegistry simpUserRegistry;
+    private final ClusterCoordinator clusterCoordinator;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${notifications.push.coalesce-ms:250}")
+    private long coalesceMillis;
+
+    @Value("${notifications.push.max-frame-size:200}")
+    private int maxFrameSize;
+
+    @Value("${notifications.push.relay-overlap-ms:30000}")
+    private long relayOverlapMillis;
+
+    @Value("${notifications.push.relay-retention-minutes:60}")
+    private long relayRetentionMinutes;
+
+    @Value("${notifications.resume.settle-ms:60000}")
+    private long settleMillis;
+
+    // Username -> notifications waiting for the user's next frame
+    private final ConcurrentHashMap<String, List<NotificationDTO>> pending = new ConcurrentHashMap<>();
+
+    // notification_pushes id -> recorded_at, for rows a later poll may read again
+    private final ConcurrentHashMap<Long, Long> relayed = new ConcurrentHashMap<>();
+    private volatile long lastPoll = System.currentTimeMillis();
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "notification-push");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public void push(String username, NotificationDTO notification) {
+        push(username, List.of(notification));
+    }
+
+    public void push(String username, List<NotificationDTO> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> enqueue(username, notifications));
+    }
+
+    private void enqueue(String username, List<NotificationDTO> notifications) {
+        boolean[] opened = new boolean[1];
+        pending.compute(username, (user, waiting) -> {
+            if (waiting == null) {
+                waiting = new ArrayList<>(notifications.size());
+                opened[0] = true;
+            }
+            waiting.addAll(notifications);
+            return waiting;
+        });
+        if (opened[0]) {
+            flusher.schedule(() -> flush(username), coalesceMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush(String username) {
+        List<NotificationDTO> batch = pending.remove(username);
+        if (batch == null) {
+            return;
+        }
+        send(username, batch);
+        if (clusterCoordinator.isClustered()) {
+            relay(username, batch);
+        }
+    }
+
+    /**
+     * Send the batch in frames carrying the user's latest settled id as resume token. The
+     * batch's own ids are too new to have settled, so the token comes from the database.
+     */
+    private void send(String username, List<NotificationDTO> batch) {
+        batch.sort(Comparator.comparing(NotificationDTO::getId));
+        try {
+            Long token = settledId(username);
+            for (int from = 0; from < batch.size(); from += maxFrameSize) {
+                List<NotificationDTO> frame = batch.subList(from, Math.min(batch.size(), from + maxFrameSize));
+                webSocketService.sendNotificationFrame(username, NotificationFrameDTO.builder()
+                        .notifications(new ArrayList<>(frame))
+                        .resumeToken(resumeToken(frame, token))
+                        .hasMore(from + maxFrameSize < batch.size())
+                        .build());
+            }
+        } catch (Exception e) {
+            // The client catches up through /api/notifications/since
+            log.warn("Could not push {} notifications to {}: {}", batch.size(), username, e.getMessage());
+        }
+    }
+
+    private void relay(String username, List<NotificationDTO> batch) {
+        long now = System.currentTimeMillis();
+        try {
+            jdbcTemplate.batchUpdate(INSERT_PUSH_SQL, batch, batch.size(), (ps, notification) -> {
+                ps.setString(1, username);
+                ps.setLong(2, notification.getId());
+                ps.setString(3, clusterCoordinator.nodeId());
+                ps.setLong(4, now);
+            });
+        } catch (Exception e) {
+            log.warn("Could not relay {} notifications for {} to other nodes: {}", batch.size(), username,
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Push notifications relayed by other nodes to the users whose sessions are on this node.
+     */
+    @Scheduled(fixedDelayString = "${notifications.push.relay-poll-ms:1000}")
+    public void pollRelayed() {
+        if (!clusterCoordinator.isClustered()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Map<String, List<Long>> idsByUsername = new HashMap<>();
+        jdbcTemplate.query(SELECT_PUSHES_SQL, rs -> {
+            String username = rs.getString("username");
+            if (relayed.putIfAbsent(rs.getLong("id"), rs.getLong("recorded_at")) == null
+                    && simpUserRegistry.getUser(username) != null) {
+                idsByUsername.computeIfAbsent(username, user -> new ArrayList<>()).add(rs.getLong("notification_id"));
+            }
+        }, lastPoll - relayOverlapMillis, clusterCoordinator.nodeId());
+        lastPoll = now;
+        relayed.values().removeIf(recordedAt -> recordedAt < now - relayOverlapMillis);
+
+        idsByUsername.forEach((username, ids) -> {
+            List<NotificationDTO> batch = new ArrayList<>(ids.size());
+            for (List<Long> chunk : chunks(ids)) {
+                batch.addAll(jdbcTemplate.query(
+                        String.format(SELECT_NOTIFICATIONS_SQL, String.join(",", Collections.nCopies(chunk.size(), "?"))),
+                        (rs, row) -> NotificationDTO.builder()
+                                .id(rs.getLong("id"))
+                                .type(rs.getString("type"))
+                                .message(rs.getString("message"))
+                                .read(rs.getBoolean("read"))
+                                .timestamp(rs.getTimestamp("timestamp").toLocalDateTime())
+                                .build(),
+                        chunk.toArray()));
+            }
+            if (!batch.isEmpty()) {
+                send(username, batch);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.push.relay-purge-ms:600000}")
+    public void purgeRelayed() {
+        if (!clusterCoordinator.isClustered() || !clusterCoordinator.ownsJob(JOB)) {
+            return;
+        }
+        int purged = jdbcTemplate.update("DELETE FROM notification_pushes WHERE recorded_at < ?",
+                System.currentTimeMillis() - relayRetentionMinutes * 60_000L);
+        if (purged > 0) {
+            log.info("Purged {} relayed notification pushes", purged);
+        }
+    }
+
+    /**
+     * The resume token for notifications sorted by id: the highest id created at least
+     * notifications.resume.settle-ms ago, or fallback if there is none. Ids are taken before
+     * commit, so a lower id can become visible after a higher one; only ids old enough that
+     * every lower id has committed are safe to resume after. A client resuming from the token
+     * may therefore get notifications it has already seen and skips them by id.
+     */
+    public Long resumeToken(List<NotificationDTO> notifications, Long fallback) {
+        LocalDateTime settled = settledBefore();
+        for (int i = notifications.size() - 1; i >= 0; i--) {
+            NotificationDTO notification = notifications.get(i);
+            if (notification.getTimestamp() != null && notification.getTimestamp().isBefore(settled)) {
+                return notification.getId();
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * The user's highest notification id created before settledBefore(), or null if none.
+     */
+    private Long settledId(String username) {
+        List<Long> ids = jdbcTemplate.queryForList(SELECT_SETTLED_ID_SQL, Long.class, username,
+                Timestamp.valueOf(settledBefore()));
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    private LocalDateTime settledBefore() {
+        return LocalDateTime.now().minus(Duration.ofMillis(settleMillis));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+    }
+}
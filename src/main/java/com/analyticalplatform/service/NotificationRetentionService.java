@@ -0,0 +1,311 @@
+package com.analyticalplatform.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+import static com.analyticalplatform.util.PersistenceUtils.ID_CHUNK_SIZE;
+
+/**
+ * Keeps the notifications table down to recent rows. Notifications live in three tiers: the
+ * notifications table (unread ones and those read within hot-days), which is all that the
+ * user-facing listing, resume and unread queries touch; notifications_archive, where read
+ * ones move after hot-days; and notification_digests, per user, day and type counts that
+ * archived ones are compacted into after digest-days. Each tier is purged once rows are
+ * older than their type's retention. Every step works in chunks of chunk-size rows, each in
+ * its own short transaction, and the job runs on one node of the cluster.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationRetentionService {
+    private static final String JOB = "notification-retention";
+    private static final String OTHER_TYPE = "OTHER";
+
+    private static final String UPDATE_DIGEST_SQL =
+            "UPDATE notification_digests SET notification_count = notification_count + ?, " +
+                    "first_at = LEAST(first_at, ?), last_at = GREATEST(last_at, ?) " +
+                    "WHERE user_id = ? AND digest_day = ? AND type = ?";
+    private static final String INSERT_DIGEST_SQL =
+            "INSERT INTO notification_digests (user_id, digest_day, type, notification_count, first_at, last_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final UnreadCounterService unreadCounterService;
+    private final ClusterCoordinator clusterCoordinator;
+
+    @Value("${notifications.retention.hot-days:7}")
+    private int hotDays;
+
+    @Value("${notifications.retention.digest-days:30}")
+    private int digestDays;
+
+    @Value("${notifications.retention.default-days:365}")
+    private int defaultDays;
+
+    @Value("${notifications.retention.type-days:}")
+    private String typeDaysSpec;
+
+    @Value("${notifications.retention.chunk-size:1000}")
+    private int chunkSize;
+
+    private List<Rule> rules;
+
+    /**
+     * Rows matching condition (over the type column, with args) are kept for days.
+     */
+    private record Rule(String condition, Object[] args, int days) {
+    }
+
+    private record DigestKey(long userId, LocalDate day, String type) {
+    }
+
+    private static final class Digest {
+        private int count;
+        private LocalDateTime firstAt;
+        private LocalDateTime lastAt;
+
+        private void add(LocalDateTime at) {
+            count++;
+            firstAt = firstAt == null || at.isBefore(firstAt) ? at : firstAt;
+            lastAt = lastAt == null || at.isAfter(lastAt) ? at : lastAt;
+        }
+    }
+
+    /**
+     * What one run moved or deleted.
+     */
+    public record Result(int purged, int archived, int digested) {
+    }
+
+    @PostConstruct
+    public void init() {
+        if (hotDays < 1 || digestDays < hotDays) {
+            throw new IllegalArgumentException("notifications.retention needs 1 <= hot-days <= digest-days");
+        }
+        if (chunkSize < 1 || chunkSize > ID_CHUNK_SIZE) {
+            throw new IllegalArgumentException("notifications.retention.chunk-size must be between 1 and " + ID_CHUNK_SIZE);
+        }
+        Map<String, Integer> typeDays = parseTypeDays(typeDaysSpec);
+        rules = new ArrayList<>();
+        typeDays.forEach((type, days) -> rules.add(new Rule("type = ?", new Object[]{type}, days)));
+        String others = typeDays.isEmpty() ? "1 = 1"
+                : "type IS NULL OR type NOT IN (" + placeholders(typeDays.size()) + ")";
+        rules.add(new Rule(others, typeDays.keySet().toArray(), defaultDays));
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.retention.interval-ms:3600000}",
+            initialDelayString = "${notifications.retention.initial-delay-ms:300000}")
+    public void applyRetention() {
+        if (!clusterCoordinator.ownsJob(JOB)) {
+            return;
+        }
+        try {
+            Result result = apply(LocalDateTime.now());
+            if (result.purged() + result.archived() + result.digested() > 0) {
+                log.info("Notification retention: {} purged, {} archived, {} compacted into digests",
+                        result.purged(), result.archived(), result.digested());
+            }
+        } catch (Exception e) {
+            // Chunks already committed stay done; the next run picks up the rest
+            log.error("Notification retention failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Purge expired rows, then archive and compact what is left, as of now.
+     */
+    public Result apply(LocalDateTime now) {
+        int purged = 0;
+        for (Rule rule : rules) {
+            LocalDateTime cutoff = now.minusDays(rule.days());
+            purged += drain(() -> purgeHotChunk(rule, cutoff));
+            purged += drain(() -> purgeArchiveChunk(rule, cutoff));
+            purgeDigests(rule, cutoff.toLocalDate());
+        }
+        LocalDateTime hotCutoff = now.minusDays(hotDays);
+        int archived = drain(() -> archiveChunk(hotCutoff));
+        LocalDateTime digestCutoff = now.minusDays(digestDays);
+        int digested = drain(() -> digestChunk(digestCutoff));
+        return new Result(purged, archived, digested);
+    }
+
+    private int purgeHotChunk(Rule rule, LocalDateTime cutoff) {
+        return inTransaction(() -> {
+            List<long[]> rows = jdbcTemplate.query(
+                    "SELECT id, user_id, read FROM notifications WHERE timestamp < ? AND (" + rule.condition() + ") " +
+                            "ORDER BY timestamp LIMIT ?",
+                    (rs, rowNum) -> new long[]{rs.getLong("id"), rs.getLong("user_id"), rs.getBoolean("read") ? 0L : 1L},
+                    args(Timestamp.valueOf(cutoff), rule.args(), chunkSize));
+            if (rows.isEmpty()) {
+                return 0;
+            }
+            Map<Long, Long> unreadByUser = new HashMap<>();
+            List<Long> ids = new ArrayList<>(rows.size());
+            for (long[] row : rows) {
+                ids.add(row[0]);
+                if (row[2] > 0) {
+                    unreadByUser.merge(row[1], 1L, Long::sum);
+                }
+            }
+            deleteIds("notifications", ids);
+            unreadByUser.forEach(unreadCounterService::removed);
+            return rows.size();
+        });
+    }
+
+    private int purgeArchiveChunk(Rule rule, LocalDateTime cutoff) {
+        return inTransaction(() -> {
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM notifications_archive WHERE timestamp < ? AND (" + rule.condition() + ") " +
+                            "ORDER BY timestamp LIMIT ?",
+                    Long.class, args(Timestamp.valueOf(cutoff), rule.args(), chunkSize));
+            return ids.isEmpty() ? 0 : deleteIds("notifications_archive", ids);
+        });
+    }
+
+    private void purgeDigests(Rule rule, LocalDate cutoff) {
+        // Digests are one row per user, day and type, so a single statement is small enough
+        jdbcTemplate.update("DELETE FROM notification_digests WHERE digest_day < ? AND (" + rule.condition() + ")",
+                args(Date.valueOf(cutoff), rule.args()));
+    }
+
+    private int archiveChunk(LocalDateTime cutoff) {
+        return inTransaction(() -> {
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM notifications WHERE read = true AND timestamp < ? ORDER BY timestamp LIMIT ?",
+                    Long.class, Timestamp.valueOf(cutoff), chunkSize);
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            String in = placeholders(ids.size());
+            jdbcTemplate.update("INSERT INTO notifications_archive (id, type, message, timestamp, user_id) " +
+                    "SELECT id, type, message, timestamp, user_id FROM notifications WHERE id IN (" + in + ")",
+                    ids.toArray());
+            deleteIds("notifications", ids);
+            return ids.size();
+        });
+    }
+
+    private int digestChunk(LocalDateTime cutoff) {
+        return inTransaction(() -> {
+            Map<DigestKey, Digest> digests = new LinkedHashMap<>();
+            List<Long> ids = new ArrayList<>();
+            jdbcTemplate.query(
+                    "SELECT id, user_id, type, timestamp FROM notifications_archive WHERE timestamp < ? " +
+                            "ORDER BY timestamp LIMIT ?",
+                    rs -> {
+                        ids.add(rs.getLong("id"));
+                        LocalDateTime at = rs.getTimestamp("timestamp").toLocalDateTime();
+                        String type = rs.getString("type");
+                        DigestKey key = new DigestKey(rs.getLong("user_id"), at.toLocalDate(),
+                                type != null ? type : OTHER_TYPE);
+                        digests.computeIfAbsent(key, k -> new Digest()).add(at);
+                    },
+                    Timestamp.valueOf(cutoff), chunkSize);
+            if (ids.isEmpty()) {
+                return 0;
+            }
+
+            // Add to the digests earlier runs made for the same day, create the rest
+            List<Object[]> updates = new ArrayList<>(digests.size());
+            digests.forEach((key, digest) -> updates.add(new Object[]{digest.count,
+                    Timestamp.valueOf(digest.firstAt), Timestamp.valueOf(digest.lastAt),
+                    key.userId(), Date.valueOf(key.day()), key.type()}));
+            int[] updated = jdbcTemplate.batchUpdate(UPDATE_DIGEST_SQL, updates);
+            List<Object[]> inserts = new ArrayList<>();
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] == 0) {
+                    Object[] update = updates.get(i);
+                    inserts.add(new Object[]{update[3], update[4], update[5], update[0], update[1], update[2]});
+                }
+            }
+            if (!inserts.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_DIGEST_SQL, inserts);
+            }
+            deleteIds("notifications_archive", ids);
+            return ids.size();
+        });
+    }
+
+    private int deleteIds(String table, List<Long> ids) {
+        return jdbcTemplate.update("DELETE FROM " + table + " WHERE id IN (" + placeholders(ids.size()) + ")",
+                ids.toArray());
+    }
+
+    /**
+     * Run chunks until one comes back short, stopping early if this node loses the job.
+     */
+    private int drain(IntSupplier chunk) {
+        int total = 0;
+        int done;
+        do {
+            done = chunk.getAsInt();
+            total += done;
+        } while (done == chunkSize && clusterCoordinator.ownsJob(JOB));
+        return total;
+    }
+
+    private int inTransaction(IntSupplier work) {
+        Integer done = new TransactionTemplate(transactionManager).execute(status -> work.getAsInt());
+        return done != null ? done : 0;
+    }
+
+    private static Object[] args(Object first, Object[] middle, Object... last) {
+        Object[] all = new Object[1 + middle.length + last.length];
+        all[0] = first;
+        System.arraycopy(middle, 0, all, 1, middle.length);
+        System.arraycopy(last, 0, all, 1 + middle.length, last.length);
+        return all;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * Parse "TYPE:days,TYPE:days".
+     */
+    static Map<String, Integer> parseTypeDays(String spec) {
+        Map<String, Integer> typeDays = new LinkedHashMap<>();
+        if (spec == null || spec.isBlank()) {
+            return typeDays;
+        }
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split(":");
+            if (pair.length != 2 || pair[0].isBlank()) {
+                throw new IllegalArgumentException("Invalid notifications.retention.type-days entry: " + part.trim());
+            }
+            int days;
+            try {
+                days = Integer.parseInt(pair[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid notifications.retention.type-days entry: " + part.trim());
+            }
+            if (days < 1) {
+                throw new IllegalArgumentException("Retention of " + pair[0].trim() + " must be at least one day");
+            }
+            typeDays.put(pair[0].trim(), days);
+        }
+        return typeDays;
+    }
+}
@@ -1,48 +1,120 @@
 package com.analyticalplatform.service;
 
 import com.analyticalplatform.dto.NotificationDTO;
+import com.analyticalplatform.dto.NotificationDigestDTO;
+import com.analyticalplatform.dto.NotificationFrameDTO;
+import com.analyticalplatform.model.ArchivedNotification;
+import com.analyticalplatform.model.Money;
 import com.analyticalplatform.model.Notification;
+import com.analyticalplatform.model.NotificationDigest;
 import com.analyticalplatform.model.PriceAlert;
 import com.analyticalplatform.model.User;
+import com.analyticalplatform.repository.ArchivedNotificationRepository;
+import com.analyticalplatform.repository.NotificationDigestRepository;
 import com.analyticalplatform.repository.NotificationRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
+import static com.analyticalplatform.util.PersistenceUtils.chunks;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class NotificationService {
+    private static final String INSERT_NOTIFICATION_SQL =
+            "INSERT INTO notifications (type, message, read, timestamp, user_id) VALUES (?, ?, ?, ?, ?)";
+
     private final NotificationRepository notificationRepository;
+    private final ArchivedNotificationRepository archivedNotificationRepository;
+    private final NotificationDigestRepository notificationDigestRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationPushService notificationPushService;
+    private final UnreadCounterService unreadCounterService;
 
+    @Value("${notifications.resume.max-page:500}")
+    private int maxResumePage;
+
+    /**
+     * Insert a PRICE_ALERT notification for each alert in one JDBC batch, and push them to
+     * each user once the transaction commits.
+     */
     @Transactional
-    public void sendPriceAlert(PriceAlert alert, BigDecimal currentPrice) {
-        User user = alert.getUser();
-        String message = String.format("Price Alert: %s has reached $%s, %s your target price of $%s",
-                alert.getSymbol(),
-                currentPrice.toString(),
-                "ABOVE".equals(alert.getAlertType()) ? "above" : "below",
-                alert.getTargetPrice().toString());
+    public void sendPriceAlerts(List<PriceAlert> alerts, Money currentPrice) {
+        if (alerts.isEmpty()) {
+            return;
+        }
 
-        Notification notification = Notification.builder()
-                .user(user)
-                .type("PRICE_ALERT")
-                .message(message)
-                .read(false)
-                .timestamp(LocalDateTime.now())
-                .build();
+        LocalDateTime now = LocalDateTime.now();
+        List<Notification> notifications = new ArrayList<>(alerts.size());
+        for (PriceAlert alert : alerts) {
+            notifications.add(Notification.builder()
+                    .user(alert.getUser())
+                    .type("PRICE_ALERT")
+                    .message(priceAlertMessage(alert, currentPrice))
+                    .read(false)
+                    .timestamp(now)
+                    .build());
+        }
 
-        notificationRepository.save(notification);
-        log.info("Price alert notification sent to user {}: {}", user.getUsername(), message);
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_NOTIFICATION_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Notification notification = notifications.get(i);
+                        ps.setString(1, notification.getType());
+                        ps.setString(2, notification.getMessage());
+                        ps.setBoolean(3, notification.isRead());
+                        ps.setTimestamp(4, Timestamp.valueOf(notification.getTimestamp()));
+                        ps.setLong(5, notification.getUser().getId());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return notifications.size();
+                    }
+                }, keys);
+
+        Map<String, List<NotificationDTO>> byUsername = new LinkedHashMap<>();
+        List<Map<String, Object>> keyList = keys.getKeyList();
+        for (int i = 0; i < notifications.size(); i++) {
+            Notification notification = notifications.get(i);
+            // Drivers differ in the case of the key column name; it is the only column requested
+            notification.setId(((Number) keyList.get(i).values().iterator().next()).longValue());
+            byUsername.computeIfAbsent(notification.getUser().getUsername(), username -> new ArrayList<>())
+                    .add(mapToDTO(notification));
+        }
+
+        Map<Long, Long> perUser = new HashMap<>();
+        for (Notification notification : notifications) {
+            perUser.merge(notification.getUser().getId(), 1L, Long::sum);
+        }
+        perUser.forEach(unreadCounterService::added);
+        byUsername.forEach(notificationPushService::push);
+        log.info("Price alert notifications sent: {} to {} users", notifications.size(), byUsername.size());
     }
 
     @Transactional
@@ -62,6 +134,8 @@ public class NotificationService {
                 .build();
 
         notificationRepository.save(notification);
+        unreadCounterService.added(user.getId(), 1);
+        notificationPushService.push(user.getUsername(), mapToDTO(notification));
         log.info("Transaction notification sent to user {}: {}", user.getUsername(), message);
     }
 
@@ -78,6 +152,53 @@ public class NotificationService {
                 .map(this::mapToDTO);
     }
 
+    /**
+     * The user's notifications with ids above after, oldest first, for clients resuming from
+     * the resumeToken of the last frame they received. The returned token trails the newest
+     * ids until they have settled (see NotificationPushService.resumeToken), unless that would
+     * leave a full page without progress.
+     */
+    @Transactional(readOnly = true)
+    public NotificationFrameDTO getNotificationsSince(User user, long after, int limit) {
+        int size = Math.max(1, Math.min(limit, maxResumePage));
+        List<NotificationDTO> notifications = notificationRepository
+                .findByUserIdAndIdGreaterThanOrderByIdAsc(user.getId(), after, PageRequest.of(0, size + 1)).stream()
+                .map(this::mapToDTO)
+                .collect(Collectors.toList());
+        boolean hasMore = notifications.size() > size;
+        if (hasMore) {
+            notifications = notifications.subList(0, size);
+        }
+        return NotificationFrameDTO.builder()
+                .notifications(notifications)
+                .resumeToken(resumeToken(notifications, after, hasMore))
+                .hasMore(hasMore)
+                .build();
+    }
+
+    private long resumeToken(List<NotificationDTO> notifications, long after, boolean hasMore) {
+        long token = notificationPushService.resumeToken(notifications, after);
+        return hasMore && token == after ? notifications.get(notifications.size() - 1).getId() : token;
+    }
+
+    /**
+     * Read notifications older than notifications.retention.hot-days, newest first.
+     */
+    @Transactional(readOnly = true)
+    public Page<NotificationDTO> getArchivedNotifications(User user, Pageable pageable) {
+        return archivedNotificationRepository.findByUserIdOrderByTimestampDesc(user.getId(), pageable)
+                .map(this::mapToDTO);
+    }
+
+    /**
+     * Per-day counts of notifications compacted after notifications.retention.digest-days.
+     */
+    @Transactional(readOnly = true)
+    public Page<NotificationDigestDTO> getNotificationDigests(User user, Pageable pageable) {
+        return notificationDigestRepository.findByUserIdOrderByDigestDayDescTypeAsc(user.getId(), pageable)
+                .map(this::mapToDTO);
+    }
+
     @Transactional(readOnly = true)
     public List<NotificationDTO> getUnreadNotifications(User user) {
         return notificationRepository.findUnreadByUserId(user.getId()).stream()
@@ -85,34 +206,72 @@ public class NotificationService {
                 .collect(Collectors.toList());
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Served from UnreadCounterService; only a user's first request reads the database.
+     */
     public long getUnreadCount(User user) {
-        return notificationRepository.countByUserIdAndReadFalse(user.getId());
+        return unreadCounterService.get(user.getId());
     }
 
     @Transactional
     public NotificationDTO markAsRead(Long notificationId, User user) {
-        Notification notification = notificationRepository.findById(notificationId)
+        int changed = notificationRepository.markRead(user.getId(), List.of(notificationId));
+        // Loaded after the update, so it reflects it; also verifies the user owns it
+        Notification notification = notificationRepository.findByIdAndUserId(notificationId, user.getId())
                 .orElseThrow(() -> new RuntimeException("Notification not found"));
+        unreadCounterService.removed(user.getId(), changed);
+        return mapToDTO(notification);
+    }
 
-        // Verify user owns this notification
-        if (!notification.getUser().getId().equals(user.getId())) {
-            throw new RuntimeException("Notification not found");
+    /**
+     * Mark the user's notifications with these ids read, one UPDATE per 1000 ids. Ids of other
+     * users' or already read notifications are ignored. Returns the number marked.
+     */
+    @Transactional
+    public int markAsRead(List<Long> notificationIds, User user) {
+        List<Long> ids = notificationIds.stream().distinct().toList();
+        int changed = 0;
+        for (List<Long> chunk : chunks(ids)) {
+            changed += notificationRepository.markRead(user.getId(), chunk);
         }
+        unreadCounterService.removed(user.getId(), changed);
+        return changed;
+    }
 
-        notification.setRead(true);
-        notification = notificationRepository.save(notification);
-
-        return mapToDTO(notification);
+    /**
+     * Mark all of the user's notifications read in one UPDATE. Returns the number marked.
+     */
+    @Transactional
+    public int markAllAsRead(User user) {
+        int changed = notificationRepository.markAllRead(user.getId());
+        unreadCounterService.removed(user.getId(), changed);
+        return changed;
     }
 
+    /**
+     * Delete the user's notifications older than the given time, archived ones included, and
+     * the digests of days before it. Returns the number of notifications deleted.
+     */
     @Transactional
-    public void markAllAsRead(User user) {
-        List<Notification> unread = notificationRepository.findUnreadByUserId(user.getId());
-        for (Notification notification : unread) {
-            notification.setRead(true);
+    public int deleteOlderThan(User user, LocalDateTime before) {
+        int unread = notificationRepository.deleteOlderThan(user.getId(), false, before);
+        int read = notificationRepository.deleteOlderThan(user.getId(), true, before);
+        int archived = archivedNotificationRepository.deleteOlderThan(user.getId(), before);
+        notificationDigestRepository.deleteOlderThan(user.getId(), before.toLocalDate());
+        unreadCounterService.removed(user.getId(), unread);
+        return unread + read + archived;
+    }
+
+    private static String priceAlertMessage(PriceAlert alert, Money currentPrice) {
+        if (alert.getTargetPrice() == null) {
+            return String.format("Price Alert: %s is at $%s, %s",
+                    alert.getSymbol(), currentPrice.toString(), alert.describeCondition());
         }
-        notificationRepository.saveAll(unread);
+        return String.format("Price Alert: %s has reached $%s, %s your target price of $%s",
+                alert.getSymbol(),
+                currentPrice.toString(),
+                "ABOVE".equals(alert.getAlertType()) ? "above" : "below",
+                alert.getTargetPrice().toString());
     }
 
     private NotificationDTO mapToDTO(Notification notification) {
@@ -124,4 +283,24 @@ public class NotificationService {
                 .timestamp(notification.getTimestamp())
                 .build();
     }
-}
\ No newline at end of file
+
+    private NotificationDTO mapToDTO(ArchivedNotification notification) {
+        return NotificationDTO.builder()
+                .id(notification.getId())
+                .type(notification.getType())
+                .message(notification.getMessage())
+                .read(true)
+                .timestamp(notification.getTimestamp())
+                .build();
+    }
+
+    private NotificationDigestDTO mapToDTO(NotificationDigest digest) {
+        return NotificationDigestDTO.builder()
+                .day(digest.getDigestDay())
+                .type(digest.getType())
+                .count(digest.getNotificationCount())
+                .firstAt(digest.getFirstAt())
+                .lastAt(digest.getLastAt())
+                .build();
+    }
+}
@@ -0,0 +1,503 @@
+package com.analyticalplatform.service;
+
+import com.analyticalplatform.dto.PortfolioHistoryDTO;
+import com.analyticalplatform.dto.PortfolioHistoryPointDTO;
+import com.analyticalplatform.model.Money;
+import com.analyticalplatform.model.PortfolioValueBucket;
+import com.analyticalplatform.repository.PortfolioValueBucketRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Per-user portfolio value time series fed by PortfolioValuationService. Each point is folded
+ * into raw, 1-minute, 1-hour and 1-day tiers as it arrives; every tier is a ring of primitive
+ * arrays bounded by its retention. Closed hourly and daily buckets are also written to
+ * portfolio_value_history, by the node that owns the user, so long-range charts survive
+ * restarts. A node keeps tiers only for the users it owns and for users whose history it was
+ * asked for; they are loaded from portfolio_value_history on first use and dropped once idle.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PortfolioHistoryService {
+    private static final int DEFAULT_MAX_POINTS = 500;
+    // Skips buckets another node (or an earlier run) already wrote
+    private static final String INSERT_BUCKET_SQL =
+            "INSERT INTO portfolio_value_history (user_id, resolution, bucket_start, bucket_value) " +
+                    "SELECT CAST(? AS BIGINT), CAST(? AS VARCHAR(8)), CAST(? AS TIMESTAMP), CAST(? AS NUMERIC(19, 4)) " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM portfolio_value_history " +
+                    "WHERE user_id = ? AND resolution = ? AND bucket_start = ?)";
+
+    enum Tier {
+        RAW("raw", 0L),
+        MINUTE("1m", 60L),
+        HOUR("1h", 3_600L),
+        DAY("1d", 86_400L);
+
+        private final String label;
+        private final long bucketSeconds;
+
+        Tier(String label, long bucketSeconds) {
+            this.label = label;
+            this.bucketSeconds = bucketSeconds;
+        }
+
+        boolean isPersisted() {
+            return this == HOUR || this == DAY;
+        }
+    }
+
+    private final PortfolioValueBucketRepository bucketRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ClusterCoordinator clusterCoordinator;
+
+    @Value("${portfolio.history.raw-points:1024}")
+    private int rawPoints;
+
+    @Value("${portfolio.history.minute-retention-hours:48}")
+    private int minuteRetentionHours;
+
+    @Value("${portfolio.history.hour-retention-days:90}")
+    private int hourRetentionDays;
+
+    @Value("${portfolio.history.day-retention-days:3650}")
+    private int dayRetentionDays;
+
+    @Value("${portfolio.history.idle-minutes:60}")
+    private long idleMinutes;
+
+    private final ConcurrentHashMap<Long, UserHistory> histories = new ConcurrentHashMap<>();
+
+    // Closed buckets waiting to be written; flushed in batches off the valuation path
+    private final ConcurrentLinkedQueue<PortfolioValueBucket> pendingBuckets = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Add a portfolio value observation for the user.
+     */
+    public void record(Long userId, long valueUnits, LocalDateTime time) {
+        long epochSecond = toEpochSecond(time);
+        while (true) {
+            // Other nodes' users are only followed while their history is being read here
+            UserHistory history = clusterCoordinator.ownsUser(userId)
+                    ? histories.computeIfAbsent(userId, this::loadUser)
+                    : histories.get(userId);
+            if (history == null) {
+                return;
+            }
+            synchronized (history) {
+                if (!history.evicted) {
+                    history.lastRecorded = System.currentTimeMillis();
+                    append(userId, history, epochSecond, valueUnits);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void append(Long userId, UserHistory history, long epochSecond, long valueUnits) {
+        history.firstObserved = Math.min(history.firstObserved, epochSecond);
+        history.series(Tier.RAW).append(epochSecond, valueUnits);
+
+        for (Tier tier : List.of(Tier.MINUTE, Tier.HOUR, Tier.DAY)) {
+            Series series = history.series(tier);
+            long bucketStart = epochSecond - Math.floorMod(epochSecond, tier.bucketSeconds);
+
+            if (series.size > 0 && bucketStart == series.lastTime()) {
+                // Still inside the open bucket: the latest value is its close
+                series.replaceLast(valueUnits);
+            } else if (series.size == 0 || bucketStart > series.lastTime()) {
+                if (tier.isPersisted() && series.size > 0 && series.lastTime() > series.persistedUntil) {
+                    persistLast(userId, tier, series);
+                }
+                series.append(bucketStart, valueUnits);
+            }
+            // Observations older than the open bucket are ignored
+        }
+    }
+
+    /**
+     * Points between from and to from the finest tier that covers the range in at most
+     * maxPoints points, so long ranges are served from the hourly or daily tiers.
+     */
+    public PortfolioHistoryDTO getHistory(Long userId, LocalDateTime from, LocalDateTime to, Integer maxPoints) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(30);
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        int limit = maxPoints != null && maxPoints > 0 ? maxPoints : DEFAULT_MAX_POINTS;
+
+        long fromSecond = toEpochSecond(start);
+        long toSecond = toEpochSecond(end);
+        long nowSecond = toEpochSecond(LocalDateTime.now());
+
+        Tier chosen = Tier.DAY;
+        List<PortfolioHistoryPointDTO> points = null;
+
+        while (points == null) {
+            UserHistory history = histories.computeIfAbsent(userId, this::loadUser);
+            synchronized (history) {
+                if (history.evicted) {
+                    continue;
+                }
+                history.lastRead = System.currentTimeMillis();
+                // A tier covers the range if it reaches back to from, or to the first value ever seen
+                long needed = Math.max(fromSecond, history.firstObserved);
+                for (Tier tier : Tier.values()) {
+                    Series series = history.series(tier);
+                    boolean retained = tier == Tier.RAW || fromSecond >= nowSecond - retentionSeconds(tier);
+                    boolean covers = series.size > 0 && series.time(0) <= needed;
+                    if (retained && covers && series.count(fromSecond, toSecond) <= limit) {
+                        chosen = tier;
+                        break;
+                    }
+                }
+                points = history.series(chosen).points(fromSecond, toSecond, limit);
+            }
+        }
+
+        return PortfolioHistoryDTO.builder()
+                .resolution(chosen.label)
+                .from(start)
+                .to(end)
+                .points(points)
+                .build();
+    }
+
+    /**
+     * Drop histories nobody has read for idle-minutes, unless the user is owned here and still
+     * being recorded. Closed buckets are queued first; an owned user's open day bucket keeps
+     * the history in memory until the day closes.
+     */
+    @Scheduled(fixedDelay = 300000)
+    public void evictIdleHistories() {
+        long cutoff = System.currentTimeMillis() - idleMinutes * 60_000L;
+        long nowSecond = toEpochSecond(LocalDateTime.now());
+        int evicted = 0;
+
+        for (Map.Entry<Long, UserHistory> entry : histories.entrySet()) {
+            Long userId = entry.getKey();
+            UserHistory history = entry.getValue();
+            synchronized (history) {
+                boolean owned = clusterCoordinator.ownsUser(userId);
+                if (history.lastRead > cutoff || (owned && history.lastRecorded > cutoff)) {
+                    continue;
+                }
+                if (owned && !persistClosed(userId, history, nowSecond)) {
+                    continue;
+                }
+                history.evicted = true;
+                histories.remove(userId, history);
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            log.debug("Evicted {} idle portfolio histories, {} kept", evicted, histories.size());
+            // So a reload right after sees the buckets queued on the way out
+            flushPendingBuckets();
+        }
+    }
+
+    @Scheduled(fixedDelay = 30000)
+    public void flushPendingBuckets() {
+        List<PortfolioValueBucket> batch = new ArrayList<>();
+        PortfolioValueBucket bucket;
+        while ((bucket = pendingBuckets.poll()) != null) {
+            batch.add(bucket);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            int written = new TransactionTemplate(transactionManager).execute(status -> sum(
+                    jdbcTemplate.batchUpdate(INSERT_BUCKET_SQL, batch, batch.size(), this::setBucket)));
+            log.debug("Persisted {} of {} portfolio history buckets", written, batch.size());
+        } catch (DataIntegrityViolationException e) {
+            // Another node inserted one of them between the check and the insert; the
+            // batch rolled back, so write them one by one and skip only the duplicates
+            int written = 0;
+            for (PortfolioValueBucket each : batch) {
+                try {
+                    written += jdbcTemplate.update(INSERT_BUCKET_SQL, ps -> setBucket(ps, each));
+                } catch (DataIntegrityViolationException duplicate) {
+                    // Already there
+                }
+            }
+            log.debug("Persisted {} of {} portfolio history buckets one by one", written, batch.size());
+        } catch (Exception e) {
+            log.error("Could not persist {} portfolio history buckets: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Queue each persisted tier's last bucket once its period has ended; false if one is still open.
+     */
+    private boolean persistClosed(Long userId, UserHistory history, long nowSecond) {
+        boolean closed = true;
+        for (Tier tier : List.of(Tier.HOUR, Tier.DAY)) {
+            Series series = history.series(tier);
+            if (series.size == 0 || series.lastTime() <= series.persistedUntil) {
+                continue;
+            }
+            if (series.lastTime() + tier.bucketSeconds <= nowSecond) {
+                persistLast(userId, tier, series);
+            } else {
+                closed = false;
+            }
+        }
+        return closed;
+    }
+
+    private void persistLast(Long userId, Tier tier, Series series) {
+        // A user recorded on several nodes is written by its owner only
+        if (clusterCoordinator.ownsUser(userId)) {
+            pendingBuckets.add(PortfolioValueBucket.builder()
+                    .userId(userId)
+                    .resolution(tier.label)
+                    .bucketStart(fromEpochSecond(series.lastTime()))
+                    .value(Money.ofUnits(series.lastValue()))
+                    .build());
+        }
+        series.persistedUntil = series.lastTime();
+    }
+
+    private UserHistory loadUser(Long userId) {
+        UserHistory history = new UserHistory();
+        for (Tier tier : List.of(Tier.HOUR, Tier.DAY)) {
+            LocalDateTime cutoff = LocalDateTime.now().minusSeconds(retentionSeconds(tier));
+            for (PortfolioValueBucket bucket : bucketRepository
+                    .findByUserIdAndResolutionAndBucketStartAfterOrderByBucketStartAsc(userId, tier.label, cutoff)) {
+                history.restore(tier, toEpochSecond(bucket.getBucketStart()), bucket.getValue().units());
+            }
+        }
+        // A day bucket starts before the first value in it; the hourly tier is closer
+        for (Tier tier : List.of(Tier.HOUR, Tier.DAY)) {
+            Series series = history.series(tier);
+            if (series.size > 0) {
+                history.firstObserved = series.time(0);
+                break;
+            }
+        }
+        return history;
+    }
+
+    private void setBucket(PreparedStatement ps, PortfolioValueBucket bucket) throws SQLException {
+        Timestamp bucketStart = Timestamp.valueOf(bucket.getBucketStart());
+        ps.setLong(1, bucket.getUserId());
+        ps.setString(2, bucket.getResolution());
+        ps.setTimestamp(3, bucketStart);
+        ps.setBigDecimal(4, bucket.getValue().toBigDecimal());
+        ps.setLong(5, bucket.getUserId());
+        ps.setString(6, bucket.getResolution());
+        ps.setTimestamp(7, bucketStart);
+    }
+
+    private static int sum(int[][] counts) {
+        int total = 0;
+        for (int[] chunk : counts) {
+            for (int count : chunk) {
+                total += Math.max(count, 0);
+            }
+        }
+        return total;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushPendingBuckets();
+    }
+
+    @Scheduled(fixedRate = 86400000) // Daily
+    @Transactional
+    public void purgeExpiredBuckets() {
+        for (Tier tier : List.of(Tier.HOUR, Tier.DAY)) {
+            int removed = bucketRepository.deleteOlderThan(tier.label,
+                    LocalDateTime.now().minusSeconds(retentionSeconds(tier)));
+            if (removed > 0) {
+                log.info("Purged {} expired {} portfolio history buckets", removed, tier.label);
+            }
+        }
+    }
+
+    private long retentionSeconds(Tier tier) {
+        return switch (tier) {
+            case RAW -> Long.MAX_VALUE / 2;
+            case MINUTE -> minuteRetentionHours * 3_600L;
+            case HOUR -> hourRetentionDays * 86_400L;
+            case DAY -> dayRetentionDays * 86_400L;
+        };
+    }
+
+    private int capacity(Tier tier) {
+        return tier == Tier.RAW ? rawPoints : (int) (retentionSeconds(tier) / tier.bucketSeconds);
+    }
+
+    private static long toEpochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime fromEpochSecond(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    private final class UserHistory {
+        private final Series[] series = new Series[Tier.values().length];
+        private long firstObserved = Long.MAX_VALUE;
+        private long lastRead;
+        private long lastRecorded;
+        private boolean evicted;
+
+        private Series series(Tier tier) {
+            Series result = series[tier.ordinal()];
+            if (result == null) {
+                result = new Series(capacity(tier));
+                series[tier.ordinal()] = result;
+            }
+            return result;
+        }
+
+        private void restore(Tier tier, long bucketStart, long valueUnits) {
+            Series target = series(tier);
+            target.append(bucketStart, valueUnits);
+            target.persistedUntil = bucketStart;
+        }
+    }
+
+    /**
+     * Ring of (epoch second, value units) pairs in time order. Arrays start small and grow up
+     * to the tier's capacity, after which the oldest point is overwritten.
+     */
+    private static final class Series {
+        private final int capacity;
+        private long[] times;
+        private long[] values;
+        private int head;
+        private int size;
+        private long persistedUntil = Long.MIN_VALUE;
+
+        private Series(int capacity) {
+            this.capacity = Math.max(1, capacity);
+            int initial = Math.min(this.capacity, 16);
+            this.times = new long[initial];
+            this.values = new long[initial];
+        }
+
+        private void append(long time, long value) {
+            if (size == times.length && times.length < capacity) {
+                grow();
+            }
+            if (size == times.length) {
+                times[head] = time;
+                values[head] = value;
+                head = (head + 1) % times.length;
+            } else {
+                int index = (head + size) % times.length;
+                times[index] = time;
+                values[index] = value;
+                size++;
+            }
+        }
+
+        private void grow() {
+            int length = (int) Math.min(capacity, times.length * 2L);
+            long[] newTimes = new long[length];
+            long[] newValues = new long[length];
+            for (int i = 0; i < size; i++) {
+                newTimes[i] = time(i);
+                newValues[i] = value(i);
+            }
+            times = newTimes;
+            values = newValues;
+            head = 0;
+        }
+
+        private long time(int i) {
+            return times[(head + i) % times.length];
+        }
+
+        private long value(int i) {
+            return values[(head + i) % values.length];
+        }
+
+        private long lastTime() {
+            return time(size - 1);
+        }
+
+        private long lastValue() {
+            return value(size - 1);
+        }
+
+        private void replaceLast(long value) {
+            values[(head + size - 1) % values.length] = value;
+        }
+
+        /**
+         * Index of the first point at or after the given time.
+         */
+        private int lowerBound(long time) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (time(mid) < time) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private int count(long from, long to) {
+            return lowerBound(to + 1) - lowerBound(from);
+        }
+
+        /**
+         * Points in [from, to], thinned to at most limit points by keeping the last of each stride.
+         */
+        private List<PortfolioHistoryPointDTO> points(long from, long to, int limit) {
+            int first = lowerBound(from);
+            int end = lowerBound(to + 1);
+            int count = end - first;
+            int stride = count > limit ? (count + limit - 1) / limit : 1;
+
+            List<PortfolioHistoryPointDTO> result = new ArrayList<>(Math.min(count, limit));
+            for (int i = first + stride - 1; i < end; i += stride) {
+                result.add(point(i));
+            }
+            if (count > 0 && (count % stride) != 0) {
+                result.add(point(end - 1));
+            }
+            return result;
+        }
+
+        private PortfolioHistoryPointDTO point(int i) {
+            return PortfolioHistoryPointDTO.builder()
+                    .time(fromEpochSecond(time(i)))
+                    .value(Money.ofUnits(value(i)).toBigDecimal())
+                    .build();
+        }
+    }
+}
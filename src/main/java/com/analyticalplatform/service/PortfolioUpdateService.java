@@ -22,6 +22,7 @@ public class PortfolioUpdateService {
     private final UserRepository userRepository;
     private final StockService stockService;
     private final TransactionService transactionService;
+    private final ClusterCoordinator clusterCoordinator;
 
     @Scheduled(fixedRate = 900000) // 15 minutes
     @Transactional
@@ -37,6 +38,9 @@ public class PortfolioUpdateService {
                 if (!portfolio.isEmpty()) {
                     for (UserStock holding : portfolio) {
                         String symbol = holding.getSymbol();
+                        if (!clusterCoordinator.ownsSymbol(symbol)) {
+                            continue;
+                        }
 
                         // Update stock data if needed
                         stockService.getStockBySymbol(symbol)
@@ -0,0 +1,323 @@
+package com.analyticalplatform.service;
+
+import com.analyticalplatform.dto.PortfolioValuationDTO;
+import com.analyticalplatform.dto.PortfolioValuationDeltaDTO;
+import com.analyticalplatform.dto.PositionValuationDTO;
+import com.analyticalplatform.event.CacheInvalidatedEvent;
+import com.analyticalplatform.event.PriceUpdatedEvent;
+import com.analyticalplatform.event.TradeExecutedEvent;
+import com.analyticalplatform.model.Money;
+import com.analyticalplatform.model.User;
+import com.analyticalplatform.model.UserStock;
+import com.analyticalplatform.repository.UserStockRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Materialized valuation per user (market value, cost basis, unrealized P&L, day change).
+ * Totals are adjusted in place when a trade commits or a held symbol is repriced; a
+ * symbol -> holders index means a price tick only touches users holding that symbol.
+ * Each change is pushed to the user as a PortfolioValuationDeltaDTO and recorded in the
+ * user's value history. Trades are relayed as cache invalidations, so other nodes reload
+ * the user's positions instead of valuing stale ones.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PortfolioValuationService {
+    private static final String CACHE = "portfolio-valuations";
+
+    private final UserStockRepository userStockRepository;
+    private final PriceTable priceTable;
+    private final WebSocketService webSocketService;
+    private final PortfolioHistoryService portfolioHistoryService;
+    private final CacheInvalidationRelay cacheInvalidationRelay;
+
+    private final ConcurrentHashMap<Long, UserValuation> valuations = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<Long>> holdersBySymbol = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void load() {
+        List<UserStock> holdings = userStockRepository.findAllWithUser();
+        for (UserStock holding : holdings) {
+            Long userId = holding.getUser().getId();
+            UserValuation valuation = valuations.computeIfAbsent(userId,
+                    id -> new UserValuation(holding.getUser().getUsername()));
+            synchronized (valuation) {
+                valuation.setPosition(holding.getSymbol(), holding.getQuantity(), holding.getAverageBuyPrice().units());
+            }
+            holdersOf(holding.getSymbol()).add(userId);
+        }
+        log.info("Loaded portfolio valuations for {} users ({} positions)", valuations.size(), holdings.size());
+    }
+
+    public PortfolioValuationDTO getValuation(User user) {
+        UserValuation valuation = valuations.computeIfAbsent(user.getId(), id -> loadUser(id, user.getUsername()));
+        synchronized (valuation) {
+            return valuation.toDTO();
+        }
+    }
+
+    @Async
+    @EventListener
+    public void onPriceUpdated(PriceUpdatedEvent event) {
+        if (!event.priceChanged()) {
+            return;
+        }
+        Set<Long> holders = holdersBySymbol.get(event.symbol());
+        if (holders == null || holders.isEmpty()) {
+            return;
+        }
+
+        for (Long userId : holders) {
+            UserValuation valuation = valuations.get(userId);
+            if (valuation == null) {
+                continue;
+            }
+
+            PortfolioValuationDeltaDTO delta;
+            synchronized (valuation) {
+                Position position = valuation.positions.get(event.symbol());
+                if (position == null) {
+                    continue;
+                }
+                long marketValueBefore = valuation.marketValue;
+                valuation.reprice(position);
+                delta = valuation.toDelta(position, marketValueBefore);
+                portfolioHistoryService.record(userId, valuation.marketValue, valuation.updatedAt);
+            }
+            push(valuation, delta);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onTradeExecuted(TradeExecutedEvent event) {
+        UserValuation valuation = valuations.computeIfAbsent(event.userId(),
+                id -> new UserValuation(event.username()));
+
+        PortfolioValuationDeltaDTO delta;
+        synchronized (valuation) {
+            long marketValueBefore = valuation.marketValue;
+            Position position;
+            if (event.positionQuantity() > 0) {
+                position = valuation.setPosition(event.symbol(), event.positionQuantity(),
+                        event.positionAverageCost().units());
+                holdersOf(event.symbol()).add(event.userId());
+            } else {
+                position = valuation.removePosition(event.symbol());
+                holdersOf(event.symbol()).remove(event.userId());
+            }
+            delta = position != null ? valuation.toDelta(position, marketValueBefore) : null;
+            portfolioHistoryService.record(event.userId(), valuation.marketValue, valuation.updatedAt);
+        }
+        cacheInvalidationRelay.invalidate(CACHE, event.userId());
+
+        if (delta != null) {
+            push(valuation, delta);
+        }
+    }
+
+    /**
+     * A trade committed on another node: reload the user's positions if they are valued here.
+     */
+    @EventListener
+    public void onCacheInvalidated(CacheInvalidatedEvent event) {
+        if (!CACHE.equals(event.cache())) {
+            return;
+        }
+        UserValuation valuation = valuations.computeIfPresent(event.key(),
+                (userId, stale) -> loadUser(userId, stale.username));
+        if (valuation != null) {
+            synchronized (valuation) {
+                portfolioHistoryService.record(event.key(), valuation.marketValue, valuation.updatedAt);
+            }
+        }
+    }
+
+    /**
+     * Record every portfolio's current value so idle portfolios still get regular history points.
+     */
+    @Scheduled(fixedRate = 300000) // Every 5 minutes
+    public void recordSnapshots() {
+        LocalDateTime now = LocalDateTime.now();
+        valuations.forEach((userId, valuation) -> {
+            synchronized (valuation) {
+                if (!valuation.positions.isEmpty()) {
+                    portfolioHistoryService.record(userId, valuation.marketValue, now);
+                }
+            }
+        });
+    }
+
+    private UserValuation loadUser(Long userId, String username) {
+        UserValuation valuation = new UserValuation(username);
+        for (UserStock holding : userStockRepository.findByUserId(userId)) {
+            valuation.setPosition(holding.getSymbol(), holding.getQuantity(), holding.getAverageBuyPrice().units());
+            holdersOf(holding.getSymbol()).add(userId);
+        }
+        return valuation;
+    }
+
+    private Set<Long> holdersOf(String symbol) {
+        return holdersBySymbol.computeIfAbsent(symbol, key -> ConcurrentHashMap.newKeySet());
+    }
+
+    private void push(UserValuation valuation, PortfolioValuationDeltaDTO delta) {
+        try {
+            webSocketService.sendPortfolioUpdate(valuation.username, delta);
+        } catch (Exception e) {
+            log.warn("Could not push portfolio update to {}: {}", valuation.username, e.getMessage());
+        }
+    }
+
+    private static BigDecimal toDecimal(long units) {
+        return Money.ofUnits(units).toBigDecimal();
+    }
+
+    private static final class Position {
+        private final String symbol;
+        private long quantity;
+        private long averageCost;
+        private long price;
+        private long marketValue;
+        private long costBasis;
+        private long dayChange;
+
+        private Position(String symbol) {
+            this.symbol = symbol;
+        }
+
+        private PositionValuationDTO toDTO() {
+            return PositionValuationDTO.builder()
+                    .symbol(symbol)
+                    .quantity(quantity)
+                    .averageBuyPrice(toDecimal(averageCost))
+                    .currentPrice(toDecimal(price))
+                    .marketValue(toDecimal(marketValue))
+                    .unrealizedProfitLoss(toDecimal(marketValue - costBasis))
+                    .dayChange(toDecimal(dayChange))
+                    .build();
+        }
+    }
+
+    /**
+     * Totals are kept as the sum of the per-position figures; guarded by synchronizing on the instance.
+     */
+    private final class UserValuation {
+        private final String username;
+        private final Map<String, Position> positions = new HashMap<>();
+        private long marketValue;
+        private long costBasis;
+        private long dayChange;
+        private LocalDateTime updatedAt = LocalDateTime.now();
+
+        private UserValuation(String username) {
+            this.username = username;
+        }
+
+        private Position setPosition(String symbol, long quantity, long averageCost) {
+            Position position = positions.computeIfAbsent(symbol, Position::new);
+            subtract(position);
+            position.quantity = quantity;
+            position.averageCost = averageCost;
+            position.costBasis = Money.multiplyUnits(averageCost, quantity);
+            valueAtCurrentPrice(position);
+            add(position);
+            return position;
+        }
+
+        private Position removePosition(String symbol) {
+            Position position = positions.remove(symbol);
+            if (position == null) {
+                return null;
+            }
+            subtract(position);
+            // Report the closed position as empty in the delta
+            position.quantity = 0L;
+            position.marketValue = 0L;
+            position.costBasis = 0L;
+            position.dayChange = 0L;
+            updatedAt = LocalDateTime.now();
+            return position;
+        }
+
+        private void reprice(Position position) {
+            subtract(position);
+            valueAtCurrentPrice(position);
+            add(position);
+        }
+
+        private void valueAtCurrentPrice(Position position) {
+            PriceTable.Quote quote = priceTable.get(position.symbol).orElse(null);
+            long price = quote != null ? quote.price().units() : position.averageCost;
+            long previousClose = quote != null && quote.previousClose() != null ? quote.previousClose().units() : price;
+
+            position.price = price;
+            position.marketValue = Money.multiplyUnits(price, position.quantity);
+            position.dayChange = Money.multiplyUnits(price - previousClose, position.quantity);
+        }
+
+        private void add(Position position) {
+            marketValue = Math.addExact(marketValue, position.marketValue);
+            costBasis = Math.addExact(costBasis, position.costBasis);
+            dayChange = Math.addExact(dayChange, position.dayChange);
+            updatedAt = LocalDateTime.now();
+        }
+
+        private void subtract(Position position) {
+            marketValue = Math.subtractExact(marketValue, position.marketValue);
+            costBasis = Math.subtractExact(costBasis, position.costBasis);
+            dayChange = Math.subtractExact(dayChange, position.dayChange);
+        }
+
+        private PortfolioValuationDeltaDTO toDelta(Position position, long marketValueBefore) {
+            return PortfolioValuationDeltaDTO.builder()
+                    .position(position.toDTO())
+                    .marketValueChange(toDecimal(marketValue - marketValueBefore))
+                    .marketValue(toDecimal(marketValue))
+                    .costBasis(toDecimal(costBasis))
+                    .unrealizedProfitLoss(toDecimal(marketValue - costBasis))
+                    .dayChange(toDecimal(dayChange))
+                    .updatedAt(updatedAt)
+                    .build();
+        }
+
+        private PortfolioValuationDTO toDTO() {
+            long unrealized = marketValue - costBasis;
+            List<PositionValuationDTO> positionDTOs = new ArrayList<>(positions.size());
+            for (Position position : positions.values()) {
+                positionDTOs.add(position.toDTO());
+            }
+            positionDTOs.sort(Comparator.comparing(PositionValuationDTO::getSymbol));
+
+            return PortfolioValuationDTO.builder()
+                    .marketValue(toDecimal(marketValue))
+                    .costBasis(toDecimal(costBasis))
+                    .unrealizedProfitLoss(toDecimal(unrealized))
+                    .unrealizedProfitLossPercentage(costBasis > 0L
+                            ? Money.percentage(unrealized, costBasis, RoundingMode.HALF_UP)
+                            : BigDecimal.ZERO)
+                    .dayChange(toDecimal(dayChange))
+                    .updatedAt(updatedAt)
+                    .positions(positionDTOs)
+                    .build();
+        }
+    }
+}
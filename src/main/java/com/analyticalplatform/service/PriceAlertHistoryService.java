@@ -0,0 +1,161 @@
+package com.analyticalplatform.service;
+
+import com.analyticalplatform.dto.PriceAlertTriggerDTO;
+import com.analyticalplatform.model.Money;
+import com.analyticalplatform.model.PriceAlertTrigger;
+import com.analyticalplatform.repository.PriceAlertTriggerRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Trigger history of price alerts. Fires are queued in memory and written in batches: one JDBC
+ * batch of price_alert_triggers rows and one of fire_count / last_triggered_* updates on
+ * price_alerts, however often recurring alerts fire in between. Trailing stop highs raised
+ * since the last flush are taken from PriceAlertIndex and written in the same transaction, one
+ * update per alert. PriceAlertIndex reads both back when it is rebuilt. A batch that fails to
+ * write goes back on the queue for the next flush; while writes keep failing, the oldest fires
+ * beyond max-pending are dropped.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PriceAlertHistoryService {
+    private static final String INSERT_TRIGGER_SQL =
+            "INSERT INTO price_alert_triggers (alert_id, price, triggered_at) VALUES (?, ?, ?)";
+    private static final String UPDATE_ALERT_SQL =
+            "UPDATE price_alerts SET fire_count = COALESCE(fire_count, 0) + ?, last_triggered_at = ?, " +
+                    "last_triggered_price = ? WHERE id = ?";
+    private static final String UPDATE_REFERENCE_SQL =
+            "UPDATE price_alerts SET reference_price = ?, reference_moved_at = ? WHERE id = ?";
+
+    private record Fire(long alertId, Money price, LocalDateTime at) {
+    }
+
+    private record Reference(long alertId, long units, LocalDateTime at) {
+    }
+
+    private final PriceAlertTriggerRepository triggerRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final PriceAlertIndex priceAlertIndex;
+
+    @Value("${alerts.history.max-pending:100000}")
+    private int maxPending;
+
+    private final ConcurrentLinkedQueue<Fire> pendingFires = new ConcurrentLinkedQueue<>();
+    // Alert id -> latest reference not yet written
+    private final ConcurrentHashMap<Long, Reference> pendingReferences = new ConcurrentHashMap<>();
+
+    public void record(long alertId, Money price, LocalDateTime at) {
+        pendingFires.add(new Fire(alertId, price, at));
+    }
+
+    public List<PriceAlertTriggerDTO> getHistory(Long alertId, int limit) {
+        return triggerRepository.findByAlertIdOrderByTriggeredAtDesc(alertId, PageRequest.of(0, limit)).stream()
+                .map(trigger -> PriceAlertTriggerDTO.builder()
+                        .price(trigger.getPrice().toBigDecimal())
+                        .triggeredAt(trigger.getTriggeredAt())
+                        .build())
+                .toList();
+    }
+
+    public void deleteHistory(Long alertId) {
+        pendingFires.removeIf(fire -> fire.alertId() == alertId);
+        pendingReferences.remove(alertId);
+        triggerRepository.deleteByAlertId(alertId);
+    }
+
+    @Scheduled(fixedDelayString = "${alerts.history.flush-interval-ms:5000}")
+    public void flushPendingFires() {
+        // Alerts still trailing now have re-armed since any fire already recorded
+        LocalDateTime now = LocalDateTime.now();
+        priceAlertIndex.takeMovedReferences().forEach((alertId, units) ->
+                pendingReferences.put(alertId, new Reference(alertId, units, now)));
+        List<Reference> references = new ArrayList<>(pendingReferences.values());
+        references.forEach(reference -> pendingReferences.remove(reference.alertId(), reference));
+
+        List<Fire> batch = new ArrayList<>();
+        Fire fire;
+        while ((fire = pendingFires.poll()) != null) {
+            batch.add(fire);
+        }
+        if (batch.isEmpty() && references.isEmpty()) {
+            return;
+        }
+
+        // One counter update per alert: fire count and the latest fire
+        Map<Long, long[]> counts = new LinkedHashMap<>();
+        Map<Long, Fire> latest = new LinkedHashMap<>();
+        for (Fire each : batch) {
+            counts.computeIfAbsent(each.alertId(), id -> new long[1])[0]++;
+            latest.merge(each.alertId(), each, (a, b) -> b.at().isBefore(a.at()) ? a : b);
+        }
+        List<Fire> latestFires = new ArrayList<>(latest.values());
+
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(INSERT_TRIGGER_SQL, batch, batch.size(), (ps, each) -> {
+                    ps.setLong(1, each.alertId());
+                    ps.setBigDecimal(2, each.price().toBigDecimal());
+                    ps.setTimestamp(3, Timestamp.valueOf(each.at()));
+                });
+                jdbcTemplate.batchUpdate(UPDATE_ALERT_SQL, latestFires, latestFires.size(), (ps, each) -> {
+                    ps.setLong(1, counts.get(each.alertId())[0]);
+                    ps.setTimestamp(2, Timestamp.valueOf(each.at()));
+                    ps.setBigDecimal(3, each.price().toBigDecimal());
+                    ps.setLong(4, each.alertId());
+                });
+                jdbcTemplate.batchUpdate(UPDATE_REFERENCE_SQL, references, references.size(), (ps, each) -> {
+                    ps.setBigDecimal(1, Money.ofUnits(each.units()).toBigDecimal());
+                    ps.setTimestamp(2, Timestamp.valueOf(each.at()));
+                    ps.setLong(3, each.alertId());
+                });
+            });
+            log.debug("Persisted {} price alert fires and {} trailing highs", batch.size(), references.size());
+        } catch (Exception e) {
+            log.error("Could not persist {} price alert fires and {} trailing highs: {}", batch.size(),
+                    references.size(), e.getMessage());
+            requeue(batch);
+            // A newer reference taken since replaces the failed one
+            references.forEach(reference -> pendingReferences.putIfAbsent(reference.alertId(), reference));
+        }
+    }
+
+    /**
+     * Put a failed batch back for the next flush, keeping at most maxPending fires queued.
+     * The batch is older than anything queued since, so its oldest fires are dropped first.
+     */
+    private void requeue(List<Fire> batch) {
+        int room = Math.max(0, maxPending - pendingFires.size());
+        int dropped = Math.max(0, batch.size() - room);
+        if (dropped > 0) {
+            batch.sort(Comparator.comparing(Fire::at));
+            log.error("Dropping {} price alert fires; {} are already waiting to be written", dropped,
+                    maxPending - room);
+        }
+        pendingFires.addAll(batch.subList(dropped, batch.size()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushPendingFires();
+    }
+}
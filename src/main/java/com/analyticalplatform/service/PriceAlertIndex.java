@@ -0,0 +1,336 @@
+package com.analyticalplatform.service;
+
+import com.analyticalplatform.alert.AlertCondition;
+import com.analyticalplatform.alert.AlertEntry;
+import com.analyticalplatform.alert.Rearming;
+import com.analyticalplatform.alert.Tick;
+import com.analyticalplatform.dto.ActiveAlertTarget;
+import com.analyticalplatform.event.ShardsAcquiredEvent;
+import com.analyticalplatform.model.PriceAlert;
+import com.analyticalplatform.repository.PriceAlertRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static com.analyticalplatform.util.PersistenceUtils.chunks;
+
+/**
+ * Untriggered price alerts per symbol, grouped into AlertConditions so that alerts on the same
+ * symbol, type and parameters share one incrementally updated state and one threshold-sorted
+ * index. A price update costs O(distinct conditions) plus the alerts it fires. Rebuilt from
+ * price_alerts at startup and kept in step with alert creation, deletion and triggering by
+ * PriceAlertService; alerts created on other instances are picked up by refreshRecent().
+ * Recurring alerts that have fired wait in the symbol's Rearming until they may fire again.
+ * Every node advances the conditions of every symbol, but only the symbol's owner fires them;
+ * a node that takes over a shard picks up what it missed (see onShardsAcquired).
+ * A condition created for a new alert starts from the symbol's quote in the PriceTable when
+ * that is recent, so an alert already past its threshold fires on the next check.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PriceAlertIndex {
+    private final PriceAlertRepository priceAlertRepository;
+    private final PriceTable priceTable;
+    private final ClusterCoordinator clusterCoordinator;
+
+    // How far back refreshRecent re-reads, to cover transactions that commit late
+    private static final Duration REFRESH_OVERLAP = Duration.ofMinutes(1);
+    // Quotes older than this are not used to seed new conditions, matching checkAlerts' cache
+    private static final Duration SEED_MAX_AGE = Duration.ofMinutes(5);
+
+    private final ConcurrentHashMap<String, SymbolAlerts> alertsBySymbol = new ConcurrentHashMap<>();
+    // Alert id -> when it was indexed, for alerts a refresh may read again
+    private final ConcurrentHashMap<Long, LocalDateTime> recentlyIndexed = new ConcurrentHashMap<>();
+    private volatile LocalDateTime lastRefresh = LocalDateTime.now();
+
+    @PostConstruct
+    public void rebuild() {
+        alertsBySymbol.clear();
+        recentlyIndexed.clear();
+        lastRefresh = LocalDateTime.now();
+        List<ActiveAlertTarget> rows = priceAlertRepository.findActiveTargets();
+        index(rows, lastRefresh.minus(REFRESH_OVERLAP));
+        log.info("Indexed {} active price alerts across {} symbols", rows.size(), alertsBySymbol.size());
+    }
+
+    /**
+     * Index alerts created on other instances since the last refresh. Each run re-reads an
+     * overlap so alerts committed late are not missed; alerts indexed recently are skipped.
+     */
+    @Scheduled(fixedDelayString = "${alerts.index.refresh-ms:30000}")
+    public void refreshRecent() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime since = lastRefresh.minus(REFRESH_OVERLAP);
+        int added = index(priceAlertRepository.findActiveTargetsCreatedSince(since), since);
+        lastRefresh = now;
+        if (added > 0) {
+            log.info("Indexed {} price alerts created elsewhere", added);
+        }
+        LocalDateTime forgetBefore = now.minus(REFRESH_OVERLAP.multipliedBy(2));
+        recentlyIndexed.values().removeIf(indexedAt -> indexedAt.isBefore(forgetBefore));
+    }
+
+    /**
+     * Index findActiveTargets rows. Alerts created since the given time may be read again by
+     * the next refresh, so they are recorded and skipped if already indexed.
+     */
+    private int index(List<ActiveAlertTarget> targets, LocalDateTime since) {
+        int added = 0;
+        for (ActiveAlertTarget target : targets) {
+            if ((target.createdAt() == null || !target.createdAt().isBefore(since))
+                    && recentlyIndexed.putIfAbsent(target.id(), LocalDateTime.now()) != null) {
+                continue;
+            }
+            SymbolAlerts alerts = alertsBySymbol.computeIfAbsent(target.symbol(), symbol -> new SymbolAlerts());
+            synchronized (alerts) {
+                put(alerts, target);
+            }
+            added++;
+        }
+        return added;
+    }
+
+    /**
+     * Index a findActiveTargets row. An alert that has fired still has to re-arm from its last
+     * fire, here or on the node that fired it, unless its reference has moved since: a trailing
+     * stop that re-armed resumes from its persisted high.
+     */
+    private void put(SymbolAlerts alerts, ActiveAlertTarget target) {
+        AlertEntry entry = AlertEntry.of(target.toAlert());
+        if (Boolean.TRUE.equals(target.recurring())) {
+            alerts.fireCounts.put(target.id(), fireCount(target));
+        }
+        if (Boolean.TRUE.equals(target.recurring()) && target.lastTriggeredAt() != null
+                && target.lastTriggeredPrice() != null
+                && (target.referenceMovedAt() == null || !target.referenceMovedAt().isAfter(target.lastTriggeredAt()))) {
+            alerts.rearming.hold(entry, target.lastTriggeredPrice().units(),
+                    target.lastTriggeredAt().toInstant(ZoneOffset.UTC).toEpochMilli());
+        } else {
+            add(alerts, entry);
+        }
+    }
+
+    private static int fireCount(ActiveAlertTarget target) {
+        return target.fireCount() != null ? target.fireCount() : 0;
+    }
+
+    /**
+     * Index a newly created alert, unless a refresh has already read it.
+     */
+    public void add(PriceAlert alert) {
+        if (recentlyIndexed.putIfAbsent(alert.getId(), LocalDateTime.now()) == null) {
+            add(AlertEntry.of(alert));
+        }
+    }
+
+    void add(AlertEntry entry) {
+        SymbolAlerts alerts = alertsBySymbol.computeIfAbsent(entry.symbol(), symbol -> new SymbolAlerts());
+        synchronized (alerts) {
+            add(alerts, entry);
+        }
+    }
+
+    private void add(SymbolAlerts alerts, AlertEntry entry) {
+        alerts.conditions.computeIfAbsent(AlertCondition.key(entry), key -> seeded(AlertCondition.create(entry), entry.symbol()))
+                .add(entry);
+    }
+
+    /**
+     * The new condition, updated with its symbol's quote if one is recent enough.
+     */
+    private AlertCondition seeded(AlertCondition condition, String symbol) {
+        priceTable.get(symbol)
+                .filter(quote -> quote.isFresherThan(LocalDateTime.now().minus(SEED_MAX_AGE)))
+                .ifPresent(quote -> condition.update(quote.toTick()));
+        return condition;
+    }
+
+    /**
+     * Hold a recurring alert that has just fired, with its remaining fires, until it may fire
+     * again. The fire time is in epoch ms.
+     */
+    void hold(AlertEntry entry, long firePrice, long fireTime) {
+        SymbolAlerts alerts = alertsBySymbol.computeIfAbsent(entry.symbol(), symbol -> new SymbolAlerts());
+        synchronized (alerts) {
+            alerts.rearming.hold(entry, firePrice, fireTime);
+            alerts.fireCounts.merge(entry.alertId(), 1, Integer::sum);
+        }
+    }
+
+    public void remove(PriceAlert alert) {
+        SymbolAlerts alerts = alertsBySymbol.get(alert.getSymbol());
+        if (alerts == null) {
+            return;
+        }
+        synchronized (alerts) {
+            remove(alerts, AlertEntry.of(alert));
+        }
+    }
+
+    private static void remove(SymbolAlerts alerts, AlertEntry entry) {
+        alerts.fireCounts.remove(entry.alertId());
+        if (alerts.rearming.remove(entry.alertId())) {
+            return;
+        }
+        String key = AlertCondition.key(entry);
+        AlertCondition condition = alerts.conditions.get(key);
+        if (condition != null && condition.remove(entry) && condition.isEmpty()) {
+            alerts.conditions.remove(key);
+        }
+    }
+
+    /**
+     * Re-read the alerts of symbols in shards this node has just taken over. While another node
+     * fired them, this node kept their conditions advancing, so alerts already indexed here keep
+     * their place, and with it a trailing stop's high. Alerts not indexed here are added, and
+     * recurring alerts the other node fired since are re-read so they re-arm from its fires.
+     */
+    @Async
+    @EventListener
+    public void onShardsAcquired(ShardsAcquiredEvent event) {
+        List<String> symbols = alertsBySymbol.keySet().stream()
+                .filter(symbol -> event.shards().get(clusterCoordinator.shardOf(symbol)))
+                .toList();
+        int resynced = 0;
+        for (List<String> chunk : chunks(symbols)) {
+            Map<String, List<ActiveAlertTarget>> targetsBySymbol = priceAlertRepository.findActiveTargetsBySymbolIn(chunk)
+                    .stream()
+                    .collect(Collectors.groupingBy(ActiveAlertTarget::symbol));
+            for (Map.Entry<String, List<ActiveAlertTarget>> targets : targetsBySymbol.entrySet()) {
+                SymbolAlerts alerts = alertsBySymbol.computeIfAbsent(targets.getKey(), symbol -> new SymbolAlerts());
+                synchronized (alerts) {
+                    Set<Long> indexed = alerts.alertIds();
+                    for (ActiveAlertTarget target : targets.getValue()) {
+                        boolean known = indexed.contains(target.id());
+                        if (known && fireCount(target) <= alerts.fireCounts.getOrDefault(target.id(), 0)) {
+                            continue;
+                        }
+                        if (known) {
+                            remove(alerts, AlertEntry.of(target.toAlert()));
+                        }
+                        put(alerts, target);
+                        resynced++;
+                    }
+                }
+            }
+        }
+        if (resynced > 0) {
+            log.info("Re-read {} price alerts on {} symbols in newly acquired shards", resynced, symbols.size());
+        }
+    }
+
+    /**
+     * Apply the tick for a symbol another node fires: conditions advance as usual, but the
+     * alerts they satisfy go straight back, so this node is ready to take the symbol over.
+     */
+    void advance(String symbol, Tick tick) {
+        SymbolAlerts alerts = alertsBySymbol.get(symbol);
+        if (alerts == null) {
+            return;
+        }
+        synchronized (alerts) {
+            for (AlertEntry entry : takeSatisfied(symbol, tick)) {
+                add(alerts, entry);
+            }
+        }
+    }
+
+    /**
+     * Re-arm the recurring alerts the tick releases, apply the tick to the symbol's conditions,
+     * then remove and return the alerts they now satisfy. A null tick re-checks the last known
+     * values without advancing any state, and a tick older than one already applied is not
+     * applied.
+     */
+    List<AlertEntry> takeSatisfied(String symbol, Tick tick) {
+        SymbolAlerts alerts = alertsBySymbol.get(symbol);
+        if (alerts == null) {
+            return Collections.emptyList();
+        }
+        List<AlertEntry> satisfied = new ArrayList<>();
+        synchronized (alerts) {
+            boolean advance = tick != null && tick.time() >= alerts.lastTickTime;
+            if (advance) {
+                alerts.lastTickTime = tick.time();
+                List<AlertEntry> rearmed = new ArrayList<>();
+                alerts.rearming.release(tick.price(), tick.time(), rearmed);
+                for (AlertEntry entry : rearmed) {
+                    alerts.conditions.computeIfAbsent(AlertCondition.key(entry), key -> AlertCondition.create(entry))
+                            .rearm(entry);
+                }
+            }
+            alerts.conditions.values().removeIf(condition -> {
+                if (advance) {
+                    condition.update(tick);
+                }
+                condition.takeSatisfied(satisfied);
+                return condition.isEmpty();
+            });
+        }
+        return satisfied;
+    }
+
+    /**
+     * Trailing stop references moved since the last call on symbols this node fires, as alert
+     * id -> reference in Money units. Moves on other symbols are dropped; their owner keeps them.
+     */
+    Map<Long, Long> takeMovedReferences() {
+        Map<Long, Long> moved = new HashMap<>();
+        Map<Long, Long> dropped = new HashMap<>();
+        alertsBySymbol.forEach((symbol, alerts) -> {
+            Map<Long, Long> into = clusterCoordinator.ownsSymbol(symbol) ? moved : dropped;
+            synchronized (alerts) {
+                alerts.conditions.values().forEach(condition -> condition.takeMovedReferences(into));
+            }
+            dropped.clear();
+        });
+        return moved;
+    }
+
+    /**
+     * Symbols with at least one indexed alert.
+     */
+    public Set<String> symbols() {
+        Set<String> symbols = new HashSet<>();
+        alertsBySymbol.forEach((symbol, alerts) -> {
+            synchronized (alerts) {
+                if (!alerts.conditions.isEmpty() || !alerts.rearming.isEmpty()) {
+                    symbols.add(symbol);
+                }
+            }
+        });
+        return symbols;
+    }
+
+    private static final class SymbolAlerts {
+        private final Map<String, AlertCondition> conditions = new HashMap<>();
+        private final Rearming rearming = new Rearming();
+        // Recurring alert id -> fires known here, to spot fires made by another node
+        private final Map<Long, Integer> fireCounts = new HashMap<>();
+        private long lastTickTime = Long.MIN_VALUE;
+
+        private Set<Long> alertIds() {
+            Set<Long> ids = new HashSet<>();
+            conditions.values().forEach(condition -> condition.collectAlertIds(ids));
+            rearming.collectAlertIds(ids);
+            return ids;
+        }
+    }
+}
@@ -1,28 +1,54 @@
 package com.analyticalplatform.service;
 
+import com.analyticalplatform.alert.AlertEntry;
+import com.analyticalplatform.alert.AlertType;
+import com.analyticalplatform.alert.Tick;
 import com.analyticalplatform.dto.PriceAlertDTO;
+import com.analyticalplatform.dto.PriceAlertTriggerDTO;
+import com.analyticalplatform.event.PriceUpdatedEvent;
 import com.analyticalplatform.exception.ResourceNotFoundException;
+import com.analyticalplatform.model.AuditLog;
+import com.analyticalplatform.model.Money;
 import com.analyticalplatform.model.PriceAlert;
 import com.analyticalplatform.model.Stock;
 import com.analyticalplatform.model.User;
 import com.analyticalplatform.repository.PriceAlertRepository;
 import com.analyticalplatform.repository.StockRepository;
+import com.analyticalplatform.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+import static com.analyticalplatform.util.PersistenceUtils.afterCommit;
+import static com.analyticalplatform.util.PersistenceUtils.chunks;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class PriceAlertService {
+    private static final int MAX_WINDOW_MINUTES = 1440;
+    private static final int MAX_WINDOW_UPDATES = 1000;
+    private static final int MAX_COOLDOWN_MINUTES = 10080;
+
     private final PriceAlertRepository priceAlertRepository;
     private final StockRepository stockRepository;
     private final AlphaVantageService alphaVantageService;
@@ -30,6 +56,15 @@ public class PriceAlertService {
     private final AuditService auditService;
     private final NotificationService notificationService;
     private final StockService stockService;
+    private final PriceTable priceTable;
+    private final PriceAlertIndex priceAlertIndex;
+    private final PlatformTransactionManager transactionManager;
+    private final UserRepository userRepository;
+    private final PriceAlertHistoryService priceAlertHistoryService;
+    private final ClusterCoordinator clusterCoordinator;
+
+    @Value("${alerts.recurring.default-cooldown-minutes:15}")
+    private int defaultCooldownMinutes;
 
     @Transactional(readOnly = true)
     public List<PriceAlertDTO> getUserAlerts(User user) {
@@ -47,28 +82,83 @@ public class PriceAlertService {
 
     @Transactional
     public PriceAlertDTO createAlert(User user, PriceAlertDTO alertDTO) {
-        // Validate alertType
-        if (!"ABOVE".equals(alertDTO.getAlertType()) && !"BELOW".equals(alertDTO.getAlertType())) {
-            throw new IllegalArgumentException("Alert type must be 'ABOVE' or 'BELOW'");
-        }
+        AlertType type = AlertType.parse(alertDTO.getAlertType());
+        validate(type, alertDTO);
+        String symbol = alertDTO.getSymbol().toUpperCase();
 
         PriceAlert alert = PriceAlert.builder()
                 .user(user)
-                .symbol(alertDTO.getSymbol().toUpperCase())
-                .targetPrice(alertDTO.getTargetPrice())
-                .alertType(alertDTO.getAlertType())
+                .symbol(symbol)
+                .targetPrice(type.isPriceLevel() ? Money.of(alertDTO.getTargetPrice()) : null)
+                .alertType(type.name())
+                .direction(type.isDirectional() ? alertDTO.getDirection() : null)
+                .threshold(type.hasThreshold() ? alertDTO.getThreshold() : null)
+                .windowSize(type.isWindowed() ? alertDTO.getWindowSize() : null)
+                // A trailing stop starts from the latest known price, or from the next one
+                .referencePrice(type == AlertType.TRAILING_STOP ? priceTable.priceOr(symbol, null) : null)
+                .recurring(alertDTO.isRecurring())
+                .maxFires(alertDTO.getMaxFires())
+                .cooldownMinutes(alertDTO.isRecurring() && alertDTO.getCooldownMinutes() == null
+                        ? Integer.valueOf(defaultCooldownMinutes) : alertDTO.getCooldownMinutes())
+                .hysteresis(alertDTO.getHysteresis())
+                .fireCount(0)
                 .triggered(false)
                 .createdAt(LocalDateTime.now())
                 .build();
 
         alert = priceAlertRepository.save(alert);
+        PriceAlert saved = alert;
+        afterCommit(() -> priceAlertIndex.add(saved));
 
         auditService.logAction(user.getUsername(), "CREATE", "PriceAlert", alert.getId().toString(),
-                "Created price alert for " + alert.getSymbol() + " " + alert.getAlertType() + " " + alert.getTargetPrice());
+                "Created price alert for " + alert.getSymbol() + " " + alert.getAlertType() + " " +
+                        alert.describeCondition());
 
         return mapToDTO(alert);
     }
 
+    private static void validate(AlertType type, PriceAlertDTO alertDTO) {
+        if (type.isPriceLevel() && alertDTO.getTargetPrice() == null) {
+            throw new IllegalArgumentException("Target price is required for " + type + " alerts");
+        }
+        if (type.isDirectional() && !"UP".equals(alertDTO.getDirection()) && !"DOWN".equals(alertDTO.getDirection())) {
+            throw new IllegalArgumentException("Direction must be 'UP' or 'DOWN' for " + type + " alerts");
+        }
+        if (type.hasThreshold() && alertDTO.getThreshold() == null) {
+            throw new IllegalArgumentException("Threshold is required for " + type + " alerts");
+        }
+        if (type == AlertType.TRAILING_STOP && alertDTO.getThreshold().compareTo(BigDecimal.valueOf(100)) >= 0) {
+            throw new IllegalArgumentException("Trailing stop percentage must be below 100");
+        }
+        if (type.isWindowed()) {
+            Integer window = alertDTO.getWindowSize();
+            int max = type == AlertType.PERCENT_IN_WINDOW ? MAX_WINDOW_MINUTES : MAX_WINDOW_UPDATES;
+            if (window == null || window < 2 || window > max) {
+                throw new IllegalArgumentException("Window size for " + type + " alerts must be between 2 and " + max);
+            }
+        }
+        if (!alertDTO.isRecurring()) {
+            if (alertDTO.getMaxFires() != null || alertDTO.getCooldownMinutes() != null || alertDTO.getHysteresis() != null) {
+                throw new IllegalArgumentException("Max fires, cooldown and hysteresis apply only to recurring alerts");
+            }
+            return;
+        }
+        if (alertDTO.getCooldownMinutes() != null && alertDTO.getCooldownMinutes() > MAX_COOLDOWN_MINUTES) {
+            throw new IllegalArgumentException("Cooldown must be at most " + MAX_COOLDOWN_MINUTES + " minutes");
+        }
+        if (alertDTO.getHysteresis() != null) {
+            if (type == AlertType.VOLUME_SPIKE) {
+                throw new IllegalArgumentException("Hysteresis does not apply to VOLUME_SPIKE alerts");
+            }
+            if (alertDTO.getHysteresis().compareTo(BigDecimal.valueOf(100)) >= 0) {
+                throw new IllegalArgumentException("Hysteresis percentage must be below 100");
+            }
+        } else if (alertDTO.getCooldownMinutes() != null && alertDTO.getCooldownMinutes() == 0) {
+            // Otherwise a price sitting past the threshold would fire on every update
+            throw new IllegalArgumentException("Recurring alerts need a cooldown or a hysteresis band");
+        }
+    }
+
     @Transactional
     public void deleteAlert(User user, Long alertId) {
         PriceAlert alert = priceAlertRepository.findById(alertId)
@@ -80,86 +170,63 @@ public class PriceAlertService {
         }
 
         priceAlertRepository.delete(alert);
+        priceAlertHistoryService.deleteHistory(alertId);
+        afterCommit(() -> priceAlertIndex.remove(alert));
 
         auditService.logAction(user.getUsername(), "DELETE", "PriceAlert", alertId.toString(),
                 "Deleted price alert for " + alert.getSymbol());
     }
 
+    /**
+     * The alert's most recent fires, newest first.
+     */
+    public List<PriceAlertTriggerDTO> getAlertHistory(User user, Long alertId, int limit) {
+        PriceAlert alert = priceAlertRepository.findById(alertId)
+                .filter(found -> found.getUser().getId().equals(user.getId()))
+                .orElseThrow(() -> new ResourceNotFoundException("Price alert not found with id: " + alertId));
+        return priceAlertHistoryService.getHistory(alert.getId(), Math.max(1, Math.min(limit, 1000)));
+    }
+
+    /**
+     * Advance the symbol's alert conditions and fire what they now satisfy as soon as any
+     * component, here or on another node, publishes a new price for it. Only the symbol's
+     * owner fires; other nodes just advance the conditions.
+     */
+    @Async
+    @EventListener
+    public void onPriceUpdated(PriceUpdatedEvent event) {
+        if (!clusterCoordinator.ownsSymbol(event.symbol())) {
+            priceAlertIndex.advance(event.symbol(), event.current().toTick());
+            return;
+        }
+        fireSatisfiedAlerts(event.symbol(), event.current().toTick(), event.current().price());
+    }
+
+    /**
+     * Backstop for symbols whose price nobody else refreshes: price every symbol that still has
+     * untriggered alerts, fetching from Alpha Vantage only when the cached price is stale.
+     */
     @Scheduled(fixedRate = 300000) // Check every 5 minutes
-    @Transactional
     public void checkAlerts() {
         log.info("Checking price alerts");
 
-        List<PriceAlert> activeAlerts = priceAlertRepository.findAllActiveAlerts();
-        if (activeAlerts.isEmpty()) {
+        Set<String> symbols = priceAlertIndex.symbols();
+        if (symbols.isEmpty()) {
             log.info("No active alerts to check");
             return;
         }
 
-        // Group alerts by symbol to minimize API calls
-        Map<String, List<PriceAlert>> alertsBySymbol = activeAlerts.stream()
-                .collect(Collectors.groupingBy(PriceAlert::getSymbol));
-
-        for (Map.Entry<String, List<PriceAlert>> entry : alertsBySymbol.entrySet()) {
-            String symbol = entry.getKey();
-            List<PriceAlert> symbolAlerts = entry.getValue();
-
+        for (String symbol : symbols) {
+            if (!clusterCoordinator.ownsSymbol(symbol)) {
+                continue;
+            }
             try {
-                // Get current price - first try from repository
-                BigDecimal currentPrice = null;
-
-                Stock stock = stockRepository.findById(symbol).orElse(null);
-                if (stock != null && stock.getLastUpdated() != null &&
-                        stock.getLastUpdated().isAfter(LocalDateTime.now().minusMinutes(5))) {
-                    // Use cached price if less than 5 minutes old
-                    currentPrice = stock.getCurrentPrice();
-                    log.info("Using cached price for {}: ${}", symbol, currentPrice);
-                } else {
-                    // Get fresh price from API
-                    apiRateLimiterService.acquirePermit();
-                    Map<String, Object> quoteData = alphaVantageService.getGlobalQuote(symbol);
-
-                    if (quoteData != null && quoteData.containsKey("Global Quote")) {
-                        @SuppressWarnings("unchecked")
-                        Map<String, Object> quote = (Map<String, Object>) quoteData.get("Global Quote");
-                        String priceStr = (String) quote.get("05. price");
-
-                        if (priceStr != null) {
-                            currentPrice = new BigDecimal(priceStr);
-
-                            // Update stock in database
-                            if (stock == null) {
-                                stock = new Stock();
-                                stock.setSymbol(symbol);
-                            }
-
-                            stock.setCurrentPrice(currentPrice);
-                            stock.setLastUpdated(LocalDateTime.now());
-                            stockRepository.save(stock);
-
-                            log.info("Updated price for {}: ${}", symbol, currentPrice);
-                        }
-                    }
-                }
-
+                Money currentPrice = currentPrice(symbol);
                 if (currentPrice != null) {
-                    // Check each alert for this symbol
-                    for (PriceAlert alert : symbolAlerts) {
-                        if (alert.shouldTrigger(currentPrice)) {
-                            log.info("Alert triggered for {}: {} ${}",
-                                    alert.getSymbol(), alert.getAlertType(), alert.getTargetPrice());
-
-                            alert.markAsTriggered();
-                            priceAlertRepository.save(alert);
-
-                            // Send notification
-                            notificationService.sendPriceAlert(alert, currentPrice);
-
-                            auditService.logAction(alert.getUser().getUsername(), "ALERT_TRIGGERED",
-                                    "PriceAlert", alert.getId().toString(),
-                                    "Price alert triggered for " + alert.getSymbol() + " at " + currentPrice);
-                        }
-                    }
+                    // A stale price was just fetched and published, which advances the conditions
+                    // asynchronously; this re-checks them against their latest values, which
+                    // for new alerts were seeded from the price table
+                    fireSatisfiedAlerts(symbol, null, currentPrice);
                 } else {
                     log.warn("Could not get current price for {}", symbol);
                 }
@@ -171,12 +238,166 @@ public class PriceAlertService {
         }
     }
 
+    /**
+     * Fire the alerts the symbol's conditions satisfy after the tick, in one transaction. The
+     * alerts are taken from PriceAlertIndex and put back if the transaction fails. Index entries
+     * carry everything needed to fire them, so no alert rows are loaded. However many alerts
+     * fire, that costs one UPDATE per chunk of ids and one JDBC batch each for notifications and
+     * audit rows; the notifications are pushed after commit. Only an alert's final fire marks it
+     * triggered; recurring alerts with fires left go back to the index to re-arm, and every fire
+     * is queued for the batched trigger history.
+     */
+    private void fireSatisfiedAlerts(String symbol, Tick tick, Money currentPrice) {
+        List<AlertEntry> crossed = stillActive(priceAlertIndex.takeSatisfied(symbol, tick));
+        if (crossed.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime triggeredAt = LocalDateTime.now();
+        // Always its own transaction, even when a full async queue runs this on a caller's thread
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            transaction.executeWithoutResult(status -> {
+                List<Long> alertIds = crossed.stream().filter(AlertEntry::isFinalFire).map(AlertEntry::alertId).toList();
+                int marked = 0;
+                for (List<Long> chunk : chunks(alertIds)) {
+                    marked += priceAlertRepository.markTriggered(chunk, triggeredAt);
+                }
+                if (marked != alertIds.size()) {
+                    log.warn("{} of {} crossed {} alerts were no longer active", alertIds.size() - marked,
+                            alertIds.size(), symbol);
+                }
+
+                // Notifications and audit rows only need each user's id and username
+                List<Long> userIds = crossed.stream().map(AlertEntry::userId).distinct().toList();
+                Map<Long, User> users = new HashMap<>();
+                for (List<Long> chunk : chunks(userIds)) {
+                    for (Object[] row : userRepository.findUsernamesByIdIn(chunk)) {
+                        users.put((Long) row[0], User.builder().id((Long) row[0]).username((String) row[1]).build());
+                    }
+                }
+
+                List<PriceAlert> alerts = new ArrayList<>(crossed.size());
+                for (AlertEntry entry : crossed) {
+                    alerts.add(PriceAlert.builder()
+                            .id(entry.alertId())
+                            .user(users.get(entry.userId()))
+                            .symbol(entry.symbol())
+                            .alertType(entry.type().name())
+                            .targetPrice(entry.type().isPriceLevel() ? Money.ofUnits(entry.threshold()) : null)
+                            .direction(entry.type().isDirectional() ? (entry.up() ? "UP" : "DOWN") : null)
+                            .threshold(entry.type().hasThreshold() ? BigDecimal.valueOf(entry.threshold(), Money.SCALE) : null)
+                            .windowSize(entry.type().isWindowed() ? entry.window() : null)
+                            .triggered(entry.isFinalFire())
+                            .triggeredAt(triggeredAt)
+                            .build());
+                }
+                log.info("{} alerts triggered for {} at ${}", alerts.size(), symbol, currentPrice);
+
+                notificationService.sendPriceAlerts(alerts, currentPrice);
+
+                auditService.logActions(alerts.stream()
+                        .map(alert -> AuditLog.builder()
+                                .username(alert.getUser().getUsername())
+                                .action("ALERT_TRIGGERED")
+                                .entityType("PriceAlert")
+                                .entityId(alert.getId().toString())
+                                .timestamp(triggeredAt)
+                                .details("Price alert triggered for " + alert.getSymbol() + " at " + currentPrice)
+                                .build())
+                        .toList());
+            });
+        } catch (Exception e) {
+            log.error("Error triggering alerts for {}: {}", symbol, e.getMessage());
+            // Nothing was committed; put the alerts back so the next price sees them again
+            crossed.forEach(priceAlertIndex::add);
+            return;
+        }
+
+        long fireTime = tick != null ? tick.time() : triggeredAt.toInstant(ZoneOffset.UTC).toEpochMilli();
+        for (AlertEntry entry : crossed) {
+            priceAlertHistoryService.record(entry.alertId(), currentPrice, triggeredAt);
+            if (!entry.isFinalFire()) {
+                priceAlertIndex.hold(entry.fired(), currentPrice.units(), fireTime);
+            }
+        }
+    }
+
+    /**
+     * The entries whose alerts still exist untriggered. Alerts deleted on another node can
+     * linger in this node's index until they fire; they are dropped here.
+     */
+    private List<AlertEntry> stillActive(List<AlertEntry> entries) {
+        if (entries.isEmpty()) {
+            return entries;
+        }
+        Set<Long> active = new HashSet<>();
+        for (List<Long> chunk : chunks(entries.stream().map(AlertEntry::alertId).toList())) {
+            active.addAll(priceAlertRepository.findUntriggeredIds(chunk));
+        }
+        return active.size() == entries.size() ? entries
+                : entries.stream().filter(entry -> active.contains(entry.alertId())).toList();
+    }
+
+    /**
+     * The symbol's price from the price table if under 5 minutes old, otherwise from Alpha Vantage.
+     */
+    private Money currentPrice(String symbol) throws InterruptedException {
+        PriceTable.Quote cached = priceTable.get(symbol).orElse(null);
+        if (cached != null && cached.isFresherThan(LocalDateTime.now().minusMinutes(5))) {
+            log.info("Using cached price for {}: ${}", symbol, cached.price());
+            return cached.price();
+        }
+
+        // Get fresh price from API
+        apiRateLimiterService.acquirePermit();
+        Map<String, Object> quoteData = alphaVantageService.getGlobalQuote(symbol);
+        if (quoteData == null || !quoteData.containsKey("Global Quote")) {
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> quote = (Map<String, Object>) quoteData.get("Global Quote");
+        String priceStr = (String) quote.get("05. price");
+        if (priceStr == null) {
+            return null;
+        }
+
+        Money currentPrice = Money.parse(priceStr);
+
+        // Update stock in database
+        Stock stock = stockRepository.findById(symbol).orElse(null);
+        if (stock == null) {
+            stock = new Stock();
+            stock.setSymbol(symbol);
+        }
+
+        stock.setCurrentPrice(currentPrice);
+        stock.setLastUpdated(LocalDateTime.now());
+        stockRepository.save(stock);
+        priceTable.update(stock);
+
+        log.info("Updated price for {}: ${}", symbol, currentPrice);
+        return currentPrice;
+    }
+
     private PriceAlertDTO mapToDTO(PriceAlert alert) {
         return PriceAlertDTO.builder()
                 .id(alert.getId())
                 .symbol(alert.getSymbol())
-                .targetPrice(alert.getTargetPrice())
+                .targetPrice(alert.getTargetPrice() != null ? alert.getTargetPrice().toBigDecimal() : null)
                 .alertType(alert.getAlertType())
+                .direction(alert.getDirection())
+                .threshold(alert.getThreshold())
+                .windowSize(alert.getWindowSize())
+                .referencePrice(alert.getReferencePrice() != null ? alert.getReferencePrice().toBigDecimal() : null)
+                .recurring(alert.isRecurring())
+                .maxFires(alert.getMaxFires())
+                .cooldownMinutes(alert.getCooldownMinutes())
+                .hysteresis(alert.getHysteresis())
+                .fireCount(alert.getFireCount() != null ? alert.getFireCount() : 0)
+                .lastTriggeredAt(alert.getLastTriggeredAt())
                 .triggered(alert.isTriggered())
                 .createdAt(alert.getCreatedAt())
                 .triggeredAt(alert.getTriggeredAt())
@@ -0,0 +1,250 @@
+package com.analyticalplatform.service;
+
+import com.analyticalplatform.indicator.BarSeries;
+import com.analyticalplatform.model.Money;
+import com.analyticalplatform.model.PriceBar;
+import com.analyticalplatform.repository.PriceBarRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * OHLCV history per symbol and interval, stored in price_bars and kept in memory as a
+ * BarSeries. A series is loaded from the table on first use and topped up from Alpha Vantage
+ * at most once per refresh period; only bars newer than the last stored one are appended, and
+ * the latest bar is revised while it is still forming. A compact refresh that no longer reaches
+ * the stored bars falls back to the full history, so missed bars are not skipped.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PriceHistoryService {
+    private static final List<String> INTRADAY_INTERVALS = List.of("1min", "5min", "15min", "30min", "60min");
+    private static final List<String> INTERVALS = List.of("1min", "5min", "15min", "30min", "60min",
+            "daily", "weekly", "monthly");
+    private static final DateTimeFormatter INTRADAY_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final PriceBarRepository priceBarRepository;
+    private final AlphaVantageService alphaVantageService;
+    private final ApiRateLimiterService apiRateLimiterService;
+
+    @Value("${indicators.refresh-minutes:60}")
+    private long refreshMinutes;
+
+    private record SeriesKey(String symbol, String interval) {
+    }
+
+    private static final class StoredSeries {
+        private BarSeries bars;
+        private LocalDateTime fetchedAt;
+    }
+
+    private final ConcurrentHashMap<SeriesKey, StoredSeries> series = new ConcurrentHashMap<>();
+
+    public static String normalizeInterval(String interval) {
+        String normalized = interval == null ? "daily" : interval.trim().toLowerCase();
+        if (!INTERVALS.contains(normalized)) {
+            throw new IllegalArgumentException("Unsupported interval: " + interval + ". Use one of " + INTERVALS);
+        }
+        return normalized;
+    }
+
+    public static boolean isIntraday(String interval) {
+        return INTRADAY_INTERVALS.contains(interval);
+    }
+
+    /**
+     * Bars for the symbol and interval. The returned series keeps growing as later refreshes
+     * append to it; synchronize on it while reading. Throws InterruptedException only when the
+     * series is empty and the API rate limit prevents fetching it.
+     */
+    public BarSeries getSeries(String symbol, String interval) throws InterruptedException {
+        SeriesKey key = new SeriesKey(symbol.trim().toUpperCase(), normalizeInterval(interval));
+        StoredSeries stored = series.computeIfAbsent(key, k -> new StoredSeries());
+
+        // One load or refresh per series at a time; other requests for it wait for the result
+        synchronized (stored) {
+            if (stored.bars == null) {
+                stored.bars = load(key);
+            }
+            if (stored.fetchedAt == null || stored.fetchedAt.isBefore(LocalDateTime.now().minus(refreshPeriod(key)))) {
+                refresh(key, stored);
+            }
+            return stored.bars;
+        }
+    }
+
+    private BarSeries load(SeriesKey key) {
+        BarSeries bars = new BarSeries();
+        for (PriceBar bar : priceBarRepository.findBySymbolAndIntervalOrderByBarTimeAsc(key.symbol(), key.interval())) {
+            bars.append(bar.getBarTime(), toDouble(bar.getOpen()), toDouble(bar.getHigh()), toDouble(bar.getLow()),
+                    toDouble(bar.getClose()), bar.getVolume() != null ? bar.getVolume() : 0L);
+        }
+        log.debug("Loaded {} {} bars for {}", bars.size(), key.interval(), key.symbol());
+        return bars;
+    }
+
+    private void refresh(SeriesKey key, StoredSeries stored) throws InterruptedException {
+        if (!acquirePermit(key, stored)) {
+            return;
+        }
+
+        // A series we have never fetched gets the full history, later refreshes only the latest bars
+        boolean compact = stored.bars.size() > 0;
+        List<PriceBar> fetched = parse(key, fetch(key, compact ? "compact" : "full"));
+        if (compact && !fetched.isEmpty()
+                && fetched.get(0).getBarTime().toEpochSecond(ZoneOffset.UTC) > stored.bars.lastTime()) {
+            // The compact window starts after the last stored bar, so the bars in between would
+            // never be appended; fetch the full history instead
+            log.info("Latest {} bars for {} do not reach the stored ones, fetching the full history",
+                    key.interval(), key.symbol());
+            if (!acquirePermit(key, stored)) {
+                return;
+            }
+            fetched = parse(key, fetch(key, "full"));
+        }
+        stored.fetchedAt = LocalDateTime.now();
+
+        if (fetched.isEmpty()) {
+            log.warn("No {} bars returned for {}", key.interval(), key.symbol());
+            return;
+        }
+        merge(key, stored.bars, fetched);
+    }
+
+    /**
+     * False when rate limited with stored bars to serve instead.
+     */
+    private boolean acquirePermit(SeriesKey key, StoredSeries stored) throws InterruptedException {
+        try {
+            apiRateLimiterService.acquirePermit();
+            return true;
+        } catch (InterruptedException e) {
+            if (stored.bars.size() == 0) {
+                throw e;
+            }
+            log.warn("Serving stored {} bars for {}: {}", key.interval(), key.symbol(), e.getMessage());
+            return false;
+        }
+    }
+
+    private Map<String, Object> fetch(SeriesKey key, String outputSize) {
+        return switch (key.interval()) {
+            case "daily" -> alphaVantageService.getTimeSeriesDaily(key.symbol(), outputSize);
+            case "weekly" -> alphaVantageService.getTimeSeriesWeekly(key.symbol());
+            case "monthly" -> alphaVantageService.getTimeSeriesMonthly(key.symbol());
+            default -> alphaVantageService.getTimeSeriesIntraday(key.symbol(), key.interval(), outputSize);
+        };
+    }
+
+    private void merge(SeriesKey key, BarSeries bars, List<PriceBar> fetched) {
+        List<PriceBar> appended = new ArrayList<>();
+        PriceBar revised = null;
+
+        synchronized (bars) {
+            long lastTime = bars.lastTime();
+            for (PriceBar bar : fetched) {
+                long time = bar.getBarTime().toEpochSecond(ZoneOffset.UTC);
+                double open = toDouble(bar.getOpen());
+                double high = toDouble(bar.getHigh());
+                double low = toDouble(bar.getLow());
+                double close = toDouble(bar.getClose());
+
+                if (time > lastTime) {
+                    bars.append(bar.getBarTime(), open, high, low, close, bar.getVolume());
+                    appended.add(bar);
+                } else if (time == lastTime && (close != bars.close(bars.size() - 1)
+                        || high != bars.high(bars.size() - 1) || low != bars.low(bars.size() - 1)
+                        || bar.getVolume() != bars.volume(bars.size() - 1))) {
+                    bars.replaceLast(open, high, low, close, bar.getVolume());
+                    revised = bar;
+                }
+            }
+        }
+
+        if (revised != null) {
+            PriceBar update = revised;
+            priceBarRepository.findBySymbolAndIntervalAndBarTime(key.symbol(), key.interval(), update.getBarTime())
+                    .ifPresent(existing -> {
+                        existing.setOpen(update.getOpen());
+                        existing.setHigh(update.getHigh());
+                        existing.setLow(update.getLow());
+                        existing.setClose(update.getClose());
+                        existing.setVolume(update.getVolume());
+                        priceBarRepository.save(existing);
+                    });
+        }
+        if (!appended.isEmpty()) {
+            priceBarRepository.saveAll(appended);
+            log.info("Stored {} new {} bars for {}", appended.size(), key.interval(), key.symbol());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<PriceBar> parse(SeriesKey key, Map<String, Object> response) {
+        List<PriceBar> bars = new ArrayList<>();
+        if (response == null) {
+            return bars;
+        }
+
+        // "Time Series (Daily)", "Time Series (5min)", "Weekly Time Series", ...
+        Map<String, Object> timeSeries = null;
+        for (Map.Entry<String, Object> entry : response.entrySet()) {
+            if (entry.getKey().contains("Time Series") && entry.getValue() instanceof Map) {
+                timeSeries = (Map<String, Object>) entry.getValue();
+            }
+        }
+        if (timeSeries == null) {
+            return bars;
+        }
+
+        for (Map.Entry<String, Object> entry : timeSeries.entrySet()) {
+            try {
+                Map<String, Object> values = (Map<String, Object>) entry.getValue();
+                bars.add(PriceBar.builder()
+                        .symbol(key.symbol())
+                        .interval(key.interval())
+                        .barTime(parseTime(entry.getKey()))
+                        .open(Money.parse((String) values.get("1. open")))
+                        .high(Money.parse((String) values.get("2. high")))
+                        .low(Money.parse((String) values.get("3. low")))
+                        .close(Money.parse((String) values.get("4. close")))
+                        .volume(Long.parseLong((String) values.get("5. volume")))
+                        .build());
+            } catch (Exception e) {
+                log.warn("Skipping malformed {} bar {} for {}: {}", key.interval(), entry.getKey(), key.symbol(),
+                        e.getMessage());
+            }
+        }
+        bars.sort(Comparator.comparing(PriceBar::getBarTime));
+        return bars;
+    }
+
+    private Duration refreshPeriod(SeriesKey key) {
+        if (isIntraday(key.interval())) {
+            // A new bar is due once per interval
+            return Duration.ofMinutes(Long.parseLong(key.interval().replace("min", "")));
+        }
+        return Duration.ofMinutes(refreshMinutes);
+    }
+
+    private static LocalDateTime parseTime(String value) {
+        return value.length() > 10 ? LocalDateTime.parse(value, INTRADAY_TIME) : LocalDate.parse(value).atStartOfDay();
+    }
+
+    private static double toDouble(Money money) {
+        return money != null ? (double) money.units() / Money.ONE : Double.NaN;
+    }
+}
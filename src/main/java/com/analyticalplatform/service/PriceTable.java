@@ -0,0 +1,140 @@
+package com.analyticalplatform.service;
+
+import com.analyticalplatform.alert.Tick;
+import com.analyticalplatform.event.PriceUpdatedEvent;
+import com.analyticalplatform.model.Money;
+import com.analyticalplatform.model.Stock;
+import com.analyticalplatform.repository.StockRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.analyticalplatform.util.PersistenceUtils.afterCommit;
+
+/**
+ * Process-wide table of the latest known quote per symbol. Every path that learns a price
+ * (scheduled updates, trades, alert checks) writes here after saving the Stock row, and all
+ * portfolio valuation reads from here instead of the database or Alpha Vantage. A
+ * PriceUpdatedEvent is published whenever a symbol's price, previous close or volume
+ * changes, after the caller's transaction commits so listeners never run inside it (a
+ * trade's, for instance). Quotes learned on other nodes arrive through PriceTickRelay.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PriceTable {
+    public record Quote(String symbol, Money price, Money previousClose, long volume, LocalDateTime updatedAt) {
+        public boolean isFresherThan(LocalDateTime cutoff) {
+            return updatedAt != null && updatedAt.isAfter(cutoff);
+        }
+
+        /**
+         * This quote as a tick for the alert conditions.
+         */
+        public Tick toTick() {
+            return new Tick(updatedAt.toInstant(ZoneOffset.UTC).toEpochMilli(), price.units(),
+                    previousClose != null ? previousClose.units() : 0L, volume);
+        }
+    }
+
+    private final StockRepository stockRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ConcurrentHashMap<String, Quote> quotes = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void warmUp() {
+        int loaded = 0;
+        for (Stock stock : stockRepository.findAll()) {
+            if (store(stock, false)) {
+                loaded++;
+            }
+        }
+        log.info("Price table warmed with {} quotes", loaded);
+    }
+
+    public Optional<Quote> get(String symbol) {
+        return Optional.ofNullable(quotes.get(symbol));
+    }
+
+    /**
+     * Latest price for the symbol, or the fallback when no price is known yet.
+     */
+    public Money priceOr(String symbol, Money fallback) {
+        Quote quote = quotes.get(symbol);
+        return quote != null ? quote.price() : fallback;
+    }
+
+    public Map<String, Quote> snapshot() {
+        return Collections.unmodifiableMap(quotes);
+    }
+
+    /**
+     * Record the stock's current quote. Returns false if the stock has no price yet.
+     */
+    public boolean update(Stock stock) {
+        return store(stock, true);
+    }
+
+    /**
+     * Record a quote another node learned. Its event is marked relayed so it is not sent back.
+     */
+    public void applyRelayed(Quote quote) {
+        store(quote, true, true);
+    }
+
+    private boolean store(Stock stock, boolean publish) {
+        if (stock.getCurrentPrice() == null) {
+            return false;
+        }
+
+        Quote quote = new Quote(stock.getSymbol(), stock.getCurrentPrice(), stock.getPreviousClose(),
+                stock.getVolume() != null ? stock.getVolume() : 0L,
+                stock.getLastUpdated() != null ? stock.getLastUpdated() : LocalDateTime.now());
+        store(quote, publish, false);
+        return true;
+    }
+
+    private void store(Quote quote, boolean publish, boolean relayed) {
+        // Concurrent writers for the same symbol keep whichever quote is newest
+        Quote[] previous = new Quote[1];
+        Quote stored = quotes.compute(quote.symbol(), (symbol, existing) -> {
+            previous[0] = existing;
+            return existing == null ? quote : newer(existing, quote);
+        });
+
+        if (publish && stored != previous[0] && quoteChanged(previous[0], stored)) {
+            PriceUpdatedEvent event = new PriceUpdatedEvent(stored.symbol(), previous[0], stored, relayed);
+            afterCommit(() -> eventPublisher.publishEvent(event));
+        }
+    }
+
+    private static boolean quoteChanged(Quote previous, Quote current) {
+        return previous == null
+                || !previous.price().equals(current.price())
+                || !Objects.equals(previous.previousClose(), current.previousClose())
+                || previous.volume() != current.volume();
+    }
+
+    private static Quote newer(Quote existing, Quote incoming) {
+        if (incoming.updatedAt().isBefore(existing.updatedAt())) {
+            return existing;
+        }
+        if (incoming.previousClose() == null && existing.previousClose() != null) {
+            // Some paths only learn the last price; keep the close we already have
+            return new Quote(incoming.symbol(), incoming.price(), existing.previousClose(),
+                    incoming.volume() != 0L ? incoming.volume() : existing.volume(), incoming.updatedAt());
+        }
+        return incoming;
+    }
+}
@@ -0,0 +1,106 @@
+package com.analyticalplatform.service;
+
+import com.analyticalplatform.event.PriceUpdatedEvent;
+import com.analyticalplatform.model.Money;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Relays quotes between cluster nodes through price_ticks, so that every node's PriceTable,
+ * alert conditions and WebSocket pushes see prices learned on any node, and the node owning a
+ * symbol fires its alerts whichever node learned the price. Each quote learned here is written
+ * once; each poll reads the other nodes' rows recorded since the previous poll, re-reading an
+ * overlap for rows that commit late or come from a clock slightly behind, and skips rows it
+ * has already applied. One node purges rows older than retention-minutes.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PriceTickRelay {
+    private static final String INSERT_TICK_SQL =
+            "INSERT INTO price_ticks (symbol, price, previous_close, volume, quoted_at, node_id, recorded_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_TICKS_SQL =
+            "SELECT id, symbol, price, previous_close, volume, quoted_at, recorded_at FROM price_ticks " +
+                    "WHERE recorded_at >= ? AND node_id <> ? ORDER BY id";
+    private static final String JOB = "price-tick-purge";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PriceTable priceTable;
+    private final ClusterCoordinator clusterCoordinator;
+
+    @Value("${cluster.relay.overlap-ms:30000}")
+    private long overlapMillis;
+
+    @Value("${cluster.relay.retention-minutes:60}")
+    private long retentionMinutes;
+
+    // Row id -> recorded_at, for rows a later poll may read again
+    private final ConcurrentHashMap<Long, Long> applied = new ConcurrentHashMap<>();
+    private volatile long lastPoll = System.currentTimeMillis();
+
+    @Async
+    @EventListener
+    public void onPriceUpdated(PriceUpdatedEvent event) {
+        if (event.relayed() || !clusterCoordinator.isClustered()) {
+            return;
+        }
+        PriceTable.Quote quote = event.current();
+        try {
+            jdbcTemplate.update(INSERT_TICK_SQL, quote.symbol(), quote.price().toBigDecimal(),
+                    quote.previousClose() != null ? quote.previousClose().toBigDecimal() : null,
+                    quote.volume(), Timestamp.valueOf(quote.updatedAt()), clusterCoordinator.nodeId(),
+                    System.currentTimeMillis());
+        } catch (Exception e) {
+            log.warn("Could not relay the {} quote to other nodes: {}", quote.symbol(), e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cluster.relay.poll-ms:1000}")
+    public void poll() {
+        if (!clusterCoordinator.isClustered()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        int[] received = new int[1];
+        jdbcTemplate.query(SELECT_TICKS_SQL, rs -> {
+            if (applied.putIfAbsent(rs.getLong("id"), rs.getLong("recorded_at")) != null) {
+                return;
+            }
+            BigDecimal previousClose = rs.getBigDecimal("previous_close");
+            priceTable.applyRelayed(new PriceTable.Quote(rs.getString("symbol"),
+                    Money.of(rs.getBigDecimal("price")),
+                    previousClose != null ? Money.of(previousClose) : null,
+                    rs.getLong("volume"),
+                    rs.getTimestamp("quoted_at").toLocalDateTime()));
+            received[0]++;
+        }, lastPoll - overlapMillis, clusterCoordinator.nodeId());
+        lastPoll = now;
+        applied.values().removeIf(recordedAt -> recordedAt < now - overlapMillis);
+        if (received[0] > 0) {
+            log.debug("Applied {} quotes relayed from other nodes", received[0]);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cluster.relay.purge-ms:600000}")
+    public void purge() {
+        if (!clusterCoordinator.isClustered() || !clusterCoordinator.ownsJob(JOB)) {
+            return;
+        }
+        int purged = jdbcTemplate.update("DELETE FROM price_ticks WHERE recorded_at < ?",
+                System.currentTimeMillis() - retentionMinutes * 60_000L);
+        if (purged > 0) {
+            log.info("Purged {} relayed price ticks", purged);
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package com.analyticalplatform.service;
+
+import com.analyticalplatform.dto.RiskMeasureDTO;
+import com.analyticalplatform.dto.RiskReportDTO;
+import com.analyticalplatform.indicator.BarSeries;
+import com.analyticalplatform.model.Money;
+import com.analyticalplatform.model.UserStock;
+import com.analyticalplatform.repository.UserStockRepository;
+import com.analyticalplatform.statistics.ReturnMatrix;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Monte Carlo Value-at-Risk and expected shortfall for a user's holdings. Daily log returns over
+ * the lookback window are taken from the stored price history; their mean and covariance drive
+ * correlated normal scenarios (via a Cholesky factor) that are simulated in fixed-size chunks on
+ * a ForkJoin pool, each chunk with its own split random stream. Rounds of chunks run until the
+ * time budget or the path limit is reached, and the spread of the per-chunk estimates gives the
+ * confidence intervals.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RiskService {
+    private static final double[] CONFIDENCE_LEVELS = {0.95, 0.99};
+    private static final double Z_95 = 1.959964;
+    private static final int MAX_HORIZON_DAYS = 30;
+
+    private final UserStockRepository userStockRepository;
+    private final PriceHistoryService priceHistoryService;
+    private final PriceTable priceTable;
+
+    @Value("${risk.lookback-days:252}")
+    private int lookbackDays;
+
+    @Value("${risk.min-observations:60}")
+    private int minObservations;
+
+    @Value("${risk.time-budget-ms:2000}")
+    private long timeBudgetMillis;
+
+    @Value("${risk.max-paths:1000000}")
+    private int maxPaths;
+
+    @Value("${risk.chunk-paths:10000}")
+    private int chunkPaths;
+
+    @Value("${risk.parallelism:0}")
+    private int parallelism;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void start() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(threads);
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * VaR and CVaR at 95% and 99% over the horizon. budgetMillis may shorten, but not extend,
+     * the configured time budget.
+     */
+    public RiskReportDTO assessRisk(Long userId, int horizonDays, Long budgetMillis) {
+        if (horizonDays < 1 || horizonDays > MAX_HORIZON_DAYS) {
+            throw new IllegalArgumentException("horizonDays must be between 1 and " + MAX_HORIZON_DAYS);
+        }
+        long budget = budgetMillis != null && budgetMillis > 0 ? Math.min(budgetMillis, timeBudgetMillis) : timeBudgetMillis;
+
+        List<UserStock> holdings = userStockRepository.findByUserId(userId);
+        if (holdings.isEmpty()) {
+            throw new IllegalArgumentException("No holdings to assess");
+        }
+
+        long startTime = System.nanoTime();
+        List<String> symbols = new ArrayList<>();
+        List<String> withoutHistory = new ArrayList<>();
+        List<double[]> histories = new ArrayList<>();
+        List<long[]> historyTimes = new ArrayList<>();
+        double[] positionValues = new double[holdings.size()];
+        long portfolioUnits = 0L;
+
+        for (UserStock holding : holdings) {
+            long value = Money.multiplyUnits(priceTable.priceOr(holding.getSymbol(), holding.getAverageBuyPrice()).units(),
+                    holding.getQuantity());
+            portfolioUnits = Math.addExact(portfolioUnits, value);
+
+            BarSeries bars = dailyBars(holding.getSymbol());
+            if (bars == null) {
+                withoutHistory.add(holding.getSymbol());
+                continue;
+            }
+            synchronized (bars) {
+                int size = bars.size();
+                if (size <= minObservations) {
+                    withoutHistory.add(holding.getSymbol());
+                    continue;
+                }
+                int from = Math.max(0, size - 2 * (lookbackDays + 1));
+                long[] times = new long[size - from];
+                double[] closes = new double[size - from];
+                for (int i = from; i < size; i++) {
+                    times[i - from] = bars.time(i);
+                    closes[i - from] = bars.close(i);
+                }
+                historyTimes.add(times);
+                histories.add(closes);
+            }
+            positionValues[symbols.size()] = (double) value / Money.ONE;
+            symbols.add(holding.getSymbol());
+        }
+
+        if (symbols.isEmpty()) {
+            throw new IllegalArgumentException("No daily price history available for the portfolio's symbols");
+        }
+
+        int n = symbols.size();
+        double[] values = Arrays.copyOf(positionValues, n);
+        double modeledValue = 0.0;
+        for (double value : values) {
+            modeledValue += value;
+        }
+
+        double[][] returns = ReturnMatrix.alignedLogReturns(historyTimes, histories, Long.MIN_VALUE, Long.MAX_VALUE,
+                lookbackDays);
+        int observations = returns[0].length;
+        if (observations < minObservations) {
+            throw new IllegalArgumentException("Only " + observations + " common trading days of history; at least "
+                    + minObservations + " are needed");
+        }
+
+        Model model = buildModel(returns, values, horizonDays);
+        Simulation simulation = simulate(model, budget);
+
+        List<RiskMeasureDTO> measures = new ArrayList<>();
+        for (double confidence : CONFIDENCE_LEVELS) {
+            measures.add(measure(simulation, confidence));
+        }
+
+        long elapsed = (System.nanoTime() - startTime) / 1_000_000L;
+        log.debug("Risk for user {}: {} symbols, {} paths in {} ms", userId, n, simulation.paths(), elapsed);
+
+        return RiskReportDTO.builder()
+                .portfolioValue(Money.ofUnits(portfolioUnits).toBigDecimal())
+                .modeledValue(toAmount(modeledValue))
+                .horizonDays(horizonDays)
+                .observations(observations)
+                .paths(simulation.paths())
+                .elapsedMillis(elapsed)
+                .symbols(symbols)
+                .symbolsWithoutHistory(withoutHistory)
+                .measures(measures)
+                .calculatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private BarSeries dailyBars(String symbol) {
+        try {
+            BarSeries bars = priceHistoryService.getSeries(symbol, "daily");
+            return bars.size() > 0 ? bars : null;
+        } catch (InterruptedException e) {
+            log.warn("No daily history for {}: {}", symbol, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Horizon drift and the Cholesky factor of the horizon covariance, both from daily returns.
+     */
+    private static Model buildModel(double[][] returns, double[] values, int horizonDays) {
+        int n = returns.length;
+        int observations = returns[0].length;
+
+        double[] mean = new double[n];
+        for (int i = 0; i < n; i++) {
+            double sum = 0.0;
+            for (int t = 0; t < observations; t++) {
+                sum += returns[i][t];
+            }
+            mean[i] = sum / observations;
+        }
+
+        double[] covariance = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = 0.0;
+                for (int t = 0; t < observations; t++) {
+                    sum += (returns[i][t] - mean[i]) * (returns[j][t] - mean[j]);
+                }
+                double value = sum / (observations - 1) * horizonDays;
+                covariance[i * n + j] = value;
+                covariance[j * n + i] = value;
+            }
+        }
+
+        double[] drift = new double[n];
+        for (int i = 0; i < n; i++) {
+            drift[i] = mean[i] * horizonDays;
+        }
+        return new Model(n, drift, cholesky(covariance, n), values);
+    }
+
+    /**
+     * Lower-triangular L with L * L^T = a, row-major. Perfectly correlated symbols make the
+     * covariance only semi-definite, so a growing diagonal jitter is added until it factors.
+     */
+    private static double[] cholesky(double[] a, int n) {
+        double maxDiagonal = 0.0;
+        for (int i = 0; i < n; i++) {
+            maxDiagonal = Math.max(maxDiagonal, a[i * n + i]);
+        }
+        double jitter = 0.0;
+        for (int attempt = 0; attempt < 12; attempt++) {
+            double[] l = tryCholesky(a, n, jitter);
+            if (l != null) {
+                return l;
+            }
+            jitter = jitter == 0.0 ? Math.max(maxDiagonal, 1e-12) * 1e-10 : jitter * 10.0;
+        }
+        throw new IllegalStateException("Return covariance is not positive semi-definite");
+    }
+
+    private static double[] tryCholesky(double[] a, int n, double jitter) {
+        double[] l = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = a[i * n + j] + (i == j ? jitter : 0.0);
+                for (int k = 0; k < j; k++) {
+                    sum -= l[i * n + k] * l[j * n + k];
+                }
+                if (i == j) {
+                    if (sum <= 0.0) {
+                        return null;
+                    }
+                    l[i * n + i] = Math.sqrt(sum);
+                } else {
+                    l[i * n + j] = sum / l[j * n + j];
+                }
+            }
+        }
+        return l;
+    }
+
+    private Simulation simulate(Model model, long budgetMillis) {
+        int chunkSize = Math.max(1_000, chunkPaths);
+        int maxChunks = Math.max(2, maxPaths / chunkSize);
+        int chunksPerRound = Math.max(2, pool.getParallelism() * 2);
+        long deadline = System.nanoTime() + budgetMillis * 1_000_000L;
+
+        double[] losses = new double[maxChunks * chunkSize];
+        SplittableRandom random = new SplittableRandom();
+        int chunks = 0;
+
+        // Always finish at least one round so there are chunks to estimate the intervals from
+        do {
+            int round = Math.min(chunksPerRound, maxChunks - chunks);
+            pool.invoke(new SimulationTask(model, losses, chunkSize, chunks, chunks + round, random.split()));
+            chunks += round;
+        } while (chunks < maxChunks && System.nanoTime() < deadline);
+
+        return new Simulation(losses, chunks, chunkSize);
+    }
+
+    private static RiskMeasureDTO measure(Simulation simulation, double confidence) {
+        // Each chunk is sorted in place, so per-chunk estimates need no extra copy
+        int chunks = simulation.chunks();
+        double[] chunkVar = new double[chunks];
+        double[] chunkCvar = new double[chunks];
+        for (int c = 0; c < chunks; c++) {
+            int from = c * simulation.chunkSize();
+            chunkVar[c] = valueAtRisk(simulation.losses(), from, from + simulation.chunkSize(), confidence);
+            chunkCvar[c] = expectedShortfall(simulation.losses(), from, from + simulation.chunkSize(), confidence);
+        }
+
+        double[] all = simulation.sortedLosses();
+        double var = valueAtRisk(all, 0, all.length, confidence);
+        double cvar = expectedShortfall(all, 0, all.length, confidence);
+        double varMargin = Z_95 * standardDeviation(chunkVar) / Math.sqrt(chunks);
+        double cvarMargin = Z_95 * standardDeviation(chunkCvar) / Math.sqrt(chunks);
+
+        return RiskMeasureDTO.builder()
+                .confidence(BigDecimal.valueOf(confidence))
+                .valueAtRisk(toAmount(var))
+                .valueAtRiskLower(toAmount(var - varMargin))
+                .valueAtRiskUpper(toAmount(var + varMargin))
+                .expectedShortfall(toAmount(cvar))
+                .expectedShortfallLower(toAmount(cvar - cvarMargin))
+                .expectedShortfallUpper(toAmount(cvar + cvarMargin))
+                .build();
+    }
+
+    private static int tailStart(int from, int to, double confidence) {
+        return from + Math.min(to - from - 1, (int) Math.ceil(confidence * (to - from)) - 1);
+    }
+
+    private static double valueAtRisk(double[] sortedLosses, int from, int to, double confidence) {
+        return sortedLosses[tailStart(from, to, confidence)];
+    }
+
+    private static double expectedShortfall(double[] sortedLosses, int from, int to, double confidence) {
+        int start = tailStart(from, to, confidence);
+        double sum = 0.0;
+        for (int i = start; i < to; i++) {
+            sum += sortedLosses[i];
+        }
+        return sum / (to - start);
+    }
+
+    private static double standardDeviation(double[] values) {
+        double mean = 0.0;
+        for (double value : values) {
+            mean += value;
+        }
+        mean /= values.length;
+        double sum = 0.0;
+        for (double value : values) {
+            sum += (value - mean) * (value - mean);
+        }
+        return Math.sqrt(sum / (values.length - 1));
+    }
+
+    private static BigDecimal toAmount(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private record Model(int n, double[] drift, double[] cholesky, double[] values) {
+    }
+
+    private record Simulation(double[] losses, int chunks, int chunkSize) {
+        private long paths() {
+            return (long) chunks * chunkSize;
+        }
+
+        private double[] sortedLosses() {
+            double[] all = Arrays.copyOf(losses, chunks * chunkSize);
+            Arrays.parallelSort(all);
+            return all;
+        }
+    }
+
+    /**
+     * Simulates chunks [fromChunk, toChunk), halving the range until one chunk is left. The
+     * random stream is split at every fork, so each chunk draws from an independent stream.
+     */
+    private static final class SimulationTask extends RecursiveAction {
+        private final Model model;
+        private final double[] losses;
+        private final int chunkSize;
+        private final int fromChunk;
+        private final int toChunk;
+        private final SplittableRandom random;
+
+        private SimulationTask(Model model, double[] losses, int chunkSize, int fromChunk, int toChunk,
+                               SplittableRandom random) {
+            this.model = model;
+            this.losses = losses;
+            this.chunkSize = chunkSize;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+            this.random = random;
+        }
+
+        @Override
+        protected void compute() {
+            if (toChunk - fromChunk > 1) {
+                int middle = (fromChunk + toChunk) >>> 1;
+                invokeAll(new SimulationTask(model, losses, chunkSize, fromChunk, middle, random.split()),
+                        new SimulationTask(model, losses, chunkSize, middle, toChunk, random));
+                return;
+            }
+
+            int n = model.n();
+            double[] drift = model.drift();
+            double[] l = model.cholesky();
+            double[] values = model.values();
+            double[] z = new double[n];
+            int from = fromChunk * chunkSize;
+            int to = from + chunkSize;
+
+            for (int path = from; path < to; path++) {
+                for (int i = 0; i < n; i++) {
+                    z[i] = random.nextGaussian();
+                }
+                double profitLoss = 0.0;
+                for (int i = 0; i < n; i++) {
+                    double logReturn = drift[i];
+                    int row = i * n;
+                    for (int j = 0; j <= i; j++) {
+                        logReturn += l[row + j] * z[j];
+                    }
+                    profitLoss += values[i] * Math.expm1(logReturn);
+                }
+                losses[path] = -profitLoss;
+            }
+            Arrays.sort(losses, from, to);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.analyticalplatform.service;
 
 import com.analyticalplatform.dto.StockDTO;
+import com.analyticalplatform.model.Money;
 import com.analyticalplatform.model.Stock;
 import com.analyticalplatform.repository.StockRepository;
 import lombok.RequiredArgsConstructor;
@@ -23,6 +24,8 @@ public class StockService {
     private final StockRepository stockRepository;
     private final AlphaVantageService alphaVantageService;
     private final ApiRateLimiterService apiRateLimiterService;
+    private final PriceTable priceTable;
+    private final ClusterCoordinator clusterCoordinator;
 
     public List<StockDTO> getAllStocks() {
         return stockRepository.findAll().stream()
@@ -56,6 +59,9 @@ public class StockService {
             List<String> priorityStocks = Arrays.asList("AAPL", "MSFT");
 
             for (String symbol : priorityStocks) {
+                if (!clusterCoordinator.ownsSymbol(symbol)) {
+                    continue;
+                }
                 try {
                     log.info("Updating priority stock: {}", symbol);
                     apiRateLimiterService.acquirePermit();
@@ -120,16 +126,15 @@ public class StockService {
 
                 if (currentPriceStr != null && previousCloseStr != null && volumeStr != null) {
                     try {
-                        BigDecimal currentPrice = new BigDecimal(currentPriceStr);
-                        BigDecimal previousClose = new BigDecimal(previousCloseStr);
+                        Money currentPrice = Money.parse(currentPriceStr);
+                        Money previousClose = Money.parse(previousCloseStr);
                         Long volume = Long.parseLong(volumeStr);
 
                         // Calculate percent change
                         BigDecimal percentChange = BigDecimal.ZERO;
-                        if (previousClose.compareTo(BigDecimal.ZERO) > 0) {
-                            BigDecimal change = currentPrice.subtract(previousClose);
-                            percentChange = change.divide(previousClose, 4, RoundingMode.HALF_UP)
-                                    .multiply(BigDecimal.valueOf(100));
+                        if (previousClose.signum() > 0) {
+                            long change = currentPrice.units() - previousClose.units();
+                            percentChange = Money.percentage(change, previousClose.units(), RoundingMode.HALF_UP);
                         }
 
                         // Update stock data
@@ -141,6 +146,7 @@ public class StockService {
 
                         // Save to database
                         stock = stockRepository.save(stock);
+                        priceTable.update(stock);
                         log.info("Updated stock data for {}: ${}, {}%", symbol, currentPrice, percentChange);
 
                         return mapToDTO(stock);
@@ -166,8 +172,8 @@ public class StockService {
         return StockDTO.builder()
                 .symbol(stock.getSymbol())
                 .companyName(stock.getCompanyName())
-                .currentPrice(stock.getCurrentPrice())
-                .previousClose(stock.getPreviousClose())
+                .currentPrice(stock.getCurrentPrice() != null ? stock.getCurrentPrice().toBigDecimal() : null)
+                .previousClose(stock.getPreviousClose() != null ? stock.getPreviousClose().toBigDecimal() : null)
                 .percentChange(stock.getPercentChange())
                 .volume(stock.getVolume())
                 .lastUpdated(stock.getLastUpdated())
@@ -0,0 +1,216 @@
+package com.analyticalplatform.service;
+
+import com.analyticalplatform.dto.RealizedProfitLossDTO;
+import com.analyticalplatform.dto.TaxLotDTO;
+import com.analyticalplatform.model.Money;
+import com.analyticalplatform.model.RealizedProfitLoss;
+import com.analyticalplatform.model.StockTransaction;
+import com.analyticalplatform.model.TaxLot;
+import com.analyticalplatform.repository.RealizedProfitLossRepository;
+import com.analyticalplatform.repository.TaxLotRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Lot ledger behind UserStock: buys open lots, sells consume them in the configured order and
+ * add to a per-symbol realized profit/loss row, so neither cost basis nor realized P&L needs a
+ * replay of the transaction history.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TaxLotService {
+    public enum MatchingMethod { FIFO, LIFO, HIGHEST_COST }
+
+    private final TaxLotRepository taxLotRepository;
+    private final RealizedProfitLossRepository realizedProfitLossRepository;
+
+    @Value("${portfolio.lots.matching-method:FIFO}")
+    private MatchingMethod matchingMethod;
+
+    // Open lots are fetched in small pages so a sale only loads the lots it actually consumes
+    @Value("${portfolio.lots.fetch-size:32}")
+    private int lotFetchSize;
+
+    @Transactional
+    public TaxLot openLot(Long userId, StockTransaction buy) {
+        TaxLot lot = TaxLot.builder()
+                .userId(userId)
+                .symbol(buy.getSymbol())
+                .openTransactionId(buy.getId())
+                .quantity(buy.getQuantity())
+                .remainingQuantity(buy.getQuantity())
+                .costPrice(Money.of(buy.getPrice()))
+                .openedAt(buy.getTransactionTime())
+                .build();
+
+        return taxLotRepository.save(lot);
+    }
+
+    /**
+     * Consume lots for a sale of quantity out of a position of positionQuantity shares and
+     * return the realized profit/loss of this sale. Shares held from before lots were tracked
+     * first get an opening lot at the position's average price (see openUntrackedLot).
+     */
+    @Transactional
+    public Money closeLots(Long userId, String symbol, long quantity, long positionQuantity, Money salePrice,
+                           Money averageCost) {
+        openUntrackedLot(userId, symbol, positionQuantity, averageCost);
+
+        long remaining = quantity;
+        long costBasis = 0L;
+        int lotsTouched = 0;
+
+        while (remaining > 0) {
+            List<TaxLot> lots = taxLotRepository.findOpenLots(userId, symbol, PageRequest.of(0, lotFetchSize, lotOrder()));
+            if (lots.isEmpty()) {
+                break;
+            }
+
+            for (TaxLot lot : lots) {
+                long taken = lot.consume(remaining);
+                costBasis = Math.addExact(costBasis, Money.multiplyUnits(lot.getCostPrice().units(), taken));
+                remaining -= taken;
+                lotsTouched++;
+                if (remaining == 0) {
+                    break;
+                }
+            }
+
+            // Flush so the next page query no longer sees the lots closed above
+            taxLotRepository.saveAllAndFlush(lots);
+        }
+
+        if (remaining > 0) {
+            log.warn("No lots for {} of {} {} shares of user {}, using average cost", remaining, quantity, symbol, userId);
+            costBasis = Math.addExact(costBasis, Money.multiplyUnits(averageCost.units(), remaining));
+        }
+
+        long proceeds = Money.multiplyUnits(salePrice.units(), quantity);
+
+        RealizedProfitLoss realized = realizedProfitLossRepository.findByUserIdAndSymbol(userId, symbol)
+                .orElseGet(() -> RealizedProfitLoss.builder()
+                        .userId(userId)
+                        .symbol(symbol)
+                        .proceeds(Money.ZERO)
+                        .costBasis(Money.ZERO)
+                        .realizedAmount(Money.ZERO)
+                        .build());
+        realized.record(quantity, proceeds, costBasis);
+        realizedProfitLossRepository.save(realized);
+
+        log.debug("Sale of {} {} for user {} consumed {} lots", quantity, symbol, userId, lotsTouched);
+        return Money.ofUnits(Math.subtractExact(proceeds, costBasis));
+    }
+
+    /**
+     * Shares of the position not covered by open lots were bought before lots were tracked.
+     * Give them one lot, opened just before the oldest tracked lot, so they are matched in their
+     * place: first under FIFO, last under LIFO. averageCost blends them with the tracked lots,
+     * so their cost is what the position cost beyond the open lots, per untracked share.
+     */
+    private void openUntrackedLot(Long userId, String symbol, long positionQuantity, Money averageCost) {
+        long untracked = positionQuantity - taxLotRepository.sumOpenQuantity(userId, symbol);
+        if (untracked <= 0 || averageCost == null) {
+            return;
+        }
+        // Only the first sale after lots were tracked gets here, so reading every open lot is fine
+        List<TaxLot> open = taxLotRepository.findOpenLots(userId, symbol,
+                Pageable.unpaged(Sort.by(Sort.Order.asc("openedAt"), Sort.Order.asc("id"))));
+        long trackedCost = 0L;
+        for (TaxLot lot : open) {
+            trackedCost = Math.addExact(trackedCost,
+                    Money.multiplyUnits(lot.getCostPrice().units(), lot.getRemainingQuantity()));
+        }
+        long residualCost = Math.subtractExact(Money.multiplyUnits(averageCost.units(), positionQuantity), trackedCost);
+        Money costPrice = averageCost;
+        if (residualCost >= 0) {
+            costPrice = Money.ofUnits(Money.divideUnits(residualCost, untracked, RoundingMode.HALF_UP));
+        } else {
+            log.warn("Open {} lots of user {} cost more than the whole position; using average cost {}", symbol,
+                    userId, averageCost);
+        }
+        LocalDateTime openedAt = open.isEmpty() ? LocalDateTime.now() : open.get(0).getOpenedAt().minusSeconds(1);
+        taxLotRepository.save(TaxLot.builder()
+                .userId(userId)
+                .symbol(symbol)
+                .quantity(untracked)
+                .remainingQuantity(untracked)
+                .costPrice(costPrice)
+                .openedAt(openedAt)
+                .build());
+        log.info("Opened a lot for {} untracked {} shares of user {} at cost {}", untracked, symbol, userId,
+                costPrice);
+    }
+
+    @Transactional(readOnly = true)
+    public List<TaxLotDTO> getOpenLots(Long userId, String symbol) {
+        List<TaxLot> lots = symbol == null
+                ? taxLotRepository.findOpenLotsByUserId(userId)
+                : taxLotRepository.findOpenLots(userId, symbol, Pageable.unpaged(lotOrder()));
+
+        return lots.stream()
+                .map(this::mapToDTO)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public List<RealizedProfitLossDTO> getRealizedProfitLoss(Long userId) {
+        return realizedProfitLossRepository.findByUserIdOrderBySymbol(userId).stream()
+                .map(this::mapToDTO)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<RealizedProfitLossDTO> getRealizedProfitLoss(Long userId, String symbol) {
+        return realizedProfitLossRepository.findByUserIdAndSymbol(userId, symbol)
+                .map(this::mapToDTO);
+    }
+
+    public MatchingMethod getMatchingMethod() {
+        return matchingMethod;
+    }
+
+    private Sort lotOrder() {
+        return switch (matchingMethod) {
+            case FIFO -> Sort.by(Sort.Order.asc("openedAt"), Sort.Order.asc("id"));
+            case LIFO -> Sort.by(Sort.Order.desc("openedAt"), Sort.Order.desc("id"));
+            case HIGHEST_COST -> Sort.by(Sort.Order.desc("costPrice"), Sort.Order.asc("id"));
+        };
+    }
+
+    private TaxLotDTO mapToDTO(TaxLot lot) {
+        return TaxLotDTO.builder()
+                .id(lot.getId())
+                .symbol(lot.getSymbol())
+                .quantity(lot.getQuantity())
+                .remainingQuantity(lot.getRemainingQuantity())
+                .costPrice(lot.getCostPrice().toBigDecimal())
+                .remainingCostBasis(lot.getCostPrice().multiply(lot.getRemainingQuantity()).toBigDecimal())
+                .openedAt(lot.getOpenedAt())
+                .build();
+    }
+
+    private RealizedProfitLossDTO mapToDTO(RealizedProfitLoss realized) {
+        return RealizedProfitLossDTO.builder()
+                .symbol(realized.getSymbol())
+                .quantitySold(realized.getQuantitySold())
+                .proceeds(realized.getProceeds().toBigDecimal())
+                .costBasis(realized.getCostBasis().toBigDecimal())
+                .realizedAmount(realized.getRealizedAmount().toBigDecimal())
+                .updatedAt(realized.getUpdatedAt())
+                .build();
+    }
+}
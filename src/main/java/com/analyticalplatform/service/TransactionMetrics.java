@@ -0,0 +1,70 @@
+package com.analyticalplatform.service;
+
+import com.analyticalplatform.dto.StockTransactionDTO;
+import com.analyticalplatform.dto.SymbolActivityDTO;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collector;
+
+/**
+ * Buy/sell counts, amounts and per-symbol trade counts for a set of transactions. Built either
+ * from the per-symbol rows of StockTransactionRepository.summarizeUserActivity or in a single
+ * pass over transactions already in memory via {@link #collector()}.
+ */
+public final class TransactionMetrics {
+    private long buyTransactions;
+    private long sellTransactions;
+    private BigDecimal totalBuyAmount = BigDecimal.ZERO;
+    private BigDecimal totalSellAmount = BigDecimal.ZERO;
+    private final Map<String, Long> tradesBySymbol = new HashMap<>();
+
+    public static TransactionMetrics fromActivity(Iterable<SymbolActivityDTO> rows) {
+        TransactionMetrics metrics = new TransactionMetrics();
+        for (SymbolActivityDTO row : rows) {
+            metrics.buyTransactions += row.getBuyCount();
+            metrics.sellTransactions += row.getSellCount();
+            metrics.totalBuyAmount = metrics.totalBuyAmount.add(row.getBuyAmount());
+            metrics.totalSellAmount = metrics.totalSellAmount.add(row.getSellAmount());
+            metrics.tradesBySymbol.merge(row.getSymbol(), row.getBuyCount() + row.getSellCount(), Long::sum);
+        }
+        return metrics;
+    }
+
+    public static Collector<StockTransactionDTO, TransactionMetrics, TransactionMetrics> collector() {
+        return Collector.of(TransactionMetrics::new, TransactionMetrics::accept, TransactionMetrics::combine);
+    }
+
+    public void accept(StockTransactionDTO transaction) {
+        if ("BUY".equals(transaction.getTransactionType())) {
+            buyTransactions++;
+            totalBuyAmount = totalBuyAmount.add(transaction.getTotalAmount());
+        } else if ("SELL".equals(transaction.getTransactionType())) {
+            sellTransactions++;
+            totalSellAmount = totalSellAmount.add(transaction.getTotalAmount());
+        }
+        tradesBySymbol.merge(transaction.getSymbol(), 1L, Long::sum);
+    }
+
+    public TransactionMetrics combine(TransactionMetrics other) {
+        buyTransactions += other.buyTransactions;
+        sellTransactions += other.sellTransactions;
+        totalBuyAmount = totalBuyAmount.add(other.totalBuyAmount);
+        totalSellAmount = totalSellAmount.add(other.totalSellAmount);
+        other.tradesBySymbol.forEach((symbol, count) -> tradesBySymbol.merge(symbol, count, Long::sum));
+        return this;
+    }
+
+    /**
+     * Write the metrics under the keys calculateUserMetrics has always returned.
+     */
+    public void putInto(Map<String, Object> metrics) {
+        metrics.put("totalTransactions", buyTransactions + sellTransactions);
+        metrics.put("buyTransactions", buyTransactions);
+        metrics.put("sellTransactions", sellTransactions);
+        metrics.put("totalBuyAmount", totalBuyAmount);
+        metrics.put("totalSellAmount", totalSellAmount);
+        metrics.put("mostTradedStocks", tradesBySymbol);
+    }
+}
@@ -1,8 +1,12 @@
 package com.analyticalplatform.service;
 
+import com.analyticalplatform.dto.StockTransactionDTO;
 import com.analyticalplatform.dto.TransactionDTO;
+import com.analyticalplatform.dto.TransactionHistoryPageDTO;
 import com.analyticalplatform.dto.WalletOperationDTO;
+import com.analyticalplatform.event.TradeExecutedEvent;
 import com.analyticalplatform.exception.InsufficientFundsException;
+import com.analyticalplatform.model.Money;
 import com.analyticalplatform.model.Stock;
 import com.analyticalplatform.model.StockTransaction;
 import com.analyticalplatform.model.User;
@@ -12,12 +16,15 @@ import com.analyticalplatform.repository.StockTransactionRepository;
 import com.analyticalplatform.repository.UserStockRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -26,6 +33,8 @@ import java.util.Optional;
 @RequiredArgsConstructor
 @Slf4j
 public class TransactionService {
+    private static final int MAX_HISTORY_PAGE_SIZE = 200;
+
     private final StockTransactionRepository transactionRepository;
     private final UserStockRepository userStockRepository;
     private final StockRepository stockRepository;
@@ -35,6 +44,9 @@ public class TransactionService {
     private final AuditService auditService;
     private final NotificationService notificationService;
     private final WebSocketService webSocketService;
+    private final TaxLotService taxLotService;
+    private final PriceTable priceTable;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public StockTransaction executeTransaction(User user, TransactionDTO transactionDTO) {
@@ -42,13 +54,12 @@ public class TransactionService {
         String symbol = transactionDTO.getSymbol().toUpperCase();
         BigDecimal price;
 
-        // Check if we have the stock in our database
-        Optional<Stock> stockOpt = stockRepository.findById(symbol);
+        // Check if we already know a recent price
+        Optional<PriceTable.Quote> cached = priceTable.get(symbol);
 
-        if (stockOpt.isPresent() && stockOpt.get().getLastUpdated() != null
-                && stockOpt.get().getLastUpdated().isAfter(LocalDateTime.now().minusMinutes(5))) {
+        if (cached.isPresent() && cached.get().isFresherThan(LocalDateTime.now().minusMinutes(5))) {
             // Use cached price if less than 5 minutes old
-            price = stockOpt.get().getCurrentPrice();
+            price = cached.get().price().toBigDecimal();
             log.info("Using cached price for {}: ${}", symbol, price);
         } else {
             // Get fresh price from Alpha Vantage
@@ -65,22 +76,20 @@ public class TransactionService {
                         price = new BigDecimal(priceStr);
 
                         // Update stock in database
-                        Stock stock = stockOpt.orElse(new Stock());
+                        Stock stock = stockRepository.findById(symbol).orElse(new Stock());
                         stock.setSymbol(symbol);
-                        stock.setCurrentPrice(price);
+                        stock.setCurrentPrice(Money.of(price));
 
                         // Set other values if available
                         if (quote.containsKey("08. previous close")) {
                             String prevCloseStr = (String) quote.get("08. previous close");
-                            BigDecimal prevClose = new BigDecimal(prevCloseStr);
+                            Money prevClose = Money.parse(prevCloseStr);
                             stock.setPreviousClose(prevClose);
 
                             // Calculate percent change
-                            if (prevClose.compareTo(BigDecimal.ZERO) > 0) {
-                                BigDecimal change = price.subtract(prevClose);
-                                BigDecimal percentChange = change.divide(prevClose, 4, RoundingMode.HALF_UP)
-                                        .multiply(BigDecimal.valueOf(100));
-                                stock.setPercentChange(percentChange);
+                            if (prevClose.signum() > 0) {
+                                long change = stock.getCurrentPrice().units() - prevClose.units();
+                                stock.setPercentChange(Money.percentage(change, prevClose.units(), RoundingMode.HALF_UP));
                             }
                         }
 
@@ -108,6 +117,7 @@ public class TransactionService {
 
                         stock.setLastUpdated(LocalDateTime.now());
                         stockRepository.save(stock);
+                        priceTable.update(stock);
                         log.info("Updated stock price for {}: ${}", symbol, price);
                     } else {
                         throw new RuntimeException("Could not get current price for stock: " + symbol);
@@ -155,11 +165,15 @@ public class TransactionService {
                 .build();
 
         // Update user's stock portfolio
-        updateUserPortfolio(user, transaction);
+        UserStock position = updateUserPortfolio(user, transaction);
 
         // Save transaction
         transaction = transactionRepository.save(transaction);
 
+        if ("BUY".equals(transaction.getTransactionType())) {
+            taxLotService.openLot(user.getId(), transaction);
+        }
+
         // Send notification
         notificationService.sendTransactionNotification(
                 user,
@@ -174,73 +188,117 @@ public class TransactionService {
                 "StockTransaction", transaction.getId().toString(),
                 transactionDTO.getTransactionType() + " " + quantity + " shares of " + symbol + " at $" + price);
 
+        // Listeners see the trade only once it has committed
+        eventPublisher.publishEvent(new TradeExecutedEvent(user.getId(), user.getUsername(), transaction.getId(),
+                symbol, transaction.getTransactionType(), quantity, price, totalAmount,
+                transaction.getRealizedProfitLoss(),
+                position != null ? position.getQuantity() : 0L,
+                position != null ? position.getAverageBuyPrice() : null,
+                transaction.getTransactionTime()));
+
         return transaction;
     }
 
-    private void updateUserPortfolio(User user, StockTransaction transaction) {
+    /**
+     * Apply the trade to the user's holding and return it, or null if the position was closed.
+     */
+    private UserStock updateUserPortfolio(User user, StockTransaction transaction) {
         String symbol = transaction.getSymbol();
         long quantity = transaction.getQuantity();
         String transactionType = transaction.getTransactionType();
 
+        Money price = Money.of(transaction.getPrice());
+
         Optional<UserStock> userStockOpt = userStockRepository.findByUserIdAndSymbol(user.getId(), symbol);
 
         if ("BUY".equals(transactionType)) {
-            if (userStockOpt.isPresent()) {
-                UserStock userStock = userStockOpt.get();
-
-                // Update average buy price
-                long oldQuantity = userStock.getQuantity();
-                BigDecimal oldTotalValue = userStock.getAverageBuyPrice().multiply(BigDecimal.valueOf(oldQuantity));
-                BigDecimal newValue = transaction.getPrice().multiply(BigDecimal.valueOf(quantity));
-                long newQuantity = oldQuantity + quantity;
-
-                BigDecimal newAveragePrice = oldTotalValue.add(newValue)
-                        .divide(BigDecimal.valueOf(newQuantity), 4, RoundingMode.HALF_UP);
-
-                userStock.setQuantity(newQuantity);
-                userStock.setAverageBuyPrice(newAveragePrice);
-
-                userStockRepository.save(userStock);
-            } else {
-                // Create new user stock entry
-                UserStock userStock = UserStock.builder()
-                        .user(user)
-                        .symbol(symbol)
-                        .quantity(quantity)
-                        .averageBuyPrice(transaction.getPrice())
-                        .build();
-
-                userStockRepository.save(userStock);
-            }
+            // Add to the existing position or create a new user stock entry
+            UserStock userStock = userStockOpt.orElseGet(() -> UserStock.builder()
+                    .user(user)
+                    .symbol(symbol)
+                    .build());
+            userStock.applyBuy(quantity, price);
+
+            return userStockRepository.save(userStock);
         } else if ("SELL".equals(transactionType)) {
             if (userStockOpt.isPresent()) {
                 UserStock userStock = userStockOpt.get();
 
-                // Check if user has enough stocks to sell
-                if (userStock.getQuantity() < quantity) {
-                    throw new RuntimeException("Not enough stocks to sell: you have " + userStock.getQuantity() +
-                            " shares of " + symbol);
-                }
+                // Fails if the user doesn't have enough stocks to sell
+                long newQuantity = userStock.applySell(quantity);
 
-                // Update quantity
-                long newQuantity = userStock.getQuantity() - quantity;
+                // Match the sale against open tax lots
+                Money realized = taxLotService.closeLots(user.getId(), symbol, quantity, newQuantity + quantity,
+                        price, userStock.getAverageBuyPrice());
+                transaction.setRealizedProfitLoss(realized.toBigDecimal());
 
                 if (newQuantity > 0) {
-                    userStock.setQuantity(newQuantity);
-                    userStockRepository.save(userStock);
+                    return userStockRepository.save(userStock);
                 } else {
                     // If quantity becomes 0, remove the entry
                     userStockRepository.delete(userStock);
+                    return null;
                 }
             } else {
                 throw new RuntimeException("No stocks available to sell: you don't own any shares of " + symbol);
             }
         }
+
+        throw new IllegalArgumentException("Invalid transaction type: " + transactionType);
+    }
+
+    public StockTransactionDTO mapToDTO(StockTransaction transaction) {
+        return StockTransactionDTO.builder()
+                .id(transaction.getId())
+                .symbol(transaction.getSymbol())
+                .price(transaction.getPrice())
+                .quantity(transaction.getQuantity())
+                .totalAmount(transaction.getTotalAmount())
+                .transactionType(transaction.getTransactionType())
+                .transactionTime(transaction.getTransactionTime())
+                .realizedProfitLoss(transaction.getRealizedProfitLoss())
+                .build();
     }
 
+    /**
+     * One page of a user's transaction history, newest first. Pass the previous page's
+     * nextCursor to continue; the cost of a page does not depend on how far back it is.
+     */
     @Transactional(readOnly = true)
-    public List<StockTransaction> getUserTransactions(Long userId) {
-        return transactionRepository.findByUserIdOrderByTransactionTimeDesc(userId);
+    public TransactionHistoryPageDTO getUserTransactions(Long userId, String cursor, int limit, String symbol,
+                                                         String transactionType, LocalDateTime from, LocalDateTime to) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_HISTORY_PAGE_SIZE));
+
+        LocalDateTime beforeTime = null;
+        Long beforeId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+                beforeTime = LocalDateTime.parse(parts[0]);
+                beforeId = Long.parseLong(parts[1]);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        // Fetch one extra row to learn whether another page exists
+        List<StockTransactionDTO> rows = transactionRepository.findHistoryPage(userId,
+                symbol != null ? symbol.toUpperCase() : null, transactionType, from, to,
+                beforeTime, beforeId, pageSize + 1);
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            StockTransactionDTO last = rows.get(pageSize - 1);
+            String position = last.getTransactionTime() + "|" + last.getId();
+            nextCursor = Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return TransactionHistoryPageDTO.builder()
+                .transactions(rows)
+                .nextCursor(nextCursor)
+                .build();
     }
 
     @Transactional(readOnly = true)
@@ -254,25 +312,16 @@ public class TransactionService {
     @Transactional(readOnly = true)
     public BigDecimal calculatePortfolioValue(Long userId) {
         List<UserStock> portfolio = userStockRepository.findByUserId(userId);
-        BigDecimal totalValue = BigDecimal.ZERO;
+        long totalValue = 0L;
 
         for (UserStock holding : portfolio) {
-            BigDecimal currentPrice = null;
+            // Current price from the price table, falling back to average buy price
+            Money currentPrice = priceTable.priceOr(holding.getSymbol(), holding.getAverageBuyPrice());
 
-            // Try to get current price from stock repository
-            Optional<Stock> stockOpt = stockRepository.findById(holding.getSymbol());
-            if (stockOpt.isPresent() && stockOpt.get().getCurrentPrice() != null) {
-                currentPrice = stockOpt.get().getCurrentPrice();
-            } else {
-                // Fallback to average buy price
-                currentPrice = holding.getAverageBuyPrice();
-            }
-
-            BigDecimal holdingValue = currentPrice.multiply(BigDecimal.valueOf(holding.getQuantity()));
-            totalValue = totalValue.add(holdingValue);
+            totalValue = Math.addExact(totalValue, Money.multiplyUnits(currentPrice.units(), holding.getQuantity()));
         }
 
-        return totalValue;
+        return Money.ofUnits(totalValue).toBigDecimal();
     }
 
     /**
@@ -281,41 +330,30 @@ public class TransactionService {
     @Transactional(readOnly = true)
     public Map<String, BigDecimal> calculatePortfolioProfitLoss(Long userId) {
         List<UserStock> portfolio = userStockRepository.findByUserId(userId);
-        BigDecimal totalCost = BigDecimal.ZERO;
-        BigDecimal currentValue = BigDecimal.ZERO;
+        long totalCost = 0L;
+        long currentValue = 0L;
 
         for (UserStock holding : portfolio) {
-            BigDecimal buyValue = holding.getAverageBuyPrice()
-                    .multiply(BigDecimal.valueOf(holding.getQuantity()));
-            totalCost = totalCost.add(buyValue);
-
-            BigDecimal currentPrice = null;
+            long buyValue = Money.multiplyUnits(holding.getAverageBuyPrice().units(), holding.getQuantity());
+            totalCost = Math.addExact(totalCost, buyValue);
 
-            // Try to get current price from stock repository
-            Optional<Stock> stockOpt = stockRepository.findById(holding.getSymbol());
-            if (stockOpt.isPresent() && stockOpt.get().getCurrentPrice() != null) {
-                currentPrice = stockOpt.get().getCurrentPrice();
-            } else {
-                // Fallback to average buy price
-                currentPrice = holding.getAverageBuyPrice();
-            }
+            // Current price from the price table, falling back to average buy price
+            Money currentPrice = priceTable.priceOr(holding.getSymbol(), holding.getAverageBuyPrice());
 
-            BigDecimal holdingValue = currentPrice.multiply(BigDecimal.valueOf(holding.getQuantity()));
-            currentValue = currentValue.add(holdingValue);
+            currentValue = Math.addExact(currentValue, Money.multiplyUnits(currentPrice.units(), holding.getQuantity()));
         }
 
-        BigDecimal profitLoss = currentValue.subtract(totalCost);
+        long profitLoss = Math.subtractExact(currentValue, totalCost);
         BigDecimal profitLossPercentage = BigDecimal.ZERO;
 
-        if (totalCost.compareTo(BigDecimal.ZERO) > 0) {
-            profitLossPercentage = profitLoss.divide(totalCost, 4, RoundingMode.HALF_UP)
-                    .multiply(BigDecimal.valueOf(100));
+        if (totalCost > 0L) {
+            profitLossPercentage = Money.percentage(profitLoss, totalCost, RoundingMode.HALF_UP);
         }
 
         return Map.of(
-                "totalCost", totalCost,
-                "currentValue", currentValue,
-                "profitLoss", profitLoss,
+                "totalCost", Money.ofUnits(totalCost).toBigDecimal(),
+                "currentValue", Money.ofUnits(currentValue).toBigDecimal(),
+                "profitLoss", Money.ofUnits(profitLoss).toBigDecimal(),
                 "profitLossPercentage", profitLossPercentage
         );
     }
@@ -0,0 +1,124 @@
+package com.analyticalplatform.service;
+
+import com.analyticalplatform.event.CacheInvalidatedEvent;
+import com.analyticalplatform.repository.NotificationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.analyticalplatform.util.PersistenceUtils.afterCommit;
+import static com.analyticalplatform.util.PersistenceUtils.chunks;
+
+/**
+ * Unread notification counts per user, held in memory. A user's count is loaded from the
+ * database on first read and then adjusted when notifications are created or marked read,
+ * once the change commits. In a cluster the other nodes drop the user's counter at the same
+ * point (see CacheInvalidationRelay) and reload it on the next read. Changes the counters
+ * miss, such as a load racing a commit, are corrected by reconcile(), which also forgets
+ * users nobody has asked about for a while.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UnreadCounterService {
+    private static final String CACHE = "unread-notifications";
+
+    private final NotificationRepository notificationRepository;
+    private final CacheInvalidationRelay cacheInvalidationRelay;
+
+    @Value("${notifications.unread.idle-minutes:30}")
+    private long idleMinutes;
+
+    private final ConcurrentHashMap<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    private static final class Counter {
+        private final AtomicLong unread;
+        private volatile long lastRead = System.currentTimeMillis();
+
+        private Counter(long unread) {
+            this.unread = new AtomicLong(unread);
+        }
+    }
+
+    public long get(Long userId) {
+        Counter counter = counters.computeIfAbsent(userId,
+                id -> new Counter(notificationRepository.countByUserIdAndReadFalse(id)));
+        counter.lastRead = System.currentTimeMillis();
+        return counter.unread.get();
+    }
+
+    /**
+     * Count notifications created for the user, once the current transaction commits.
+     */
+    public void added(Long userId, long count) {
+        afterCommit(() -> adjust(userId, count));
+    }
+
+    /**
+     * Count notifications of the user that are no longer unread, because they were marked read
+     * or deleted, once the current transaction commits.
+     */
+    public void removed(Long userId, long count) {
+        afterCommit(() -> adjust(userId, -count));
+    }
+
+    private void adjust(Long userId, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        // Users not loaded yet get an exact count when they are
+        Counter counter = counters.get(userId);
+        if (counter != null) {
+            counter.unread.updateAndGet(value -> Math.max(0L, value + delta));
+        }
+        cacheInvalidationRelay.invalidate(CACHE, userId);
+    }
+
+    @EventListener
+    public void onCacheInvalidated(CacheInvalidatedEvent event) {
+        if (CACHE.equals(event.cache())) {
+            counters.remove(event.key());
+        }
+    }
+
+    /**
+     * Drop idle users and reset the rest to the database's counts.
+     */
+    @Scheduled(fixedDelayString = "${notifications.unread.reconcile-ms:300000}")
+    public void reconcile() {
+        long idleBefore = System.currentTimeMillis() - idleMinutes * 60_000L;
+        counters.values().removeIf(counter -> counter.lastRead < idleBefore);
+        if (counters.isEmpty()) {
+            return;
+        }
+
+        List<Long> userIds = new ArrayList<>(counters.keySet());
+        int corrected = 0;
+        for (List<Long> chunk : chunks(userIds)) {
+            Map<Long, Long> actual = new HashMap<>();
+            for (Object[] row : notificationRepository.countUnreadByUserIdIn(chunk)) {
+                actual.put((Long) row[0], (Long) row[1]);
+            }
+            for (Long userId : chunk) {
+                Counter counter = counters.get(userId);
+                long count = actual.getOrDefault(userId, 0L);
+                if (counter != null && counter.unread.getAndSet(count) != count) {
+                    corrected++;
+                }
+            }
+        }
+        if (corrected > 0) {
+            log.info("Reconciled unread counts: {} of {} users corrected", corrected, userIds.size());
+        }
+    }
+}
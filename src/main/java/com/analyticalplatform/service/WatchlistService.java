@@ -9,6 +9,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -152,7 +153,7 @@ public class WatchlistService {
         return WatchlistDTO.builder()
                 .id(watchlist.getId())
                 .name(watchlist.getName())
-                .symbols(watchlist.getSymbols())
+                .symbols(new HashSet<>(watchlist.getSymbols()))
                 .build();
     }
 }
\ No newline at end of file
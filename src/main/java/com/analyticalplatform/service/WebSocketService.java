@@ -1,15 +1,45 @@
 package com.analyticalplatform.service;
 
+import com.analyticalplatform.dto.BacktestProgressDTO;
 import com.analyticalplatform.dto.NotificationDTO;
+import com.analyticalplatform.dto.NotificationFrameDTO;
+import com.analyticalplatform.dto.PortfolioValuationDeltaDTO;
 import com.analyticalplatform.dto.StockDTO;
+import com.analyticalplatform.event.PriceUpdatedEvent;
+import com.analyticalplatform.model.Money;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.math.RoundingMode;
+
 @Service
 @RequiredArgsConstructor
 public class WebSocketService {
     private final SimpMessagingTemplate messagingTemplate;
+    private final PriceTable priceTable;
+
+    /**
+     * Push the symbol's latest quote to /topic/stocks/{symbol}. Reads the price table rather than
+     * the event so a late-running listener never pushes an older price over a newer one.
+     */
+    @Async
+    @EventListener
+    public void onPriceUpdated(PriceUpdatedEvent event) {
+        priceTable.get(event.symbol()).ifPresent(quote -> sendStockUpdate(StockDTO.builder()
+                .symbol(quote.symbol())
+                .currentPrice(quote.price().toBigDecimal())
+                .previousClose(quote.previousClose() != null ? quote.previousClose().toBigDecimal() : null)
+                .percentChange(quote.previousClose() != null && quote.previousClose().signum() > 0
+                        ? Money.percentage(quote.price().units() - quote.previousClose().units(),
+                                quote.previousClose().units(), RoundingMode.HALF_UP)
+                        : null)
+                .volume(quote.volume())
+                .lastUpdated(quote.updatedAt())
+                .build()));
+    }
 
     public void sendStockUpdate(StockDTO stockDTO) {
         messagingTemplate.convertAndSend("/topic/stocks/" + stockDTO.getSymbol(), stockDTO);
@@ -18,4 +48,19 @@ public class WebSocketService {
     public void sendNotification(String username, NotificationDTO notification) {
         messagingTemplate.convertAndSendToUser(username, "/queue/notifications", notification);
     }
+
+    /**
+     * Several notifications for one user in a single message.
+     */
+    public void sendNotificationFrame(String username, NotificationFrameDTO frame) {
+        messagingTemplate.convertAndSendToUser(username, "/queue/notifications", frame);
+    }
+
+    public void sendPortfolioUpdate(String username, PortfolioValuationDeltaDTO delta) {
+        messagingTemplate.convertAndSendToUser(username, "/queue/portfolio", delta);
+    }
+
+    public void sendBacktestProgress(String username, BacktestProgressDTO progress) {
+        messagingTemplate.convertAndSendToUser(username, "/queue/backtests", progress);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,105 @@
+package com.analyticalplatform.statistics;
+
+/**
+ * Covariance and correlation matrices of return series. The pairwise dot products run on the
+ * JDK Vector API when the jdk.incubator.vector module is present (the JVM was started with
+ * --add-modules jdk.incubator.vector) and the CPU has SIMD lanes for doubles; otherwise they
+ * use the scalar loop.
+ */
+public final class Correlations {
+    private static final boolean VECTOR_SUPPORTED = detectVectorSupport();
+
+    private Correlations() {
+    }
+
+    public static boolean isVectorSupported() {
+        return VECTOR_SUPPORTED;
+    }
+
+    /**
+     * Sample covariance of the rows (one series per row, equal lengths), row-major n * n.
+     */
+    public static double[] covariance(double[][] returns, boolean vectorized) {
+        int n = returns.length;
+        int observations = n > 0 ? returns[0].length : 0;
+        if (observations < 2) {
+            throw new IllegalArgumentException("At least two observations are needed");
+        }
+
+        double[][] centered = new double[n][];
+        for (int i = 0; i < n; i++) {
+            double[] row = returns[i];
+            double sum = 0.0;
+            for (int t = 0; t < observations; t++) {
+                sum += row[t];
+            }
+            double mean = sum / observations;
+            double[] centeredRow = new double[observations];
+            for (int t = 0; t < observations; t++) {
+                centeredRow[t] = row[t] - mean;
+            }
+            centered[i] = centeredRow;
+        }
+
+        double[] covariance = vectorized && VECTOR_SUPPORTED ? VectorKernels.gram(centered) : scalarGram(centered);
+        double scale = 1.0 / (observations - 1);
+        for (int i = 0; i < covariance.length; i++) {
+            covariance[i] *= scale;
+        }
+        return covariance;
+    }
+
+    /**
+     * Correlation matrix from a covariance matrix. Series with zero variance correlate 0 with
+     * everything but themselves.
+     */
+    public static double[] correlation(double[] covariance, int n) {
+        double[] deviation = new double[n];
+        for (int i = 0; i < n; i++) {
+            deviation[i] = Math.sqrt(covariance[i * n + i]);
+        }
+
+        double[] correlation = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                double denominator = deviation[i] * deviation[j];
+                double value = i == j ? 1.0 : denominator > 0.0 ? covariance[i * n + j] / denominator : 0.0;
+                // Rounding can push |value| a hair past 1
+                correlation[i * n + j] = Math.max(-1.0, Math.min(1.0, value));
+            }
+        }
+        return correlation;
+    }
+
+    /**
+     * Row-major matrix of all pairwise dot products of the rows.
+     */
+    private static double[] scalarGram(double[][] rows) {
+        int n = rows.length;
+        double[] gram = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            double[] a = rows[i];
+            for (int j = i; j < n; j++) {
+                double[] b = rows[j];
+                double sum = 0.0;
+                for (int t = 0; t < a.length; t++) {
+                    sum += a[t] * b[t];
+                }
+                gram[i * n + j] = sum;
+                gram[j * n + i] = sum;
+            }
+        }
+        return gram;
+    }
+
+    private static boolean detectVectorSupport() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            return VectorKernels.isUsable();
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.analyticalplatform.statistics;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aligns several daily close series on their common trading days and turns them into a dense
+ * matrix of log returns, one row per series.
+ */
+public final class ReturnMatrix {
+    private ReturnMatrix() {
+    }
+
+    /**
+     * Log returns over the latest maxDays + 1 days in [from, to] (epoch seconds) on which every
+     * series has a close. times[s] must be ascending and closes[s] aligned with it.
+     */
+    public static double[][] alignedLogReturns(List<long[]> times, List<double[]> closes, long from, long to,
+                                               int maxDays) {
+        long[] common = commonTimes(times);
+        int first = lowerBound(common, from);
+        int end = lowerBound(common, to == Long.MAX_VALUE ? to : to + 1);
+        int days = Math.min(end - first, maxDays + 1);
+        long[] window = Arrays.copyOfRange(common, end - Math.max(days, 0), end);
+
+        double[][] returns = new double[times.size()][Math.max(0, days - 1)];
+        if (days < 2) {
+            return returns;
+        }
+        for (int s = 0; s < times.size(); s++) {
+            long[] seriesTimes = times.get(s);
+            double[] seriesCloses = closes.get(s);
+            int index = Arrays.binarySearch(seriesTimes, window[0]);
+            double previous = seriesCloses[index];
+            for (int t = 1; t < days; t++) {
+                // Common days appear in the same order in every series, so scan forward
+                while (seriesTimes[index] != window[t]) {
+                    index++;
+                }
+                double close = seriesCloses[index];
+                returns[s][t - 1] = Math.log(close / previous);
+                previous = close;
+            }
+        }
+        return returns;
+    }
+
+    /**
+     * Times present in every one of the ascending arrays.
+     */
+    public static long[] commonTimes(List<long[]> times) {
+        long[] common = times.get(0);
+        for (int s = 1; s < times.size(); s++) {
+            common = intersect(common, times.get(s));
+        }
+        return common;
+    }
+
+    private static long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private static int lowerBound(long[] values, long key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
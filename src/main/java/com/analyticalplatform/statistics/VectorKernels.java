@@ -0,0 +1,51 @@
+package com.analyticalplatform.statistics;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API kernels. Only loaded once Correlations has checked that the incubator module is
+ * present, so the rest of the application runs without it.
+ */
+final class VectorKernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private VectorKernels() {
+    }
+
+    static boolean isUsable() {
+        return SPECIES.length() > 1;
+    }
+
+    static double[] gram(double[][] rows) {
+        int n = rows.length;
+        double[] gram = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            double[] a = rows[i];
+            for (int j = i; j < n; j++) {
+                double sum = dot(a, rows[j]);
+                gram[i * n + j] = sum;
+                gram[j * n + i] = sum;
+            }
+        }
+        return gram;
+    }
+
+    static double dot(double[] a, double[] b) {
+        int length = a.length;
+        int upperBound = SPECIES.loopBound(length);
+        DoubleVector accumulator = DoubleVector.zero(SPECIES);
+        int t = 0;
+        for (; t < upperBound; t += SPECIES.length()) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, a, t);
+            DoubleVector y = DoubleVector.fromArray(SPECIES, b, t);
+            accumulator = x.fma(y, accumulator);
+        }
+        double sum = accumulator.reduceLanes(VectorOperators.ADD);
+        for (; t < length; t++) {
+            sum += a[t] * b[t];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,46 @@
+package com.analyticalplatform.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helpers shared by services that batch id lookups or defer side effects until commit.
+ */
+public final class PersistenceUtils {
+    // Keeps IN lists well under database bind-parameter limits
+    public static final int ID_CHUNK_SIZE = 1000;
+
+    private PersistenceUtils() {
+    }
+
+    /**
+     * Consecutive views of at most {@link #ID_CHUNK_SIZE} ids each.
+     */
+    public static <T> List<List<T>> chunks(List<T> ids) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += ID_CHUNK_SIZE) {
+            chunks.add(ids.subList(from, Math.min(ids.size(), from + ID_CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+
+    /**
+     * Run the action once the surrounding transaction commits, or right away outside one, so a
+     * rollback never leaves in-memory state or pushed messages ahead of the database.
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,148 @@
+package com.analyticalplatform.alert;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Conditions driven tick by tick. Prices are in Money units (1/10,000ths), percentages and
+ * multiples in 1/10,000ths.
+ */
+class AlertConditionTest {
+    private static final long MINUTE = 60_000L;
+    private static final long DAY = 86_400_000L;
+
+    @Test
+    void priceLevelsSatisfyNothingBeforeTheFirstTickThenFireWhenReached() {
+        AlertCondition condition = AlertCondition.create(entry(1, AlertType.ABOVE, null, price(100), 0));
+        condition.add(entry(1, AlertType.ABOVE, null, price(100), 0));
+        condition.add(entry(2, AlertType.ABOVE, null, price(110), 0));
+        condition.add(entry(3, AlertType.BELOW, null, price(90), 0));
+        assertEquals(List.of(), take(condition));
+
+        condition.update(tick(0, price(99)));
+        assertEquals(List.of(), take(condition));
+        condition.update(tick(1, price(100)));
+        assertEquals(List.of(1L), take(condition));
+        condition.update(tick(2, price(85)));
+        assertEquals(List.of(3L), take(condition));
+        assertEquals(List.of(), take(condition));
+        assertFalse(condition.isEmpty());
+    }
+
+    @Test
+    void percentFromCloseComparesWithThePreviousClose() {
+        AlertCondition condition = AlertCondition.create(entry(1, AlertType.PERCENT_FROM_CLOSE, "UP", 50_000, 0));
+        condition.add(entry(1, AlertType.PERCENT_FROM_CLOSE, "UP", 50_000, 0));
+        condition.add(entry(2, AlertType.PERCENT_FROM_CLOSE, "UP", 60_000, 0));
+        condition.add(entry(3, AlertType.PERCENT_FROM_CLOSE, "DOWN", 30_000, 0));
+
+        condition.update(new Tick(0, price(105), 0L, 0L));
+        assertEquals(List.of(), take(condition), "no close known yet");
+        condition.update(new Tick(1, price(105), price(100), 0L));
+        assertEquals(List.of(1L), take(condition));
+        condition.update(new Tick(2, price(97), price(100), 0L));
+        assertEquals(List.of(3L), take(condition));
+    }
+
+    @Test
+    void percentInWindowMeasuresFromTheExtremesStillInsideTheWindow() {
+        AlertCondition condition = AlertCondition.create(entry(1, AlertType.PERCENT_IN_WINDOW, "DOWN", 100_000, 10));
+        condition.add(entry(1, AlertType.PERCENT_IN_WINDOW, "DOWN", 100_000, 10));
+        condition.add(entry(2, AlertType.PERCENT_IN_WINDOW, "UP", 50_000, 10));
+
+        condition.update(tick(0, price(100)));
+        condition.update(tick(5 * MINUTE, price(90)));
+        assertEquals(List.of(1L), take(condition));
+
+        // The low of 90 has left the window, so 99 is no rise at all
+        condition.update(tick(16 * MINUTE, price(99)));
+        assertEquals(List.of(), take(condition));
+        condition.update(tick(17 * MINUTE, price(104)));
+        assertEquals(List.of(2L), take(condition));
+    }
+
+    @Test
+    void movingAverageCrossFiresOnlyOnTheCross() {
+        AlertCondition condition = AlertCondition.create(entry(1, AlertType.MA_CROSS, "UP", 0, 3));
+        condition.add(entry(1, AlertType.MA_CROSS, "UP", 0, 3));
+        condition.add(entry(2, AlertType.MA_CROSS, "DOWN", 0, 3));
+
+        condition.update(tick(0, price(100)));
+        condition.update(tick(1, price(100)));
+        condition.update(tick(2, price(90)));
+        assertEquals(List.of(), take(condition), "first side seen is not a cross");
+        condition.update(tick(3, price(120)));
+        assertEquals(List.of(1L), take(condition));
+        condition.update(tick(4, price(125)));
+        assertEquals(List.of(), take(condition));
+        condition.update(tick(5, price(80)));
+        assertEquals(List.of(2L), take(condition));
+    }
+
+    @Test
+    void volumeSpikeComparesPerUpdateVolumeNotTheCumulativeTotal() {
+        AlertCondition condition = AlertCondition.create(entry(1, AlertType.VOLUME_SPIKE, null, 30_000, 2));
+        condition.add(entry(1, AlertType.VOLUME_SPIKE, null, 30_000, 2));
+
+        condition.update(volume(0, 1_000));
+        condition.update(volume(1, 1_100));
+        condition.update(volume(2, 1_200));
+        assertEquals(List.of(), take(condition));
+        // 300 traded against an average of 100; the cumulative 1,500 is only 1.3x its average
+        condition.update(volume(3, 1_500));
+        assertEquals(List.of(1L), take(condition));
+    }
+
+    @Test
+    void volumeSpikeRestartsCountingAtANewSessionAndIgnoresTicksWithoutVolume() {
+        AlertCondition condition = AlertCondition.create(entry(1, AlertType.VOLUME_SPIKE, null, 30_000, 2));
+        condition.add(entry(1, AlertType.VOLUME_SPIKE, null, 30_000, 2));
+
+        condition.update(volume(0, 1_000));
+        condition.update(volume(1, 1_100));
+        condition.update(volume(2, 1_200));
+        condition.update(volume(3, 0));
+        assertEquals(List.of(), take(condition));
+        // The next day opens at 250: 2.5x the average of 100, not a negative difference
+        condition.update(volume(DAY, 250));
+        assertEquals(List.of(), take(condition));
+        condition.update(volume(DAY + 1, 800));
+        assertEquals(List.of(1L), take(condition));
+
+        // A reading below the last one counts from zero, so the average stays positive
+        condition.add(entry(1, AlertType.VOLUME_SPIKE, null, 30_000, 2));
+        condition.update(volume(DAY + 2, 100));
+        assertEquals(List.of(), take(condition));
+        condition.update(volume(DAY + 3, 1_400));
+        assertEquals(List.of(1L), take(condition));
+    }
+
+    static long price(long dollars) {
+        return dollars * 10_000L;
+    }
+
+    static Tick tick(long time, long price) {
+        return new Tick(time, price, 0L, 0L);
+    }
+
+    private static Tick volume(long time, long volume) {
+        return new Tick(time, price(100), 0L, volume);
+    }
+
+    static AlertEntry entry(long id, AlertType type, String direction, long threshold, int window) {
+        return new AlertEntry(id, 1L, "AAPL", type, AlertEntry.isUp(type, direction), threshold, window,
+                0L, 1, 0L, 0L);
+    }
+
+    static List<Long> take(AlertCondition condition) {
+        List<AlertEntry> satisfied = new ArrayList<>();
+        condition.takeSatisfied(satisfied);
+        return satisfied.stream().map(AlertEntry::alertId).sorted().toList();
+    }
+}
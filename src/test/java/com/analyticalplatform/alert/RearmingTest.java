@@ -0,0 +1,72 @@
+package com.analyticalplatform.alert;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.analyticalplatform.alert.AlertConditionTest.price;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RearmingTest {
+    private static final long COOLDOWN = 60_000L;
+    private static final long TWO_PERCENT = 20_000L;
+
+    @Test
+    void cooldownAloneReleasesOnceItHasPassed() {
+        Rearming rearming = new Rearming();
+        rearming.hold(recurring(1, AlertType.ABOVE, null, 0L), price(100), 0L);
+
+        assertEquals(List.of(), release(rearming, price(100), COOLDOWN - 1));
+        assertEquals(List.of(1L), release(rearming, price(100), COOLDOWN));
+        assertTrue(rearming.isEmpty());
+    }
+
+    @Test
+    void hysteresisWaitsForThePriceToMoveBackBeforeTheCooldownCounts() {
+        Rearming rearming = new Rearming();
+        rearming.hold(recurring(1, AlertType.ABOVE, null, TWO_PERCENT), price(100), 0L);
+        rearming.hold(recurring(2, AlertType.BELOW, null, TWO_PERCENT), price(100), 0L);
+
+        // Cooldown over, but neither has moved back through its band
+        assertEquals(List.of(), release(rearming, price(99), 2 * COOLDOWN));
+        assertEquals(List.of(1L), release(rearming, price(98), 2 * COOLDOWN));
+        assertEquals(List.of(2L), release(rearming, price(102), 2 * COOLDOWN));
+    }
+
+    @Test
+    void releasedTrailingStopsRestartFromThePrice() {
+        Rearming rearming = new Rearming();
+        rearming.hold(recurring(1, AlertType.TRAILING_STOP, null, 0L), price(90), 0L);
+
+        List<AlertEntry> released = new ArrayList<>();
+        rearming.release(price(95), COOLDOWN, released);
+        assertEquals(1, released.size());
+        assertEquals(price(95), released.get(0).reference());
+    }
+
+    @Test
+    void removedEntriesAreNotReleased() {
+        Rearming rearming = new Rearming();
+        rearming.hold(recurring(1, AlertType.ABOVE, null, TWO_PERCENT), price(100), 0L);
+        rearming.hold(recurring(2, AlertType.ABOVE, null, 0L), price(100), 0L);
+
+        assertTrue(rearming.remove(1L));
+        assertTrue(rearming.remove(2L));
+        assertFalse(rearming.remove(2L));
+        assertEquals(List.of(), release(rearming, price(50), 2 * COOLDOWN));
+    }
+
+    private static AlertEntry recurring(long id, AlertType type, String direction, long hysteresis) {
+        return new AlertEntry(id, 1L, "AAPL", type, AlertEntry.isUp(type, direction), price(100), 0, 0L,
+                AlertEntry.UNLIMITED, COOLDOWN, hysteresis);
+    }
+
+    private static List<Long> release(Rearming rearming, long price, long time) {
+        List<AlertEntry> released = new ArrayList<>();
+        rearming.release(price, time, released);
+        return released.stream().map(AlertEntry::alertId).sorted().toList();
+    }
+}
@@ -0,0 +1,89 @@
+package com.analyticalplatform.alert;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.analyticalplatform.alert.AlertConditionTest.price;
+import static com.analyticalplatform.alert.AlertConditionTest.take;
+import static com.analyticalplatform.alert.AlertConditionTest.tick;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrailingStopTest {
+    private static final long TEN_PERCENT = 100_000L;
+
+    @Test
+    void highsBelowANewPriceMergeAndTrailFromIt() {
+        TrailingStop stop = new TrailingStop(TEN_PERCENT);
+        stop.add(stop(1, price(100)));
+        stop.add(stop(2, price(110)));
+        stop.add(stop(3, price(125)));
+
+        stop.update(tick(0, price(115)));
+        // 1 and 2 now trail from 115 and fire at 103.5; 3 still trails from 125 and fires at 112.5
+        stop.update(tick(1, 1_125_000L));
+        assertEquals(List.of(3L), take(stop));
+        stop.update(tick(2, 1_040_000L));
+        assertEquals(List.of(), take(stop));
+        stop.update(tick(3, 1_035_000L));
+        assertEquals(List.of(1L, 2L), take(stop));
+        assertTrue(stop.isEmpty());
+    }
+
+    @Test
+    void alertsWithoutAReferenceStartFromTheNextTick() {
+        TrailingStop stop = new TrailingStop(TEN_PERCENT);
+        stop.add(stop(1, 0L));
+        stop.update(tick(0, price(50)));
+        assertEquals(List.of(), take(stop));
+
+        // Added once a price is known, it starts from that price
+        stop.add(stop(2, 0L));
+        stop.update(tick(1, price(60)));
+        stop.update(tick(2, price(54)));
+        assertEquals(List.of(1L, 2L), take(stop));
+    }
+
+    @Test
+    void removedAlertsDoNotFire() {
+        TrailingStop stop = new TrailingStop(TEN_PERCENT);
+        stop.add(stop(1, price(100)));
+        stop.add(stop(2, price(100)));
+        assertTrue(stop.remove(stop(1, price(100))));
+        assertFalse(stop.remove(stop(1, price(100))));
+
+        stop.update(tick(0, price(90)));
+        assertEquals(List.of(2L), take(stop));
+    }
+
+    @Test
+    void raisedAndRestartedHighsAreReportedOnce() {
+        TrailingStop stop = new TrailingStop(TEN_PERCENT);
+        stop.add(stop(1, price(100)));
+        stop.add(stop(2, price(120)));
+        stop.update(tick(0, price(110)));
+        stop.update(tick(1, price(115)));
+
+        // 110 was merged into 115; 2 still trails from its own reference
+        Map<Long, Long> moved = new HashMap<>();
+        stop.takeMovedReferences(moved);
+        assertEquals(Map.of(1L, price(115)), moved);
+        moved.clear();
+        stop.takeMovedReferences(moved);
+        assertTrue(moved.isEmpty());
+
+        // A re-armed alert restarts from its new reference even though it is not a new high
+        stop.rearm(stop(3, price(120)));
+        stop.takeMovedReferences(moved);
+        assertEquals(Map.of(2L, price(120), 3L, price(120)), moved);
+    }
+
+    private static AlertEntry stop(long id, long reference) {
+        return new AlertEntry(id, 1L, "AAPL", AlertType.TRAILING_STOP, false, TEN_PERCENT, 0, reference,
+                1, 0L, 0L);
+    }
+}
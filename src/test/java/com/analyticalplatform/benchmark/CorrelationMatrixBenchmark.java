@@ -0,0 +1,81 @@
+package com.analyticalplatform.benchmark;
+
+import com.analyticalplatform.statistics.Correlations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Covariance matrix of a year of daily returns with the scalar loop versus the Vector API kernel.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *           -Dexec.mainClass=com.analyticalplatform.benchmark.CorrelationMatrixBenchmark
+ * The forked JVM gets --add-modules jdk.incubator.vector; setUp fails if the vector path is unavailable.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class CorrelationMatrixBenchmark {
+
+    @Param({"50", "200", "1000"})
+    private int symbols;
+
+    @Param({"252"})
+    private int days;
+
+    private double[][] returns;
+
+    @Setup
+    public void setUp() {
+        if (!Correlations.isVectorSupported()) {
+            throw new IllegalStateException("Vector API not available in the benchmark JVM");
+        }
+
+        // A shared market factor plus noise, so the matrix has realistic structure
+        SplittableRandom random = new SplittableRandom(42);
+        double[] market = new double[days];
+        for (int t = 0; t < days; t++) {
+            market[t] = random.nextGaussian() * 0.01;
+        }
+        returns = new double[symbols][days];
+        for (int i = 0; i < symbols; i++) {
+            double beta = random.nextDouble(0.5, 1.5);
+            for (int t = 0; t < days; t++) {
+                returns[i][t] = beta * market[t] + random.nextGaussian() * 0.015;
+            }
+        }
+    }
+
+    @Benchmark
+    public double[] covarianceScalar() {
+        return Correlations.covariance(returns, false);
+    }
+
+    @Benchmark
+    public double[] covarianceVector() {
+        return Correlations.covariance(returns, true);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CorrelationMatrixBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,146 @@
+package com.analyticalplatform.benchmark;
+
+import com.analyticalplatform.model.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Portfolio valuation, profit/loss and average-cost arithmetic with BigDecimal (as TransactionService
+ * did it) versus the scaled-long Money helpers.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *           -Dexec.mainClass=com.analyticalplatform.benchmark.MoneyArithmeticBenchmark
+ * The gc profiler reports gc.alloc.rate.norm (bytes allocated per operation).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyArithmeticBenchmark {
+
+    @Param({"50"})
+    private int holdings;
+
+    private BigDecimal[] decimalPrices;
+    private BigDecimal[] decimalCosts;
+    private Money[] moneyPrices;
+    private Money[] moneyCosts;
+    private long[] quantities;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        decimalPrices = new BigDecimal[holdings];
+        decimalCosts = new BigDecimal[holdings];
+        moneyPrices = new Money[holdings];
+        moneyCosts = new Money[holdings];
+        quantities = new long[holdings];
+
+        for (int i = 0; i < holdings; i++) {
+            long priceUnits = random.nextLong(10_0000L, 1_000_0000L);
+            long costUnits = random.nextLong(10_0000L, 1_000_0000L);
+            decimalPrices[i] = BigDecimal.valueOf(priceUnits, Money.SCALE);
+            decimalCosts[i] = BigDecimal.valueOf(costUnits, Money.SCALE);
+            moneyPrices[i] = Money.ofUnits(priceUnits);
+            moneyCosts[i] = Money.ofUnits(costUnits);
+            quantities[i] = random.nextLong(1, 500);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal portfolioValueBigDecimal() {
+        BigDecimal totalValue = BigDecimal.ZERO;
+        for (int i = 0; i < holdings; i++) {
+            totalValue = totalValue.add(decimalPrices[i].multiply(BigDecimal.valueOf(quantities[i])));
+        }
+        return totalValue;
+    }
+
+    @Benchmark
+    public long portfolioValueMoney() {
+        long totalValue = 0L;
+        for (int i = 0; i < holdings; i++) {
+            totalValue = Math.addExact(totalValue, Money.multiplyUnits(moneyPrices[i].units(), quantities[i]));
+        }
+        return totalValue;
+    }
+
+    @Benchmark
+    public BigDecimal profitLossPercentageBigDecimal() {
+        BigDecimal totalCost = BigDecimal.ZERO;
+        BigDecimal currentValue = BigDecimal.ZERO;
+        for (int i = 0; i < holdings; i++) {
+            BigDecimal quantity = BigDecimal.valueOf(quantities[i]);
+            totalCost = totalCost.add(decimalCosts[i].multiply(quantity));
+            currentValue = currentValue.add(decimalPrices[i].multiply(quantity));
+        }
+        return currentValue.subtract(totalCost).divide(totalCost, 4, RoundingMode.HALF_UP)
+                .multiply(BigDecimal.valueOf(100));
+    }
+
+    @Benchmark
+    public long profitLossPercentageMoney() {
+        long totalCost = 0L;
+        long currentValue = 0L;
+        for (int i = 0; i < holdings; i++) {
+            totalCost = Math.addExact(totalCost, Money.multiplyUnits(moneyCosts[i].units(), quantities[i]));
+            currentValue = Math.addExact(currentValue, Money.multiplyUnits(moneyPrices[i].units(), quantities[i]));
+        }
+        // Stay in units here; converting to BigDecimal happens once at the API boundary
+        return Money.divideUnits(Math.multiplyExact(currentValue - totalCost, Money.ONE), totalCost,
+                RoundingMode.HALF_UP) * 100L;
+    }
+
+    @Benchmark
+    public BigDecimal averageCostBigDecimal() {
+        BigDecimal average = decimalCosts[0];
+        long quantity = quantities[0];
+        for (int i = 1; i < holdings; i++) {
+            BigDecimal oldTotalValue = average.multiply(BigDecimal.valueOf(quantity));
+            BigDecimal newValue = decimalPrices[i].multiply(BigDecimal.valueOf(quantities[i]));
+            quantity += quantities[i];
+            average = oldTotalValue.add(newValue).divide(BigDecimal.valueOf(quantity), 4, RoundingMode.HALF_UP);
+        }
+        return average;
+    }
+
+    @Benchmark
+    public long averageCostMoney() {
+        long average = moneyCosts[0].units();
+        long quantity = quantities[0];
+        for (int i = 1; i < holdings; i++) {
+            long oldTotalValue = Money.multiplyUnits(average, quantity);
+            long newValue = Money.multiplyUnits(moneyPrices[i].units(), quantities[i]);
+            quantity += quantities[i];
+            average = Money.divideUnits(Math.addExact(oldTotalValue, newValue), quantity, RoundingMode.HALF_UP);
+        }
+        return average;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MoneyArithmeticBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
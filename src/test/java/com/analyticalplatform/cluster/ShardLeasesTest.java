@@ -0,0 +1,182 @@
+package com.analyticalplatform.cluster;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Several coordinators in one process sharing an H2 database, driven by an explicit clock.
+ */
+class ShardLeasesTest {
+    private static final int SHARDS = 32;
+    private static final long LEASE = 30_000L;
+    private static final long HEARTBEAT = 10_000L;
+    private static final long SKEW = 2_000L;
+
+    private static final List<String> SYMBOLS = List.of("AAPL", "MSFT", "GOOGL", "AMZN", "META", "TSLA",
+            "NVDA", "JPM", "V", "WMT", "KO", "PEP", "DIS", "NFLX", "INTC", "AMD", "IBM", "ORCL");
+
+    private JdbcTemplate jdbcTemplate;
+    private final Map<String, ShardLeases> nodes = new LinkedHashMap<>();
+    private long now = 1_000_000L;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE cluster_nodes (node_id VARCHAR(128) PRIMARY KEY, " +
+                "started_at BIGINT, heartbeat_at BIGINT)");
+        jdbcTemplate.execute("CREATE TABLE shard_leases (shard_id INT PRIMARY KEY, " +
+                "owner_node VARCHAR(128), lease_until BIGINT)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Test
+    void everyShardHasOneOwnerOnceNodesHaveHeartbeated() {
+        start("node-a", "node-b", "node-c");
+        round(nodes.values());
+        round(nodes.values());
+
+        assertExactlyOneOwner(nodes.values());
+        for (ShardLeases node : nodes.values()) {
+            assertTrue(owned(node).cardinality() > 0, node.nodeId() + " should hold some shards");
+        }
+        for (String symbol : SYMBOLS) {
+            long owners = nodes.values().stream().filter(node -> node.owns(symbol, now)).count();
+            assertEquals(1, owners, symbol + " should be owned by exactly one node");
+        }
+    }
+
+    @Test
+    void joiningNodeTakesShardsWithoutOverlap() {
+        start("node-a", "node-b");
+        round(nodes.values());
+        round(nodes.values());
+        assertExactlyOneOwner(nodes.values());
+
+        start("node-c");
+        // Check after every single heartbeat that no shard is held twice
+        for (int i = 0; i < 3; i++) {
+            now += HEARTBEAT;
+            for (ShardLeases node : nodes.values()) {
+                node.heartbeat(now);
+                assertAtMostOneOwner(nodes.values());
+            }
+        }
+
+        assertExactlyOneOwner(nodes.values());
+        assertTrue(owned(nodes.get("node-c")).cardinality() > 0);
+    }
+
+    @Test
+    void deadNodesShardsMoveToSurvivorsAfterLeaseExpiry() {
+        start("node-a", "node-b", "node-c");
+        round(nodes.values());
+        round(nodes.values());
+        BitSet orphaned = owned(nodes.get("node-b"));
+        assertTrue(orphaned.cardinality() > 0);
+
+        // node-b stops heartbeating; the others keep going
+        List<ShardLeases> survivors = List.of(nodes.get("node-a"), nodes.get("node-c"));
+        for (int i = 0; i < 5; i++) {
+            now += HEARTBEAT;
+            for (ShardLeases node : survivors) {
+                node.heartbeat(now);
+            }
+            // Its leases only move once node-b itself has stopped trusting them
+            for (int shard = orphaned.nextSetBit(0); shard >= 0; shard = orphaned.nextSetBit(shard + 1)) {
+                int shardId = shard;
+                long holders = nodes.values().stream().filter(node -> node.ownsShard(shardId, now)).count();
+                assertTrue(holders <= 1, "shard " + shard + " held twice");
+            }
+        }
+
+        assertExactlyOneOwner(survivors);
+        for (String symbol : SYMBOLS) {
+            assertTrue(!nodes.get("node-b").owns(symbol, now));
+        }
+    }
+
+    @Test
+    void leavingNodeHandsOverOnTheNextHeartbeat() {
+        start("node-a", "node-b");
+        round(nodes.values());
+        round(nodes.values());
+
+        nodes.get("node-b").leave();
+        now += HEARTBEAT;
+        nodes.get("node-a").heartbeat(now);
+        now += HEARTBEAT;
+        nodes.get("node-a").heartbeat(now);
+
+        assertEquals(SHARDS, owned(nodes.get("node-a")).cardinality());
+    }
+
+    @Test
+    void assignmentMovesOnlyTheShardsOfTheChangedNode() {
+        List<String> before = List.of("node-a", "node-b", "node-c");
+        List<String> after = List.of("node-a", "node-b", "node-c", "node-d");
+        for (int shard = 0; shard < SHARDS; shard++) {
+            String owner = ShardLeases.assign(shard, after);
+            if (!owner.equals("node-d")) {
+                assertEquals(ShardLeases.assign(shard, before), owner);
+            }
+        }
+    }
+
+    private void start(String... nodeIds) {
+        for (String nodeId : nodeIds) {
+            nodes.put(nodeId, new ShardLeases(jdbcTemplate, nodeId, SHARDS, LEASE, SKEW));
+        }
+    }
+
+    private void round(Iterable<ShardLeases> members) {
+        now += HEARTBEAT;
+        for (ShardLeases node : members) {
+            node.heartbeat(now);
+        }
+    }
+
+    private BitSet owned(ShardLeases node) {
+        BitSet owned = new BitSet();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            if (node.ownsShard(shard, now)) {
+                owned.set(shard);
+            }
+        }
+        return owned;
+    }
+
+    private void assertAtMostOneOwner(Iterable<ShardLeases> members) {
+        List<BitSet> sets = new ArrayList<>();
+        members.forEach(node -> sets.add(owned(node)));
+        for (int i = 0; i < sets.size(); i++) {
+            for (int j = i + 1; j < sets.size(); j++) {
+                assertTrue(!sets.get(i).intersects(sets.get(j)), "a shard is held by two nodes");
+            }
+        }
+    }
+
+    private void assertExactlyOneOwner(Iterable<ShardLeases> members) {
+        assertAtMostOneOwner(members);
+        BitSet all = new BitSet();
+        members.forEach(node -> all.or(owned(node)));
+        assertEquals(SHARDS, all.cardinality());
+    }
+}
@@ -0,0 +1,145 @@
+package com.analyticalplatform.service;
+
+import com.analyticalplatform.dto.IndicatorSeriesDTO;
+import com.analyticalplatform.indicator.BarSeries;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cached streaming indicators against the same indicators computed from scratch over the bars.
+ */
+class IndicatorServiceTest {
+    private static final String SYMBOL = "AAPL";
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 2, 0, 0);
+    private static final List<String> SPECS = List.of("sma:5", "ema:5", "rsi:5", "macd:3:6:3", "bb:5:2",
+            "atr:5", "vwap", "vwap:5");
+    private static final int LIMIT = 1000;
+
+    private final Random random = new Random(42);
+    private BarSeries bars;
+    private PriceHistoryService priceHistoryService;
+    private IndicatorService streaming;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        bars = new BarSeries();
+        priceHistoryService = mock(PriceHistoryService.class);
+        when(priceHistoryService.getSeries(SYMBOL, "daily")).thenReturn(bars);
+        streaming = newService();
+    }
+
+    @Test
+    void streamingMatchesFromScratchAsBarsArriveAndTheLatestIsRevised() throws InterruptedException {
+        for (int i = 0; i < 60; i++) {
+            appendBar();
+            assertMatchesFromScratch();
+
+            // The forming bar moves before the next one opens
+            reviseLastBar();
+            assertMatchesFromScratch();
+        }
+    }
+
+    @Test
+    void refreshAfterMissedUpdatesMatchesFromScratch() throws InterruptedException {
+        for (int i = 0; i < 20; i++) {
+            appendBar();
+        }
+        assertMatchesFromScratch();
+
+        // A refresh that revises the bar last seen as forming and appends many more at once
+        reviseLastBar();
+        for (int i = 0; i < 40; i++) {
+            appendBar();
+        }
+        assertMatchesFromScratch();
+
+        reviseLastBar();
+        appendBar();
+        assertMatchesFromScratch();
+    }
+
+    @Test
+    void fromScratchValuesMatchDirectComputation() throws InterruptedException {
+        for (int i = 0; i < 30; i++) {
+            appendBar();
+        }
+        Map<String, Double[]> values = newService().getIndicators(SYMBOL, "daily", List.of("sma:5", "bb:5:2"), LIMIT)
+                .getValues();
+
+        for (int i = 0; i < bars.size(); i++) {
+            if (i < 4) {
+                assertNull(values.get("sma(5)")[i]);
+                continue;
+            }
+            double sum = 0.0;
+            for (int j = i - 4; j <= i; j++) {
+                sum += bars.close(j);
+            }
+            double mean = sum / 5;
+            double squares = 0.0;
+            for (int j = i - 4; j <= i; j++) {
+                squares += (bars.close(j) - mean) * (bars.close(j) - mean);
+            }
+            double deviation = Math.sqrt(squares / 5);
+
+            assertEquals(mean, values.get("sma(5)")[i], 1e-9);
+            assertEquals(mean, values.get("bb(5,2).middle")[i], 1e-9);
+            assertEquals(mean + 2 * deviation, values.get("bb(5,2).upper")[i], 1e-9);
+            assertEquals(mean - 2 * deviation, values.get("bb(5,2).lower")[i], 1e-9);
+        }
+    }
+
+    private void assertMatchesFromScratch() throws InterruptedException {
+        IndicatorSeriesDTO streamed = streaming.getIndicators(SYMBOL, "daily", SPECS, LIMIT);
+        IndicatorSeriesDTO expected = newService().getIndicators(SYMBOL, "daily", SPECS, LIMIT);
+
+        assertEquals(expected.getValues().keySet(), streamed.getValues().keySet());
+        for (Map.Entry<String, Double[]> entry : expected.getValues().entrySet()) {
+            Double[] actual = streamed.getValues().get(entry.getKey());
+            assertEquals(entry.getValue().length, actual.length, entry.getKey());
+            for (int i = 0; i < actual.length; i++) {
+                Double value = entry.getValue()[i];
+                String where = entry.getKey() + " at bar " + i + " of " + actual.length;
+                if (value == null) {
+                    assertNull(actual[i], where);
+                } else {
+                    assertNotNull(actual[i], where);
+                    assertEquals(value, actual[i], 1e-9, where);
+                }
+            }
+        }
+    }
+
+    private IndicatorService newService() {
+        IndicatorService service = new IndicatorService(priceHistoryService);
+        ReflectionTestUtils.setField(service, "maxCachedIndicators", 100);
+        return service;
+    }
+
+    private void appendBar() {
+        double previous = bars.size() > 0 ? bars.close(bars.size() - 1) : 100.0;
+        double close = previous + random.nextGaussian();
+        bars.append(START.plusDays(bars.size()), previous, Math.max(previous, close) + random.nextDouble(),
+                Math.min(previous, close) - random.nextDouble(), close, 1_000L + random.nextInt(1_000));
+    }
+
+    private void reviseLastBar() {
+        int last = bars.size() - 1;
+        double close = bars.close(last) + random.nextGaussian();
+        bars.replaceLast(bars.open(last), Math.max(bars.high(last), close), Math.min(bars.low(last), close), close,
+                bars.volume(last) + random.nextInt(500));
+    }
+}
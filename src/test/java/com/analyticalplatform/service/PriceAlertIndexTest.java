@@ -0,0 +1,117 @@
+package com.analyticalplatform.service;
+
+import com.analyticalplatform.alert.AlertEntry;
+import com.analyticalplatform.alert.Tick;
+import com.analyticalplatform.dto.ActiveAlertTarget;
+import com.analyticalplatform.event.ShardsAcquiredEvent;
+import com.analyticalplatform.model.Money;
+import com.analyticalplatform.repository.PriceAlertRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Shard takeover: the index advanced a symbol another node fired, then becomes its owner.
+ */
+class PriceAlertIndexTest {
+    private static final String SYMBOL = "AAPL";
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 2, 10, 0);
+
+    private PriceAlertRepository priceAlertRepository;
+    private PriceAlertIndex index;
+
+    @BeforeEach
+    void setUp() {
+        priceAlertRepository = mock(PriceAlertRepository.class);
+        index = new PriceAlertIndex(priceAlertRepository, mock(PriceTable.class), mock(ClusterCoordinator.class));
+    }
+
+    @Test
+    void trailingStopKeepsItsRaisedHighOnTakeover() {
+        ActiveAlertTarget stop = target(1L, "TRAILING_STOP", null, "10", 100, false, 0, null);
+        when(priceAlertRepository.findActiveTargets()).thenReturn(List.of(stop));
+        index.rebuild();
+
+        index.advance(SYMBOL, tick(1, "150"));
+        index.advance(SYMBOL, tick(2, "140"));
+        // The database still has the high the alert was created at
+        takeOver(stop);
+
+        // Trailing from 150, it fires at 135, not at 126 from the last price
+        assertEquals(List.of(), fired(tick(3, "136")));
+        assertEquals(List.of(1L), fired(tick(4, "135")));
+    }
+
+    @Test
+    void recurringAlertFiredElsewhereReArmsFromThatFire() {
+        ActiveAlertTarget above = target(2L, "ABOVE", "110", null, 0, true, 0, null);
+        when(priceAlertRepository.findActiveTargets()).thenReturn(List.of(above));
+        index.rebuild();
+
+        // Satisfied here, but fired by the other node, which had one fire written back
+        index.advance(SYMBOL, tick(1, "115"));
+        takeOver(target(2L, "ABOVE", "110", null, 0, true, 1, START.plusMinutes(1)));
+
+        assertEquals(List.of(), fired(tick(30, "116")));
+        assertEquals(List.of(2L), fired(tick(61, "116")));
+    }
+
+    @Test
+    void alertsCreatedElsewhereAreIndexedOnTakeover() {
+        ActiveAlertTarget below = target(3L, "BELOW", "90", null, 0, false, 0, null);
+        when(priceAlertRepository.findActiveTargets()).thenReturn(List.of(below));
+        index.rebuild();
+        index.advance(SYMBOL, tick(1, "100"));
+
+        takeOver(below, target(4L, "BELOW", "95", null, 0, false, 0, null));
+
+        assertEquals(List.of(4L), fired(tick(2, "94")));
+        assertEquals(List.of(3L), fired(tick(3, "90")));
+    }
+
+    private void takeOver(ActiveAlertTarget... targets) {
+        when(priceAlertRepository.findActiveTargetsBySymbolIn(any())).thenReturn(List.of(targets));
+        BitSet shards = new BitSet();
+        shards.set(0);
+        index.onShardsAcquired(new ShardsAcquiredEvent(shards));
+    }
+
+    private List<Long> fired(Tick tick) {
+        return index.takeSatisfied(SYMBOL, tick).stream().map(AlertEntry::alertId).toList();
+    }
+
+    private static Tick tick(long minute, String price) {
+        long time = START.plusMinutes(minute).toInstant(ZoneOffset.UTC).toEpochMilli();
+        return new Tick(time, Money.parse(price).units(), 0L, 0L);
+    }
+
+    private static ActiveAlertTarget target(long id, String type, String targetPrice, String threshold,
+                                            long reference, boolean recurring, int fireCount,
+                                            LocalDateTime lastTriggeredAt) {
+        return new ActiveAlertTarget(id, 1L, SYMBOL, type,
+                targetPrice != null ? Money.parse(targetPrice) : null,
+                null,
+                threshold != null ? new BigDecimal(threshold) : null,
+                null,
+                reference > 0 ? Money.parse(Long.toString(reference)) : null,
+                null,
+                recurring,
+                null,
+                recurring ? 60 : null,
+                null,
+                fireCount,
+                lastTriggeredAt,
+                lastTriggeredAt != null ? Money.parse("115") : null,
+                START);
+    }
+}
@@ -0,0 +1,119 @@
+package com.analyticalplatform.service;
+
+import com.analyticalplatform.indicator.BarSeries;
+import com.analyticalplatform.model.Money;
+import com.analyticalplatform.model.PriceBar;
+import com.analyticalplatform.repository.PriceBarRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Refreshing a stored daily series from compact and full Alpha Vantage responses.
+ */
+class PriceHistoryServiceTest {
+    private static final String SYMBOL = "AAPL";
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+
+    private PriceBarRepository priceBarRepository;
+    private AlphaVantageService alphaVantageService;
+    private ApiRateLimiterService apiRateLimiterService;
+    private PriceHistoryService service;
+
+    @BeforeEach
+    void setUp() {
+        priceBarRepository = mock(PriceBarRepository.class);
+        alphaVantageService = mock(AlphaVantageService.class);
+        apiRateLimiterService = mock(ApiRateLimiterService.class);
+        service = new PriceHistoryService(priceBarRepository, alphaVantageService, apiRateLimiterService);
+
+        // Days 0 to 4 are stored; the series is refreshed on first use
+        List<PriceBar> stored = new ArrayList<>();
+        for (int day = 0; day < 5; day++) {
+            stored.add(bar(day, "100"));
+        }
+        when(priceBarRepository.findBySymbolAndIntervalOrderByBarTimeAsc(SYMBOL, "daily")).thenReturn(stored);
+    }
+
+    @Test
+    void compactRefreshThatReachesTheStoredBarsIsMerged() throws InterruptedException {
+        when(alphaVantageService.getTimeSeriesDaily(SYMBOL, "compact")).thenReturn(response(4, 8, "101"));
+
+        BarSeries bars = service.getSeries(SYMBOL, "daily");
+
+        assertEquals(8, bars.size());
+        assertDays(bars);
+        assertEquals(101.0, bars.close(4));
+        verify(alphaVantageService, never()).getTimeSeriesDaily(SYMBOL, "full");
+    }
+
+    @Test
+    void compactRefreshThatSkipsBarsFallsBackToFullHistory() throws InterruptedException {
+        when(alphaVantageService.getTimeSeriesDaily(SYMBOL, "compact")).thenReturn(response(10, 13, "101"));
+        when(alphaVantageService.getTimeSeriesDaily(SYMBOL, "full")).thenReturn(response(0, 13, "101"));
+
+        BarSeries bars = service.getSeries(SYMBOL, "daily");
+
+        assertEquals(13, bars.size());
+        assertDays(bars);
+    }
+
+    @Test
+    void rateLimitedFallbackServesStoredBarsWithoutTheGap() throws InterruptedException {
+        when(alphaVantageService.getTimeSeriesDaily(SYMBOL, "compact")).thenReturn(response(10, 13, "101"));
+        doNothing().doThrow(new InterruptedException("Rate limited")).when(apiRateLimiterService).acquirePermit();
+
+        BarSeries bars = service.getSeries(SYMBOL, "daily");
+
+        assertEquals(5, bars.size());
+        assertDays(bars);
+        verify(alphaVantageService, never()).getTimeSeriesDaily(SYMBOL, "full");
+    }
+
+    private static void assertDays(BarSeries bars) {
+        for (int i = 0; i < bars.size(); i++) {
+            assertEquals(START.plusDays(i).atStartOfDay(), bars.dateTime(i));
+        }
+    }
+
+    private static PriceBar bar(int day, String close) {
+        return PriceBar.builder()
+                .symbol(SYMBOL)
+                .interval("daily")
+                .barTime(START.plusDays(day).atStartOfDay())
+                .open(Money.parse("100"))
+                .high(Money.parse("105"))
+                .low(Money.parse("95"))
+                .close(Money.parse(close))
+                .volume(1_000L)
+                .build();
+    }
+
+    /**
+     * Daily bars for days from (inclusive) to to (exclusive), newest first as Alpha Vantage sends them.
+     */
+    private static Map<String, Object> response(int from, int to, String close) {
+        Map<String, Object> days = new LinkedHashMap<>();
+        for (int day = to - 1; day >= from; day--) {
+            days.put(START.plusDays(day).toString(), Map.of(
+                    "1. open", "100",
+                    "2. high", "105",
+                    "3. low", "95",
+                    "4. close", close,
+                    "5. volume", "1000"));
+        }
+        return Map.of("Time Series (Daily)", days);
+    }
+}
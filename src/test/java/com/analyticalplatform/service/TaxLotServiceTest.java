@@ -0,0 +1,165 @@
+package com.analyticalplatform.service;
+
+import com.analyticalplatform.model.Money;
+import com.analyticalplatform.model.TaxLot;
+import com.analyticalplatform.repository.RealizedProfitLossRepository;
+import com.analyticalplatform.repository.TaxLotRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Lot matching against an in-memory lot table.
+ */
+class TaxLotServiceTest {
+    private static final long USER = 1L;
+    private static final String SYMBOL = "AAPL";
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 2, 10, 0);
+
+    private final List<TaxLot> lots = new ArrayList<>();
+    private TaxLotService service;
+
+    @BeforeEach
+    void setUp() {
+        TaxLotRepository taxLotRepository = mock(TaxLotRepository.class);
+        RealizedProfitLossRepository realizedRepository = mock(RealizedProfitLossRepository.class);
+
+        when(taxLotRepository.findOpenLots(anyLong(), anyString(), any(Pageable.class))).thenAnswer(invocation -> {
+            Pageable pageable = invocation.getArgument(2);
+            List<TaxLot> open = lots.stream()
+                    .filter(lot -> lot.getRemainingQuantity() > 0)
+                    .sorted(comparator(pageable.getSort()))
+                    .toList();
+            return pageable.isPaged() ? open.subList(0, Math.min(open.size(), pageable.getPageSize())) : open;
+        });
+        when(taxLotRepository.sumOpenQuantity(anyLong(), anyString())).thenAnswer(invocation ->
+                lots.stream().mapToLong(TaxLot::getRemainingQuantity).sum());
+        when(taxLotRepository.save(any(TaxLot.class))).thenAnswer(invocation -> {
+            TaxLot lot = invocation.getArgument(0);
+            if (lot.getId() == null) {
+                lot.setId((long) lots.size() + 1);
+                lots.add(lot);
+            }
+            return lot;
+        });
+        when(taxLotRepository.saveAllAndFlush(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(realizedRepository.findByUserIdAndSymbol(anyLong(), anyString())).thenReturn(Optional.empty());
+        when(realizedRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        service = new TaxLotService(taxLotRepository, realizedRepository);
+        ReflectionTestUtils.setField(service, "matchingMethod", TaxLotService.MatchingMethod.FIFO);
+        // Smaller than the number of lots, so sales page through them
+        ReflectionTestUtils.setField(service, "lotFetchSize", 2);
+    }
+
+    @Test
+    void fifoSaleConsumesSeveralLotsOldestFirst() {
+        TaxLot first = lot(10, "100", 0);
+        TaxLot second = lot(10, "110", 1);
+        TaxLot third = lot(10, "120", 2);
+
+        Money realized = service.closeLots(USER, SYMBOL, 25, 30, Money.parse("130"), Money.parse("110"));
+
+        // 25 * 130 - (10 * 100 + 10 * 110 + 5 * 120)
+        assertEquals(Money.parse("550"), realized);
+        assertEquals(0, first.getRemainingQuantity());
+        assertEquals(0, second.getRemainingQuantity());
+        assertEquals(5, third.getRemainingQuantity());
+        assertNotNull(first.getClosedAt());
+        assertNull(third.getClosedAt());
+    }
+
+    @Test
+    void partialSaleLeavesTheLotOpen() {
+        TaxLot only = lot(10, "100", 0);
+
+        Money realized = service.closeLots(USER, SYMBOL, 4, 10, Money.parse("90"), Money.parse("100"));
+
+        assertEquals(Money.parse("-40"), realized);
+        assertEquals(6, only.getRemainingQuantity());
+        assertNull(only.getClosedAt());
+    }
+
+    @Test
+    void untrackedSharesAreSoldFirstAtTheirResidualCostUnderFifo() {
+        // 10 shares bought at 100 before lots were tracked, then 10 at 120: the average is 110
+        TaxLot tracked = lot(10, "120", 5);
+
+        Money realized = service.closeLots(USER, SYMBOL, 10, 20, Money.parse("130"), Money.parse("110"));
+
+        // The untracked 10 at 20 * 110 - 10 * 120 = 1000, not the newer lot or the average
+        assertEquals(Money.parse("300"), realized);
+        assertEquals(10, tracked.getRemainingQuantity());
+        TaxLot opening = lots.get(1);
+        assertEquals(Money.parse("100"), opening.getCostPrice());
+        assertEquals(10, opening.getQuantity());
+        assertEquals(0, opening.getRemainingQuantity());
+        assertEquals(tracked.getOpenedAt().minusSeconds(1), opening.getOpenedAt());
+    }
+
+    @Test
+    void untrackedSharesAreSoldLastUnderLifo() {
+        ReflectionTestUtils.setField(service, "matchingMethod", TaxLotService.MatchingMethod.LIFO);
+        TaxLot tracked = lot(10, "120", 5);
+
+        Money realized = service.closeLots(USER, SYMBOL, 13, 20, Money.parse("130"), Money.parse("110"));
+
+        // 13 * 130 - (10 * 120 + 3 * 100)
+        assertEquals(Money.parse("190"), realized);
+        assertEquals(0, tracked.getRemainingQuantity());
+        assertEquals(7, lots.get(1).getRemainingQuantity());
+    }
+
+    @Test
+    void fullyTrackedPositionOpensNoExtraLot() {
+        lot(10, "100", 0);
+
+        service.closeLots(USER, SYMBOL, 10, 10, Money.parse("100"), Money.parse("100"));
+
+        assertEquals(1, lots.size());
+    }
+
+    private TaxLot lot(long quantity, String costPrice, int day) {
+        TaxLot lot = TaxLot.builder()
+                .id((long) lots.size() + 1)
+                .userId(USER)
+                .symbol(SYMBOL)
+                .quantity(quantity)
+                .remainingQuantity(quantity)
+                .costPrice(Money.parse(costPrice))
+                .openedAt(START.plusDays(day))
+                .build();
+        lots.add(lot);
+        return lot;
+    }
+
+    private static Comparator<TaxLot> comparator(Sort sort) {
+        Comparator<TaxLot> comparator = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<TaxLot> next = switch (order.getProperty()) {
+                case "openedAt" -> Comparator.comparing(TaxLot::getOpenedAt);
+                case "costPrice" -> Comparator.comparingLong(lot -> lot.getCostPrice().units());
+                default -> Comparator.comparing(TaxLot::getId);
+            };
+            comparator = comparator.thenComparing(order.isAscending() ? next : next.reversed());
+        }
+        return comparator;
+    }
+}